@@ -50,7 +50,9 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import static com.distrimind.madkit.util.ReflectionTools.getMethod;
 import static com.distrimind.madkit.util.ReflectionTools.invoke;
@@ -150,7 +152,142 @@ public final class DifferedMessageTable extends Table<DifferedMessageTable.Recor
 
 	private final Map<Role, AbstractAgent> availableSenders= Collections.synchronizedMap(new HashMap<>());
 
-	private void checkSender(final AbstractAgent abstractAgent, final Group group, final String r, String groupPath) throws DatabaseException {
+	/*
+	 * Number of stored records per group path and sender role, and per group path and receiver role. It is loaded
+	 * lazily from the database and can overestimate, but never underestimate, the real number of records, so that
+	 * role requests which cannot trigger any delivery do not have to open a transaction.
+	 */
+	private final Map<String, Integer> recordsPerSenderRole=new HashMap<>();
+	private final Map<String, Integer> recordsPerReceiverRole=new HashMap<>();
+	private boolean presenceIndexLoaded=false;
+	/*
+	 * Records that are being stored. They are counted into the presence index before their transaction commits,
+	 * so that a role request concurrent to this transaction does not miss them.
+	 */
+	private final Set<Record> recordsBeingStored=Collections.newSetFromMap(new IdentityHashMap<>());
+
+	private final LinkedList<Runnable> pendingDeliveries=new LinkedList<>();
+	private boolean deliveryInProgress=false;
+
+	private static final class DifferedDelivery
+	{
+		private final AbstractAgent sender;
+		private final AgentAddress receiver;
+		private final Record record;
+		private Message message;
+
+		DifferedDelivery(AbstractAgent sender, AgentAddress receiver, Record record) {
+			this.sender = sender;
+			this.receiver = receiver;
+			this.record = record;
+		}
+	}
+
+	private static String getPresenceKey(String groupPath, String role)
+	{
+		return groupPath+'\u0000'+role;
+	}
+
+	private static void incrementPresence(Map<String, Integer> presence, String key, int delta)
+	{
+		Integer v=presence.get(key);
+		int nv=(v==null?0:v)+delta;
+		if (nv<=0)
+			presence.remove(key);
+		else
+			presence.put(key, nv);
+	}
+
+	private void loadPresenceIndexIfNecessary() throws DatabaseException {
+		synchronized (recordsPerSenderRole)
+		{
+			if (presenceIndexLoaded)
+				return;
+			recordsPerSenderRole.clear();
+			recordsPerReceiverRole.clear();
+			getRecords(new Filter<Record>() {
+				@Override
+				public boolean nextRecord(Record _record) {
+					incrementPresence(recordsPerSenderRole, getPresenceKey(_record.getGroupPath(), _record.getRoleSender()), 1);
+					incrementPresence(recordsPerReceiverRole, getPresenceKey(_record.getGroupPath(), _record.getRoleReceiver()), 1);
+					return false;
+				}
+			});
+			//these records can also have been read from the database: overestimating is safe
+			for (Record r : recordsBeingStored) {
+				incrementPresence(recordsPerSenderRole, getPresenceKey(r.getGroupPath(), r.getRoleSender()), 1);
+				incrementPresence(recordsPerReceiverRole, getPresenceKey(r.getGroupPath(), r.getRoleReceiver()), 1);
+			}
+			presenceIndexLoaded=true;
+		}
+	}
+
+	private void updatePresenceIndex(Collection<Record> records, int delta)
+	{
+		synchronized (recordsPerSenderRole)
+		{
+			if (!presenceIndexLoaded)
+				return;
+			for (Record r : records) {
+				incrementPresence(recordsPerSenderRole, getPresenceKey(r.getGroupPath(), r.getRoleSender()), delta);
+				incrementPresence(recordsPerReceiverRole, getPresenceKey(r.getGroupPath(), r.getRoleReceiver()), delta);
+			}
+		}
+	}
+
+	private void invalidatePresenceIndex()
+	{
+		synchronized (recordsPerSenderRole)
+		{
+			presenceIndexLoaded=false;
+			recordsPerSenderRole.clear();
+			recordsPerReceiverRole.clear();
+		}
+	}
+
+	private boolean hasDifferedMessagesToDeliver(String groupPath, String role) throws DatabaseException {
+		loadPresenceIndexIfNecessary();
+		String key=getPresenceKey(groupPath, role);
+		synchronized (recordsPerSenderRole)
+		{
+			return !presenceIndexLoaded || recordsPerSenderRole.containsKey(key) || recordsPerReceiverRole.containsKey(key);
+		}
+	}
+
+	private void scheduleDelivery(Runnable task, Executor executor)
+	{
+		synchronized (pendingDeliveries)
+		{
+			pendingDeliveries.addLast(task);
+			if (deliveryInProgress)
+				return;
+			deliveryInProgress=true;
+		}
+		if (executor==null)
+			runPendingDeliveries();
+		else
+			executor.execute(this::runPendingDeliveries);
+	}
+
+	private void runPendingDeliveries()
+	{
+		for(;;)
+		{
+			Runnable task;
+			synchronized (pendingDeliveries)
+			{
+				task=pendingDeliveries.pollFirst();
+				if (task==null) {
+					deliveryInProgress = false;
+					return;
+				}
+			}
+			//delivery tasks give their exceptions to the exception handler of their role request
+			task.run();
+		}
+	}
+
+	private void checkSender(final AbstractAgent abstractAgent, final Group group, final String r, String groupPath, final List<DifferedDelivery> deliveries) throws DatabaseException {
 		if (abstractAgent==null)
 			return ;
 		Role role=new Role(group, r);
@@ -158,21 +295,13 @@ public final class DifferedMessageTable extends Table<DifferedMessageTable.Recor
 		if (res!=null)
 			return ;
 		final AtomicBoolean allRemoved=new AtomicBoolean(true);
-		final Set<String> rolesList=new HashSet<>();
 		getOrderedRecords(new Filter<Record>(){
 			@Override
 			public boolean nextRecord(Record _record) {
 
 				AgentAddress aa=abstractAgent.getAgentWithRole(group, _record.getRoleReceiver());
 				if (aa!=null) {
-					try {
-
-						if (abstractAgent.sendMessageWithRole(aa, _record.getDifferedMessage(), r)== AbstractAgent.ReturnCode.SUCCESS)
-							rolesList.add(_record.getRoleReceiver());
-					} catch (ClassNotFoundException | IOException e) {
-						e.printStackTrace();
-					}
-
+					deliveries.add(new DifferedDelivery(abstractAgent, aa, _record));
 				}
 				else {
 					allRemoved.set(false);
@@ -180,13 +309,6 @@ public final class DifferedMessageTable extends Table<DifferedMessageTable.Recor
 				return false;
 			}
 		},"groupPath=%groupPath AND roleSender=%roleSender", new Object[]{"groupPath", groupPath, "roleSender", r}, true, "utcTimeUpdate");
-		removeRecords(new Filter<Record>(){
-			@Override
-			public boolean nextRecord(Record _record) {
-				return rolesList.contains(_record.getRoleReceiver());
-
-			}
-		},"groupPath=%groupPath AND roleSender=%roleSender", "groupPath", groupPath, "roleSender", r);
 		if (!allRemoved.get()) {
 			availableSenders.put(role, abstractAgent);
 		}
@@ -221,57 +343,91 @@ public final class DifferedMessageTable extends Table<DifferedMessageTable.Recor
 		return false;
 	}
 
-	public void newAgentConnected(Collection<String> baseGroupPath, final AbstractAgent agent, final AgentAddress agentAddress) throws DatabaseException {
+	/**
+	 * Delivers messages that were differed until the given agent address joins its role.
+	 *
+	 * The in-memory presence index is checked first, so that no transaction is opened when no record concerns the
+	 * group and the role of the given agent address. Otherwise, the delivery is done through the given executor,
+	 * outside the role request. Deliveries are processed one after the other, in the order of the role requests, and
+	 * each of them sends the differed messages in their order of storage, after having removed them from the
+	 * database with one delete.
+	 *
+	 * @param baseGroupPath the root group paths that are concerned by differed messages, or null for all groups
+	 * @param agent the agent that requested the role
+	 * @param agentAddress the agent address of the requested role
+	 * @param executor the executor used to deliver messages, or null to deliver them into the current thread
+	 * @param exceptionHandler the handler of exceptions thrown during the delivery
+	 * @throws DatabaseException if a problem occurs while loading the presence index
+	 */
+	public void newAgentConnected(Collection<String> baseGroupPath, final AbstractAgent agent, final AgentAddress agentAddress, Executor executor, final Consumer<Throwable> exceptionHandler) throws DatabaseException {
 		final String groupPath=agentAddress.getGroup().getPath();
 		if (!isConcerned(baseGroupPath, groupPath))
 			return ;
+		if (!hasDifferedMessagesToDeliver(groupPath, agentAddress.getRole()))
+			return ;
+		scheduleDelivery(() -> {
+			try {
+				deliverDifferedMessages(agent, agentAddress, groupPath, exceptionHandler);
+			} catch (DatabaseException | RuntimeException e) {
+				exceptionHandler.accept(e);
+			}
+		}, executor);
+	}
+
+	private void deliverDifferedMessages(final AbstractAgent agent, final AgentAddress agentAddress, final String groupPath, Consumer<Throwable> exceptionHandler) throws DatabaseException {
+		final List<DifferedDelivery> deliveries=new ArrayList<>();
+		final Map<Role, Boolean> allRemoved=new HashMap<>();
+		final List<Exception> deserializationFailures=new ArrayList<>();
 		getDatabaseWrapper().runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
 			@Override
 			public Void run() throws Exception {
-				checkSender(agent, agentAddress.getGroup(), agentAddress.getRole(), groupPath);
+				checkSender(agent, agentAddress.getGroup(), agentAddress.getRole(), groupPath, deliveries);
+				final Set<Integer> ids = new HashSet<>();
+				for (DifferedDelivery d : deliveries)
+					ids.add(d.record.getId());
 
-				final Map<Role, Boolean> allRemoved=new HashMap<>();
 				getOrderedRecords(new Filter<Record>(){
 
 					@Override
 					public boolean nextRecord(Record _record) {
+						if (ids.contains(_record.getId()))
+							return false;
 						Role r=new Role(agentAddress.getGroup(), _record.getRoleSender());
 						AbstractAgent abstractAgent=availableSenders.get(r);
 						if (abstractAgent==null)
 							return false;
 						AgentAddress aa=abstractAgent.getAgentWithRole(agentAddress.getGroup(), _record.getRoleReceiver());
 						if (aa!=null) {
-							try {
-								abstractAgent.sendMessageWithRole(aa, _record.getDifferedMessage(), _record.getRoleSender());
-								if (!allRemoved.containsKey(r))
-									allRemoved.put(r,true);
-
-							} catch (ClassNotFoundException | IOException e) {
-								e.printStackTrace();
-							}
-							return true;
+							deliveries.add(new DifferedDelivery(abstractAgent, aa, _record));
+							ids.add(_record.getId());
+							if (!allRemoved.containsKey(r))
+								allRemoved.put(r,true);
 						}
 						else {
 							allRemoved.put(r,false);
-							return false;
 						}
+						return false;
 					}
 				},"groupPath=%groupPath AND roleReceiver=%roleReceiver", new Object[]{"groupPath", groupPath, "roleReceiver", agentAddress.getRole()}, true, "utcTimeUpdate");
-				removeRecords(new Filter<Record>(){
-
-					@Override
-					public boolean nextRecord(Record _record) {
-						Role r=new Role(agentAddress.getGroup(), _record.getRoleSender());
-						AbstractAgent abstractAgent=availableSenders.get(r);
-						if (abstractAgent==null)
-							return false;
-						AgentAddress aa=abstractAgent.getAgentWithRole(agentAddress.getGroup(), _record.getRoleReceiver());
-						return aa != null;
+				//only records whose message can be read are removed, so that no message is lost
+				for (Iterator<DifferedDelivery> it=deliveries.iterator(); it.hasNext();) {
+					DifferedDelivery d=it.next();
+					try {
+						d.message=d.record.getDifferedMessage();
+					} catch (ClassNotFoundException | IOException e) {
+						it.remove();
+						ids.remove(d.record.getId());
+						deserializationFailures.add(e);
 					}
-				},"groupPath=%groupPath AND roleReceiver=%roleReceiver", "groupPath", groupPath, "roleReceiver", agentAddress.getRole());
-				for (Map.Entry<Role, Boolean> e : allRemoved.entrySet())
-					if (e.getValue())
-						availableSenders.remove(e.getKey());
+				}
+				if (!deliveries.isEmpty()) {
+					removeRecords(new Filter<Record>() {
+						@Override
+						public boolean nextRecord(Record _record) {
+							return ids.contains(_record.getId());
+						}
+					}, "groupPath=%groupPath", "groupPath", groupPath);
+				}
 				return null;
 			}
 
@@ -285,11 +441,70 @@ public final class DifferedMessageTable extends Table<DifferedMessageTable.Recor
 				return true;
 			}
 
+			@Override
+			public void initOrReset() {
+				deliveries.clear();
+				allRemoved.clear();
+				deserializationFailures.clear();
+			}
+		});
+		for (Exception e : deserializationFailures)
+			exceptionHandler.accept(e);
+		for (Map.Entry<Role, Boolean> e : allRemoved.entrySet())
+			if (e.getValue())
+				availableSenders.remove(e.getKey());
+		if (deliveries.isEmpty())
+			return;
+		List<Record> removed=new ArrayList<>(deliveries.size());
+		List<Record> notDelivered=null;
+		for (DifferedDelivery d : deliveries)
+		{
+			removed.add(d.record);
+			AbstractAgent.ReturnCode rc=d.sender.sendMessageWithRole(d.receiver, d.message, d.record.getRoleSender());
+			if (rc!= AbstractAgent.ReturnCode.SUCCESS)
+			{
+				if (notDelivered==null)
+					notDelivered=new ArrayList<>();
+				notDelivered.add(d.record);
+			}
+		}
+		updatePresenceIndex(removed, -1);
+		if (notDelivered!=null)
+			restoreRecords(notDelivered);
+	}
+
+	private void restoreRecords(final List<Record> records) throws DatabaseException {
+		getDatabaseWrapper().runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
+			@Override
+			public Void run() throws Exception {
+				for (Record r : records) {
+					Record nr=new Record();
+					nr.groupPath=r.groupPath;
+					nr.roleSender=r.roleSender;
+					nr.roleReceiver=r.roleReceiver;
+					nr.differedMessage=r.differedMessage;
+					nr.utcTimeUpdate=r.utcTimeUpdate;
+					addRecord(nr);
+				}
+				return null;
+			}
+
+			@Override
+			public TransactionIsolation getTransactionIsolation() {
+				return TransactionIsolation.TRANSACTION_READ_UNCOMMITTED;
+			}
+
+			@Override
+			public boolean doesWriteData() {
+				return true;
+			}
+
 			@Override
 			public void initOrReset() {
 
 			}
 		});
+		updatePresenceIndex(records, 1);
 	}
 
 	public void newAgentDisconnected(Collection<String> baseGroupPath, AgentAddress agentAddress)
@@ -298,7 +513,14 @@ public final class DifferedMessageTable extends Table<DifferedMessageTable.Recor
 		if (!isConcerned(baseGroupPath, groupPath))
 			return ;
 
-		Role role=new Role(agentAddress.getGroup(), agentAddress.getRole());
+		final Role role=new Role(agentAddress.getGroup(), agentAddress.getRole());
+		synchronized (pendingDeliveries)
+		{
+			if (deliveryInProgress) {
+				pendingDeliveries.addLast(() -> availableSenders.remove(role));
+				return;
+			}
+		}
 		availableSenders.remove(role);
 
 	}
@@ -324,44 +546,69 @@ public final class DifferedMessageTable extends Table<DifferedMessageTable.Recor
 			return requester.sendMessageWithRole(receiverAA, message, roleSender);
 		}
 		else {
-			getDatabaseWrapper().runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
-				@Override
-				public Void run() throws Exception {
-					Role role=new Role(group, roleSender);
-					availableSenders.putIfAbsent(role, requester);
-					addRecord(new Record(group.getPath(), roleSender, roleReceiver, message));
+			final Record record=new Record(group.getPath(), roleSender, roleReceiver, message);
+			//the record is counted before being visible, so that a receiver joining its role meanwhile does not miss it
+			synchronized (recordsPerSenderRole)
+			{
+				recordsBeingStored.add(record);
+				updatePresenceIndex(Collections.singletonList(record), 1);
+			}
+			boolean stored=false;
+			try {
+				getDatabaseWrapper().runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
+					@Override
+					public Void run() throws Exception {
+						Role role=new Role(group, roleSender);
+						availableSenders.putIfAbsent(role, requester);
+						addRecord(record);
 
-					return null;
-				}
+						return null;
+					}
 
-				@Override
-				public TransactionIsolation getTransactionIsolation() {
-					return TransactionIsolation.TRANSACTION_READ_UNCOMMITTED;
-				}
+					@Override
+					public TransactionIsolation getTransactionIsolation() {
+						return TransactionIsolation.TRANSACTION_READ_UNCOMMITTED;
+					}
 
-				@Override
-				public boolean doesWriteData() {
-					return true;
-				}
+					@Override
+					public boolean doesWriteData() {
+						return true;
+					}
 
-				@Override
-				public void initOrReset() {
+					@Override
+					public void initOrReset() {
 
+					}
+				});
+				stored=true;
+			}
+			finally {
+				synchronized (recordsPerSenderRole)
+				{
+					recordsBeingStored.remove(record);
+					if (!stored)
+						updatePresenceIndex(Collections.singletonList(record), -1);
 				}
-			});
+			}
 			return AbstractAgent.ReturnCode.MESSAGE_DIFFERED;
 
 		}
 
 	}
 	public long cancelDifferedMessagesBySenderRole(Group group, String senderRole) throws DatabaseException {
-		return removeRecords("groupPath=%groupPath AND roleSender=%roleSender", "groupPath", group.getPath(), "roleSender", senderRole);
+		long res=removeRecords("groupPath=%groupPath AND roleSender=%roleSender", "groupPath", group.getPath(), "roleSender", senderRole);
+		invalidatePresenceIndex();
+		return res;
 	}
 	public long cancelDifferedMessagesByReceiverRole(Group group, String receiverRole) throws DatabaseException {
-		return removeRecords("groupPath=%groupPath AND roleReceiver=%roleReceiver", "groupPath", group.getPath(), "roleReceiver", receiverRole);
+		long res=removeRecords("groupPath=%groupPath AND roleReceiver=%roleReceiver", "groupPath", group.getPath(), "roleReceiver", receiverRole);
+		invalidatePresenceIndex();
+		return res;
 	}
 	public long cancelDifferedMessagesByGroup(Group group) throws DatabaseException {
-		return removeRecords("groupPath=%groupPath", "groupPath", group.getPath());
+		long res=removeRecords("groupPath=%groupPath", "groupPath", group.getPath());
+		invalidatePresenceIndex();
+		return res;
 	}
 
 	public List<Record> getDifferedMessagesBySenderRole(Group group, String senderRole) throws DatabaseException {
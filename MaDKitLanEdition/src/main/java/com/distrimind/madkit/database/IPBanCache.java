@@ -0,0 +1,215 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.database;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-memory cache of the ban state of IP addresses, placed in front of
+ * {@link IPBanStat}, so that checking an incoming connection does not need a
+ * database transaction. Entries are keyed by the bytes of the address. A
+ * banned address is cached until the end of its ban, and a not banned address
+ * is cached during the given time to live. When the cache is full, the least
+ * recently used entries are evicted. This class is thread safe.
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+public final class IPBanCache {
+	public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+	public static final long DEFAULT_TIME_TO_LIVE = 600000L;
+
+	private static final class Key {
+		private final byte[] address;
+		private final int hashCode;
+
+		Key(byte[] address) {
+			this.address = address;
+			this.hashCode = Arrays.hashCode(address);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && Arrays.equals(address, ((Key) o).address);
+		}
+	}
+
+	private static final class Entry {
+		final long bannedUntil;
+		final long evictionTime;
+
+		Entry(long bannedUntil, long evictionTime) {
+			this.bannedUntil = bannedUntil;
+			this.evictionTime = evictionTime;
+		}
+	}
+
+	private volatile int maximumSize;
+	private volatile long timeToLive;
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(64, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+			return size() > maximumSize;
+		}
+	};
+	private long hits = 0, misses = 0;
+
+	IPBanCache() {
+		this(DEFAULT_MAXIMUM_SIZE, DEFAULT_TIME_TO_LIVE);
+	}
+
+	IPBanCache(int maximumSize, long timeToLive) {
+		setParameters(maximumSize, timeToLive);
+	}
+
+	/**
+	 * Set the parameters of this cache
+	 * 
+	 * @param maximumSize
+	 *            the maximum number of cached addresses
+	 * @param timeToLive
+	 *            the duration in milliseconds during which an address that is
+	 *            not banned is cached. It should not be greater than the
+	 *            expulsion and banishment durations.
+	 */
+	public void setParameters(int maximumSize, long timeToLive) {
+		if (maximumSize <= 0)
+			throw new IllegalArgumentException();
+		if (timeToLive < 0)
+			throw new IllegalArgumentException();
+		this.maximumSize = maximumSize;
+		this.timeToLive = timeToLive;
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	public long getTimeToLive() {
+		return timeToLive;
+	}
+
+	/**
+	 * Gets the cached ban state of the given address
+	 * 
+	 * @param address
+	 *            the address bytes
+	 * @return {@link Boolean#TRUE} if the address is banned or expulsed,
+	 *         {@link Boolean#FALSE} if it is not, or null if the state is not
+	 *         cached
+	 */
+	public synchronized Boolean isBannedOrExpulsed(byte[] address) {
+		long now = System.currentTimeMillis();
+		Key k = new Key(address);
+		Entry e = entries.get(k);
+		if (e == null) {
+			++misses;
+			return null;
+		}
+		if (e.evictionTime <= now) {
+			entries.remove(k);
+			++misses;
+			return null;
+		}
+		++hits;
+		return e.bannedUntil > now;
+	}
+
+	/**
+	 * Cache the ban state of the given address
+	 * 
+	 * @param address
+	 *            the address bytes
+	 * @param bannedUntil
+	 *            the UTC time until which the address is banned or expulsed, or
+	 *            {@link Long#MIN_VALUE} if the address is not banned
+	 */
+	public synchronized void put(byte[] address, long bannedUntil) {
+		long now = System.currentTimeMillis();
+		long evictionTime = bannedUntil > now ? bannedUntil : now + timeToLive;
+		if (evictionTime <= now)
+			entries.remove(new Key(address));
+		else
+			entries.put(new Key(address.clone()), new Entry(bannedUntil, evictionTime));
+	}
+
+	/**
+	 * Remove the cached ban state of the given address
+	 * 
+	 * @param address
+	 *            the address bytes
+	 */
+	public synchronized void invalidate(byte[] address) {
+		entries.remove(new Key(address));
+	}
+
+	/**
+	 * Remove all cached states
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getNumberOfHits() {
+		return hits;
+	}
+
+	public synchronized long getNumberOfMisses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return getClass().getSimpleName() + "[size=" + entries.size() + ", maximumSize=" + maximumSize
+				+ ", timeToLive=" + timeToLive + ", hits=" + hits + ", misses=" + misses + "]";
+	}
+}
@@ -60,10 +60,23 @@ import com.distrimind.ood.database.exceptions.DatabaseException;
  */
 public final class IPBanStat extends Table<IPBanStat.Record> {
 
+	private final IPBanCache cache = new IPBanCache();
+	private volatile long lastFullUpdateTime = Long.MIN_VALUE;
+
 	protected IPBanStat() throws DatabaseException {
 		super();
 	}
 
+	/**
+	 * Gets the in-memory cache placed in front of this table, used by
+	 * {@link #isBannedOrExpulsed(InetAddress, Collection)}
+	 * 
+	 * @return the ban cache
+	 */
+	public IPBanCache getCache() {
+		return cache;
+	}
+
 	public static class Record extends DatabaseRecord {
 		@Field(limit=20) @NotNull @PrimaryKey
 		public byte[] inet_address;
@@ -96,27 +109,7 @@ public final class IPBanStat extends Table<IPBanStat.Record> {
 
 						@Override
 						public void nextRecord(IPExpulsedStat.Record _record) {
-
-							long current_time = System.currentTimeMillis();
-							long delta = current_time - _record.last_update_time;
-							if (delta > stat_duration_for_expulsion) {
-								int nbStatDuration = (int) (delta / stat_duration_for_expulsion);
-								_record.last_update_time = _record.last_update_time
-										+ nbStatDuration * stat_duration_for_expulsion;
-
-								_record.expulsed_number = (short) (_record.expulsed_number
-										- (nbStatDuration / expulsion_hit_limit));
-								_record.number_hits = (short) (_record.number_hits
-										- (nbStatDuration % expulsion_hit_limit));
-								if (_record.number_hits < 0) {
-									_record.expulsed_number -= 1;
-									_record.number_hits += expulsion_hit_limit;
-								}
-								if (_record.expulsed_number < 0) {
-									_record.expulsed_number = 0;
-									_record.number_hits = 0;
-								}
-
+							if (decay(_record, stat_duration_for_expulsion, expulsion_hit_limit)) {
 								if (_record.number_hits <= 0 && _record.expulsed_number <= 0) {
 									this.remove();
 								} else
@@ -128,24 +121,7 @@ public final class IPBanStat extends Table<IPBanStat.Record> {
 
 						@Override
 						public void nextRecord(IPBanStat.Record _record) {
-							long current_time = System.currentTimeMillis();
-							long delta = current_time - _record.last_update_time;
-							if (delta > stat_duration_for_expulsion) {
-								int nbStatDuration = (int) (delta / stat_duration_for_expulsion);
-								_record.last_update_time = _record.last_update_time
-										+ nbStatDuration * stat_duration_for_expulsion;
-
-								_record.ban_number = (short) (_record.ban_number - (nbStatDuration / ban_hit_limit));
-								_record.number_hits = (short) (_record.number_hits - (nbStatDuration % ban_hit_limit));
-								if (_record.number_hits < 0) {
-									_record.ban_number -= 1;
-									_record.number_hits += expulsion_hit_limit;
-								}
-								if (_record.ban_number < 0) {
-									_record.ban_number = 0;
-									_record.number_hits = 0;
-								}
-
+							if (decay(_record, stat_duration_for_expulsion, expulsion_hit_limit, ban_hit_limit)) {
 								if (_record.number_hits <= 0 && _record.ban_number <= 0) {
 									this.remove();
 								} else
@@ -175,7 +151,53 @@ public final class IPBanStat extends Table<IPBanStat.Record> {
 		} catch (Exception e) {
 			throw DatabaseException.getDatabaseException(e);
 		}
+		lastFullUpdateTime = System.currentTimeMillis();
+	}
+
+	private static boolean decay(IPExpulsedStat.Record _record, long stat_duration_for_expulsion,
+			short expulsion_hit_limit) {
+		long current_time = System.currentTimeMillis();
+		long delta = current_time - _record.last_update_time;
+		if (delta > stat_duration_for_expulsion) {
+			int nbStatDuration = (int) (delta / stat_duration_for_expulsion);
+			_record.last_update_time = _record.last_update_time + nbStatDuration * stat_duration_for_expulsion;
+
+			_record.expulsed_number = (short) (_record.expulsed_number - (nbStatDuration / expulsion_hit_limit));
+			_record.number_hits = (short) (_record.number_hits - (nbStatDuration % expulsion_hit_limit));
+			if (_record.number_hits < 0) {
+				_record.expulsed_number -= 1;
+				_record.number_hits += expulsion_hit_limit;
+			}
+			if (_record.expulsed_number < 0) {
+				_record.expulsed_number = 0;
+				_record.number_hits = 0;
+			}
+			return true;
+		}
+		return false;
+	}
 
+	private static boolean decay(IPBanStat.Record _record, long stat_duration_for_expulsion,
+			short expulsion_hit_limit, short ban_hit_limit) {
+		long current_time = System.currentTimeMillis();
+		long delta = current_time - _record.last_update_time;
+		if (delta > stat_duration_for_expulsion) {
+			int nbStatDuration = (int) (delta / stat_duration_for_expulsion);
+			_record.last_update_time = _record.last_update_time + nbStatDuration * stat_duration_for_expulsion;
+
+			_record.ban_number = (short) (_record.ban_number - (nbStatDuration / ban_hit_limit));
+			_record.number_hits = (short) (_record.number_hits - (nbStatDuration % ban_hit_limit));
+			if (_record.number_hits < 0) {
+				_record.ban_number -= 1;
+				_record.number_hits += expulsion_hit_limit;
+			}
+			if (_record.ban_number < 0) {
+				_record.ban_number = 0;
+				_record.number_hits = 0;
+			}
+			return true;
+		}
+		return false;
 	}
 
 	public IPBanned.Record processExpulsion(final InetAddress add, final boolean candidate_to_ban,
@@ -197,26 +219,41 @@ public final class IPBanStat extends Table<IPBanStat.Record> {
 			return null;
 		if (allowInetAddressesList.contains(add))
 			return null;
+		final byte[] key = add.getAddress();
 		try {
-			return this.getDatabaseWrapper().runSynchronizedTransaction(new SynchronizedTransaction<IPBanned.Record>() {
+			IPBanned.Record res = this.getDatabaseWrapper().runSynchronizedTransaction(new SynchronizedTransaction<IPBanned.Record>() {
 
 				@Override
 				public IPBanned.Record run() throws DatabaseException {
 					boolean candidate_to_ban = candidateToBan;
-					updateDatabase(stat_duration_for_expulsion, stat_duration_for_banishment, expulsion_hit_limit,
-							ban_hit_limit);
+					// the whole tables are cleaned at most once per statistic duration. The
+					// records concerned by this expulsion are updated below.
+					if (System.currentTimeMillis() - lastFullUpdateTime >= Math.min(stat_duration_for_expulsion,
+							stat_duration_for_banishment))
+						updateDatabase(stat_duration_for_expulsion, stat_duration_for_banishment, expulsion_hit_limit,
+								ban_hit_limit);
 
 					final IPBanned ipb = IPBanStat.this.getDatabaseWrapper()
 							.getTableInstance(IPBanned.class);
 					final IPExpulsedStat ipes = IPBanStat.this.getDatabaseWrapper()
 							.getTableInstance(IPExpulsedStat.class);
 
-					byte[] key = add.getAddress();
 					IPBanned.Record ripbstat = ipb.getRecord("inet_address", key);
 					if (ripbstat != null && ripbstat.expiration_time == Long.MAX_VALUE)
 						return ripbstat;
+					if (ripbstat != null && ripbstat.expiration_time < System.currentTimeMillis()) {
+						ipb.removeRecord(ripbstat);
+						ripbstat = null;
+					}
 					IPExpulsedStat.Record ripesstat = candidate_to_ban ? null
 							: ipes.getRecord("inet_address", key);
+					if (ripesstat != null && decay(ripesstat, stat_duration_for_expulsion, expulsion_hit_limit)) {
+						if (ripesstat.number_hits <= 0 && ripesstat.expulsed_number <= 0) {
+							ipes.removeRecord(ripesstat);
+							ripesstat = null;
+						} else
+							ipes.updateRecord(ripesstat);
+					}
 
 					short nbAnomalies = nbAno;
 					/*
@@ -253,6 +290,13 @@ public final class IPBanStat extends Table<IPBanStat.Record> {
 
 					if (candidate_to_ban) {
 						IPBanStat.Record ripbsstat = IPBanStat.this.getRecord("inet_address", key);
+						if (ripbsstat != null && decay(ripbsstat, stat_duration_for_expulsion, expulsion_hit_limit, ban_hit_limit)) {
+							if (ripbsstat.number_hits <= 0 && ripbsstat.ban_number <= 0) {
+								IPBanStat.this.removeRecord(ripbsstat);
+								ripbsstat = null;
+							} else
+								IPBanStat.this.updateRecord(ripbsstat);
+						}
 						boolean toAdd = false;
 						if (ripbsstat == null) {
 							ripbsstat = new IPBanStat.Record();
@@ -342,7 +386,10 @@ public final class IPBanStat extends Table<IPBanStat.Record> {
 					
 				}
 			});
+			cache.put(key, res == null ? Long.MIN_VALUE : res.expiration_time);
+			return res;
 		} catch (Exception e) {
+			cache.invalidate(key);
 			throw DatabaseException.getDatabaseException(e);
 		}
 
@@ -353,6 +400,10 @@ public final class IPBanStat extends Table<IPBanStat.Record> {
 		try {
 			if (allowInetAddressesList.contains(inet_address))
 				return false;
+			final byte[] key = inet_address.getAddress();
+			Boolean cached = cache.isBannedOrExpulsed(key);
+			if (cached != null)
+				return cached;
 			return getDatabaseWrapper().runSynchronizedTransaction(new SynchronizedTransaction<Boolean>() {
 
 				@Override
@@ -360,11 +411,13 @@ public final class IPBanStat extends Table<IPBanStat.Record> {
 					final IPBanned ipb = IPBanStat.this.getDatabaseWrapper()
 							.getTableInstance(IPBanned.class);
 					HashMap<String, Object> hm = new HashMap<>();
-					hm.put("inet_address", inet_address.getAddress());
+					hm.put("inet_address", key);
 					IPBanned.Record r = ipb.getRecord(hm);
 					if (r == null) {
+						cache.put(key, Long.MIN_VALUE);
 						return Boolean.FALSE;
 					}
+					cache.put(key, r.expiration_time);
 					return r.expiration_time > System.currentTimeMillis();
 				}
 
@@ -390,6 +443,7 @@ public final class IPBanStat extends Table<IPBanStat.Record> {
 	}
 
 	public void accept(final InetAddress inet_address) throws DatabaseException {
+		cache.invalidate(inet_address.getAddress());
 		try {
 			this.getDatabaseWrapper().runSynchronizedTransaction(new SynchronizedTransaction<Void>() {
 
@@ -430,6 +484,8 @@ public final class IPBanStat extends Table<IPBanStat.Record> {
 			});
 		} catch (Exception e) {
 			throw DatabaseException.getDatabaseException(e);
+		} finally {
+			cache.invalidate(inet_address.getAddress());
 		}
 	}
 }
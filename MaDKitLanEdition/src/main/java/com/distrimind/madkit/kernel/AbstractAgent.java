@@ -89,6 +89,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -173,7 +174,7 @@ public class AbstractAgent implements Comparable<AbstractAgent> {
 	 */
 	private String name;
 	final AtomicBoolean alive = new AtomicBoolean(); // default false
-	final ChainedBlockingDeque<Message> messageBox=new ChainedBlockingDeque<>(); // TODO lazy creation
+	final ChainedBlockingDeque<Message> messageBox=new ChainedBlockingDeque<>(true); // TODO lazy creation
 
 	private volatile ArrayList<Replies> conversations = null;
 
@@ -668,7 +669,7 @@ public class AbstractAgent implements Comparable<AbstractAgent> {
 
 		if (hasGUI) {
 			ReturnCode rc=kernel.broadcastMessageWithRole(this, Groups.GUI, Roles.GUI,
-					new GUIMessage(GUIManagerAction.DISPOSE_AGENT_GUI, this), null, false);
+					new GUIMessage(GUIManagerAction.DISPOSE_AGENT_GUI, this), null, false, false, null);
 			if (rc!=ReturnCode.SUCCESS)
 				getLogger().warning("Agent GUI disposing. Impossible send message to GUI Manager Agent : "+rc);
 		}
@@ -1926,19 +1927,15 @@ public class AbstractAgent implements Comparable<AbstractAgent> {
 	 */
 	public List<Message> nextMessages(final MessageFilter filter) {
 		if (filter == null) {
-			messageBox.getLocker().lock();
-			try {
-				final ArrayList<Message> match = new ArrayList<>(messageBox);
-				for (int i = 0; i < match.size(); i++) {
-					Message m = match.get(i);
-					if (m != null)
-						match.set(i, m.markMessageAsRead());
-				}
-				messageBox.clear();
-				return match;
-			} finally {
-				messageBox.getLocker().unlock();
+			// drains the inbound queue once, so that no concurrent message is lost
+			final ArrayList<Message> match = new ArrayList<>();
+			messageBox.drainTo(match);
+			for (int i = 0; i < match.size(); i++) {
+				Message m = match.get(i);
+				if (m != null)
+					match.set(i, m.markMessageAsRead());
 			}
+			return match;
 		}
 		final List<Message> match = new ArrayList<>();
 		messageBox.getLocker().lock();
@@ -2006,23 +2003,13 @@ public class AbstractAgent implements Comparable<AbstractAgent> {
 	 *         is already empty.
 	 */
 	public Message purgeMailbox() {
-		messageBox.getLocker().lock();
-		try {
-			Message m = null;
-			if (!messageBox.isEmpty()) {
-				m = messageBox.pollLast();
-				if (m != null)
-					m = m.markMessageAsRead();
-				for (Message m2 : messageBox)
-					if (m2 != null)
-						m2.markMessageAsRead();
-				messageBox.clear();
-			}
-			return m;
-		} finally {
-			messageBox.getLocker().unlock();
-		}
-
+		// drains the inbound queue once, so that no concurrent message is lost
+		final ArrayList<Message> purged = new ArrayList<>();
+		messageBox.drainTo(purged);
+		Message m = null;
+		for (Message m2 : purged)
+			m = m2 == null ? null : m2.markMessageAsRead();
+		return m;
 	}
 
 	/**
@@ -2175,6 +2162,101 @@ public class AbstractAgent implements Comparable<AbstractAgent> {
 		return getKernel().sendMessage(this, group, role, messageToSend, senderRole);
 	}
 
+	/**
+	 * Sends a message, using an agent address, specifying explicitly the role used
+	 * to send it, without waiting for the message to be transferred when the
+	 * receiver is a distant agent.
+	 * 
+	 * The returned future is completed with the return code that
+	 * {@link #sendMessageWithRole(AgentAddress, Message, String)} would have
+	 * returned. When the receiver is a local agent, the future is already
+	 * completed when this function returns.
+	 * 
+	 * @param receiver
+	 *            the targeted agent
+	 * @param message
+	 *            the message to send
+	 * @param senderRole
+	 *            the sender role
+	 * @return a future completed with the return code of the send, when the
+	 *         message has been transferred to the distant peer, or when its
+	 *         transfer is in progress ({@link ReturnCode#TRANSFER_IN_PROGRESS})
+	 * @see #sendMessageWithRole(AgentAddress, Message, String)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public CompletableFuture<ReturnCode> sendMessageWithRoleAsync(final AgentAddress receiver, final Message message,
+			final String senderRole) {
+		CompletableFuture<ReturnCode> res = new CompletableFuture<>();
+		getKernel().sendMessage(this, receiver, message, senderRole, res);
+		return res;
+	}
+
+	/**
+	 * Sends a message to an agent using an agent address, without waiting for the
+	 * message to be transferred when the receiver is a distant agent. This has the
+	 * same effect as <code>sendMessageWithRoleAsync(receiver, messageToSend, null)</code>.
+	 * 
+	 * @param receiver
+	 *            the receiver agent address
+	 * @param messageToSend
+	 *            the message to send
+	 * @return a future completed with the return code of the send
+	 * @see #sendMessageWithRoleAsync(AgentAddress, Message, String)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public CompletableFuture<ReturnCode> sendMessageAsync(final AgentAddress receiver, final Message messageToSend) {
+		return sendMessageWithRoleAsync(receiver, messageToSend, null);
+	}
+
+	/**
+	 * Sends a message to an agent having this position in the organization,
+	 * specifying explicitly the role used to send it, without waiting for the
+	 * message to be transferred when the chosen receiver is a distant agent. If
+	 * several agents match, the target is chosen randomly. The sender is excluded
+	 * from this search.
+	 * 
+	 * @param group
+	 *            the group(s) and the community(ies) name
+	 * @param role
+	 *            the role name
+	 * @param messageToSend
+	 *            the message to send
+	 * @param senderRole
+	 *            the agent's role with which the message has to be sent
+	 * @return a future completed with the return code that
+	 *         {@link #sendMessageWithRole(AbstractGroup, String, Message, String)}
+	 *         would have returned
+	 * @see #sendMessageWithRole(AbstractGroup, String, Message, String)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public CompletableFuture<ReturnCode> sendMessageWithRoleAsync(AbstractGroup group, final String role,
+			final Message messageToSend, final String senderRole) {
+		CompletableFuture<ReturnCode> res = new CompletableFuture<>();
+		getKernel().sendMessage(this, group, role, messageToSend, senderRole, res);
+		return res;
+	}
+
+	/**
+	 * Sends a message to an agent having this position in the organization,
+	 * without waiting for the message to be transferred when the chosen receiver is
+	 * a distant agent. This has the same effect as
+	 * <code>sendMessageWithRoleAsync(group, role, messageToSend, null)</code>.
+	 * 
+	 * @param group
+	 *            the group(s) and the community(ies) name
+	 * @param role
+	 *            the role name
+	 * @param messageToSend
+	 *            the message to send
+	 * @return a future completed with the return code of the send
+	 * @see #sendMessageWithRoleAsync(AbstractGroup, String, Message, String)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public CompletableFuture<ReturnCode> sendMessageAsync(AbstractGroup group, final String role,
+			final Message messageToSend) {
+		return sendMessageWithRoleAsync(group, role, messageToSend, null);
+	}
+
 	/**
 	 * Sends a message to an agent having this position in the organization. If
 	 * several agents match, the target is chosen randomly. The sender is excluded
@@ -2530,7 +2612,140 @@ public class AbstractAgent implements Comparable<AbstractAgent> {
 	public ReturnCode broadcastMessageWithRole(AbstractGroup group, final String roleName, final Message messageToSend,
 			boolean receiveAllRepliesInOneBlock, final String senderRole) {
 		return getKernel().broadcastMessageWithRole(this, group, roleName, messageToSend, senderRole,
-				receiveAllRepliesInOneBlock);
+				receiveAllRepliesInOneBlock, false, null);
+	}
+
+	/**
+	 * Broadcasts a message to every agent having a role in a group in a community,
+	 * but not to the sender, without copying the message for each local receiver.
+	 * 
+	 * equivalent to
+	 * <code>broadcastSharedMessageWithRole(group, role, message, null)</code>
+	 * 
+	 * @param group
+	 *            the group(s) and the community(ies) name
+	 * @param roleName
+	 *            the role name
+	 * @param message
+	 *            the message, which must not be modified after being sent
+	 * @return
+	 *         <ul>
+	 *         <li><code>{@link ReturnCode#SUCCESS}</code>: If the send has
+	 *         succeeded.</li>
+	 *         <li><code>{@link ReturnCode#NOT_COMMUNITY}</code>: If the community
+	 *         does not exist.</li>
+	 *         <li><code>{@link ReturnCode#NOT_GROUP}</code>: If the group does not
+	 *         exist.</li>
+	 *         <li><code>{@link ReturnCode#NOT_ROLE}</code>: If the role does not
+	 *         exist.</li>
+	 *         <li><code>{@link ReturnCode#NO_RECIPIENT_FOUND}</code>: If no agent
+	 *         was found as recipient, i.e. the sender was the only agent having
+	 *         this role.</li>
+	 *         <li><code>{@link ReturnCode#NOT_IN_GROUP}</code>: If this agent is
+	 *         not a member of all the targeted groups.</li>
+	 *         </ul>
+	 * @see BroadcastEnvelope
+	 * @see ReturnCode
+	 * @see AbstractGroup
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public ReturnCode broadcastSharedMessage(AbstractGroup group, final String roleName, final Message message) {
+		return broadcastSharedMessageWithRole(group, roleName, message, null);
+	}
+
+	/**
+	 * Broadcasts a message to every agent having a role in a group in a community
+	 * using a specific role for the sender. The sender is excluded from the search.
+	 * 
+	 * The message is not copied for each local receiver : local receivers receive
+	 * a {@link BroadcastEnvelope} that references the sent message, which is
+	 * shared by all of them. Distant receivers receive a copy of the message.
+	 * 
+	 * @param group
+	 *            the group(s) and the community(ies) name
+	 * @param roleName
+	 *            the role name
+	 * @param messageToSend
+	 *            the message, which must not be modified after being sent
+	 * @param senderRole
+	 *            the role name of the sender
+	 * @return
+	 *         <ul>
+	 *         <li><code>{@link ReturnCode#SUCCESS}</code>: If the send has
+	 *         succeeded.</li>
+	 *         <li><code>{@link ReturnCode#NOT_COMMUNITY}</code>: If the community
+	 *         does not exist.</li>
+	 *         <li><code>{@link ReturnCode#NOT_GROUP}</code>: If the group does not
+	 *         exist.</li>
+	 *         <li><code>{@link ReturnCode#NOT_ROLE}</code>: If the role does not
+	 *         exist.</li>
+	 *         <li><code>{@link ReturnCode#NOT_IN_GROUP}</code>: If this agent is
+	 *         not a member of all the targeted groups.</li>
+	 *         <li><code>{@link ReturnCode#NO_RECIPIENT_FOUND}</code>: If no agent
+	 *         was found as recipient, i.e. the sender was the only agent having
+	 *         this role.</li>
+	 *         </ul>
+	 * @see BroadcastEnvelope
+	 * @see ReturnCode
+	 * @see AbstractGroup
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public ReturnCode broadcastSharedMessageWithRole(AbstractGroup group, final String roleName,
+			final Message messageToSend, final String senderRole) {
+		return getKernel().broadcastMessageWithRole(this, group, roleName, messageToSend, senderRole, false, true,
+				null);
+	}
+
+	/**
+	 * Broadcasts a message to every agent having a role in a group in a community
+	 * using a specific role for the sender, without waiting for the message to be
+	 * transferred to distant receivers. The sender is excluded from the search.
+	 * 
+	 * The returned future is completed with the return code that
+	 * {@link #broadcastMessageWithRole(AbstractGroup, String, Message, String)}
+	 * would have returned. Local receivers receive the message before this
+	 * function returns.
+	 * 
+	 * @param group
+	 *            the group(s) and the community(ies) name
+	 * @param roleName
+	 *            the role name
+	 * @param messageToSend
+	 *            the message
+	 * @param senderRole
+	 *            the role name of the sender
+	 * @return a future completed with the return code of the broadcast, when the
+	 *         message has been transferred to distant peers, or when its transfer
+	 *         is in progress ({@link ReturnCode#TRANSFER_IN_PROGRESS})
+	 * @see #broadcastMessageWithRole(AbstractGroup, String, Message, String)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public CompletableFuture<ReturnCode> broadcastMessageWithRoleAsync(AbstractGroup group, final String roleName,
+			final Message messageToSend, final String senderRole) {
+		CompletableFuture<ReturnCode> res = new CompletableFuture<>();
+		getKernel().broadcastMessageWithRole(this, group, roleName, messageToSend, senderRole, false, false, res);
+		return res;
+	}
+
+	/**
+	 * Broadcasts a message to every agent having a role in a group in a community,
+	 * without waiting for the message to be transferred to distant receivers. This
+	 * has the same effect as
+	 * <code>broadcastMessageWithRoleAsync(group, role, message, null)</code>.
+	 * 
+	 * @param group
+	 *            the group(s) and the community(ies) name
+	 * @param roleName
+	 *            the role name
+	 * @param message
+	 *            the message
+	 * @return a future completed with the return code of the broadcast
+	 * @see #broadcastMessageWithRoleAsync(AbstractGroup, String, Message, String)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public CompletableFuture<ReturnCode> broadcastMessageAsync(AbstractGroup group, final String roleName,
+			final Message message) {
+		return broadcastMessageWithRoleAsync(group, roleName, message, null);
 	}
 
 	/**
@@ -43,6 +43,8 @@ import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.distrimind.madkit.exceptions.SelfKillException;
 import com.distrimind.madkit.simulation.SimulationException;
@@ -55,8 +57,8 @@ import com.distrimind.madkit.simulation.activator.GenericBehaviorActivator;
  * class) Subclasses should override {@link #execute(List, Object...)} for
  * defining how a sequential execution of a list of agents take place. By
  * default, this list corresponds to all the agents in a single core mode or to
- * partial views of the entire list when the multicore mode is used. The
- * multicore mode is set to <code>false</code> by default.
+ * partial views of the entire list when the multicore mode or the fork/join
+ * mode is used. Both modes are set to <code>false</code> by default.
  * 
  * @author Fabien Michel
  * @author Olivier Gutknecht
@@ -72,6 +74,42 @@ public abstract class Activator<A extends AbstractAgent> extends Overlooker<A> {
 
 	private int nbOfSimultaneousTasks = 1;
 
+	/**
+	 * Defines how the agents list is split into the sub-lists given to
+	 * {@link Activator#execute(List, Object...)} when the fork/join mode is on.
+	 * 
+	 * @see Activator#useForkJoin(int, ForkJoinChunking)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public enum ForkJoinChunking {
+		/**
+		 * The size of the sub-lists is adapted, before each activation, to the
+		 * time spent per agent during the previous activation. Agents with a light
+		 * behavior are activated through few large sub-lists, whereas agents with
+		 * a heavy behavior are activated through many small sub-lists that idle
+		 * threads can steal.
+		 */
+		ADAPTIVE,
+		/**
+		 * The bounds of the sub-lists only depend on the size of the agents list
+		 * and on {@link Activator#getForkJoinChunkSize()}. So, from a run to
+		 * another, and whatever the parallelism, the same sub-lists are given to
+		 * {@link Activator#execute(List, Object...)}. This is useful when a
+		 * sub-list owns its own state, like a random generator seeded with the
+		 * index of its first agent.
+		 */
+		DETERMINISTIC
+	}
+
+	private static final long TARGET_CHUNK_DURATION_NANOS = 100000L;
+	private static final int MIN_CHUNKS_PER_THREAD = 8;
+
+	private int forkJoinParallelism = 1;
+	private ForkJoinChunking forkJoinChunking = ForkJoinChunking.ADAPTIVE;
+	private int forkJoinChunkSize = 1024;
+	private ForkJoinPool forkJoinPool = null;
+	private volatile long nanosPerAgent = -1;
+
 	/**
 	 * Builds a new Activator on the given CGR location of the artificial society
 	 * with multicore mode set to <code>false</code>.
@@ -115,8 +153,10 @@ public abstract class Activator<A extends AbstractAgent> extends Overlooker<A> {
 	 * @see Scheduler#doSimulationStep()
 	 */
 	public void execute(Object... args) {
-		if (isMulticoreModeOn()) {
-			multicoreExecute();
+		if (isForkJoinModeOn()) {
+			forkJoinExecute(args);
+		} else if (isMulticoreModeOn()) {
+			multicoreExecute(args);
 		} else {
 			execute(getCurrentAgentsList(), args);
 		}
@@ -180,9 +220,93 @@ public abstract class Activator<A extends AbstractAgent> extends Overlooker<A> {
 		}
 	}
 
+	/**
+	 * Executes the behavior on all the agents through the fork/join pool of this
+	 * activator. The agents list is recursively split into sub-lists, according
+	 * to {@link #getForkJoinChunking()}, and idle threads steal the sub-lists
+	 * that are not processed yet. So agents with uneven behavior costs do not
+	 * leave cores idle. This method returns when all the agents have been
+	 * activated.
+	 * <br>
+	 * Like {@link #multicoreExecute(Object...)}, this call will produce different
+	 * outputs for each run unless a concurrent simulation model is used.
+	 * 
+	 * @param args the arguments
+	 * @see #useForkJoin(int, ForkJoinChunking)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	protected void forkJoinExecute(final Object... args) {
+		forkJoinExecute(getCurrentAgentsList(), args);
+	}
+
+	void forkJoinExecute(final List<A> list, final Object[] args) {
+		ForkJoinPool pool;
+		int parallelism;
+		ForkJoinChunking chunking;
+		int chunkSize;
+		synchronized (this) {
+			parallelism = forkJoinParallelism;
+			chunking = forkJoinChunking;
+			chunkSize = forkJoinChunkSize;
+			pool = forkJoinPool;
+			if (pool == null && parallelism > 1)
+				forkJoinPool = pool = new ForkJoinPool(parallelism);
+		}
+		if (pool == null) {
+			execute(list, args);
+			return;
+		}
+		final int size = list.size();
+		if (size == 0)
+			return;
+		if (chunking == ForkJoinChunking.ADAPTIVE)
+			chunkSize = adaptiveChunkSize(size, parallelism);
+		long start = System.nanoTime();
+		pool.invoke(new ActivationTask(list, 0, size, chunkSize, args));
+		nanosPerAgent = (System.nanoTime() - start) * parallelism / size;
+	}
+
+	private int adaptiveChunkSize(int size, int parallelism) {
+		// enough chunks to let idle threads steal work from busy ones
+		int maxChunkSize = Math.max(1, size / (parallelism * MIN_CHUNKS_PER_THREAD));
+		long n = nanosPerAgent;
+		if (n < 0)
+			return maxChunkSize;
+		// chunks long enough to amortize the cost of their task
+		long minChunkSize = TARGET_CHUNK_DURATION_NANOS / Math.max(1, n);
+		return (int) Math.max(1, Math.min(maxChunkSize, minChunkSize));
+	}
+
+	private final class ActivationTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<A> list;
+		private final int from, to, chunkSize;
+		private final Object[] args;
+
+		ActivationTask(List<A> list, int from, int to, int chunkSize, Object[] args) {
+			this.list = list;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+			this.args = args;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= chunkSize) {
+				execute(list.subList(from, to), args);
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ActivationTask(list, from, middle, chunkSize, args),
+						new ActivationTask(list, middle, to, chunkSize, args));
+			}
+		}
+	}
+
 	@Override
 	public String toString() {
-		return super.toString() + (isMulticoreModeOn() ? " multicore mode " : "");
+		return super.toString() + (isForkJoinModeOn() ? " fork/join mode " : (isMulticoreModeOn() ? " multicore mode " : ""));
 	}
 
 	/**
@@ -223,6 +347,104 @@ public abstract class Activator<A extends AbstractAgent> extends Overlooker<A> {
 		return nbOfSimultaneousTasks;
 	}
 
+	/**
+	 * @return <code>true</code> if the fork/join mode is on. I.e.
+	 *         {@link #getForkJoinParallelism()} &gt; 1.
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public synchronized boolean isForkJoinModeOn() {
+		return forkJoinParallelism > 1;
+	}
+
+	/**
+	 * Same as <code>useForkJoin(parallelism, ForkJoinChunking.ADAPTIVE)</code>.
+	 * 
+	 * @param parallelism
+	 *            the number of threads of the fork/join pool of this activator
+	 * @see #useForkJoin(int, ForkJoinChunking)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public void useForkJoin(int parallelism) {
+		useForkJoin(parallelism, ForkJoinChunking.ADAPTIVE);
+	}
+
+	/**
+	 * Sets the fork/join mode of this activator. If the parallelism is greater
+	 * than 1, {@link #forkJoinExecute(Object...)} is used when
+	 * {@link Activator#execute(Object...)} is called, with a fork/join pool
+	 * dedicated to this activator. The fork/join mode takes precedence over the
+	 * multicore mode set with {@link #useMulticore(int)}. If set to 1, the
+	 * fork/join mode is off.
+	 * 
+	 * @param parallelism
+	 *            the number of threads of the fork/join pool of this activator.
+	 *            Default is 1 upon creation, so that {@link #isForkJoinModeOn()}
+	 *            returns <code>false</code>.
+	 * @param chunking
+	 *            how the agents list is split
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public void useForkJoin(int parallelism, ForkJoinChunking chunking) {
+		if (chunking == null)
+			throw new NullPointerException("chunking");
+		ForkJoinPool old;
+		synchronized (this) {
+			parallelism = parallelism < 2 ? 1 : parallelism;
+			forkJoinChunking = chunking;
+			if (parallelism == forkJoinParallelism)
+				return;
+			forkJoinParallelism = parallelism;
+			old = forkJoinPool;
+			forkJoinPool = null;
+			nanosPerAgent = -1;
+		}
+		if (old != null)
+			old.shutdown();
+	}
+
+	/**
+	 * @return the number of threads of the fork/join pool of this activator
+	 * @see #useForkJoin(int, ForkJoinChunking)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public synchronized int getForkJoinParallelism() {
+		return forkJoinParallelism;
+	}
+
+	/**
+	 * @return how the agents list is split when the fork/join mode is on
+	 * @see #useForkJoin(int, ForkJoinChunking)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public synchronized ForkJoinChunking getForkJoinChunking() {
+		return forkJoinChunking;
+	}
+
+	/**
+	 * Sets the maximum number of agents of the sub-lists given to
+	 * {@link Activator#execute(List, Object...)}, when the fork/join mode is on
+	 * with {@link ForkJoinChunking#DETERMINISTIC}.
+	 * 
+	 * @param chunkSize
+	 *            the maximum number of agents per sub-list. Default is 1024.
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public synchronized void setForkJoinChunkSize(int chunkSize) {
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("chunkSize");
+		forkJoinChunkSize = chunkSize;
+	}
+
+	/**
+	 * @return the maximum number of agents of the sub-lists given to
+	 *         {@link Activator#execute(List, Object...)}, when the fork/join mode
+	 *         is on with {@link ForkJoinChunking#DETERMINISTIC}
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public synchronized int getForkJoinChunkSize() {
+		return forkJoinChunkSize;
+	}
+
 	/**
 	 * Returns the MDK ExecutorService that executes task in parallel
 	 * 
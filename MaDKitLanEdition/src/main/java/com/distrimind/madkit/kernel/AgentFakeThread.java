@@ -41,7 +41,7 @@ package com.distrimind.madkit.kernel;
 import com.distrimind.madkit.exceptions.SelfKillException;
 import com.distrimind.util.concurrent.LockerCondition;
 
-import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This type of agent is between an AbstractAgent type and an Agent type. It is
@@ -53,7 +53,9 @@ import java.util.concurrent.Callable;
  * full CPU mode even if it has nothing to do. The solution produced here
  * consists of automatically scheduling AgentFakeThread agents types through
  * several threads with a limited number (the default maximum number of threads
- * is <code>Runtime.getRuntime().availableProcessors()</code>.
+ * is <code>Runtime.getRuntime().availableProcessors()</code>. A work-stealing
+ * executor with a fixed number of threads can be dedicated to these agents
+ * through {@link MadkitProperties#numberOfThreadsDedicatedToReactiveAgents}.
  * 
  * To use the AgentFakeThread class, the user must inherit it, and overwrite the
  * method {@link #liveByStep(Message)}. This method is called for every received
@@ -92,7 +94,7 @@ public abstract class AgentFakeThread extends AbstractAgent {
 	 * private final String agent_task_name; private ExecutorProperties
 	 * executorProperties;
 	 */
-	boolean messageReadAlreadyInProgress = false;
+	final AtomicBoolean messageReadAlreadyInProgress = new AtomicBoolean(false);
 
 	/**
 	 * Construct an AgentFakeThread with the default task manager agent. All agents
@@ -202,22 +204,16 @@ public abstract class AgentFakeThread extends AbstractAgent {
 	public Message receiveMessage(Message m) {
 		State s = state.get();
 		if (!s.include(State.WAIT_FOR_KILL) && s != State.ENDING && s != State.TERMINATED && s != State.ZOMBIE) {
-			messageBox.getLocker().lock();
-			try {
-				m = super.receiveMessage(m);
+			m = super.receiveMessage(m);
 
-				if (m == null) {
-					return null;
-				}
-
-				if (state.get().include(State.LIVING)) {
-					manageTaskMessage(false);
-				}
-				return m;
-			} finally {
-				messageBox.getLocker().unlock();
+			if (m == null) {
+				return null;
 			}
 
+			if (state.get().include(State.LIVING)) {
+				manageTaskMessage();
+			}
+			return m;
 		}
 		return null;
 	}
@@ -227,25 +223,16 @@ public abstract class AgentFakeThread extends AbstractAgent {
 		return s == State.LIVING || isLivingButWaitingForMessages();
 	}
 
-	void manageTaskMessage(boolean force) {
-
-		boolean schedule = false;
-		if (!messageReadAlreadyInProgress && (messageBox.size() == 1 || (force && messageBox.size() > 0))) {
-		//if (!messageReadAlreadyInProgress && messageBox.size() > 0) {
-			messageReadAlreadyInProgress = true;
-			schedule = true;
-		}
-		if (schedule) {
-			getMadkitKernel().getMaDKitServiceExecutor().submit((Callable<Void>) () -> {
+	/*
+	 * Schedules the reading of the next message if no reading is already
+	 * scheduled. Only one reading is scheduled at the same time, so messages are
+	 * read in order, one by one. This method does not lock the mailbox.
+	 */
+	void manageTaskMessage() {
+		if (messageReadAlreadyInProgress.compareAndSet(false, true)) {
+			getMadkitKernel().getReactiveAgentsExecutor().execute(() -> {
 				if (canContinueToManageMessages()) {
-					messageBox.getLocker().lock();
-					Message m;
-					try {
-						messageReadAlreadyInProgress = true;
-						m = nextMessage();
-					} finally {
-						messageBox.getLocker().unlock();
-					}
+					Message m = nextMessage();
 					if (m != null) {
 						try {
 							AgentFakeThread.this.setMyThread(Thread.currentThread());
@@ -263,26 +250,13 @@ public abstract class AgentFakeThread extends AbstractAgent {
 
 						} catch (Throwable e) {
 							logLifeException(e);
-						} finally {
-							messageBox.getLocker().lock();
-							try {
-								messageReadAlreadyInProgress = false;
-								if (canContinueToManageMessages()) {
-									manageTaskMessage(true);
-								}
-							} finally {
-								messageBox.getLocker().unlock();
-							}
-
-						}
-					} else {
-						messageBox.getLocker().lock();
-						try {
-							messageReadAlreadyInProgress = false;
-						} finally {
-							messageBox.getLocker().unlock();
 						}
 					}
+					messageReadAlreadyInProgress.set(false);
+					//a message received before the flag reset has not been scheduled by its sender
+					if (canContinueToManageMessages() && !messageBox.isEmpty()) {
+						manageTaskMessage();
+					}
 					if (state.get().equals(State.LIVING_BUT_WAIT_FOR_KILL)) {
 						synchronized (state) {
 							state.notify();
@@ -292,7 +266,6 @@ public abstract class AgentFakeThread extends AbstractAgent {
 				} else
 					System.err.println(AgentFakeThread.this
 							+ "------------cannot manage task message !!!!!!!!!!!!!! : " + getState());
-				return null;
 			});
 		}
 	}
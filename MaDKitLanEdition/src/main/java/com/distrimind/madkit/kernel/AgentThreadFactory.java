@@ -54,10 +54,45 @@ final class AgentThreadFactory implements ThreadFactory {
 
 	final private static int MKRA_PRIORITY = Thread.NORM_PRIORITY - 1;
 	final private static int MKDA_PRIORITY = Thread.MAX_PRIORITY;
+	final private static boolean virtualThreadsSupported = loadVirtualThreadFactory(null) != null;
 	final private boolean daemonThreads;
+	final private ThreadFactory virtualThreadFactory;
 	final private ThreadGroup group;
 
+	/**
+	 * Virtual threads are available since Java 21. The current project is compiled
+	 * with Java 8, so the virtual thread builder is loaded through reflection.
+	 * Virtual threads do not belong to the thread group of this factory, so its
+	 * uncaught exception handler is given to the builder.
+	 *
+	 * @param uncaughtExceptionHandler
+	 *            the uncaught exception handler of the created threads
+	 * @return the virtual thread factory, or null if the JVM does not support
+	 *         virtual threads
+	 */
+	private static ThreadFactory loadVirtualThreadFactory(Thread.UncaughtExceptionHandler uncaughtExceptionHandler) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "MK_VIRTUAL_AGENT-", 0L);
+			if (uncaughtExceptionHandler != null)
+				builder = builderClass.getMethod("uncaughtExceptionHandler", Thread.UncaughtExceptionHandler.class)
+						.invoke(builder, uncaughtExceptionHandler);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException | ClassCastException | UnsupportedOperationException e) {
+			return null;
+		}
+	}
+
+	static boolean isVirtualThreadsSupported() {
+		return virtualThreadsSupported;
+	}
+
 	AgentThreadFactory(final KernelAddress kernelAddress, final boolean daemonThreadFactory) {
+		this(kernelAddress, daemonThreadFactory, false);
+	}
+
+	AgentThreadFactory(final KernelAddress kernelAddress, final boolean daemonThreadFactory, final boolean useVirtualThreads) {
 		daemonThreads = daemonThreadFactory;
 		group = new ThreadGroup(daemonThreads ? "DAEMON" : "LIFE" + kernelAddress) {
 
@@ -76,10 +111,13 @@ final class AgentThreadFactory implements ThreadFactory {
 		} else {
 			group.setMaxPriority(MKRA_PRIORITY);
 		}
+		virtualThreadFactory = useVirtualThreads && virtualThreadsSupported ? loadVirtualThreadFactory(group) : null;
 	}
 
 	@Override
 	public Thread newThread(final Runnable r) {
+		if (virtualThreadFactory != null)
+			return virtualThreadFactory.newThread(r);
 		final Thread t = new Thread(group, r);
 		t.setDaemon(daemonThreads);
 		return t;
@@ -89,4 +127,8 @@ final class AgentThreadFactory implements ThreadFactory {
 		return group;
 	}
 
+	boolean isVirtualThreads() {
+		return virtualThreadFactory != null;
+	}
+
 }
@@ -130,9 +130,9 @@ public class BigDataTransferID extends ConversationID {
 				distantKernelAddress);
 	}
 
-	@SuppressWarnings("MethodDoesntCallSuperMethod")
-    @Override
-	protected void finalize() {
+	@Override
+	void registerInterfacedIDsRelease() {
+		//interfaced IDs are managed by the wrapped conversation ID
 	}
 
 	@Override
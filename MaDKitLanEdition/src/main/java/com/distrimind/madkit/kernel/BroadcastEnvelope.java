@@ -0,0 +1,104 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel;
+
+/**
+ * Message received by local agents when a message is broadcast with
+ * {@link AbstractAgent#broadcastSharedMessage(AbstractGroup, String, Message)}
+ * like methods. Instead of receiving its own clone of the broadcast message,
+ * each local receiver receives an envelope that references the broadcast
+ * message, which is shared by all local receivers and must be considered as
+ * read only.
+ * 
+ * The envelope carries its own receiver. Its sender, its conversation ID and
+ * its reply flag are not copied : they are read from the shared message when
+ * asked, unless they were set on the envelope itself. Replying to the envelope
+ * is equivalent to replying to the shared message. Distant receivers receive a
+ * copy of the shared message, and not an envelope.
+ * 
+ * An envelope is as large as a shallow copy of a {@link Message}. Sharing
+ * saves memory only for messages whose {@link Message#clone()} copies their
+ * content.
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.1
+ * @since MadkitLanEdition 2.2.0
+ * @param <M> the shared message type
+ */
+public final class BroadcastEnvelope<M extends Message> extends Message {
+
+	private final M sharedMessage;
+
+	BroadcastEnvelope(M sharedMessage, AgentAddress receiver) {
+		super(receiver);
+		this.sharedMessage = sharedMessage;
+	}
+
+	@Override
+	public AgentAddress getSender() {
+		AgentAddress res = super.getSender();
+		return res == null ? sharedMessage.getSender() : res;
+	}
+
+	@Override
+	public ConversationID getConversationID() {
+		ConversationID res = super.getConversationID();
+		return res == null ? sharedMessage.getConversationID() : res;
+	}
+
+	@Override
+	public boolean needReply() {
+		return super.needReply() || sharedMessage.needReply();
+	}
+
+	/**
+	 * Returns the broadcast message shared by all local receivers. It must not be
+	 * modified.
+	 * 
+	 * @return the shared message
+	 */
+	public M getSharedMessage() {
+		return sharedMessage;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + sharedMessage.getClass().getSimpleName() + "]."
+				+ getConversationID() + ": " + getSender() + " -> " + getReceiver();
+	}
+}
@@ -7,40 +7,121 @@ import java.util.*;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * Blocking deque whose operations are protected by a unique lock.
+ *
+ * When the deque is built with lock free producers, elements added at the end
+ * of the deque (through {@link #offer(Object)}, {@link #add(Object)},
+ * {@link #put(Object)}, {@link #offerLast(Object)} or {@link #addLast(Object)})
+ * are pushed without lock into a multi-producer/single-consumer linked queue.
+ * These elements are transferred into the locked deque each time the deque is
+ * read, so filtered scans done when holding {@link #getLocker()} see all the
+ * received elements. Producers take the lock only to wake up a consumer that
+ * is waiting for a new element.
+ *
  * @author Jason Mahdjoub
- * @version 1.0
+ * @version 1.1
  * @since MaDKitLanEdition 2.1.6
  */
 public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements BlockingQueue<T>, Deque<T> {
 
+	private static final class Node<T> {
+		T value;
+		volatile Node<T> next;
+
+		Node(T value) {
+			this.value = value;
+		}
+	}
+
 	private final LinkedList<T> list;
 	private final Lock lock=new ReentrantLock();
 	private final Condition notEmpty=lock.newCondition();
 	private MadkitKernel madkitKernel;
+	private final boolean lockFreeProducers;
+	private final AtomicReference<Node<T>> inboundHead;
+	private final AtomicInteger waitingConsumers=new AtomicInteger(0);
+	//accessed only when the lock is held
+	private Node<T> inboundTail;
+
 	public ChainedBlockingDeque() {
 		this((MadkitKernel)null);
 	}
+	public ChainedBlockingDeque(boolean lockFreeProducers) {
+		this((MadkitKernel)null, lockFreeProducers);
+	}
 	public ChainedBlockingDeque(MadkitKernel madkitKernel) {
-		list=new LinkedList<>();
-		this.madkitKernel=madkitKernel;
+		this(madkitKernel, false);
+	}
+	public ChainedBlockingDeque(MadkitKernel madkitKernel, boolean lockFreeProducers) {
+		this(madkitKernel, Collections.<T>emptyList(), lockFreeProducers);
 	}
 	public ChainedBlockingDeque(Collection<T> c) {
 		this(null, c);
 	}
 	public ChainedBlockingDeque(MadkitKernel madkitKernel, Collection<T> c) {
+		this(madkitKernel, c, false);
+	}
+	public ChainedBlockingDeque(MadkitKernel madkitKernel, Collection<T> c, boolean lockFreeProducers) {
 		list=new LinkedList<>(c);
 		this.madkitKernel=madkitKernel;
+		this.lockFreeProducers=lockFreeProducers;
+		this.inboundTail=new Node<>(null);
+		this.inboundHead=new AtomicReference<>(inboundTail);
+	}
+
+	/**
+	 * Tells if elements added at the end of this deque are pushed without lock
+	 * @return true if elements added at the end of this deque are pushed without lock
+	 */
+	public boolean isLockFreeProducers() {
+		return lockFreeProducers;
+	}
+
+	private void offerWithoutLock(T t) {
+		Node<T> n=new Node<>(t);
+		Node<T> previous=inboundHead.getAndSet(n);
+		previous.next=n;
+		if (waitingConsumers.get()>0) {
+			lock.lock();
+			try {
+				notEmpty.signal();
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/*
+	 * Must be called when the lock is held
+	 */
+	private void drainInbound() {
+		Node<T> n=inboundTail.next;
+		while (n!=null) {
+			list.addLast(n.value);
+			n.value=null;
+			inboundTail=n;
+			n=n.next;
+		}
 	}
 
+
 	@Override
 	public boolean add(T t) {
+		if (lockFreeProducers) {
+			offerWithoutLock(t);
+			return true;
+		}
 		lock.lock();
 		try {
+			drainInbound();
 			return list.add(t);
 		}
 		finally {
@@ -55,8 +136,13 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 
 	@Override
 	public boolean offer(T t) {
+		if (lockFreeProducers) {
+			offerWithoutLock(t);
+			return true;
+		}
 		lock.lock();
 		try {
+			drainInbound();
 			return list.offer(t);
 		}
 		finally {
@@ -69,6 +155,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public T remove() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.remove();
 		}
 		finally {
@@ -80,6 +167,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public T poll() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.poll();
 		}
 		finally {
@@ -91,6 +179,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public T element() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.element();
 		}
 		finally {
@@ -102,6 +191,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public T peek() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.peek();
 		}
 		finally {
@@ -111,8 +201,13 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 
 	@Override
 	public void put(T t) {
+		if (lockFreeProducers) {
+			offerWithoutLock(t);
+			return;
+		}
 		lock.lock();
 		try {
+			drainInbound();
 			list.add(t);
 		}
 		finally {
@@ -123,8 +218,13 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 
 	@Override
 	public boolean offer(T t, long timeout, TimeUnit unit) {
+		if (lockFreeProducers) {
+			offerWithoutLock(t);
+			return true;
+		}
 		lock.lock();
 		try {
+			drainInbound();
 			return list.offer(t);
 		}
 		finally {
@@ -139,33 +239,49 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 
 		if (madkitKernel!=null) {
 			final Reference<T> res=new Reference<>();
-			madkitKernel.wait(madkitKernel, new LockerCondition() {
-				boolean ok=false;
-				@Override
-				public boolean isLocked() {
-					if (ok)
-						return false;
-					if (list.isEmpty())
-					{
-						return true;
-					}
-					else {
-						res.set(list.remove());
-						ok=true;
-						return false;
+			waitingConsumers.incrementAndGet();
+			try {
+				madkitKernel.wait(madkitKernel, new LockerCondition() {
+					boolean ok = false;
+
+					@Override
+					public boolean isLocked() {
+						if (ok)
+							return false;
+						lock.lock();
+						try {
+							drainInbound();
+							if (list.isEmpty()) {
+								return true;
+							} else {
+								res.set(list.remove());
+								ok = true;
+								return false;
+							}
+						}
+						finally {
+							lock.unlock();
+						}
 					}
-				}
-			}, lock, notEmpty);
+				}, lock, notEmpty);
+			}
+			finally {
+				waitingConsumers.decrementAndGet();
+			}
 			return res.get();
 		}
 		else {
 			lock.lock();
+			waitingConsumers.incrementAndGet();
 			try {
+				drainInbound();
 				while (list.isEmpty()) {
 					notEmpty.await();
+					drainInbound();
 				}
 				return list.remove();
 			} finally {
+				waitingConsumers.decrementAndGet();
 				lock.unlock();
 			}
 		}
@@ -176,6 +292,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 
 		if (madkitKernel!=null) {
 			final Reference<T> res=new Reference<>();
+			waitingConsumers.incrementAndGet();
 			try {
 				madkitKernel.wait(madkitKernel, new LockerCondition() {
 					boolean ok=false;
@@ -183,20 +300,28 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 					public boolean isLocked() {
 						if (ok)
 							return false;
-						if (list.isEmpty())
-						{
-							return true;
+						lock.lock();
+						try {
+							drainInbound();
+							if (list.isEmpty()) {
+								return true;
+							} else {
+								res.set(list.remove());
+								ok = true;
+								return false;
+							}
 						}
-						else {
-							res.set(list.remove());
-							ok=true;
-							return false;
+						finally {
+							lock.unlock();
 						}
 					}
 				}, lock, notEmpty, time, unit);
 			} catch (TimeoutException ignored) {
 				return null;
 			}
+			finally {
+				waitingConsumers.decrementAndGet();
+			}
 			return res.get();
 		}
 		else {
@@ -204,10 +329,15 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 			time=unit.toNanos(time);
 
 			lock.lock();
+			waitingConsumers.incrementAndGet();
 			try {
+				drainInbound();
 				while (list.isEmpty()) {
 					if (!notEmpty.await(time, TimeUnit.NANOSECONDS))
 						time=-1;
+					drainInbound();
+					if (!list.isEmpty())
+						break;
 
 					long end=System.nanoTime();
 					time-=end-start;
@@ -218,6 +348,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 				return list.remove();
 			}
 			finally {
+				waitingConsumers.decrementAndGet();
 				lock.unlock();
 			}
 		}
@@ -232,6 +363,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public boolean remove(Object o) {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.remove(o);
 		}
 		finally {
@@ -243,6 +375,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public boolean containsAll(Collection<?> c) {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.containsAll(c);
 		}
 		finally {
@@ -254,6 +387,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public boolean addAll(Collection<? extends T> c) {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.addAll(c);
 		}
 		finally {
@@ -266,6 +400,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public void push(T t) {
 		lock.lock();
 		try {
+			drainInbound();
 			list.push(t);
 		}
 		finally {
@@ -278,6 +413,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public T pop() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.pop();
 		}
 		finally {
@@ -289,6 +425,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public boolean removeAll(Collection<?> c) {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.removeAll(c);
 		}
 		finally {
@@ -300,6 +437,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public boolean retainAll(Collection<?> c) {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.retainAll(c);
 		}
 		finally {
@@ -311,6 +449,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public void clear() {
 		lock.lock();
 		try {
+			drainInbound();
 			list.clear();
 		}
 		finally {
@@ -322,6 +461,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public int size() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.size();
 		}
 		finally {
@@ -333,6 +473,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public boolean isEmpty() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.isEmpty();
 		}
 		finally {
@@ -344,6 +485,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public boolean contains(Object o) {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.contains(o);
 		}
 		finally {
@@ -353,18 +495,33 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 
 	@Override
 	public Iterator<T> iterator() {
-		return list.iterator();
+		lock.lock();
+		try {
+			drainInbound();
+			return list.iterator();
+		}
+		finally {
+			lock.unlock();
+		}
 	}
 
 	@Override
 	public Iterator<T> descendingIterator() {
-		return list.descendingIterator();
+		lock.lock();
+		try {
+			drainInbound();
+			return list.descendingIterator();
+		}
+		finally {
+			lock.unlock();
+		}
 	}
 
 	@Override
 	public Object[] toArray() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.toArray();
 		}
 		finally {
@@ -376,6 +533,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public <T1> T1[] toArray(T1[] a) {
 		lock.lock();
 		try {
+			drainInbound();
 			//noinspection SuspiciousToArrayCall
 			return list.toArray(a);
 		}
@@ -388,6 +546,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public int drainTo(Collection<? super T> c) {
 		lock.lock();
 		try {
+			drainInbound();
 			if (!c.addAll(list))
 				return 0;
 
@@ -403,6 +562,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public T peekFirst() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.peekFirst();
 		}
 		finally {
@@ -414,6 +574,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public T peekLast() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.peekLast();
 		}
 		finally {
@@ -425,6 +586,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public boolean removeFirstOccurrence(Object o) {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.removeFirstOccurrence(o);
 		}
 		finally {
@@ -436,6 +598,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public boolean removeLastOccurrence(Object o) {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.removeLastOccurrence(o);
 		}
 		finally {
@@ -448,6 +611,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public void addFirst(T t) {
 		lock.lock();
 		try {
+			drainInbound();
 			list.addFirst(t);
 		}
 		finally {
@@ -458,8 +622,13 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 
 	@Override
 	public void addLast(T t) {
+		if (lockFreeProducers) {
+			offerWithoutLock(t);
+			return;
+		}
 		lock.lock();
 		try {
+			drainInbound();
 			list.addLast(t);
 		}
 		finally {
@@ -472,6 +641,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public boolean offerFirst(T t) {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.offerFirst(t);
 		}
 		finally {
@@ -482,8 +652,13 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 
 	@Override
 	public boolean offerLast(T t) {
+		if (lockFreeProducers) {
+			offerWithoutLock(t);
+			return true;
+		}
 		lock.lock();
 		try {
+			drainInbound();
 			return list.offerLast(t);
 		}
 		finally {
@@ -496,6 +671,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public T removeFirst() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.removeFirst();
 		}
 		finally {
@@ -507,6 +683,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public T removeLast() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.removeLast();
 		}
 		finally {
@@ -518,6 +695,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public T pollFirst() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.pollFirst();
 		}
 		finally {
@@ -529,6 +707,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public T pollLast() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.pollLast();
 		}
 		finally {
@@ -540,6 +719,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public T getFirst() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.getFirst();
 		}
 		finally {
@@ -551,6 +731,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 	public T getLast() {
 		lock.lock();
 		try {
+			drainInbound();
 			return list.getLast();
 		}
 		finally {
@@ -564,6 +745,7 @@ public class ChainedBlockingDeque<T> extends AbstractQueue<T> implements Blockin
 			throw new IllegalArgumentException();
 		lock.lock();
 		try {
+			drainInbound();
 			if (maxElements<=list.size())
 				return drainTo(c);
 			else
@@ -38,6 +38,7 @@
 package com.distrimind.madkit.kernel;
 
 
+import com.distrimind.madkit.util.ReferenceCleaner;
 import com.distrimind.util.io.SecureExternalizable;
 import com.distrimind.util.io.SecuredObjectInputStream;
 import com.distrimind.util.io.SecuredObjectOutputStream;
@@ -114,7 +115,7 @@ public class ConversationID implements SecureExternalizable, Cloneable {
 					e.printStackTrace();
 				}
 				//}
-
+				registerInterfacedIDsRelease();
 			}
 			else
 				this.myInterfacedIDs=null;
@@ -276,11 +277,46 @@ public class ConversationID implements SecureExternalizable, Cloneable {
 		return this.global_interfaced_ids;
 	}
 
-	@SuppressWarnings({"SynchronizeOnNonFinalField", "deprecation"})
-	@Override
-	protected void finalize() {
-		if (global_interfaced_ids != null && myInterfacedIDs != null) {
+	private transient volatile ReferenceCleaner.Cleanable interfacedIDsRelease = null;
+
+	/*
+	 * Releases the interfaced IDs once this conversation ID is not referenced
+	 * anymore, without making every conversation ID finalizable.
+	 */
+	void registerInterfacedIDsRelease() {
+		if (global_interfaced_ids != null && myInterfacedIDs != null && interfacedIDsRelease == null)
+			interfacedIDsRelease = ReferenceCleaner.register(this,
+					new InterfacedIDsRelease(id, global_interfaced_ids, myInterfacedIDs));
+	}
+
+	/*
+	 * Releases explicitly the interfaced IDs of a conversation ID that will not be
+	 * used anymore.
+	 */
+	void releaseInterfacedIDs() {
+		ReferenceCleaner.Cleanable c = interfacedIDsRelease;
+		if (c != null) {
+			interfacedIDsRelease = null;
+			c.clean();
+			global_interfaced_ids = null;
+			myInterfacedIDs = null;
+		}
+	}
+
+	private static final class InterfacedIDsRelease implements Runnable {
+		private final int id;
+		private final Map<KernelAddress, InterfacedIDs> global_interfaced_ids;
+		private final Map<KernelAddress, OriginalID> myInterfacedIDs;
+
+		InterfacedIDsRelease(int id, Map<KernelAddress, InterfacedIDs> global_interfaced_ids,
+				Map<KernelAddress, OriginalID> myInterfacedIDs) {
+			this.id = id;
+			this.global_interfaced_ids = global_interfaced_ids;
+			this.myInterfacedIDs = myInterfacedIDs;
+		}
 
+		@Override
+		public void run() {
 			synchronized (global_interfaced_ids) {
 				try {
 					for (Map.Entry<KernelAddress, OriginalID> kpi : myInterfacedIDs.entrySet()) {
@@ -294,9 +330,6 @@ public class ConversationID implements SecureExternalizable, Cloneable {
 					e.printStackTrace();
 				}
 			}
-			global_interfaced_ids = null;
-			myInterfacedIDs = null;
-
 		}
 	}
 
@@ -313,12 +346,15 @@ public class ConversationID implements SecureExternalizable, Cloneable {
 			if (distantId == null) {
 				//noinspection SynchronizationOnLocalVariableOrMethodParameter
 				synchronized (global_interfaced_ids) {
-					if (myInterfacedIDs == null)
+					boolean newInterfacedIDs = myInterfacedIDs == null;
+					if (newInterfacedIDs)
 						myInterfacedIDs = Collections.synchronizedMap(new HashMap<>());
 					else
 						distantId = myInterfacedIDs.get(distantKernelAddress);
 					if (distantId==null) {
 						this.global_interfaced_ids = global_interfaced_ids;
+						if (newInterfacedIDs)
+							registerInterfacedIDsRelease();
 						InterfacedIDs i = global_interfaced_ids.get(distantKernelAddress);
 						if (i == null) {
 							i = new InterfacedIDs();
@@ -409,6 +445,7 @@ public class ConversationID implements SecureExternalizable, Cloneable {
 				cid.myInterfacedIDs = Collections
 						.synchronizedMap(new HashMap<>());
 				cid.myInterfacedIDs.put(distantKernelAddress, distantOriginalID/*i.getNewID(o.getOriginalID())*/);
+				cid.registerInterfacedIDsRelease();
 				/*
 				 * if (myInterfacedIDs==null) myInterfacedIDs=new HashMap<>();
 				 * myInterfacedIDs.put(distantKernelAddress, i.getNewID(new
@@ -437,6 +474,11 @@ public class ConversationID implements SecureExternalizable, Cloneable {
 
 	@Override
 	public void readExternal(SecuredObjectInputStream in) throws IOException, ClassNotFoundException {
+		ReferenceCleaner.Cleanable c=interfacedIDsRelease;
+		if (c!=null) {
+			interfacedIDsRelease = null;
+			c.cancel();
+		}
 		global_interfaced_ids=null;
 		myInterfacedIDs=null;
 		this.id=in.readInt();
@@ -37,6 +37,7 @@ knowledge of the CeCILL-C license and that you accept its terms.
 
 import com.distrimind.madkit.agr.CloudCommunity;
 import com.distrimind.madkit.agr.LocalCommunity;
+import com.distrimind.madkit.kernel.network.NetworkProperties;
 import com.distrimind.madkit.message.NetworkObjectMessage;
 import com.distrimind.madkit.message.ObjectMessage;
 import com.distrimind.madkit.message.hook.HookMessage;
@@ -51,6 +52,8 @@ import com.distrimind.util.io.*;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 import java.util.logging.Level;
 
 /**
@@ -95,6 +98,7 @@ public class DatabaseSynchronizerAgent extends AgentFakeThread {
 	//private Map<DecentralizedValue, Group> centralGroupIdsPerID=new HashMap<>();
 	private final HashMap<ConversationID, BigDataMetaData> currentBigDataReceiving=new HashMap<>();
 	private final HashMap<ConversationID, BigDataMetaData> currentBigDataSending=new HashMap<>();
+	private final HashMap<DecentralizedValue, PeerOutgoingEvents<P2PDatabaseEventToSend>> outgoingEventsPerPeer=new HashMap<>();
 
 
 	static final int FILE_BUFFER_LENGTH_BYTES=4096;
@@ -143,6 +147,112 @@ public class DatabaseSynchronizerAgent extends AgentFakeThread {
 		}
 	}
 
+	/*
+	 * Events waiting to be sent to one distant peer, in the order given by the
+	 * synchronizer. Small events at the head of the queue are grouped and sent
+	 * together. A big event is exported out of the agent thread, and blocks the
+	 * queue until its transfer begins. Only a limited number of big events are
+	 * transferred at the same time.
+	 */
+	static class PeerOutgoingEvents<E>
+	{
+		final ArrayDeque<E> events=new ArrayDeque<>();
+		private final Predicate<E> bigEvent;
+		private final ToIntFunction<E> serializedSize;
+		int bigDataTransfersInProgress=0;
+		boolean exportInProgress=false;
+
+		PeerOutgoingEvents(Predicate<E> bigEvent, ToIntFunction<E> serializedSize)
+		{
+			if (bigEvent==null)
+				throw new NullPointerException();
+			if (serializedSize==null)
+				throw new NullPointerException();
+			this.bigEvent=bigEvent;
+			this.serializedSize=serializedSize;
+		}
+
+		boolean isIdle()
+		{
+			return events.isEmpty() && !exportInProgress && bigDataTransfersInProgress==0;
+		}
+
+		/*
+		 * Polls the next events to send: a big event, whose export is then in
+		 * progress, or consecutive small events whose cumulated size does not exceed
+		 * maxBatchSize. Returns an empty list when the queue is empty or blocked.
+		 */
+		List<E> pollNextEvents(int maxBatchSize, int maxBigDataTransfersInProgress)
+		{
+			if (exportInProgress || events.isEmpty())
+				return Collections.emptyList();
+			E e=events.peek();
+			if (bigEvent.test(e))
+			{
+				if (bigDataTransfersInProgress>=Math.max(1, maxBigDataTransfersInProgress))
+					return Collections.emptyList();
+				events.poll();
+				exportInProgress=true;
+				return Collections.singletonList(e);
+			}
+			events.poll();
+			if (maxBatchSize<=0)
+				return Collections.singletonList(e);
+			ArrayList<E> batch=null;
+			int batchSize=serializedSize.applyAsInt(e);
+			while (!events.isEmpty() && !bigEvent.test(events.peek()))
+			{
+				int eventSize=serializedSize.applyAsInt(events.peek());
+				if (batchSize+eventSize>maxBatchSize)
+					break;
+				if (batch==null) {
+					batch=new ArrayList<>();
+					batch.add(e);
+				}
+				batch.add(events.poll());
+				batchSize+=eventSize;
+			}
+			return batch==null?Collections.singletonList(e):batch;
+		}
+
+		void bigDataEventExported()
+		{
+			exportInProgress=false;
+		}
+
+		void bigDataTransferStarted()
+		{
+			++bigDataTransfersInProgress;
+		}
+
+		void bigDataTransferEnded(boolean transferred)
+		{
+			--bigDataTransfersInProgress;
+			//the synchronizer sends the following events again during the next peer session
+			if (!transferred)
+				events.clear();
+		}
+	}
+
+	private static PeerOutgoingEvents<P2PDatabaseEventToSend> newPeerOutgoingEvents()
+	{
+		return new PeerOutgoingEvents<>(e -> e instanceof P2PBigDatabaseEventToSend,
+				e -> SerializationTools.getInternalSize(e, NetworkProperties.GLOBAL_MAX_SHORT_DATA_SIZE));
+	}
+
+	private static class BigDataEventExported extends Message
+	{
+		final P2PBigDatabaseEventToSend event;
+		final RandomOutputStream outputStream;
+		final Exception exception;
+
+		BigDataEventExported(P2PBigDatabaseEventToSend event, RandomOutputStream outputStream, Exception exception) {
+			this.event = event;
+			this.outputStream = outputStream;
+			this.exception = exception;
+		}
+	}
+
 	DatabaseSynchronizerAgent()
 	{
 
@@ -468,6 +578,7 @@ public class DatabaseSynchronizerAgent extends AgentFakeThread {
 						peerAvailable(aa.getKernelAddress(), peerID);
 					} else if (((OrganizationEvent) _message).getContent().equals(HookMessage.AgentActionEvent.LEAVE_ROLE)) {
 
+						clearOutgoingEvents(peerID);
 						try {
 							synchronizer.peerDisconnected(peerID);
 						} catch (DatabaseException e) {
@@ -538,6 +649,7 @@ public class DatabaseSynchronizerAgent extends AgentFakeThread {
 						if (logger != null && logger.isLoggable(Level.INFO))
 							logger.info("Peer disconnected : " + e.getValue());
 						leaveGroup(e.getKey());
+						clearOutgoingEvents(e.getValue().decentralizedValue);
 						try {
 							synchronizer.peerDisconnected(e.getValue().decentralizedValue);
 						} catch (DatabaseException e2) {
@@ -576,64 +688,18 @@ public class DatabaseSynchronizerAgent extends AgentFakeThread {
 			try {
 				Long utc=wrapper.getNextPossibleEventTimeUTC();
 
+				LinkedHashSet<DecentralizedValue> peersToFlush=null;
 				while ((e = synchronizer.nextEvent()) != null) {
 
 					if (e instanceof P2PDatabaseEventToSend) {
 						P2PDatabaseEventToSend es = (P2PDatabaseEventToSend) e;
-						try {
-							DecentralizedValue dest = es.getHostDestination();
-							if (logger != null && logger.isLoggable(Level.FINEST))
-								logger.finest("Send event " + es.getClass() + " to peer " + dest);
-							AgentAddress aa = getAgentWithRole(this.getDistantGroupID(dest), CloudCommunity.Roles.SYNCHRONIZER);
-							if (aa != null) {
-								if (es instanceof P2PBigDatabaseEventToSend) {
-									P2PBigDatabaseEventToSend be = (P2PBigDatabaseEventToSend) e;
-									//currentBigDataHostID = es.getHostDestination();
-									final RandomOutputStream bigDataOutputStream = getMadkitConfig().getCacheFileCenter().getNewBufferedRandomCacheFileOutputStream(true, RandomFileOutputStream.AccessMode.READ_AND_WRITE, FILE_BUFFER_LENGTH_BYTES, 1);
-									BigDataTransferID currentBigDataTransferID=null;
-									try {
-										be.exportToOutputStream(wrapper, new OutputStreamGetter() {
-
-											@Override
-											public RandomOutputStream initOrResetOutputStream() throws IOException {
-												bigDataOutputStream.setLength(0);
-												return bigDataOutputStream;
-											}
-
-											@Override
-											public void close() throws Exception {
-												bigDataOutputStream.flush();
-											}
-										});
-										RandomInputStream in = bigDataOutputStream.getRandomInputStream();
-										currentBigDataTransferID= sendBigDataWithRole(aa, in, be, CloudCommunity.Roles.SYNCHRONIZER);
-										if (currentBigDataTransferID == null) {
-											getLogger().warning("Impossible to send message to host " + dest);
-											synchronizer.peerDisconnected(dest);
-										}
-										else
-										{
-											currentBigDataSending.put(currentBigDataTransferID, new BigDataMetaData(be,  bigDataOutputStream));
-										}
-									}
-									finally {
-										if (currentBigDataTransferID==null && bigDataOutputStream!=null)
-											bigDataOutputStream.close();
-									}
-								} else {
-									if (!sendMessageWithRole(aa, new NetworkObjectMessage<>(es), CloudCommunity.Roles.SYNCHRONIZER).equals(ReturnCode.SUCCESS)) {
-										getLogger().warning("Impossible to send message to host " + dest);
-										synchronizer.peerDisconnected(dest);
-									}
-								}
-							} else {
-								getLogger().warning("Impossible to send message to host " + dest);
-								synchronizer.peerConnected(dest);
-							}
-
-						} catch (DatabaseException | IOException ex) {
-							getLogger().severeLog("Unexpected exception", ex);
-						}
+						DecentralizedValue dest = es.getHostDestination();
+						if (logger != null && logger.isLoggable(Level.FINEST))
+							logger.finest("Send event " + es.getClass() + " to peer " + dest);
+						outgoingEventsPerPeer.computeIfAbsent(dest, k -> newPeerOutgoingEvents()).events.add(es);
+						if (peersToFlush==null)
+							peersToFlush=new LinkedHashSet<>();
+						peersToFlush.add(dest);
 					}
 					else if (e instanceof MessageDestinedToCentralDatabaseBackup) {
 
@@ -680,6 +746,11 @@ public class DatabaseSynchronizerAgent extends AgentFakeThread {
 					}
 				}
 
+				if (peersToFlush!=null) {
+					for (DecentralizedValue dest : peersToFlush)
+						flushOutgoingEvents(dest);
+				}
+
 				if (utc!=null) {
 					scheduleTask(new Task<>((Callable<Void>) () -> {
 						receiveMessage(checkEvents);
@@ -759,6 +830,13 @@ public class DatabaseSynchronizerAgent extends AgentFakeThread {
 			BigDataMetaData cur=currentBigDataSending.remove(res.getConversationID());
 			if (cur!=null)
 			{
+				DecentralizedValue dest=null;
+				if (cur.eventToSend instanceof P2PBigDatabaseEventToSend) {
+					dest=((P2PBigDatabaseEventToSend) cur.eventToSend).getHostDestination();
+					PeerOutgoingEvents<P2PDatabaseEventToSend> p=outgoingEventsPerPeer.get(dest);
+					if (p!=null)
+						p.bigDataTransferEnded(res.getType() == BigDataResultMessage.Type.BIG_DATA_TRANSFERRED);
+				}
 				if (res.getType() != BigDataResultMessage.Type.BIG_DATA_TRANSFERRED) {
 					try {
 						if (cur.eventToSend instanceof BigDataEventToSendWithCentralDatabaseBackup)
@@ -784,6 +862,8 @@ public class DatabaseSynchronizerAgent extends AgentFakeThread {
 				} catch (IOException e) {
 					getLogger().severeLog("", e);
 				}
+				if (dest!=null)
+					flushOutgoingEvents(dest);
 			}
 			else
 			{
@@ -884,17 +964,27 @@ public class DatabaseSynchronizerAgent extends AgentFakeThread {
 		{
 			NetworkObjectMessage<?> m=(NetworkObjectMessage<?>)_message;
 			boolean generateError=true;
-			if (m.getContent() instanceof P2PDatabaseEventToSend) {
+			if (m.getContent() instanceof P2PDatabaseEventToSend || m.getContent() instanceof P2PDatabaseEventsBatch) {
 				DecentralizedValue peerID = getDistantPeerID(_message.getSender());
 				if (peerID != null) {
-					P2PDatabaseEventToSend e = (P2PDatabaseEventToSend) m.getContent();
+					List<P2PDatabaseEventToSend> events=m.getContent() instanceof P2PDatabaseEventsBatch
+							?((P2PDatabaseEventsBatch) m.getContent()).getEvents()
+							:Collections.singletonList((P2PDatabaseEventToSend) m.getContent());
 					try {
-						DecentralizedValue source = e.getHostSource();
-
-						if (source != null && source.equals(peerID)) {
-							synchronizer.received(e);
-							if (logger != null && logger.isLoggable(Level.FINEST))
-								logger.finest("Event " + e.getClass() + " received from peer " + peerID);
+						boolean valid=true;
+						for (P2PDatabaseEventToSend e : events) {
+							DecentralizedValue source = e.getHostSource();
+							if (source == null || !source.equals(peerID)) {
+								valid=false;
+								break;
+							}
+						}
+						if (valid) {
+							for (P2PDatabaseEventToSend e : events) {
+								synchronizer.received(e);
+								if (logger != null && logger.isLoggable(Level.FINEST))
+									logger.finest("Event " + e.getClass() + " received from peer " + peerID);
+							}
 							generateError=false;
 							receiveMessage(checkEvents);
 						}
@@ -935,10 +1025,175 @@ public class DatabaseSynchronizerAgent extends AgentFakeThread {
 					anomalyDetectedWithOneDistantKernel(false, _message.getSender().getKernelAddress(), "Invalid message received from " + _message.getSender());
 			}
 		}
+		else if (_message instanceof BigDataEventExported)
+		{
+			BigDataEventExported m=(BigDataEventExported)_message;
+			DecentralizedValue dest=m.event.getHostDestination();
+			PeerOutgoingEvents<P2PDatabaseEventToSend> p=outgoingEventsPerPeer.get(dest);
+			if (p!=null)
+				p.bigDataEventExported();
+			startBigDataTransfer(m, p);
+			flushOutgoingEvents(dest);
+		}
 		else
 			anomalyDetectedWithOneDistantKernel(false, _message.getSender().getKernelAddress(), "Invalid message received from " + _message.getSender());
 	}
 
+	private void flushOutgoingEvents(DecentralizedValue dest)
+	{
+		PeerOutgoingEvents<P2PDatabaseEventToSend> p=outgoingEventsPerPeer.get(dest);
+		if (p==null)
+			return;
+		try {
+			if (p.exportInProgress || p.events.isEmpty())
+				return;
+			AgentAddress aa = getAgentWithRole(this.getDistantGroupID(dest), CloudCommunity.Roles.SYNCHRONIZER);
+			if (aa == null) {
+				p.events.clear();
+				getLogger().warning("Impossible to send message to host " + dest);
+				synchronizer.peerConnected(dest);
+				return;
+			}
+			NetworkProperties np=getMadkitConfig().networkProperties;
+			int maxBatchSize=Math.min(np.maxDatabaseSynchronizationEventsBatchSize, NetworkProperties.GLOBAL_MAX_SHORT_DATA_SIZE/2);
+			List<P2PDatabaseEventToSend> next;
+			while (!(next=p.pollNextEvents(maxBatchSize, np.maxDatabaseSynchronizationTransfersInProgressPerPeer)).isEmpty())
+			{
+				P2PDatabaseEventToSend es=next.get(0);
+				if (es instanceof P2PBigDatabaseEventToSend)
+				{
+					exportBigDataEvent((P2PBigDatabaseEventToSend) es);
+					return;
+				}
+				Object content=next.size()==1?es:new P2PDatabaseEventsBatch(next);
+				if (!sendMessageWithRole(aa, new NetworkObjectMessage<>(content), CloudCommunity.Roles.SYNCHRONIZER).equals(ReturnCode.SUCCESS)) {
+					p.events.clear();
+					getLogger().warning("Impossible to send message to host " + dest);
+					synchronizer.peerDisconnected(dest);
+					return;
+				}
+			}
+		}
+		catch (DatabaseException e)
+		{
+			getLogger().severeLog("Unexpected exception", e);
+		}
+		finally {
+			if (p.isIdle())
+				outgoingEventsPerPeer.remove(dest);
+		}
+	}
+
+	private void exportBigDataEvent(P2PBigDatabaseEventToSend be)
+	{
+		getMadkitKernel().getMaDKitServiceExecutor().execute(() -> {
+			BigDataEventExported m=exportBigDataEvent(be);
+			if (receiveMessage(m)==null && m.outputStream!=null) {
+				try {
+					m.outputStream.close();
+				} catch (IOException e) {
+					getLogger().severeLog("", e);
+				}
+			}
+		});
+	}
+
+	private BigDataEventExported exportBigDataEvent(P2PBigDatabaseEventToSend be)
+	{
+		RandomOutputStream bigDataOutputStream=null;
+		try {
+			bigDataOutputStream = getMadkitConfig().getCacheFileCenter().getNewBufferedRandomCacheFileOutputStream(true, RandomFileOutputStream.AccessMode.READ_AND_WRITE, FILE_BUFFER_LENGTH_BYTES, 1);
+			final RandomOutputStream out=bigDataOutputStream;
+			be.exportToOutputStream(wrapper, new OutputStreamGetter() {
+
+				@Override
+				public RandomOutputStream initOrResetOutputStream() throws IOException {
+					out.setLength(0);
+					return out;
+				}
+
+				@Override
+				public void close() throws Exception {
+					out.flush();
+				}
+			});
+			return new BigDataEventExported(be, bigDataOutputStream, null);
+		}
+		catch (Exception e)
+		{
+			return new BigDataEventExported(be, bigDataOutputStream, e);
+		}
+	}
+
+	private void startBigDataTransfer(BigDataEventExported m, PeerOutgoingEvents<P2PDatabaseEventToSend> p)
+	{
+		DecentralizedValue dest=m.event.getHostDestination();
+		BigDataTransferID currentBigDataTransferID=null;
+		try {
+			if (m.exception!=null) {
+				getLogger().severeLog("Unexpected exception", m.exception);
+				//the event cannot be resent: the following events must not be sent without it
+				abortPeerSession(dest, p);
+			}
+			else {
+				AgentAddress aa = getAgentWithRole(this.getDistantGroupID(dest), CloudCommunity.Roles.SYNCHRONIZER);
+				if (aa == null) {
+					getLogger().warning("Impossible to send message to host " + dest);
+					synchronizer.peerConnected(dest);
+				}
+				else {
+					currentBigDataTransferID = sendBigDataWithRole(aa, m.outputStream.getRandomInputStream(), m.event, CloudCommunity.Roles.SYNCHRONIZER);
+					if (currentBigDataTransferID == null) {
+						getLogger().warning("Impossible to send message to host " + dest);
+						abortPeerSession(dest, p);
+					} else {
+						currentBigDataSending.put(currentBigDataTransferID, new BigDataMetaData(m.event, m.outputStream));
+						if (p!=null)
+							p.bigDataTransferStarted();
+					}
+				}
+			}
+		} catch (DatabaseException | IOException ex) {
+			getLogger().severeLog("Unexpected exception", ex);
+			abortPeerSession(dest, p);
+		}
+		finally {
+			if (currentBigDataTransferID==null && m.outputStream!=null) {
+				try {
+					m.outputStream.close();
+				} catch (IOException e) {
+					getLogger().severeLog("", e);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Drops the events waiting to be sent to the given peer and tells the
+	 * synchronizer that the peer is disconnected, so that the events not sent
+	 * are sent again during the next peer session.
+	 */
+	private void abortPeerSession(DecentralizedValue dest, PeerOutgoingEvents<P2PDatabaseEventToSend> p)
+	{
+		if (p!=null)
+			p.events.clear();
+		try {
+			synchronizer.peerDisconnected(dest);
+		} catch (DatabaseException e) {
+			getLogger().severeLog("Unexpected exception", e);
+		}
+	}
+
+	private void clearOutgoingEvents(DecentralizedValue peerID)
+	{
+		PeerOutgoingEvents<P2PDatabaseEventToSend> p=outgoingEventsPerPeer.get(peerID);
+		if (p!=null) {
+			p.events.clear();
+			if (p.isIdle())
+				outgoingEventsPerPeer.remove(peerID);
+		}
+	}
+
 	static void updateGroupAccess(AbstractAgent agent) {
 		ReturnCode rc;
 		if (!(rc=agent.broadcastMessageWithRole(LocalCommunity.Groups.NETWORK,
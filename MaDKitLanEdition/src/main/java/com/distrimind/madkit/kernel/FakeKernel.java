@@ -54,6 +54,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Fabien Michel
@@ -210,19 +211,20 @@ class FakeKernel extends MadkitKernel {
 
 	@Override
 	final ReturnCode sendMessage(final AbstractAgent agent, AbstractGroup group, final String role,
-			final Message messageToSend, final String senderRole) {
+			final Message messageToSend, final String senderRole, CompletableFuture<ReturnCode> transferFuture) {
 		throw buildKernelException(agent);
 	}
 
 	@Override
 	final ReturnCode sendMessage(AbstractAgent agent, AgentAddress receiver, final Message messageToSend,
-			final String senderRole) {
+			final String senderRole, CompletableFuture<ReturnCode> transferFuture) {
 		throw buildKernelException(agent);
 	}
 
 	@Override
 	final ReturnCode broadcastMessageWithRole(final AbstractAgent agent, AbstractGroup group, final String role,
-			final Message messageToSend, String senderRole, boolean sendAllRepliesInOneBlock) {
+			final Message messageToSend, String senderRole, boolean sendAllRepliesInOneBlock,
+			boolean shareMessageBetweenLocalReceivers, CompletableFuture<ReturnCode> transferFuture) {
 		throw buildKernelException(agent);
 	}
 
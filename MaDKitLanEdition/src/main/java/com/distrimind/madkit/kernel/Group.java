@@ -45,6 +45,8 @@ import com.distrimind.util.io.SecuredObjectOutputStream;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -80,6 +82,28 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 
 	private volatile transient Group[] m_represented_groups = null;
 	private volatile transient Group[] m_global_represented_groups = null;
+	private volatile transient RepresentedGroups m_represented_groups_cache = null;
+	private volatile transient RepresentedGroups m_global_represented_groups_cache = null;
+
+	/*
+	 * Represented groups computed for a given kernel address and for a given
+	 * version of the group tree
+	 */
+	private static final class RepresentedGroups {
+		final KernelAddress kernelAddress;
+		final int version;
+		final Group[] groups;
+
+		RepresentedGroups(KernelAddress kernelAddress, int version, Group[] groups) {
+			this.kernelAddress = kernelAddress;
+			this.version = version;
+			this.groups = groups;
+		}
+
+		boolean isValid(KernelAddress ka, int currentVersion) {
+			return version == currentVersion && (kernelAddress == ka || (ka != null && ka.equals(kernelAddress)));
+		}
+	}
 
 	/**
 	 * Construct a group within a community and a path of groups. This constructor
@@ -432,6 +456,8 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 			this.m_parent_groups = null;
 			this.m_parent_groups_tree = null;
 			this.m_represented_groups = null;
+			this.m_represented_groups_cache = null;
+			this.m_global_represented_groups_cache = null;
 			this.m_sub_groups = null;
 			this.m_sub_groups_tree = null;
 
@@ -1067,6 +1093,17 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 	 */
 	@Override
 	public Group[] getRepresentedGroups(KernelAddress ka) {
+		RepresentedGroups c = m_represented_groups_cache;
+		if (c != null && c.isValid(ka, m_group.root.version))
+			return c.groups;
+		synchronized (m_group.root) {
+			Group[] res = computeRepresentedGroups(ka);
+			m_represented_groups_cache = new RepresentedGroups(ka, m_group.root.version, res);
+			return res;
+		}
+	}
+
+	private Group[] computeRepresentedGroups(KernelAddress ka) {
 		if (m_use_sub_groups) {
 			synchronized (m_group.root) {
 				Group[] sg = getSubGroups(ka);
@@ -1117,17 +1154,28 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 	 */
 	@Override
 	public Group[] getRepresentedGroups() {
+		RepresentedGroups c = m_global_represented_groups_cache;
+		if (c != null && c.isValid(null, m_group.root.version))
+			return c.groups;
+		synchronized (m_group.root) {
+			Group[] res = computeGlobalRepresentedGroups();
+			m_global_represented_groups_cache = new RepresentedGroups(null, m_group.root.version, res);
+			return res;
+		}
+	}
+
+	private Group[] computeGlobalRepresentedGroups() {
 		if (m_use_sub_groups) {
 			synchronized (m_group.root) {
 				Group[] sg = getSubGroups();
-				if (m_represented_groups == null
+				if (m_global_represented_groups == null
 						|| (this.isAnyRoleRequested() && (m_global_represented_groups.length == 0 || m_global_represented_groups[0].m_group != this.m_group))
 						|| (!this.isAnyRoleRequested() && m_global_represented_groups.length != 0
 								&& m_global_represented_groups[0].m_group == this.m_group)) {
 					if (m_group.isAnyRoleRequested() || this.isHiddenGroup()) {
 						m_global_represented_groups = new Group[sg.length + 1];
 						m_global_represented_groups[0] = this.getThisGroupWithoutItsSubGroups();
-						System.arraycopy(sg, 0, m_represented_groups, 1, sg.length);
+						System.arraycopy(sg, 0, m_global_represented_groups, 1, sg.length);
 					} else
 						m_global_represented_groups = sg;
 				}
@@ -1141,7 +1189,8 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 						m_global_represented_groups[0] = this;
 					} else
 						m_global_represented_groups = new Group[0];
-				}
+				} else if (!m_group.isAnyRoleRequested() && !this.isHiddenGroup())
+					m_global_represented_groups = new Group[0];
 				return m_global_represented_groups;
 			}
 		}
@@ -1275,45 +1324,37 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 		public Group[] getRepresentedGroups(KernelAddress _ka) {
 			if (_ka == null)
 				return new Group[0];
-			AtomicReference<Group[]> rp;
-			synchronized (represented_groups_universe) {
-				rp = represented_groups_universe.get(_ka);
-				if (rp == null) {
-					rp = new AtomicReference<>(null);
-					represented_groups_universe.put(_ka, rp);
-				}
-			}
-			Group[] res = rp.get();
-			if (res == null) {
-				ArrayList<Group> lst = new ArrayList<>(50);
-				synchronized (m_groups_root) {
-					for (GroupTree gt : m_groups_root.values()) {
-                        lst.addAll(Arrays.asList(gt.getRepresentedGroups(_ka)));
-					}
-				}
-				res = new Group[lst.size()];
-				lst.toArray(res);
-				rp.set(res);
+			RepresentedGroupsOfUniverse rp = represented_groups_universe.get(_ka);
+			if (rp == null)
+				rp = represented_groups_universe.computeIfAbsent(_ka, k -> new RepresentedGroupsOfUniverse());
+			int version = rp.version.get();
+			RepresentedGroups c = rp.cache;
+			if (c != null && c.version == version)
+				return c.groups;
+			ArrayList<Group> lst = new ArrayList<>(50);
+			for (GroupTree gt : m_groups_root.values()) {
+				lst.addAll(Arrays.asList(gt.getRepresentedGroups(_ka)));
 			}
+			Group[] res = new Group[lst.size()];
+			lst.toArray(res);
+			// a concurrent reset increments the version, so this result is then ignored
+			rp.cache = new RepresentedGroups(_ka, version, res);
 			return res;
 		}
 
 		@Override
 		public Group[] getRepresentedGroups() {
-			Group[] res = global_represented_groups_universe;
-			if (res == null) {
-				synchronized (represented_groups_universe) {
-					ArrayList<Group> lst = new ArrayList<>(50);
-					synchronized (m_groups_root) {
-						for (GroupTree gt : m_groups_root.values()) {
-                            Collections.addAll(lst, gt.getRepresentedGroups());
-						}
-					}
-					res = new Group[lst.size()];
-					lst.toArray(res);
-					global_represented_groups_universe = res;
-				}
+			int version = global_represented_groups_universe_version.get();
+			RepresentedGroups c = global_represented_groups_universe;
+			if (c != null && c.version == version)
+				return c.groups;
+			ArrayList<Group> lst = new ArrayList<>(50);
+			for (GroupTree gt : m_groups_root.values()) {
+				Collections.addAll(lst, gt.getRepresentedGroups());
 			}
+			Group[] res = new Group[lst.size()];
+			lst.toArray(res);
+			global_represented_groups_universe = new RepresentedGroups(null, version, res);
 			return res;
 		}
 
@@ -1363,15 +1404,20 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 	}
 
 	static final Universe universe = new Universe();
-	static final Map<KernelAddress, AtomicReference<Group[]>> represented_groups_universe = new HashMap<>();
-	static volatile Group[] global_represented_groups_universe = null;
+	private static final class RepresentedGroupsOfUniverse {
+		final AtomicInteger version = new AtomicInteger(0);
+		volatile RepresentedGroups cache = null;
+	}
+
+	static final Map<KernelAddress, RepresentedGroupsOfUniverse> represented_groups_universe = new ConcurrentHashMap<>();
+	private static volatile RepresentedGroups global_represented_groups_universe = null;
+	private static final AtomicInteger global_represented_groups_universe_version = new AtomicInteger(0);
 
 	static void resetRepresentedGroupsOfUniverse(KernelAddress ka) {
-		synchronized (represented_groups_universe) {
-			AtomicReference<Group[]> af = represented_groups_universe.get(ka);
-			if (af != null)
-				af.set(null);
-		}
+		RepresentedGroupsOfUniverse r = represented_groups_universe.get(ka);
+		if (r != null)
+			r.version.incrementAndGet();
+		global_represented_groups_universe_version.incrementAndGet();
 	}
 	/*static void removeRepresentedGroupsOfUniverse(KernelAddress ka) {
 		synchronized (represented_groups_universe) {
@@ -1379,7 +1425,7 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 		}
 	}*/
 
-	static protected final Map<String, GroupTree> m_groups_root = new HashMap<>();
+	static protected final Map<String, GroupTree> m_groups_root = new ConcurrentHashMap<>();
 
 	static protected GroupTree getRoot(String _community) {
 		if (_community == null)
@@ -1387,6 +1433,9 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 		if (_community.length() == 0)
 			throw new IllegalArgumentException("_community cannot be empty !");
 
+		GroupTree res = m_groups_root.get(_community);
+		if (res != null)
+			return res;
 		synchronized (m_groups_root) {
 			GroupTree gt = m_groups_root.get(_community);
 			if (gt == null) {
@@ -1417,9 +1466,11 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 		}
 	}
 
+	private static final GroupTree[] EMPTY_GROUP_TREE_ARRAY = new GroupTree[0];
+
 	private final static class GroupTree {
 		private static final class KernelReferences {
-			public int m_madkit_references = 0;
+			public volatile int m_madkit_references = 0;
 			public KernelAddress m_kernel;
 			public LinkedList<GroupTree> m_all_sub_groups = new LinkedList<>();
 			public final AtomicReference<GroupTree[]> m_all_sub_groups_duplicated = new AtomicReference<>(
@@ -1455,9 +1506,17 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 		private final boolean isDistributed;
 		private final Gatekeeper identifier;
 		private int references = 0;
-		private final HashMap<KernelAddress, KernelReferences> kernelReferences = new HashMap<>();
-		private boolean isReserved;
+		// modified only while synchronizing on root
+		private final Map<KernelAddress, KernelReferences> kernelReferences = new ConcurrentHashMap<>();
+		private volatile boolean isReserved;
 		private volatile GroupTree[] m_global_sub_groups_duplicated = null;
+		private int m_global_sub_groups_version = -1;
+		/*
+		 * incremented, on the root only, each time the tree or the references of one
+		 * of its groups change. Caches of represented groups are valid only for a
+		 * given version.
+		 */
+		private volatile int version = 0;
 
 		// private final LinkedList<GroupTree> m_all_sub_groups=new
 		// LinkedList<GroupTree>();
@@ -1560,8 +1619,10 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 									throw new IllegalArgumentException("The group " + err
 											+ " cannot be reserved, because it have already been reserved !");
 							}
-							if (_isReserved)
+							if (_isReserved && !gt.isReserved) {
 								gt.isReserved = true;
+								changed();
+							}
 							gt.incrementReferences();
 							return gt;
 						} else
@@ -1606,19 +1667,17 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 		}
 
 		public GroupTree[] getSubGroups(KernelAddress ka) {
-			synchronized (root) {
-				KernelReferences kr = kernelReferences.get(ka);
-				if (kr == null)
-					return new GroupTree[0];
+			KernelReferences kr = getKernelReferences(ka);
+			if (kr == null)
+				return EMPTY_GROUP_TREE_ARRAY;
 
-				return kr.m_all_sub_groups_duplicated.get();
-			}
+			return kr.m_all_sub_groups_duplicated.get();
 		}
 
 		public GroupTree[] getSubGroups() {
 			synchronized (root) {
 				GroupTree[] res = m_global_sub_groups_duplicated;
-				if (res == null) {
+				if (res == null || m_global_sub_groups_version != root.version) {
 					ArrayList<GroupTree> r = new ArrayList<>();
 					if (isAnyRoleRequested()) {
 						for (GroupTree gt : subGroups) {
@@ -1628,13 +1687,31 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 							}
 						}
 					}
-					res = new GroupTree[r.size()];
-					r.toArray(res);
+					if (res == null || !Arrays.equals(res, r.toArray())) {
+						res = new GroupTree[r.size()];
+						r.toArray(res);
+					}
+					m_global_sub_groups_duplicated = res;
+					m_global_sub_groups_version = root.version;
 				}
 				return res;
 			}
 		}
 
+		private KernelReferences getKernelReferences(KernelAddress ka) {
+			if (ka == null)
+				return null;
+			return kernelReferences.get(ka);
+		}
+
+		/*
+		 * must be called while synchronizing on root
+		 */
+		private void changed() {
+			//noinspection NonAtomicOperationOnVolatileField
+			++root.version;
+		}
+
 		public GroupTree[] getParentGroups() {
 			return m_parent_groups_duplicated.get();
 		}
@@ -1646,12 +1723,12 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 					Group.m_first_kernel = ka;
 				if (!isAnyRoleRequested())
 					m_global_sub_groups_duplicated = null;
-				KernelReferences kr = kernelReferences.get(ka);
+				KernelReferences kr = getKernelReferences(ka);
 
 				if (kr == null) {
 
                     setMadKitCreated(ka, true);
-                    kr = kernelReferences.get(ka);
+                    kr = getKernelReferences(ka);
                     if (kr==null)
                         throw new IllegalAccessError();
 					/*kr=new KernelReferences(ka);
@@ -1670,7 +1747,7 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 					activate = true;
 					GroupTree p = parent;
 					while (p != null) {
-						KernelReferences krp = p.kernelReferences.get(ka);
+						KernelReferences krp = p.getKernelReferences(ka);
 						if (krp == null) {
 							krp = new KernelReferences(ka);
 							p.kernelReferences.put(ka, krp);
@@ -1683,6 +1760,7 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 						p = p.parent;
 					}
 				}
+				changed();
 			}
 			if (activate) {
 				resetRepresentedGroupsOfUniverse(ka);
@@ -1716,7 +1794,7 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 
 			boolean activate = false;
 			synchronized (root) {
-				KernelReferences kr = kernelReferences.get(ka);
+				KernelReferences kr = getKernelReferences(ka);
 
 				if (kr == null)
 					throw new IllegalAccessError(
@@ -1734,7 +1812,7 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 					activate = true;
 					GroupTree p = parent;
 					while (p != null) {
-						KernelReferences krp = p.kernelReferences.get(ka);
+						KernelReferences krp = p.getKernelReferences(ka);
 						if (krp == null)
 							throw new IllegalAccessError(
 									"Problem of data integrity ! The KernelAddress should be stored on the GroupTree class. This is a MaKitGroupExtension bug !");
@@ -1751,6 +1829,7 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 				}
 				if (!isAnyRoleRequested())
 					m_global_sub_groups_duplicated = null;
+				changed();
 			}
 			if (activate) {
 				resetRepresentedGroupsOfUniverse(ka);
@@ -1764,7 +1843,7 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 				if (ok) {
 					if (Group.m_first_kernel == null)
 						Group.m_first_kernel = ka;
-					KernelReferences kr = kernelReferences.get(ka);
+					KernelReferences kr = getKernelReferences(ka);
 					if (kr == null) {
 						kr = new KernelReferences(ka);
 						kernelReferences.put(ka, kr);
@@ -1774,7 +1853,7 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 					if (kr.m_madkit_references != 1)
 						throw new IllegalAccessError("kr.m_madkit_references=" + kr.m_madkit_references);
 				} else {
-					KernelReferences kr = kernelReferences.get(ka);
+					KernelReferences kr = getKernelReferences(ka);
 					if (kr == null)
 						throw new NullPointerException("kr");
 					if (isAnyMadkitCreatedRecursive(ka)) {
@@ -1793,6 +1872,7 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 						}
 					}
 				}
+				changed();
 			}
 		}
 
@@ -1814,29 +1894,21 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 		 * deactivateGroup(ka); } }
 		 */
 		public boolean isMadKitCreated(KernelAddress ka) {
-			synchronized (root) {
-				KernelReferences kr = kernelReferences.get(ka);
+			KernelReferences kr = getKernelReferences(ka);
 
-				return kr != null && kr.m_madkit_references > 0;
-			}
+			return kr != null && kr.m_madkit_references > 0;
 		}
 		boolean hasMadKitTraces(KernelAddress ka) {
-			synchronized (root) {
-				KernelReferences kr = kernelReferences.get(ka);
-
-				return kr != null;
-			}
+			return getKernelReferences(ka) != null;
 		}
 
 		public boolean isAnyRoleRequested(KernelAddress ka) {
-			synchronized (root) {
-				KernelReferences kr = kernelReferences.get(ka);
+			KernelReferences kr = getKernelReferences(ka);
 
-				if (kr == null)
-					return false;
+			if (kr == null)
+				return false;
 
-				return kr.m_madkit_references > 1;
-			}
+			return kr.m_madkit_references > 1;
 		}
 
 		/*public boolean isAnyRoleRequestedRecursive(KernelAddress ka) {
@@ -1856,7 +1928,7 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 */
 		public boolean isAnyMadkitCreatedRecursive(KernelAddress ka) {
 			synchronized (root) {
-				KernelReferences kr = kernelReferences.get(ka);
+				KernelReferences kr = getKernelReferences(ka);
 
 				if (kr == null)
 					return false;
@@ -1870,13 +1942,11 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 		}
 
 		public boolean isAnyRoleRequested() {
-			synchronized (root) {
-				for (KernelReferences kr : kernelReferences.values()) {
-					if (kr.m_madkit_references > 1)
-						return true;
-				}
-				return false;
+			for (KernelReferences kr : kernelReferences.values()) {
+				if (kr.m_madkit_references > 1)
+					return true;
 			}
+			return false;
 		}
 		/*
 		 * public void setMadKitCreatedToFalse(KernelAddress ka) { KernelReferences
@@ -1903,7 +1973,7 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 
 		private void updateDuplicatedSubGroupList(KernelAddress ka) {
 			synchronized (root) {
-				KernelReferences kr = kernelReferences.get(ka);
+				KernelReferences kr = getKernelReferences(ka);
 
 				if (kr == null)
 					throw new IllegalAccessError(
@@ -1921,6 +1991,7 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 		private void addSubGroup(GroupTree _g) {
 			synchronized (root) {
 				subGroups.add(_g);
+				changed();
 				_g.m_parent_groups.clear();
 				if (parent != null) {
 					_g.m_parent_groups.add(this);
@@ -1967,6 +2038,7 @@ public final class Group extends AbstractGroup implements Comparable<Group> {
 
 			if (!subGroups.remove(_g))
 				throw new IllegalAccessError("The previous test (after this line code) should return true");
+			changed();
 			/*
 			 * m_all_sub_groups.remove(_g); updateDuplicatedSubGroupList(); GroupTree
 			 * p=m_parent; while (p!=null && p.m_parent!=null) {
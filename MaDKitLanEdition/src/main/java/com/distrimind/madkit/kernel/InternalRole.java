@@ -72,21 +72,23 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 
 	static class ParametrizedAgent
 	{
-		AbstractAgent agent;
-		boolean manually_requested;
+		final AbstractAgent agent;
+		final boolean manually_requested;
+		final AgentAddress address;
+		int position;
 
-		public ParametrizedAgent(AbstractAgent agent, boolean manually_requested) {
+		ParametrizedAgent(AbstractAgent agent, boolean manually_requested, AgentAddress address) {
 			this.agent = agent;
 			this.manually_requested = manually_requested;
+			this.address = address;
 		}
 	}
 
-	protected transient Collection<ParametrizedAgent> players;//=new HashSet<>();// TODO test copy on arraylist and linked hashset
+	protected transient RoleMembers players;
 
-	private transient List<AbstractAgent> tmpReferencableAgents;
-	protected volatile transient List<AgentAddress> agentAddresses, localAgentAddresses;
+	protected volatile transient List<AgentAddress> agentAddresses;
+	private transient List<AgentAddress> distantAgentAddressesList;
     protected transient Map<AgentAddress, AgentAddress> distantAgentAddresses;
-	protected volatile transient boolean modified = true;
 	private final transient AtomicReference<Set<Overlooker<? extends AbstractAgent>>> overlookers = new AtomicReference<>(
 			null);
 	protected transient InternalGroup myGroup;
@@ -125,9 +127,8 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 		return group.getInternalSerializedSize()+2+(roleName==null?0:roleName.length()*2);
 	}
 	InternalRole(final InternalGroup groupObject, final String roleName) {
-		players = new ArrayList<>();
+		players = new RoleMembers(this);
 		distantAgentAddresses=new HashMap<>();
-		tmpReferencableAgents = null;
 		group = groupObject.getGroup();
 		this.roleName = roleName;
 		final MadkitKernel k = groupObject.getCommunityObject().getMyKernel();
@@ -281,7 +282,6 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 		number_of_manually_requested_role = null;
 		number_of_manually_distant_requested_role = null;
 		agentAddresses=null;
-		localAgentAddresses=null;
 	}
 
 	/**
@@ -337,32 +337,24 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 
 	boolean addMember(final AbstractAgent requester, boolean manually_requested) {
 		synchronized (players) {
-			for (ParametrizedAgent aa : players)// TODO looks like I should use linked hashset
-			{
-				if (aa.agent == requester) {
-					if (aa.manually_requested != manually_requested) {
-						aa.manually_requested = manually_requested;
-						if (group.isDistributed())
-							aa.agent.getMadkitKernel().sendNetworkCGRSynchroMessageWithRole(null, new CGRSynchro(REQUEST_ROLE,
-								new AgentAddress(aa.agent, this, kernelAddress, aa.manually_requested), manually_requested));
-					}
-					return false;
+			ParametrizedAgent aa = players.get(requester);
+			if (aa != null) {
+				if (aa.manually_requested != manually_requested) {
+					aa = players.replace(aa, manually_requested);
+					if (group.isDistributed())
+						aa.agent.getMadkitKernel().sendNetworkCGRSynchroMessageWithRole(null, new CGRSynchro(REQUEST_ROLE,
+							new AgentAddress(aa.agent, this, kernelAddress, aa.manually_requested), manually_requested));
 				}
+				return false;
 			}
-			
-			players.add(new ParametrizedAgent(requester, manually_requested));
+
+			players.add(requester, manually_requested);
 			if (logger != null) {
 				logger.finest(requester.getName() + " is now playing " + getCGRString(group, roleName));
 			}
 			// System.err.println(requester.getName() + " is now playing " +
 			// getCGRString(communityName, groupName, roleName));
 			// System.err.println(this+" current players---\n"+players+"\n\n");
-			agentAddresses=null;
-			localAgentAddresses=null;
-			/*if (agentAddresses != null) {
-				agentAddresses.add(new AgentAddress(requester, this, kernelAddress, manually_requested));
-			}*/
-			modified = true;
 		}
 		// needs to be synchronized so that adding occurs prior to getAgentList
 		// So addToOverlookers(requester); has to be called in group
@@ -377,21 +369,7 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 		// System.err.println("add members "+bucket.size());
 		synchronized (players) {
 			for (AbstractAgent aa : bucket)
-				players.add(new ParametrizedAgent(aa, manually_requested));// is optimized
-			/*if (agentAddresses != null) {
-				final Set<AgentAddress> addresses = new HashSet<>(bucket.size() + agentAddresses.size(), 0.9f);// TODO
-																												// try
-																												// load
-																												// factor
-				for (final AbstractAgent a : bucket) {
-					addresses.add(new AgentAddress(a, this, kernelAddress, manually_requested));
-				}
-				addresses.addAll(agentAddresses);// TODO test vs assignment : this because knowing the size
-				agentAddresses = addresses;
-			}*/
-			agentAddresses=null;
-			localAgentAddresses=null;
-			modified = true;
+				players.add(aa, manually_requested);
 		}
 		if (manually_requested)
 			updateReferences(null, bucket.size());
@@ -434,7 +412,7 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 			{
 				distantAgentAddresses.put(content, content);
 				ok=true;
-				agentAddresses = null;
+				distantAgentAddressesChanged();
 			}
 			else
 				ok=false;
@@ -458,34 +436,18 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 	}
 
 	ReturnCode removeMember(final AbstractAgent requester, boolean manually_requested) {
-		ParametrizedAgent pa=null;
+		ParametrizedAgent pa;
 		synchronized (players) {
-			boolean removed=false;
-
-			for (Iterator<ParametrizedAgent> it=players.iterator();it.hasNext();)
-			{
-				if ((pa=it.next()).agent==requester)
-				{
-					it.remove();
-					removed=true;
-					break;
-				}
-			}
-			if (!removed) {
+			pa=players.remove(requester);
+			if (pa==null) {
 				if (myGroup.isIn(requester)) {
 					return ROLE_NOT_HANDLED;
 				}
 				return ReturnCode.NOT_IN_GROUP;
 			}
-			agentAddresses=null;
-			localAgentAddresses=null;
-			/*if (agentAddresses != null) {
-				Objects.requireNonNull(removeAgentAddressOf(requester, agentAddresses)).setRoleObject(null);
-			}*/
 			if (logger != null) {
 				logger.finest(requester.getName() + " has left role " + getCGRString(group, roleName) + "\n");
 			}
-			modified = true;
 		}
 		removeFromOverlookers(requester);// TODO put that in the synchronized ?
 		if (pa.manually_requested)
@@ -504,17 +466,14 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 			number = 0;
 			for (AbstractAgent aa : bucket)
 			{
-				for (Iterator<ParametrizedAgent> it=players.iterator();it.hasNext();)
+				if (aa==null)
+					continue;
+				ParametrizedAgent pa=players.remove(aa);
+				if (pa!=null)
 				{
-					ParametrizedAgent pa=it.next();
-					if (pa.agent==aa)
-					{
-						it.remove();
-						++number;
-						if (removed!=null && aa!=null)
-							removed.add(pa);
-						break;
-					}
+					++number;
+					if (removed!=null)
+						removed.add(pa);
 				}
 			}
 			
@@ -529,9 +488,6 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 					}
 				}
             }*/
-            agentAddresses=null;
-			localAgentAddresses=null;
-			modified = true;
 		}
 		if (manually_requested)
 			updateReferences(null, number);
@@ -574,48 +530,54 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 	}
 
 	final List<AgentAddress> buildAndGetAddresses() {
-        List<AgentAddress> set=agentAddresses;
-        if (set == null) {
-            synchronized (players) {
-                if (agentAddresses==null) {
-					List<AgentAddress> localAgentAddresses=buildAndGetLocalAddresses();
-                    set=new ArrayList<>(localAgentAddresses.size()+distantAgentAddresses.size());
-
-                    set.addAll(localAgentAddresses);
-
-                    set.addAll(distantAgentAddresses.values());
-                    agentAddresses = set=Collections.unmodifiableList(set);
-                }
-                else
-                    set=agentAddresses;
-            }
-        }
-        return set;
-
-
+		List<AgentAddress> local=players.getAddresses();
+		List<AgentAddress> set=agentAddresses;
+		if (set == local || (set instanceof AgentAddresses && ((AgentAddresses) set).local == local))
+			return set;
+		synchronized (players) {
+			if (distantAgentAddresses.isEmpty())
+				set=local;
+			else {
+				if (distantAgentAddressesList == null)
+					distantAgentAddressesList = new ArrayList<>(distantAgentAddresses.values());
+				set=new AgentAddresses(local, distantAgentAddressesList);
+			}
+			agentAddresses=set;
+		}
+		return set;
 	}
 
 	final List<AgentAddress> buildAndGetLocalAddresses() {
-		List<AgentAddress> set=localAgentAddresses;
-		if (set == null) {
-			synchronized (players) {
-				if (localAgentAddresses==null) {
-					set=new ArrayList<>(players.size());
+		return players.getAddresses();
+	}
 
-					for (final ParametrizedAgent a : players) {
+	private void distantAgentAddressesChanged() {
+		distantAgentAddressesList=null;
+		agentAddresses=null;
+	}
 
-						set.add(new AgentAddress(a.agent, this, kernelAddress,
-								a.manually_requested));
-					}
-					localAgentAddresses = set=Collections.unmodifiableList(set);
-				}
-				else
-					set=localAgentAddresses;
-			}
+	/*
+	 * Local addresses followed by distant addresses, without copy
+	 */
+	private static final class AgentAddresses extends AbstractList<AgentAddress> implements RandomAccess {
+		final List<AgentAddress> local;
+		private final List<AgentAddress> distant;
+
+		AgentAddresses(List<AgentAddress> local, List<AgentAddress> distant) {
+			this.local = local;
+			this.distant = distant;
 		}
-		return set;
 
+		@Override
+		public AgentAddress get(int index) {
+			int s=local.size();
+			return index < s ? local.get(index) : distant.get(index - s);
+		}
 
+		@Override
+		public int size() {
+			return local.size() + distant.size();
+		}
 	}
 
 	private AgentAddress getAndRemoveDistantAgentAddress(AgentAddress aa) {
@@ -624,7 +586,7 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 			AgentAddress a = it.next();
 			if (a.equals(aa)) {
 				it.remove();
-				agentAddresses=null;
+				distantAgentAddressesChanged();
 				/*if (res!=null)
 					throw new InternalError();*/
 				res=aa;
@@ -643,7 +605,7 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 			AgentAddress a = it.next();
 			if (a.getKernelAddress().equals(ka)) {
 				it.remove();
-				agentAddresses=null;
+				distantAgentAddressesChanged();
 				if (a.isManuallyRequested())
 					++number;
 			}
@@ -674,7 +636,7 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 						iterator.remove();
 						aa.setRoleObject(null);
 						++number;
-						agentAddresses=null;
+						distantAgentAddressesChanged();
 						madkitKernel.informHooks(AgentActionEvent.LEAVE_ROLE, aa);
 					}
 				}
@@ -715,14 +677,12 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 			myGroup.removeRole(roleName);
 		removeOverlookers();
 		// overlookers = null;
-		tmpReferencableAgents = null;
 		// players = null;
-		agentAddresses = null;
-		localAgentAddresses=null;
-		if (distantAgents)
+		if (distantAgents) {
 			distantAgentAddresses.clear();
+			distantAgentAddressesChanged();
+		}
 		players.clear();
-		modified=true;
 	}
 	/**
 	 * 
@@ -807,21 +767,7 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 	}
 
 	final List<AbstractAgent> getAgentsList() {
-		List<AbstractAgent> res= tmpReferencableAgents;
-		if (modified) {
-			synchronized (players) {
-				if (modified) {
-					modified = false;// TODO do a bench : new seems a little bit better
-					res=new ArrayList<>(players.size());
-					for (ParametrizedAgent aa : players)
-						res.add(aa.agent);
-					res= tmpReferencableAgents = Collections.unmodifiableList(new ArrayList<>(res));
-				}
-				else
-					res= tmpReferencableAgents;
-			}
-		}
-		return res;
+		return players.getAgents();
 	}
 
 	final void addToOverlookers(AbstractAgent a) {
@@ -864,7 +810,7 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 				if (old==null || old.isManuallyRequested()!=content.isManuallyRequested())
 				{
 					distantAgentAddresses.put(content, content);
-					agentAddresses = null;
+					distantAgentAddressesChanged();
 					if (content.isManuallyRequested())
 						incrementReferences(content.getKernelAddress());
 					else if (old!=null)
@@ -886,23 +832,18 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 
 		// final KernelAddress ka = a.getKernelAddress();
 		synchronized (players) {
-			for (final AgentAddress aa : buildAndGetAddresses()) {// TODO when offline second part is useless
-				if (aa.getAgentID() == a.getAgentID() && aa.getAgent() != null)// && ka.equals(aa.getKernelAddress()))
-					return aa;
-			}
+			final ParametrizedAgent pa = players.get(a.getAgentID());
+			return pa == null ? null : pa.address;
 		}
-		return null;
 	}
 
 
 	AbstractAgent getAbstractAgentWithAddress(AgentAddress aa) {
 		if (players != null) {
-			final int hash = aa.hashCode();
 			synchronized (players) {
-				for (final ParametrizedAgent pa : players) {
-					if (pa.agent.hashCode() == hash)
-						return pa.agent;
-				}
+				final ParametrizedAgent pa = players.get(aa.getAgentID());
+				if (pa != null)
+					return pa.agent;
 			}
 		}
 		return null;
@@ -910,21 +851,18 @@ class InternalRole implements SecureExternalizable {// TODO test with arraylist
 
 	final boolean contains(AbstractAgent agent) {
 		synchronized (players) {
-			for (ParametrizedAgent pa : players)
-				if (pa.agent.equals(agent))
-					return true;
-			return false;
+			return players.get(agent) != null;
 		}
 	}
 
 
 	final AgentAddress resolveAgentAddress(AgentAddress anAA) {
-		for (final AgentAddress aa : buildAndGetAddresses()) {
-			if (aa.equals(anAA)) {
-				return aa;
-			}
+		synchronized (players) {
+			final ParametrizedAgent pa = players.get(anAA.getAgentID());
+			if (pa != null && pa.address.equals(anAA))
+				return pa.address;
+			return distantAgentAddresses.get(anAA);
 		}
-		return null;
 	}
 
 }
\ No newline at end of file
@@ -54,6 +54,8 @@ import com.distrimind.util.io.SecureExternalizable;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Condition;
@@ -213,15 +215,16 @@ final class LoggedKernel extends MadkitKernel {
 
 	@Override
 	ReturnCode broadcastMessageWithRole(AbstractAgent requester, AbstractGroup group, String role,
-			Message messageToSend, String senderRole, boolean sendAllRepliesInOneBlock) {
+			Message messageToSend, String senderRole, boolean sendAllRepliesInOneBlock,
+			boolean shareMessageBetweenLocalReceivers, CompletableFuture<ReturnCode> transferFuture) {
 
 		ReturnCode r = kernel.broadcastMessageWithRole(requester, group, role, messageToSend, senderRole,
-				sendAllRepliesInOneBlock);
-		if (r == SUCCESS) {
+				sendAllRepliesInOneBlock, shareMessageBetweenLocalReceivers, transferFuture);
+		if (r == SUCCESS || (r == ReturnCode.TRANSFER_IN_PROGRESS && transferFuture != null)) {
 			if (requester.isFinestLogOn())
 				requester.logger.log(Level.FINEST, Influence.BROADCAST_MESSAGE + "-> " + getCGRString(group, role)
 						+ (senderRole == null ? "" : " with role " + senderRole) + messageToSend);
-			return SUCCESS;
+			return r;
 		}
 		if (requester.isWarningOn()) {
 			if (r == NO_RECIPIENT_FOUND) {
@@ -236,8 +239,9 @@ final class LoggedKernel extends MadkitKernel {
 	}
 
 	@Override
-	ReturnCode sendMessage(AbstractAgent requester, AgentAddress receiver, Message messageToSend, String senderRole) {
-		final ReturnCode r = kernel.sendMessage(requester, receiver, messageToSend, senderRole);
+	ReturnCode sendMessage(AbstractAgent requester, AgentAddress receiver, Message messageToSend, String senderRole,
+			CompletableFuture<ReturnCode> transferFuture) {
+		final ReturnCode r = kernel.sendMessage(requester, receiver, messageToSend, senderRole, transferFuture);
 		if (r == SUCCESS || r == ReturnCode.TRANSFER_IN_PROGRESS) {
 			if (requester.isFinestLogOn())
 				requester.logger.log(Level.FINEST, Influence.SEND_MESSAGE.successString() + " " + messageToSend);
@@ -256,8 +260,8 @@ final class LoggedKernel extends MadkitKernel {
 
 	@Override
 	ReturnCode sendMessage(AbstractAgent requester, AbstractGroup group, String role, Message messageToSend,
-			String senderRole) {
-		ReturnCode r = kernel.sendMessage(requester, group, role, messageToSend, senderRole);
+			String senderRole, CompletableFuture<ReturnCode> transferFuture) {
+		ReturnCode r = kernel.sendMessage(requester, group, role, messageToSend, senderRole, transferFuture);
 		if (r == SUCCESS || r == ReturnCode.TRANSFER_IN_PROGRESS) {
 			if (requester.isFinestLogOn()) {
 				requester.logger.log(Level.FINEST,
@@ -974,6 +978,11 @@ final class LoggedKernel extends MadkitKernel {
 		return kernel.getMaDKitServiceExecutor();
 	}
 
+	@Override
+	Executor getReactiveAgentsExecutor() {
+		return kernel.getReactiveAgentsExecutor();
+	}
+
 	@Override
 	Object weakSetBoard(AbstractAgent requester, Group group, String name, Object data) {
 		Object res = kernel.weakSetBoard(requester, group, name, data);
@@ -149,6 +149,7 @@ class MadkitKernel extends Agent {
 
 	protected volatile int threadPriorityForServiceExecutor = DEFAULT_THREAD_PRIORITY;
 	private ScheduledPoolExecutor serviceExecutor;
+	private ForkJoinPool reactiveAgentsExecutor;
 
 	//private PoolExecutor lifeExecutor/* , lifeExecutorWithBlockQueue */;
 	private final HashMap<Long, LockerCondition> agentsSendingNetworkMessage = new HashMap<>();
@@ -169,6 +170,34 @@ class MadkitKernel extends Agent {
 		return serviceExecutor;
 	}
 
+	Executor getReactiveAgentsExecutor() {
+		ForkJoinPool e=reactiveAgentsExecutor;
+		if (e==null)
+			return serviceExecutor;
+		else
+			return e;
+	}
+
+	private boolean isCurrentThreadPartOfReactiveAgentsExecutor()
+	{
+		ForkJoinPool e=reactiveAgentsExecutor;
+		if (e==null)
+			return false;
+		Thread t=Thread.currentThread();
+		return t instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) t).getPool()==e;
+	}
+
+	private ForkJoinPool createReactiveAgentsExecutor(int parallelism)
+	{
+		return new ForkJoinPool(parallelism, pool -> {
+			ForkJoinWorkerThread t=new ForkJoinWorkerThread(pool) {};
+			t.setPriority(threadPriorityForServiceExecutor);
+			t.setName("MK_REACTIVE_AGENTS-"+t.getPoolIndex());
+			t.setDaemon(false);
+			return t;
+		}, (t, e) -> System.err.println("\n------------uncaught exception on " + t), true);
+	}
+
 	/*ThreadPoolExecutor getLifeExecutor() {
 		return lifeExecutor;
 	}*/
@@ -290,7 +319,9 @@ class MadkitKernel extends Agent {
 			logger.createLogFile();
 		}
 
-		normalAgentThreadFactory = new AgentThreadFactory(kernelAddress, false);
+		normalAgentThreadFactory = new AgentThreadFactory(kernelAddress, false, madkitConfig.useVirtualThreadsForThreadedAgents);
+		if (madkitConfig.useVirtualThreadsForThreadedAgents && !normalAgentThreadFactory.isVirtualThreads() && logger != null)
+			logger.warning("Virtual threads are not supported by the current JVM. Threaded agents will use platform threads.");
 		daemonAgentThreadFactory = new AgentThreadFactory(kernelAddress, true);
 		/*lifeExecutor = new PoolExecutor(1, 2, 4L, TimeUnit.SECONDS,
 				new ThreadFactory() {
@@ -306,6 +337,10 @@ class MadkitKernel extends Agent {
 				SYSTEM.getName(), Math.min(Runtime.getRuntime().availableProcessors(), 2), 4L,
 				null);
 		this.serviceExecutor.start();
+		if (madkitConfig.isReactiveAgentsExecutedThroughDedicatedExecutor())
+			this.reactiveAgentsExecutor = createReactiveAgentsExecutor(madkitConfig.getNumberOfThreadsForReactiveAgents());
+		else
+			this.reactiveAgentsExecutor = null;
 		if (madkitConfig.isUseMadkitSchedulerWithFortunaSecureRandom())
 			Fortuna.setPersonalDefaultScheduledExecutorService(this.serviceExecutor);
 		/*
@@ -361,6 +396,7 @@ class MadkitKernel extends Agent {
 		daemonAgentThreadFactory = null;
 		//lifeExecutor = null;
 		this.serviceExecutor = null;
+		this.reactiveAgentsExecutor = null;
 		generatorIdTransfer = null;
 		globalInterfacedIds = null;
 		//lockSocketUntilCGRSynchroIsSent=false;
@@ -381,6 +417,7 @@ class MadkitKernel extends Agent {
 		daemonAgentThreadFactory = null;
 		//lifeExecutor = null;
 		this.serviceExecutor = null;
+		this.reactiveAgentsExecutor = null;
 		generatorIdTransfer = null;
 		globalInterfacedIds = null;
 		// lifeExecutorWithBlockQueue=null;
@@ -1135,7 +1172,13 @@ class MadkitKernel extends Agent {
 
 				if (oe.getContent()==AgentActionEvent.REQUEST_ROLE) {
 					try {
-						differedMessageTable.newAgentConnected(platform.getConfigOption().rootOfPathGroupUsedToFilterDifferedMessages, oe.getSourceAgent().getAgent(), oe.getSourceAgent());
+						differedMessageTable.newAgentConnected(platform.getConfigOption().rootOfPathGroupUsedToFilterDifferedMessages, oe.getSourceAgent().getAgent(), oe.getSourceAgent(), task -> {
+							ScheduledPoolExecutor se=serviceExecutor;
+							if (se==null)
+								task.run();
+							else
+								se.execute(task);
+						}, this::logLifeException);
 					} catch (DatabaseException e) {
 						logLifeException(e);
 					}
@@ -1677,6 +1720,22 @@ class MadkitKernel extends Agent {
 	}
 	ReturnCode sendMessage(final AbstractAgent requester, AbstractGroup group, final String role, final Message message,
 			final String senderRole) {
+		return sendMessage(requester, group, role, message, senderRole, null);
+	}
+
+	/*
+	 * When transferFuture is not null, the network transfer is not waited for.
+	 * The future is completed with the return code of the send, and
+	 * TRANSFER_IN_PROGRESS is returned while the transfer is pending.
+	 */
+	ReturnCode sendMessage(final AbstractAgent requester, AbstractGroup group, final String role, final Message message,
+			final String senderRole, CompletableFuture<ReturnCode> transferFuture) {
+		return completeTransferFuture(sendMessageImpl(requester, group, role, message, senderRole, transferFuture),
+				transferFuture);
+	}
+
+	private ReturnCode sendMessageImpl(final AbstractAgent requester, AbstractGroup group, final String role,
+			final Message message, final String senderRole, CompletableFuture<ReturnCode> transferFuture) {
 		try {
 			ArrayList<AgentAddress> receivers = new ArrayList<>();
 			Group[] groups = getRepresentedGroups(group, role);
@@ -1693,7 +1752,8 @@ class MadkitKernel extends Agent {
 			}
 
 			AgentAddress receiver = receivers.get((int) (Math.random() * receivers.size()));
-			return buildAndSendMessage(getSenderAgentAddress(requester, receiver, senderRole), receiver, message);
+			return buildAndSendMessage(getSenderAgentAddress(requester, receiver, senderRole), receiver, message,
+					transferFuture);
 		} catch (CGRNotAvailable e) {
 			return e.getCode();
 		}
@@ -1701,6 +1761,23 @@ class MadkitKernel extends Agent {
 
 	ReturnCode sendMessage(AbstractAgent requester, AgentAddress receiver, final Message message,
 			final String senderRole) {
+		return sendMessage(requester, receiver, message, senderRole, null);
+	}
+
+	ReturnCode sendMessage(AbstractAgent requester, AgentAddress receiver, final Message message,
+			final String senderRole, CompletableFuture<ReturnCode> transferFuture) {
+		return completeTransferFuture(sendMessageImpl(requester, receiver, message, senderRole, transferFuture),
+				transferFuture);
+	}
+
+	private static ReturnCode completeTransferFuture(ReturnCode rc, CompletableFuture<ReturnCode> transferFuture) {
+		if (transferFuture != null && rc != TRANSFER_IN_PROGRESS)
+			transferFuture.complete(rc);
+		return rc;
+	}
+
+	private ReturnCode sendMessageImpl(AbstractAgent requester, AgentAddress receiver, final Message message,
+			final String senderRole, CompletableFuture<ReturnCode> transferFuture) {
 		// check that the AA is valid : the targeted agent is still playing the
 		// corresponding role or it was a candidate request
 		AgentAddress target = resolveAddress(receiver);
@@ -1724,7 +1801,7 @@ class MadkitKernel extends Agent {
 			// get the role for the sender and then send
 			AgentAddress senderAA = getSenderAgentAddress(requester, target, senderRole);
 
-			return buildAndSendMessage(senderAA, target, message);
+			return buildAndSendMessage(senderAA, target, message, transferFuture);
 
 		} catch (CGRNotAvailable e) {
 
@@ -1768,21 +1845,25 @@ class MadkitKernel extends Agent {
 	}
 
 	ReturnCode broadcastMessageWithRole(final AbstractAgent requester, AbstractGroup group, final String role,
-			final Message messageToSend, String senderRole, boolean receiveAllRepliesInOneBlock) {
-		return this.broadcastMessageWithRole(requester, group, role, messageToSend, senderRole, null, false,
-				receiveAllRepliesInOneBlock);
+			final Message messageToSend, String senderRole, boolean receiveAllRepliesInOneBlock,
+			boolean shareMessageBetweenLocalReceivers, CompletableFuture<ReturnCode> transferFuture) {
+		return completeTransferFuture(this.broadcastMessageWithRole(requester, group, role, messageToSend, senderRole,
+				null, false, receiveAllRepliesInOneBlock, shareMessageBetweenLocalReceivers, transferFuture),
+				transferFuture);
 	}
 
 	ReturnCode broadcastMessageWithRole(final AbstractAgent requester, AbstractGroup group, final String role,
-			final Message messageToSend, String senderRole, AtomicInteger numberOfReceivers,
-			boolean sendIndividualNetwork, boolean receiveAllRepliesInOneBlock) {
-		ArrayList<AgentAddress> agentAddressesSender = new ArrayList<>();
+			final Message messageToSend, String senderRole, AtomicInteger numberOfReceiversResult,
+			boolean sendIndividualNetwork, boolean receiveAllRepliesInOneBlock,
+			boolean shareMessageBetweenLocalReceivers, CompletableFuture<ReturnCode> transferFuture) {
+		ArrayList<AgentAddress> agentAddressesSender = null;
 		AgentAddress oneReceiver = null;
 		ReturnCode notAvailable = null;
 
-		if (numberOfReceivers == null)
-			numberOfReceivers = new AtomicInteger(0);
-		AtomicInteger nonSentNetworkNumberOfReceivers=new AtomicInteger(0);
+		int numberOfReceivers = 0;
+		int nonSentNetworkNumberOfReceivers = 0;
+		// message referenced by the envelopes of local receivers of previous groups
+		Message sharedMessage = null;
 		Replies replies = null;
 		if (receiveAllRepliesInOneBlock) {
 			sendIndividualNetwork = true;
@@ -1802,11 +1883,23 @@ class MadkitKernel extends Agent {
 								receivers.iterator().next(), senderRole);
 						// receivers.addAll(aas);
 						oneReceiver = receivers.iterator().next();
-						if (senderAgentAddress.getGroup().isDistributed())
+						if (senderAgentAddress.getGroup().isDistributed()) {
+							if (agentAddressesSender == null)
+								agentAddressesSender = new ArrayList<>();
 							agentAddressesSender.add(senderAgentAddress);
-						messageToSend.setSender(senderAgentAddress);
-						broadcasting(receivers, messageToSend, numberOfReceivers, nonSentNetworkNumberOfReceivers, sendIndividualNetwork);
-						if (numberOfReceivers.get()>0)
+						}
+						Message m = messageToSend;
+						if (sharedMessage != null)
+							// envelopes of previous groups must keep the sender of their group
+							m = messageToSend.clone();
+						m.setSender(senderAgentAddress);
+						long counts = broadcasting(receivers, m, sendIndividualNetwork,
+								shareMessageBetweenLocalReceivers);
+						numberOfReceivers += (int) counts;
+						nonSentNetworkNumberOfReceivers += (int) (counts >>> 32);
+						if (shareMessageBetweenLocalReceivers && sharedMessage == null)
+							sharedMessage = m;
+						if (numberOfReceivers>0)
 							notAvailable=null;
 					}
 				} catch (CGRNotAvailable e) {
@@ -1821,16 +1914,43 @@ class MadkitKernel extends Agent {
 
 		ReturnCode rc = null;
 
-		if (!sendIndividualNetwork && getMadkitConfig().networkProperties.network && agentAddressesSender.size() > 0 && nonSentNetworkNumberOfReceivers.get()>0) {
+		if (!sendIndividualNetwork && getMadkitConfig().networkProperties.network && agentAddressesSender != null && nonSentNetworkNumberOfReceivers>0) {
+			CompletableFuture<ReturnCode> networkTransferFuture = transferFuture == null ? null
+					: new CompletableFuture<>();
 			rc = broadcastNetworkMessageWithRole(messageToSend, agentAddressesSender.iterator().next(), group, role,
-					agentAddressesSender);
+					agentAddressesSender, networkTransferFuture);
+			if (networkTransferFuture != null && rc == TRANSFER_IN_PROGRESS) {
+				final int localNumberOfReceivers = numberOfReceivers;
+				final int distantNumberOfReceivers = nonSentNetworkNumberOfReceivers;
+				final ReturnCode localNotAvailable = notAvailable;
+				networkTransferFuture.thenAccept(networkRC -> {
+					ReturnCode res;
+					int concernedAgents;
+					if (networkRC == SUCCESS || networkRC == TRANSFER_IN_PROGRESS) {
+						res = networkRC;
+						concernedAgents = localNumberOfReceivers + distantNumberOfReceivers;
+					} else if (localNumberOfReceivers > 0) {
+						res = SUCCESS;
+						concernedAgents = localNumberOfReceivers;
+					} else {
+						res = localNotAvailable == null ? NO_RECIPIENT_FOUND : localNotAvailable;
+						concernedAgents = 0;
+					}
+					res.setNumberOfConcernedAgents(concernedAgents);
+					transferFuture.complete(res);
+				});
+				messageToSend.setReceiver(oneReceiver);
+				informHooks(AgentActionEvent.BROADCAST_MESSAGE, messageToSend);
+				return TRANSFER_IN_PROGRESS;
+			}
 			if (rc == SUCCESS || rc == TRANSFER_IN_PROGRESS) {
-				numberOfReceivers.addAndGet(nonSentNetworkNumberOfReceivers.get());
-				if (nonSentNetworkNumberOfReceivers.get() > 0)
-					notAvailable = null;
+				numberOfReceivers += nonSentNetworkNumberOfReceivers;
+				notAvailable = null;
 			}
 		}
-		if (numberOfReceivers.get() == 0) {
+		if (numberOfReceiversResult != null)
+			numberOfReceiversResult.addAndGet(numberOfReceivers);
+		if (numberOfReceivers == 0) {
 			if (notAvailable == null) {
 				notAvailable = NO_RECIPIENT_FOUND;
 
@@ -1841,17 +1961,17 @@ class MadkitKernel extends Agent {
 		}
 		if (rc==null)
 			rc= SUCCESS;
-		rc.setNumberOfConcernedAgents(numberOfReceivers.get());
+		rc.setNumberOfConcernedAgents(numberOfReceivers);
 
 		if (replies != null) {
 			boolean remove;
-			if (numberOfReceivers.get() > 0) {
-				replies.setAllMessagesSent(numberOfReceivers.get());
+			if (numberOfReceivers > 0) {
+				replies.setAllMessagesSent(numberOfReceivers);
 				remove = replies.areAllRepliesSent();
 			} else
 				remove = true;
 			if (remove)
-				if (requester.removeConversation(replies) && numberOfReceivers.get() > 0)
+				if (requester.removeConversation(replies) && numberOfReceivers > 0)
 					requester.receiveMessage(replies);
 		}
 
@@ -1867,7 +1987,7 @@ class MadkitKernel extends Agent {
 		AtomicInteger numberOfReceivers = new AtomicInteger(0);
 		messageToSend.setNeedReply(true);
 		ReturnCode rc = this.broadcastMessageWithRole(requester, group, role, messageToSend, senderRole,
-				numberOfReceivers, true, false);
+				numberOfReceivers, true, false, false, null);
 		if (rc.equals(ReturnCode.SUCCESS)) {
 			return requester.waitAnswers(messageToSend, numberOfReceivers.get(), timeOutMilliSeconds);
 		} else {
@@ -1888,35 +2008,54 @@ class MadkitKernel extends Agent {
 		}
 	}
 
-	private void broadcasting(final Collection<AgentAddress> receivers, Message m, AtomicInteger numberOfReceivers,AtomicInteger nonSentNetworkNumberOfReceivers,
-			boolean includeNetworkAgents) {// TODO
-		// optimize
-		// without
-		m.getConversationID().setOrigin(kernelAddress); // cloning
+	/*
+	 * Sends the given message to the given receivers. When the message is shared
+	 * between local receivers, each local receiver gets a BroadcastEnvelope
+	 * referencing the given message instead of a clone of it.
+	 * 
+	 * Returns the number of receivers that received the message into the 32 low
+	 * bits, and the number of distant receivers that were skipped because network
+	 * agents are not included into the 32 high bits.
+	 */
+	private long broadcasting(final Collection<AgentAddress> receivers, Message m, boolean includeNetworkAgents,
+			boolean shareMessageBetweenLocalReceivers) {
+		m.getConversationID().setOrigin(kernelAddress);
+		final Message sharedMessage = m;
 		AgentAddress sender = m.getSender();
+		int numberOfReceivers = 0;
+		int nonSentNetworkNumberOfReceivers = 0;
 
 		for (final AgentAddress agentAddress : receivers) {
 
 			if (agentAddress != null) {// TODO this should not be possible
-				if (includeNetworkAgents || agentAddress.getAgent() != null) {
+				AbstractAgent target = agentAddress.getAgent();
+				if (target != null && shareMessageBetweenLocalReceivers) {
+					target.receiveMessage(new BroadcastEnvelope<>(sharedMessage, agentAddress));
+					++numberOfReceivers;
+				} else if (includeNetworkAgents || target != null) {
 					m = m.clone();
 					m.setSender(sender);
 					m.setReceiver(agentAddress);
 
-					ReturnCode rc = sendMessage(m, agentAddress.getAgent());
-					if ((rc == ReturnCode.SUCCESS || rc == ReturnCode.TRANSFER_IN_PROGRESS)
-							&& numberOfReceivers != null)
-						numberOfReceivers.incrementAndGet();
+					ReturnCode rc = sendMessage(m, target);
+					if (rc == ReturnCode.SUCCESS || rc == ReturnCode.TRANSFER_IN_PROGRESS)
+						++numberOfReceivers;
 				}
-				else if (nonSentNetworkNumberOfReceivers != null)
-					nonSentNetworkNumberOfReceivers.incrementAndGet();
+				else
+					++nonSentNetworkNumberOfReceivers;
 			}
 		}
-
+		return (((long) nonSentNetworkNumberOfReceivers) << 32) | numberOfReceivers;
 	}
 
+	/*
+	 * When transferFuture is not null, the transfer is not waited for, and
+	 * TRANSFER_IN_PROGRESS is returned. The future is then completed when the
+	 * message has been transferred.
+	 */
 	final ReturnCode broadcastNetworkMessageWithRole(Message m, AgentAddress role, AbstractGroup _destination_groups,
-			String _destination_role, ArrayList<AgentAddress> _agentAddressesSender) {
+			String _destination_role, ArrayList<AgentAddress> _agentAddressesSender,
+			CompletableFuture<ReturnCode> transferFuture) {
 		updateNetworkAgent();
 		if (netAgent != null && distantKernelAddresses.size() > 0) {
 			try {
@@ -1931,6 +2070,10 @@ class MadkitKernel extends Agent {
                 ((Message)localLanMessage).setReceiver(netAgent);
 				netAgent.getAgent().receiveMessage(localLanMessage);
 
+				if (transferFuture != null) {
+					localLanMessage.getMessageLocker().completeWhenUnlocked(transferFuture);
+					return TRANSFER_IN_PROGRESS;
+				}
                 return localLanMessage.getMessageLocker().waitUnlock(_agentAddressesSender.get(0).getAgent(),
 						true);
 			} catch (InterruptedException e) {
@@ -1944,10 +2087,14 @@ class MadkitKernel extends Agent {
 	}
 
 	private ReturnCode sendMessage(Message m, AbstractAgent target) {
+		return sendMessage(m, target, null);
+	}
+
+	private ReturnCode sendMessage(Message m, AbstractAgent target, CompletableFuture<ReturnCode> transferFuture) {
 
 		if (target == null) {
 
-			return sendNetworkMessageWithRole(m);
+			return sendNetworkMessageWithRole(m, transferFuture);
 		}
 		target.receiveMessage(m);
 		return SUCCESS;
@@ -1995,7 +2142,7 @@ class MadkitKernel extends Agent {
 		return SEVERE;
 	}
 
-	private ReturnCode sendNetworkMessageWithRole(Message m) {
+	private ReturnCode sendNetworkMessageWithRole(Message m, CompletableFuture<ReturnCode> transferFuture) {
 		updateNetworkAgent();
 		if (netAgent != null) {
 			try {
@@ -2007,6 +2154,10 @@ class MadkitKernel extends Agent {
                 ((Message)Objects.requireNonNull(directLocalLanMessage)).setSender(netEmitter);
                 ((Message)directLocalLanMessage).setReceiver(netAgent);
 				netAgent.getAgent().receiveMessage(directLocalLanMessage);
+				if (transferFuture != null) {
+					directLocalLanMessage.getMessageLocker().completeWhenUnlocked(transferFuture);
+					return TRANSFER_IN_PROGRESS;
+				}
 				return directLocalLanMessage.getMessageLocker().waitUnlock(m.getSender().getAgent(), true);
 			} catch (InterruptedException e) {
 				if (logger != null)
@@ -2309,14 +2460,9 @@ class MadkitKernel extends Agent {
 				if (agent.isAlive()) {// ! self kill -> safe to make this here
 
 					if (agent instanceof AgentFakeThread) {
-						agent.messageBox.getLocker().lock();
-						try {
-							agent.state.set(LIVING);
-							if (!agent.messageBox.isEmpty())
-								((AgentFakeThread) agent).manageTaskMessage(true);
-						} finally {
-							agent.messageBox.getLocker().unlock();
-						}
+						agent.state.set(LIVING);
+						if (!agent.messageBox.isEmpty())
+							((AgentFakeThread) agent).manageTaskMessage();
 					} else
 						agent.state.set(LIVING);
 
@@ -2618,10 +2764,15 @@ class MadkitKernel extends Agent {
 	// /////////////////////////////////////////////////////////////////////////
 
 	private ReturnCode buildAndSendMessage(final AgentAddress sender, final AgentAddress receiver, final Message m) {
+		return buildAndSendMessage(sender, receiver, m, null);
+	}
+
+	private ReturnCode buildAndSendMessage(final AgentAddress sender, final AgentAddress receiver, final Message m,
+			CompletableFuture<ReturnCode> transferFuture) {
 		m.setSender(sender);
 		m.setReceiver(receiver);
 		m.getConversationID().setOrigin(kernelAddress);
-		final ReturnCode r = sendMessage(m, receiver.getAgent());
+		final ReturnCode r = sendMessage(m, receiver.getAgent(), transferFuture);
 		if (r == SUCCESS || r == ReturnCode.TRANSFER_IN_PROGRESS) {
 			informHooks(AgentActionEvent.SEND_MESSAGE, m);
 		}
@@ -2978,7 +3129,7 @@ class MadkitKernel extends Agent {
 								receiversSize += receivers.size();
 								oneSender = senderAgentAddress;
 								((Message) m).setSender(senderAgentAddress);
-								broadcasting(receivers, m, null, null,false);
+								broadcasting(receivers, m, false, false);
 							}
 						}
 					} catch (CGRNotAvailable e) {
@@ -3167,6 +3318,16 @@ class MadkitKernel extends Agent {
 			leaveAllGroupsOfAllAgents();
 		if (getMadkitConfig().isUseMadkitSchedulerWithFortunaSecureRandom())
 			Fortuna.setPersonalDefaultScheduledExecutorService(null);
+		if (this.reactiveAgentsExecutor!=null) {
+			this.reactiveAgentsExecutor.shutdownNow();
+			try {
+				if (!this.reactiveAgentsExecutor.awaitTermination(10, TimeUnit.SECONDS))
+					getLogger().warning("Reactive agents executor not terminated !");
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			this.reactiveAgentsExecutor = null;
+		}
 		if (this.serviceExecutor!=null) {
 			this.serviceExecutor.shutdownNow();
 			boolean valid=true;
@@ -3219,7 +3380,7 @@ class MadkitKernel extends Agent {
 		sendNetworkKernelMessageWithRole(new KernelMessage(KernelAction.EXIT));
 		broadcastMessageWithRole(MadkitKernel.this, Groups.GUI,
 				Roles.GUI, new KernelMessage(KernelAction.EXIT), null,
-				false);
+				false, false, null);
 		while (getAgentWithRole(Groups.GUI, Roles.GUI) != null) {
 			pause(10);
 		}
@@ -3468,23 +3629,72 @@ class MadkitKernel extends Agent {
 			return res;
 	}*/
 
+	private interface BlockingCall
+	{
+		void block() throws InterruptedException, TimeoutException;
+	}
+
+	/*
+	 * Blocks a thread of the reactive agents executor through ForkJoinPool.managedBlock, so that the executor can
+	 * compensate the blocked thread. Returns the timeout exception thrown by the blocking call, if any.
+	 */
+	private static TimeoutException managedBlock(final LockerCondition locker, final BlockingCall call) throws InterruptedException {
+		final TimeoutException[] timeout=new TimeoutException[1];
+		ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+			private boolean released=false;
+			@Override
+			public boolean block() throws InterruptedException {
+				try {
+					call.block();
+				}
+				catch (TimeoutException e) {
+					timeout[0]=e;
+				}
+				released=true;
+				return true;
+			}
+
+			@Override
+			public boolean isReleasable() {
+				return released || !locker.isLocked() || locker.isCanceled();
+			}
+		});
+		return timeout[0];
+	}
+
 	void wait(AbstractAgent requester, LockerCondition locker) throws InterruptedException {
-		if (!serviceExecutor.wait(locker) /*&& !lifeExecutor.wait(locker)*/) {
+		if (isCurrentThreadPartOfReactiveAgentsExecutor()) {
+			managedBlock(locker, () -> regularWait(requester, locker));
+		}
+		else if (!serviceExecutor.wait(locker) /*&& !lifeExecutor.wait(locker)*/) {
 			regularWait(requester, locker);
 		}
 	}
 	void wait(AbstractAgent requester, LockerCondition locker, long delayMillis) throws InterruptedException, TimeoutException {
-		if (!serviceExecutor.wait(locker, delayMillis, TimeUnit.MILLISECONDS)/* && !lifeExecutor.wait(locker, delayMillis, TimeUnit.MILLISECONDS)*/) {
+		if (isCurrentThreadPartOfReactiveAgentsExecutor()) {
+			TimeoutException e=managedBlock(locker, () -> regularWait(requester, locker, delayMillis));
+			if (e!=null)
+				throw e;
+		}
+		else if (!serviceExecutor.wait(locker, delayMillis, TimeUnit.MILLISECONDS)/* && !lifeExecutor.wait(locker, delayMillis, TimeUnit.MILLISECONDS)*/) {
 			regularWait(requester, locker, delayMillis);
 		}
 	}
 	void wait(AbstractAgent requester, LockerCondition locker, Lock personalLocker, Condition personalCondition, long delay, TimeUnit unit) throws InterruptedException, TimeoutException {
-		if (!serviceExecutor.wait(locker, personalLocker, personalCondition, delay, unit) /*&& !lifeExecutor.wait(locker, personalLocker, personalCondition, delay, unit)*/) {
+		if (isCurrentThreadPartOfReactiveAgentsExecutor()) {
+			TimeoutException e=managedBlock(locker, () -> regularWait(requester, locker, personalLocker, personalCondition, delay, unit));
+			if (e!=null)
+				throw e;
+		}
+		else if (!serviceExecutor.wait(locker, personalLocker, personalCondition, delay, unit) /*&& !lifeExecutor.wait(locker, personalLocker, personalCondition, delay, unit)*/) {
 			regularWait(requester, locker, personalLocker, personalCondition,  delay, unit);
 		}
 	}
 	void wait(AbstractAgent requester, LockerCondition locker, Lock personalLocker, Condition personalCondition) throws InterruptedException{
-		if (!serviceExecutor.wait(locker, personalLocker, personalCondition) /*&& !lifeExecutor.wait(locker, personalLocker, personalCondition)*/) {
+		if (isCurrentThreadPartOfReactiveAgentsExecutor()) {
+			managedBlock(locker, () -> regularWait(requester, locker, personalLocker, personalCondition));
+		}
+		else if (!serviceExecutor.wait(locker, personalLocker, personalCondition) /*&& !lifeExecutor.wait(locker, personalLocker, personalCondition)*/) {
 			regularWait(requester, locker, personalLocker, personalCondition);
 		}
 	}
@@ -3556,7 +3766,23 @@ class MadkitKernel extends Agent {
 
 
 	void sleep(AbstractAgent requester, long millis) throws InterruptedException {
-		if (serviceExecutor==null || !serviceExecutor.sleep(millis, TimeUnit.MILLISECONDS) ) {
+		if (isCurrentThreadPartOfReactiveAgentsExecutor()) {
+			ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+				private boolean released=false;
+				@Override
+				public boolean block() throws InterruptedException {
+					Thread.sleep(millis);
+					released=true;
+					return true;
+				}
+
+				@Override
+				public boolean isReleasable() {
+					return released;
+				}
+			});
+		}
+		else if (serviceExecutor==null || !serviceExecutor.sleep(millis, TimeUnit.MILLISECONDS) ) {
 			Thread.sleep(millis);
 		}
 	}
@@ -575,6 +575,74 @@ public class MadkitProperties extends MultiFormatProperties {
 	 */
 	public Collection<String> rootOfPathGroupUsedToFilterDifferedMessages=null;
 
+	/**
+	 * Number of threads of the work-stealing executor dedicated to
+	 * {@link AgentFakeThread} agents. If this value is lower or equal to 0, these
+	 * agents are executed through the MaDKit service executor, which contains at
+	 * most two core threads.
+	 * Messages of one agent are always read one by one and in order, whatever the
+	 * chosen executor. Moreover, when using the dedicated executor with Java 9 or
+	 * newer, an agent that still has messages to read is rescheduled into the
+	 * queue of the thread that has just executed it. With Java 8, it is
+	 * rescheduled into the shared submission queues of the executor.
+	 *
+	 * @see #isReactiveAgentsExecutedThroughDedicatedExecutor()
+	 */
+	public int numberOfThreadsDedicatedToReactiveAgents=0;
+
+	/**
+	 * Tells if reactive agents (see {@link AgentFakeThread}) are executed through a
+	 * dedicated work-stealing executor.
+	 * @return true if reactive agents are executed through a dedicated work-stealing executor
+	 * @see #numberOfThreadsDedicatedToReactiveAgents
+	 */
+	public boolean isReactiveAgentsExecutedThroughDedicatedExecutor()
+	{
+		return numberOfThreadsDedicatedToReactiveAgents>0;
+	}
+
+	/**
+	 * Set the number of threads dedicated to reactive agents to the number of available processors
+	 * @see #numberOfThreadsDedicatedToReactiveAgents
+	 */
+	public void useAllAvailableProcessorsForReactiveAgents()
+	{
+		numberOfThreadsDedicatedToReactiveAgents=Runtime.getRuntime().availableProcessors();
+	}
+
+	int getNumberOfThreadsForReactiveAgents()
+	{
+		return Math.min(numberOfThreadsDedicatedToReactiveAgents, 0x7fff);
+	}
+
+	/**
+	 * If set to true, and if the JVM supports virtual threads (Java 21 or later),
+	 * the life of non daemon {@link Agent} instances, i.e. their activation,
+	 * their {@link Agent#liveCycle()} method and their blocking calls like
+	 * {@link Agent#waitNextMessage()}, is executed through virtual threads instead
+	 * of platform threads. This permits to launch a great number of threaded agents
+	 * into the same JVM. Daemon agents keep platform threads.
+	 * If the JVM does not support virtual threads, platform threads are used.
+	 * Note that thread priorities are ignored by virtual threads.
+	 * The blocking calls of agents, like {@link Agent#waitNextMessage()} or
+	 * {@link Agent#sleep(long)}, and the code of agents, may still block into
+	 * <code>synchronized</code> blocks or {@link Object#wait()}. Before Java 24,
+	 * such a virtual thread pins its carrier thread while it is blocked, so that a
+	 * great number of agents blocked this way can exhaust the carrier threads.
+	 *
+	 * @see #isVirtualThreadsUsedForThreadedAgents()
+	 */
+	public boolean useVirtualThreadsForThreadedAgents=false;
+
+	/**
+	 * Tells if threaded agents will be executed through virtual threads
+	 * @return true if {@link #useVirtualThreadsForThreadedAgents} is set to true and if the JVM supports virtual threads
+	 */
+	public boolean isVirtualThreadsUsedForThreadedAgents()
+	{
+		return useVirtualThreadsForThreadedAgents && AgentThreadFactory.isVirtualThreadsSupported();
+	}
+
 	public MadkitProperties() {
 		super(new MultiFormatPropertiesObjectParser());
 		this.minimumMadkitVersion=new Version(madkitVersion.getProgramName(), madkitVersion.getShortProgramName(), (short)2, (short)2, (short)0, Version.Type.BETA, (short)1, madkitVersion.getProjectStartDate(), madkitVersion.getProjectEndDate());
@@ -95,6 +95,17 @@ public class Message implements Cloneable {// TODO message already sent warning
 		this.conversationID = m.conversationID;
 		this.needReply = m.needReply;
 	}
+
+	/*
+	 * Creates a message without sender and without conversation ID, which are
+	 * resolved by the subclass
+	 */
+	Message(AgentAddress receiver) {
+		this.receiver = receiver;
+		this.sender = null;
+		this.conversationID = null;
+		this.needReply = false;
+	}
 	public void readExternal(final SecuredObjectInputStream in) throws IOException, ClassNotFoundException
 	{
 		readAndCheckObjectImpl(in);
@@ -182,7 +193,7 @@ public class Message implements Cloneable {// TODO message already sent warning
 
 
 	final void setIDFrom(final Message from) {
-		conversationID = from.conversationID;
+		conversationID = from.getConversationID();
 	}
 
 
@@ -223,6 +234,17 @@ public class Message implements Cloneable {// TODO message already sent warning
 	{
 		return false;
 	}
+
+	/**
+	 * Tells if the message must not be compressed by the lan compression layer,
+	 * for example because its content is already compressed
+	 * @return true if the message must not be compressed
+	 * @see com.distrimind.madkit.kernel.network.connection.unsecured.CompressionConnectionProtocol
+	 */
+	public boolean excludedFromCompression()
+	{
+		return false;
+	}
 	
 	protected void readAndCheckObjectImpl(final SecuredObjectInputStream in) throws IOException, ClassNotFoundException
 	{
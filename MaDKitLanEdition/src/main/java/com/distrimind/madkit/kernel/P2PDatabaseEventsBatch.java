@@ -0,0 +1,120 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package com.distrimind.madkit.kernel;
+
+import com.distrimind.madkit.kernel.network.NetworkProperties;
+import com.distrimind.ood.database.messages.P2PDatabaseEventToSend;
+import com.distrimind.util.io.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Several small database synchronization events sent to the same distant peer
+ * through one network message. Events are given to the database synchronizer
+ * in the order of the list.
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+final class P2PDatabaseEventsBatch implements SecureExternalizable {
+
+	private List<P2PDatabaseEventToSend> events;
+
+	@SuppressWarnings("unused")
+	P2PDatabaseEventsBatch()
+	{
+
+	}
+
+	P2PDatabaseEventsBatch(List<P2PDatabaseEventToSend> events) {
+		if (events == null)
+			throw new NullPointerException("events");
+		if (events.size() < 2)
+			throw new IllegalArgumentException("At least two events must be grouped");
+		this.events = events;
+	}
+
+	List<P2PDatabaseEventToSend> getEvents() {
+		return events;
+	}
+
+	@Override
+	public int getInternalSerializedSize() {
+		int res=4;
+		for (P2PDatabaseEventToSend e : events)
+			res+=SerializationTools.getInternalSize(e, NetworkProperties.GLOBAL_MAX_SHORT_DATA_SIZE);
+		return res;
+	}
+
+	@Override
+	public void writeExternal(SecuredObjectOutputStream oos) throws IOException {
+		oos.writeInt(events.size());
+		for (P2PDatabaseEventToSend e : events)
+			oos.writeObject(e, false, NetworkProperties.GLOBAL_MAX_SHORT_DATA_SIZE);
+	}
+
+	@Override
+	public void readExternal(SecuredObjectInputStream in) throws IOException, ClassNotFoundException {
+		int globalSize=NetworkProperties.GLOBAL_MAX_SHORT_DATA_SIZE;
+		int size=in.readInt();
+		int totalSize=4;
+		if (size<2 || size>(globalSize-totalSize)/4)
+			throw new MessageExternalizationException(Integrity.FAIL_AND_CANDIDATE_TO_BAN);
+		//the capacity does not depend on the announced size, which is not trusted
+		events=new ArrayList<>(Math.min(size, 64));
+		for (int i=0;i<size;i++)
+		{
+			Object o=in.readObject(false, globalSize-totalSize);
+			if (!(o instanceof P2PDatabaseEventToSend))
+				throw new MessageExternalizationException(Integrity.FAIL_AND_CANDIDATE_TO_BAN);
+			totalSize+=SerializationTools.getInternalSize(o, globalSize);
+			if (totalSize>globalSize)
+				throw new MessageExternalizationException(Integrity.FAIL_AND_CANDIDATE_TO_BAN);
+			events.add((P2PDatabaseEventToSend)o);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "P2PDatabaseEventsBatch[eventsNumber=" + events.size() + "]";
+	}
+}
@@ -0,0 +1,299 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel;
+
+import com.distrimind.madkit.kernel.InternalRole.ParametrizedAgent;
+
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Local members of an {@link InternalRole}. Members are stored into an array
+ * and indexed by agent ID, so that joining, leaving or looking for a member is
+ * done in constant time. Members are kept in the order they joined the role :
+ * removing a member leaves an empty slot, and empty slots are compacted lazily,
+ * when the array is full or when a view is given.
+ * <p>
+ * Lists of agents and of agent addresses are immutable views of the array.
+ * They are given without copy. The array is copied only when a slot that is
+ * visible from a given view is overwritten.
+ * <p>
+ * Modifications and look-ups must be done while synchronizing on this object.
+ * Iterators work on a snapshot of the members.
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.1
+ * @since MadkitLanEdition 2.2.0
+ */
+final class RoleMembers extends AbstractCollection<ParametrizedAgent> {
+	private static final ParametrizedAgent[] EMPTY = new ParametrizedAgent[0];
+
+	private final InternalRole role;
+	private final HashMap<Long, ParametrizedAgent> index = new HashMap<>();
+	private ParametrizedAgent[] members = EMPTY;
+	private int size = 0;
+	// number of used slots of members array, including the empty slots of removed
+	// members
+	private int end = 0;
+	// slots of members array in [0,sharedLength[ are visible from the given views
+	private int sharedLength = 0;
+	private volatile List<AbstractAgent> agents = null;
+	private volatile List<AgentAddress> addresses = null;
+
+	RoleMembers(InternalRole role) {
+		this.role = role;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Iterator<ParametrizedAgent> iterator() {
+		synchronized (this) {
+			return new MembersView<ParametrizedAgent>(share(), size) {
+				@Override
+				ParametrizedAgent map(ParametrizedAgent pa) {
+					return pa;
+				}
+			}.iterator();
+		}
+	}
+
+	ParametrizedAgent get(long agentID) {
+		return index.get(agentID);
+	}
+
+	ParametrizedAgent get(AbstractAgent agent) {
+		ParametrizedAgent pa = index.get(agent.getAgentID());
+		if (pa != null && pa.agent == agent)
+			return pa;
+		return null;
+	}
+
+	@Override
+	public boolean add(ParametrizedAgent pa) {
+		if (index.containsKey(pa.agent.getAgentID()))
+			return false;
+		if (end == members.length) {
+			if (end > 0 && size <= end / 2)
+				compact(members.length);
+			else
+				compact(Math.max(4, end * 2));
+		}
+		set(end++, pa);
+		++size;
+		index.put(pa.agent.getAgentID(), pa);
+		return true;
+	}
+
+	boolean add(AbstractAgent agent, boolean manually_requested) {
+		return add(newMember(agent, manually_requested));
+	}
+
+	ParametrizedAgent replace(ParametrizedAgent old, boolean manually_requested) {
+		ParametrizedAgent pa = newMember(old.agent, manually_requested);
+		set(old.position, pa);
+		index.put(pa.agent.getAgentID(), pa);
+		return pa;
+	}
+
+	ParametrizedAgent remove(AbstractAgent agent) {
+		ParametrizedAgent pa = get(agent);
+		if (pa == null)
+			return null;
+		index.remove(agent.getAgentID());
+		if (pa.position < sharedLength) {
+			members = Arrays.copyOf(members, members.length);
+			sharedLength = 0;
+		}
+		members[pa.position] = null;
+		--size;
+		while (end > 0 && members[end - 1] == null)
+			--end;
+		modified();
+		return pa;
+	}
+
+	@Override
+	public void clear() {
+		index.clear();
+		if (sharedLength == 0)
+			Arrays.fill(members, 0, end, null);
+		else
+			members = EMPTY;
+		size = 0;
+		end = 0;
+		sharedLength = 0;
+		modified();
+	}
+
+	/**
+	 * @return the agents playing the role, as an immutable list that does not
+	 *         change while members are modified. The same list is returned until
+	 *         the next modification.
+	 */
+	List<AbstractAgent> getAgents() {
+		List<AbstractAgent> res = agents;
+		if (res == null) {
+			synchronized (this) {
+				res = agents;
+				if (res == null) {
+					agents = res = new MembersView<AbstractAgent>(share(), size) {
+						@Override
+						AbstractAgent map(ParametrizedAgent pa) {
+							return pa.agent;
+						}
+					};
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * @return the addresses of the agents playing the role, as an immutable list
+	 *         that does not change while members are modified. The same list is
+	 *         returned until the next modification.
+	 */
+	List<AgentAddress> getAddresses() {
+		List<AgentAddress> res = addresses;
+		if (res == null) {
+			synchronized (this) {
+				res = addresses;
+				if (res == null) {
+					addresses = res = new MembersView<AgentAddress>(share(), size) {
+						@Override
+						AgentAddress map(ParametrizedAgent pa) {
+							return pa.address;
+						}
+					};
+				}
+			}
+		}
+		return res;
+	}
+
+	private ParametrizedAgent newMember(AbstractAgent agent, boolean manually_requested) {
+		return new ParametrizedAgent(agent, manually_requested,
+				new AgentAddress(agent, role, role.getKernelAddress(), manually_requested));
+	}
+
+	private ParametrizedAgent[] share() {
+		if (end != size)
+			compact(members.length);
+		sharedLength = size;
+		return members;
+	}
+
+	/*
+	 * Moves the members to the first slots of an array of the given capacity,
+	 * keeping their order. When the capacity does not change, the array is
+	 * compacted in place : slots that are visible from the given views contain no
+	 * empty slot, and are not moved.
+	 */
+	private void compact(int capacity) {
+		ParametrizedAgent[] dst;
+		int j;
+		if (capacity == members.length) {
+			dst = members;
+			j = sharedLength;
+		} else {
+			dst = new ParametrizedAgent[capacity];
+			System.arraycopy(members, 0, dst, 0, sharedLength);
+			j = sharedLength;
+			sharedLength = 0;
+		}
+		for (int i = j; i < end; i++) {
+			ParametrizedAgent pa = members[i];
+			if (pa != null) {
+				dst[j] = pa;
+				pa.position = j++;
+			}
+		}
+		if (dst == members)
+			Arrays.fill(members, j, end, null);
+		members = dst;
+		end = j;
+	}
+
+	private void set(int position, ParametrizedAgent pa) {
+		if (position < sharedLength) {
+			members = Arrays.copyOf(members, members.length);
+			sharedLength = 0;
+		}
+		members[position] = pa;
+		pa.position = position;
+		modified();
+	}
+
+	private void modified() {
+		agents = null;
+		addresses = null;
+	}
+
+	private static abstract class MembersView<E> extends AbstractList<E> implements RandomAccess {
+		private final ParametrizedAgent[] members;
+		private final int size;
+
+		MembersView(ParametrizedAgent[] members, int size) {
+			this.members = members;
+			this.size = size;
+		}
+
+		abstract E map(ParametrizedAgent pa);
+
+		@Override
+		public E get(int index) {
+			if (index >= size)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			return map(members[index]);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+}
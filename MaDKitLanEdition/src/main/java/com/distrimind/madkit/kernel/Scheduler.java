@@ -43,9 +43,15 @@ import java.awt.BorderLayout;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.logging.Level;
 
@@ -74,6 +80,12 @@ import com.distrimind.madkit.message.SchedulingMessage;
  * {@link SimulationState#PAUSED}. The default delay between two steps is 0 ms
  * (max speed).
  * 
+ * By default, each simulation step executes every activator and increments the
+ * GVT by one unit. In the discrete-event mode (see
+ * {@link #setDiscreteEventMode(boolean)}), activators, agents and actions are
+ * scheduled at a given simulation time, and each simulation step jumps the GVT
+ * to the time of the next scheduled event.
+ * 
  * @author Fabien Michel
  * @author Jason Mahdjoub
  * @since MaDKit 2.0
@@ -196,6 +208,45 @@ public class Scheduler extends Agent {
 
 	private GVTModel gvtModel;
 
+	private volatile boolean discreteEventMode = false;
+
+	/*
+	 * events are scheduled from the scheduler thread, but also from activators
+	 * running in the multicore or fork/join mode. The queue is locked by itself.
+	 */
+	private final PriorityQueue<SimulationEvent> events = new PriorityQueue<>();
+
+	private long eventSequence = 0;
+
+	/*
+	 * An event of the discrete-event mode. Events of the same time are sorted by
+	 * scheduling order. If agent is not null, only this agent is activated through
+	 * the activator. If activator is not null, the activator is executed.
+	 * Otherwise, the action is run.
+	 */
+	private static final class SimulationEvent implements Comparable<SimulationEvent> {
+		final double time;
+		final long sequence;
+		final Activator<? extends AbstractAgent> activator;
+		final AbstractAgent agent;
+		final Runnable action;
+
+		SimulationEvent(double time, long sequence, Activator<? extends AbstractAgent> activator,
+				AbstractAgent agent, Runnable action) {
+			this.time = time;
+			this.sequence = sequence;
+			this.activator = activator;
+			this.agent = agent;
+			this.action = action;
+		}
+
+		@Override
+		public int compareTo(SimulationEvent o) {
+			int c = Double.compare(time, o.time);
+			return c != 0 ? c : Long.compare(sequence, o.sequence);
+		}
+	}
+
 	/**
 	 * This constructor is equivalent to <code>Scheduler(Double.MAX_VALUE)</code>
 	 */
@@ -260,6 +311,7 @@ public class Scheduler extends Agent {
 	public void removeActivator(final Activator<? extends AbstractAgent> activator) {
 		kernel.removeOverlooker(this, activator);
 		activators.remove(activator);
+		removeScheduledEvents(activator);
 		if (logger != null && logger.isLoggable(Level.FINE))
 			logger.fine("Activator removed: " + activator);
 	}
@@ -291,6 +343,10 @@ public class Scheduler extends Agent {
 	 * </pre>
 	 */
 	public void doSimulationStep() {
+		if (discreteEventMode) {
+			doDiscreteEventStep();
+			return;
+		}
 		if (logger != null && logger.isLoggable(Level.FINER)) {
 			logger.finer("Doing simulation step " + GVT);
 		}
@@ -307,6 +363,227 @@ public class Scheduler extends Agent {
 		setGVT(GVT + 1);
 	}
 
+	/**
+	 * Tells if the discrete-event mode is on.
+	 * 
+	 * @return true if the discrete-event mode is on
+	 * @see #setDiscreteEventMode(boolean)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public boolean isDiscreteEventModeOn() {
+		return discreteEventMode;
+	}
+
+	/**
+	 * Sets the discrete-event mode. When this mode is on,
+	 * {@link #doSimulationStep()} does not execute all the activators anymore. It
+	 * sets the GVT to the time of the next scheduled event and processes all the
+	 * events scheduled at this time. The activations of agents scheduled at the
+	 * same time through the same activator are executed in one call of
+	 * {@link Activator#execute(List, Object...)}. If no event is scheduled, the
+	 * simulation is paused.
+	 * 
+	 * Events are scheduled with {@link #scheduleActivation(double, Activator)},
+	 * {@link #scheduleActivation(double, Activator, AbstractAgent)} and
+	 * {@link #scheduleAction(double, Runnable)}. The {@link SchedulingMessage}
+	 * protocol is unchanged: a step processes the events of one simulation time.
+	 * 
+	 * @param discreteEventMode
+	 *            true to use the discrete-event mode, false to execute all the
+	 *            activators at each step
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public void setDiscreteEventMode(boolean discreteEventMode) {
+		this.discreteEventMode = discreteEventMode;
+	}
+
+	/**
+	 * Schedules the execution of an activator on all its agents, at the given
+	 * simulation time. This is only used in the discrete-event mode.
+	 * 
+	 * @param time
+	 *            the simulation time of the execution
+	 * @param activator
+	 *            the activator to execute, which must have been added to this
+	 *            scheduler
+	 * @throws NullPointerException
+	 *             if activator is null
+	 * @throws IllegalArgumentException
+	 *             if time is before the GVT
+	 * @see #setDiscreteEventMode(boolean)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public void scheduleActivation(double time, Activator<? extends AbstractAgent> activator) {
+		if (activator == null)
+			throw new NullPointerException("activator");
+		schedule(time, activator, null, null);
+	}
+
+	/**
+	 * Schedules the activation of one agent through an activator, at the given
+	 * simulation time. This is only used in the discrete-event mode. The agents
+	 * scheduled at the same time through the same activator are activated
+	 * together, with one call of {@link Activator#execute(List, Object...)}.
+	 * The agent is not activated if it is not alive anymore at this time.
+	 * 
+	 * @param time
+	 *            the simulation time of the activation
+	 * @param activator
+	 *            the activator used to activate the agent, which must have been
+	 *            added to this scheduler
+	 * @param agent
+	 *            the agent to activate
+	 * @param <A>
+	 *            the agent type
+	 * @throws NullPointerException
+	 *             if activator or agent is null
+	 * @throws IllegalArgumentException
+	 *             if time is before the GVT
+	 * @see #setDiscreteEventMode(boolean)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public <A extends AbstractAgent> void scheduleActivation(double time, Activator<A> activator, A agent) {
+		if (activator == null)
+			throw new NullPointerException("activator");
+		if (agent == null)
+			throw new NullPointerException("agent");
+		schedule(time, activator, agent, null);
+	}
+
+	/**
+	 * Schedules an action at the given simulation time. The action is run by the
+	 * scheduler thread. This is only used in the discrete-event mode.
+	 * 
+	 * @param time
+	 *            the simulation time of the action
+	 * @param action
+	 *            the action to run
+	 * @throws NullPointerException
+	 *             if action is null
+	 * @throws IllegalArgumentException
+	 *             if time is before the GVT
+	 * @see #setDiscreteEventMode(boolean)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public void scheduleAction(double time, Runnable action) {
+		if (action == null)
+			throw new NullPointerException("action");
+		schedule(time, null, null, action);
+	}
+
+	private void schedule(double time, Activator<? extends AbstractAgent> activator, AbstractAgent agent,
+			Runnable action) {
+		if (Double.isNaN(time) || time < GVT)
+			throw new IllegalArgumentException("The time " + time + " is before the GVT " + GVT);
+		synchronized (events) {
+			events.add(new SimulationEvent(time, eventSequence++, activator, agent, action));
+		}
+	}
+
+	/**
+	 * Returns the time of the next scheduled event.
+	 * 
+	 * @return the time of the next scheduled event, or {@link Double#NaN} if no
+	 *         event is scheduled
+	 * @see #setDiscreteEventMode(boolean)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public double getNextEventTime() {
+		synchronized (events) {
+			SimulationEvent e = events.peek();
+			return e == null ? Double.NaN : e.time;
+		}
+	}
+
+	/**
+	 * Removes all the scheduled events.
+	 * 
+	 * @see #setDiscreteEventMode(boolean)
+	 * @since MadkitLanEdition 2.2.0
+	 */
+	public void clearScheduledEvents() {
+		synchronized (events) {
+			events.clear();
+		}
+	}
+
+	private void removeScheduledEvents(Activator<? extends AbstractAgent> activator) {
+		synchronized (events) {
+			events.removeIf(e -> e.activator == activator);
+		}
+	}
+
+	/*
+	 * Processes all the events of the next simulation time. Events scheduled
+	 * during this processing for the same time are processed by the next step.
+	 */
+	private void doDiscreteEventStep() {
+		final List<SimulationEvent> current = new ArrayList<>();
+		final double time;
+		synchronized (events) {
+			SimulationEvent e = events.peek();
+			if (e == null) {
+				time = Double.NaN;
+			} else {
+				time = e.time;
+				while (time <= simulationDuration && e != null && e.time == time) {
+					current.add(events.poll());
+					e = events.peek();
+				}
+			}
+		}
+		if (Double.isNaN(time)) {
+			if (logger != null)
+				logger.info("No scheduled event: simulation paused at " + GVT);
+			setSimulationState(PAUSED);
+			return;
+		}
+		// beyond the simulation duration, the scheduler quits at the next cycle
+		setGVT(time);
+		if (current.isEmpty())
+			return;
+		if (logger != null && logger.isLoggable(Level.FINER)) {
+			logger.finer("Doing simulation step " + GVT + " with " + current.size() + " events");
+		}
+		// the agents of one activator are gathered at the place of the first of them
+		final Map<Activator<? extends AbstractAgent>, List<AbstractAgent>> agents = new IdentityHashMap<>();
+		for (Iterator<SimulationEvent> it = current.iterator(); it.hasNext();) {
+			SimulationEvent e = it.next();
+			if (e.agent != null) {
+				List<AbstractAgent> l = agents.get(e.activator);
+				if (l == null)
+					agents.put(e.activator, l = new ArrayList<>());
+				else
+					it.remove();
+				if (e.agent.isAlive())
+					l.add(e.agent);
+			}
+		}
+		for (SimulationEvent e : current) {
+			if (e.agent != null) {
+				List<AbstractAgent> l = agents.get(e.activator);
+				if (!l.isEmpty())
+					activate(e.activator, l);
+			} else if (e.activator != null) {
+				if (activators.contains(e.activator))
+					e.activator.execute();
+			} else
+				e.action.run();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <A extends AbstractAgent> void activate(Activator<A> activator, List<AbstractAgent> agents) {
+		if (!activators.contains(activator))
+			return;
+		if (logger != null && logger.isLoggable(Level.FINER))
+			logger.finer("Activating " + agents.size() + " agents --------> " + activator);
+		if (activator.isForkJoinModeOn())
+			activator.forkJoinExecute((List<A>) agents, new Object[0]);
+		else
+			activator.execute((List<A>) agents);
+	}
+
 	@Override
 	protected void end() {
 		simulationState = PAUSED;
@@ -452,6 +729,9 @@ public class Scheduler extends Agent {
 			kernel.removeOverlooker(this, a);
 		}
 		activators.clear();
+		synchronized (events) {
+			events.removeIf(e -> e.activator != null);
+		}
 	}
 
 	/**
@@ -51,6 +51,7 @@ import com.distrimind.madkit.kernel.network.connection.*;
 import com.distrimind.madkit.kernel.network.connection.ConnectionProtocol.ConnectionClosedReason;
 import com.distrimind.madkit.kernel.network.connection.access.*;
 import com.distrimind.madkit.kernel.network.connection.access.AccessException;
+import com.distrimind.madkit.kernel.network.connection.unsecured.CompressionConnectionProtocol;
 import com.distrimind.madkit.message.ObjectMessage;
 import com.distrimind.madkit.message.hook.HookMessage.AgentActionEvent;
 import com.distrimind.madkit.message.hook.*;
@@ -330,6 +331,10 @@ abstract class AbstractAgentSocket extends AgentFakeThread implements AccessGrou
 			if (connection_protocol == null)
 				throw new IllegalArgumentException(
 						"The properties must have at least one connection protocol compatible !");
+			for (ConnectionProtocol<?> cp : connection_protocol) {
+				if (cp instanceof CompressionConnectionProtocol)
+					((CompressionConnectionProtocol) cp).setCompressionStat(getStatistics().getCompressionStat());
+			}
 			/*this.counterSelector=new CounterSelector(connection_protocol);
 			connection_protocol.setCounterSelector(counterSelector);*/
 			if (NetworkProperties.GLOBAL_MAX_SHORT_DATA_SIZE<getMadkitConfig().networkProperties.maxShortDataSize)
@@ -668,7 +673,7 @@ abstract class AbstractAgentSocket extends AgentFakeThread implements AccessGrou
 			if (d.isDataBuildInProgress()) {
 				try {
 						
-					d.setNewBlock(getTransferType(), getBlock(d.packet, getTransferType().getID(), d.excludedFromEncryption));
+					d.setNewBlock(getTransferType(), getBlock(d.packet, getTransferType().getID(), d.excludedFromEncryption, d.excludedFromCompression));
 					if (logger != null && logger.isLoggable(Level.FINEST))
 						logger.finest("Data buffer updated (distant_inet_address=" + distant_inet_address
 								+ ", distantInterfacedKernelAddress=" + distantInterfacedKernelAddress
@@ -704,7 +709,7 @@ abstract class AbstractAgentSocket extends AgentFakeThread implements AccessGrou
 			waitingPongMessage = true;
 			sendData(new PingMessage(), true, false);
 		} else if (_message instanceof DataReceivedMessage) {
-			receiveData(((DataReceivedMessage) _message).received_data);
+			receiveData((DataReceivedMessage) _message);
 		} else if (_message instanceof ConnectionClosed) {
 			ConnectionClosed cc = (ConnectionClosed) _message;
 			disconnected(cc.reason, cc.data_not_sent, cc.bigDataNotSent, cc.dataToTransferNotSent);
@@ -1931,9 +1936,9 @@ abstract class AbstractAgentSocket extends AgentFakeThread implements AccessGrou
 		return distant_general_accepted_groups;
 	}*/
 
-	private void receiveData(byte[] _bytes) {
+	private void receiveData(DataReceivedMessage m) {
 		lastReceivedDataUTC = System.currentTimeMillis();
-		dataSynchronizer.receiveData(_bytes, dataSynchronized);
+		dataSynchronizer.receiveData(m.received_data, m.buffer, m.bufferPool, dataSynchronized);
 	}
 
 	private Timer timer_read = null;
@@ -1953,6 +1958,8 @@ abstract class AbstractAgentSocket extends AgentFakeThread implements AccessGrou
 			getStatistics().newDataReceived(_block.getTransferID(), _block.getBlockSize());
 			_block.setTransferID(TransferAgent.NullIDTransfer.getID());
 			PacketPart p = getPacketPart(_block);
+			if (p != null)
+				p = _block.detachFromPooledBuffer(p);
 			ReturnCode rc = sendMessageWithRole(this.agent_for_distant_kernel_aa, new ReceivedBlockData(p),
 					LocalCommunity.Roles.SOCKET_AGENT_ROLE);
 			if (logger != null && !rc.equals(ReturnCode.SUCCESS))
@@ -2930,8 +2937,8 @@ abstract class AbstractAgentSocket extends AgentFakeThread implements AccessGrou
 
 	}
 
-	protected Block getBlock(WritePacket _packet, int _transfer_type, boolean excludedFromEncryption) throws NIOException {
-		return connection_protocol.getBlock(_packet, _transfer_type, need_random ? random : null, excludedFromEncryption);
+	protected Block getBlock(WritePacket _packet, int _transfer_type, boolean excludedFromEncryption, boolean excludedFromCompression) throws NIOException {
+		return connection_protocol.getBlock(_packet, _transfer_type, need_random ? random : null, excludedFromEncryption, excludedFromCompression);
 	}
 
 	static protected abstract class BlockData extends AbstractData {
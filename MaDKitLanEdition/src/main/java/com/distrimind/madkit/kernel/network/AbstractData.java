@@ -90,17 +90,6 @@ abstract class AbstractData {
 				+ ", idTransfer=" + getIDTransfer() + ", lastMessage=" + isLastMessage() + "]";
 	}
 
-	@SuppressWarnings("deprecation")
-	@Override
-	public void finalize() {
-		try {
-			if (!isUnlocked())
-				unlockMessage();
-		} catch (Exception ignored) {
-			
-		}
-	}
-
 	/*long timeToSend() {
 		return Long.MIN_VALUE;
 	}*/
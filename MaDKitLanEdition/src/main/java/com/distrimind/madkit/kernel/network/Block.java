@@ -40,6 +40,8 @@ package com.distrimind.madkit.kernel.network;
 import com.distrimind.madkit.exceptions.PacketException;
 import com.distrimind.util.Bits;
 
+import java.nio.ByteBuffer;
+
 /**
  * Represent a data block, potentially encrypted
  * 
@@ -53,6 +55,8 @@ public final class Block {
 	private final byte[] block;
 	private int transfer_type;
 	private int size;
+	private ByteBuffer pooledBuffer = null;
+	private BlockBufferPool bufferPool = null;
 	public Block(SubBlocksStructure _structure) throws PacketException {
 		size = _structure.block_size;
 		if (size > BLOCK_SIZE_LIMIT)
@@ -142,6 +146,42 @@ public final class Block {
 		return block;
 	}
 
+	void setPooledBuffer(ByteBuffer pooledBuffer, BlockBufferPool bufferPool) {
+		this.pooledBuffer = pooledBuffer;
+		this.bufferPool = bufferPool;
+	}
+
+	boolean hasPooledBuffer() {
+		return pooledBuffer != null;
+	}
+
+	/*
+	 * Gives back the buffer containing the bytes of this block to its pool. Must
+	 * be called only when the bytes of this block are not referenced anymore.
+	 */
+	void releasePooledBuffer() {
+		if (pooledBuffer != null) {
+			bufferPool.release(pooledBuffer);
+			pooledBuffer = null;
+			bufferPool = null;
+		}
+	}
+
+	/*
+	 * Gives back the buffer of this block to its pool, once the given packet part
+	 * has been decoded from this block. Packet parts decoded in place still
+	 * reference the buffer: their data is copied out before the buffer is given
+	 * back.
+	 */
+	PacketPart detachFromPooledBuffer(PacketPart decodedPacketPart) {
+		if (pooledBuffer == null)
+			return decodedPacketPart;
+		if (decodedPacketPart.getSubBlock().getBytes() == block)
+			decodedPacketPart = decodedPacketPart.withCopiedBytes();
+		releasePooledBuffer();
+		return decodedPacketPart;
+	}
+
 	public static int getHeadSize() {
 		return getBlockSizeLength()+4;
 	}
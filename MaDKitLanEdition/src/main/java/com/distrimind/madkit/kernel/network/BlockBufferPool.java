@@ -0,0 +1,160 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel.network;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of buffers used to read blocks from sockets. A block is parsed
+ * as a byte array whose length is exactly the block size, so buffers are pooled
+ * per block size. Only the blocks whose size is greater or equal than
+ * {@link NetworkProperties#minBlockSizeOfReadBufferPool} are pooled, which are
+ * the full blocks produced by sustained transfers.
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+final class BlockBufferPool {
+	private static final int MAX_NUMBER_OF_BLOCK_SIZES = 32;
+
+	private final Map<Integer, ConcurrentLinkedDeque<ByteBuffer>> buffers = new ConcurrentHashMap<>();
+	private final long maxPooledBytes;
+	private final int minBlockSize;
+	private final AtomicLong pooledBytes = new AtomicLong(0);
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+	private final AtomicLong dropped = new AtomicLong(0);
+
+	BlockBufferPool(long maxPooledBytes, int minBlockSize) {
+		this.maxPooledBytes = maxPooledBytes;
+		this.minBlockSize = minBlockSize;
+	}
+
+	/**
+	 * Gets a cleared buffer whose capacity is equal to the given size
+	 * 
+	 * @param size
+	 *            the block size
+	 * @return the buffer
+	 */
+	ByteBuffer take(int size) {
+		if (size >= minBlockSize) {
+			ConcurrentLinkedDeque<ByteBuffer> d = buffers.get(size);
+			if (d != null) {
+				ByteBuffer bb = d.pollFirst();
+				if (bb != null) {
+					pooledBytes.addAndGet(-size);
+					hits.incrementAndGet();
+					bb.clear();
+					return bb;
+				}
+			}
+			misses.incrementAndGet();
+		}
+		return ByteBuffer.allocate(size);
+	}
+
+	/**
+	 * Gives back a buffer got with {@link #take(int)}. The buffer must not be
+	 * referenced anymore.
+	 * 
+	 * @param buffer
+	 *            the buffer
+	 */
+	void release(ByteBuffer buffer) {
+		int size = buffer.capacity();
+		if (size < minBlockSize)
+			return;
+		if (pooledBytes.addAndGet(size) > maxPooledBytes) {
+			pooledBytes.addAndGet(-size);
+			dropped.incrementAndGet();
+			return;
+		}
+		ConcurrentLinkedDeque<ByteBuffer> d = buffers.get(size);
+		if (d == null) {
+			if (buffers.size() >= MAX_NUMBER_OF_BLOCK_SIZES) {
+				pooledBytes.addAndGet(-size);
+				dropped.incrementAndGet();
+				return;
+			}
+			d = buffers.computeIfAbsent(size, k -> new ConcurrentLinkedDeque<>());
+		}
+		d.offerFirst(buffer);
+	}
+
+	/**
+	 * @return the number of buffers that have been taken from the pool
+	 */
+	long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of buffers that have been allocated because the pool did
+	 *         not contain any buffer with the asked size
+	 */
+	long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of released buffers that have not been kept because the
+	 *         pool was full
+	 */
+	long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * @return the number of bytes currently kept by the pool
+	 */
+	long getPooledBytes() {
+		return pooledBytes.get();
+	}
+
+	@Override
+	public String toString() {
+		return "BlockBufferPool[hits=" + hits.get() + ", misses=" + misses.get() + ", dropped=" + dropped.get()
+				+ ", pooledBytes=" + pooledBytes.get() + "]";
+	}
+}
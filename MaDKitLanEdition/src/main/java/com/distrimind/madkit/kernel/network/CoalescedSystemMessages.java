@@ -0,0 +1,116 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel.network;
+
+import com.distrimind.util.io.Integrity;
+import com.distrimind.util.io.MessageExternalizationException;
+import com.distrimind.util.io.SecuredObjectInputStream;
+import com.distrimind.util.io.SecuredObjectOutputStream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Several small serialized lan messages sent through one packet. Each message
+ * is unserialized and delivered separately by the receiving distant kernel
+ * agent.
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+final class CoalescedSystemMessages implements SystemMessageWithoutInnerSizeControl {
+
+	private List<byte[]> serializedMessages;
+
+	@SuppressWarnings("unused")
+	CoalescedSystemMessages()
+	{
+		
+	}
+
+	CoalescedSystemMessages(List<byte[]> serializedMessages) {
+		if (serializedMessages == null)
+			throw new NullPointerException("serializedMessages");
+		if (serializedMessages.size() < 2)
+			throw new IllegalArgumentException("At least two messages must be coalesced");
+		this.serializedMessages = serializedMessages;
+	}
+
+	@Override
+	public void readExternal(SecuredObjectInputStream in) throws IOException, ClassNotFoundException {
+		int globalSize=NetworkProperties.GLOBAL_MAX_SHORT_DATA_SIZE;
+		int size=in.readInt();
+		int totalSize=4;
+		if (size<2 || size>(globalSize-totalSize)/4)
+			throw new MessageExternalizationException(Integrity.FAIL_AND_CANDIDATE_TO_BAN);
+		//the capacity does not depend on the announced size, which is not trusted
+		serializedMessages=new ArrayList<>(Math.min(size, 64));
+		for (int i=0;i<size;i++)
+		{
+			byte[] m=in.readBytesArray(false, globalSize-totalSize);
+			totalSize+=m.length+4;
+			if (totalSize>globalSize)
+				throw new MessageExternalizationException(Integrity.FAIL_AND_CANDIDATE_TO_BAN);
+			serializedMessages.add(m);
+		}
+	}
+
+	@Override
+	public void writeExternal(SecuredObjectOutputStream oos) throws IOException {
+		oos.writeInt(serializedMessages.size());
+		for (byte[] m : serializedMessages)
+			oos.writeBytesArray(m, false, NetworkProperties.GLOBAL_MAX_SHORT_DATA_SIZE);
+	}
+
+	List<byte[]> getSerializedMessages() {
+		return serializedMessages;
+	}
+
+	@Override
+	public boolean excludedFromEncryption() {
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return "CoalescedSystemMessages[messagesNumber=" + serializedMessages.size() + "]";
+	}
+
+}
@@ -0,0 +1,180 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel.network;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class represents the statistics of the compression stage of a
+ * connection : the number of bytes given to the compression layer, the number
+ * of bytes effectively transmitted, and the CPU time spent to compress and to
+ * decompress blocks. This class is thread safe.
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ * @see com.distrimind.madkit.kernel.network.connection.unsecured.CompressionConnectionProtocol
+ */
+public class CompressionStat {
+	private final AtomicLong uncompressedBytesSent = new AtomicLong(0);
+	private final AtomicLong compressedBytesSent = new AtomicLong(0);
+	private final AtomicLong uncompressedBytesReceived = new AtomicLong(0);
+	private final AtomicLong compressedBytesReceived = new AtomicLong(0);
+	private final AtomicLong compressionDurationInNanoseconds = new AtomicLong(0);
+	private final AtomicLong decompressionDurationInNanoseconds = new AtomicLong(0);
+	private final AtomicLong bypassedBlocks = new AtomicLong(0);
+
+	/**
+	 * Notify that a block has been prepared to be sent
+	 * 
+	 * @param originalSize
+	 *            the size of the block before compression
+	 * @param outputSize
+	 *            the size of the block after compression
+	 * @param durationInNanoseconds
+	 *            the CPU time spent to compress the block
+	 */
+	public void newBlockCompressed(int originalSize, int outputSize, long durationInNanoseconds) {
+		uncompressedBytesSent.addAndGet(originalSize);
+		compressedBytesSent.addAndGet(outputSize);
+		compressionDurationInNanoseconds.addAndGet(durationInNanoseconds);
+		if (originalSize == outputSize)
+			bypassedBlocks.incrementAndGet();
+	}
+
+	/**
+	 * Notify that a block has been received
+	 * 
+	 * @param receivedSize
+	 *            the size of the received block
+	 * @param outputSize
+	 *            the size of the block after decompression
+	 * @param durationInNanoseconds
+	 *            the CPU time spent to decompress the block
+	 */
+	public void newBlockDecompressed(int receivedSize, int outputSize, long durationInNanoseconds) {
+		compressedBytesReceived.addAndGet(receivedSize);
+		uncompressedBytesReceived.addAndGet(outputSize);
+		decompressionDurationInNanoseconds.addAndGet(durationInNanoseconds);
+	}
+
+	/**
+	 * @return the number of bytes given to the compression layer
+	 */
+	public long getUncompressedBytesSent() {
+		return uncompressedBytesSent.get();
+	}
+
+	/**
+	 * @return the number of bytes given by the compression layer to the
+	 *         network
+	 */
+	public long getCompressedBytesSent() {
+		return compressedBytesSent.get();
+	}
+
+	/**
+	 * @return the number of bytes received by the compression layer
+	 */
+	public long getCompressedBytesReceived() {
+		return compressedBytesReceived.get();
+	}
+
+	/**
+	 * @return the number of bytes obtained after decompression
+	 */
+	public long getUncompressedBytesReceived() {
+		return uncompressedBytesReceived.get();
+	}
+
+	/**
+	 * @return the number of sent blocks that were not compressed because they
+	 *         were incompressible or excluded from compression
+	 */
+	public long getBypassedBlocks() {
+		return bypassedBlocks.get();
+	}
+
+	/**
+	 * @return the CPU time in nanoseconds spent to compress blocks
+	 */
+	public long getCompressionDurationInNanoseconds() {
+		return compressionDurationInNanoseconds.get();
+	}
+
+	/**
+	 * @return the CPU time in nanoseconds spent to decompress blocks
+	 */
+	public long getDecompressionDurationInNanoseconds() {
+		return decompressionDurationInNanoseconds.get();
+	}
+
+	/**
+	 * Gets the compression ratio of sent data, i.e. the number of sent bytes
+	 * divided by the number of bytes before compression.
+	 * 
+	 * @return the compression ratio, or 1 if no data was sent
+	 */
+	public double getSentCompressionRatio() {
+		long u = uncompressedBytesSent.get();
+		if (u == 0)
+			return 1.0;
+		return ((double) compressedBytesSent.get()) / ((double) u);
+	}
+
+	/**
+	 * Gets the compression ratio of received data, i.e. the number of received
+	 * bytes divided by the number of bytes after decompression.
+	 * 
+	 * @return the compression ratio, or 1 if no data was received
+	 */
+	public double getReceivedCompressionRatio() {
+		long u = uncompressedBytesReceived.get();
+		if (u == 0)
+			return 1.0;
+		return ((double) compressedBytesReceived.get()) / ((double) u);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[sentCompressionRatio=" + getSentCompressionRatio()
+				+ ", receivedCompressionRatio=" + getReceivedCompressionRatio() + ", compressionDuration="
+				+ getCompressionDurationInNanoseconds() + "ns, decompressionDuration="
+				+ getDecompressionDurationInNanoseconds() + "ns, bypassedBlocks=" + getBypassedBlocks() + "]";
+	}
+}
@@ -37,6 +37,8 @@
  */
 package com.distrimind.madkit.kernel.network;
 
+import java.nio.ByteBuffer;
+
 /**
  * 
  * @author Jason Mahdjoub
@@ -47,8 +49,18 @@ class DataReceivedMessage extends NIOMessage {
 
 
 	public final byte[] received_data;
+	final ByteBuffer buffer;
+	final BlockBufferPool bufferPool;
 
 	public DataReceivedMessage(byte[] _received_data) {
 		received_data = _received_data;
+		buffer = null;
+		bufferPool = null;
+	}
+
+	DataReceivedMessage(ByteBuffer buffer, BlockBufferPool bufferPool) {
+		received_data = buffer.array();
+		this.buffer = buffer;
+		this.bufferPool = bufferPool;
 	}
 }
@@ -40,6 +40,8 @@ package com.distrimind.madkit.kernel.network;
 
 import com.distrimind.madkit.exceptions.PacketException;
 
+import java.nio.ByteBuffer;
+
 /**
  * 
  * @author Jason Mahdjoub
@@ -52,6 +54,13 @@ class DataSocketSynchronizer {
 	//private final AtomicBoolean dataInProgress = new AtomicBoolean(false);
 
 	void receiveData(byte[] _bytes, SocketAgentInterface socketAgentInterface) {
+		receiveData(_bytes, null, null, socketAgentInterface);
+	}
+
+	/*
+	 * The given buffer is given back to the pool when the block has been parsed
+	 */
+	void receiveData(byte[] _bytes, ByteBuffer buffer, BlockBufferPool bufferPool, SocketAgentInterface socketAgentInterface) {
 		/*if (!dataInProgress.compareAndSet(false, true))
 			throw new ConcurrentModificationException();
 
@@ -60,8 +69,12 @@ class DataSocketSynchronizer {
 				return;
 			try {
 				Block block = new Block(_bytes);
+				if (buffer != null)
+					block.setPooledBuffer(buffer, bufferPool);
 				socketAgentInterface.receivedBlock(block);
 			} catch (PacketException e) {
+				if (buffer != null)
+					bufferPool.release(buffer);
 				socketAgentInterface.processInvalidBlock(e, null, false);
 			}
 		socketAgentInterface.isBannedOrDefinitelyRejected();
@@ -58,6 +58,7 @@ import com.distrimind.madkit.message.hook.DistantKernelAgentEventMessage;
 import com.distrimind.madkit.message.hook.HookMessage.AgentActionEvent;
 import com.distrimind.madkit.message.hook.NetworkGroupsAccessEvent;
 import com.distrimind.madkit.message.hook.NetworkLoginAccessEvent;
+import com.distrimind.madkit.util.ReferenceCleaner;
 import com.distrimind.util.IDGeneratorInt;
 import com.distrimind.util.concurrent.LockerCondition;
 import com.distrimind.util.crypto.AbstractSecureRandom;
@@ -91,6 +92,7 @@ class DistantKernelAgent extends AgentFakeThread {
 	private final IDGeneratorInt packet_id_generator = new IDGeneratorInt();
 	private ListGroupsRoles distant_accepted_groups = new ListGroupsRoles();
 	private AbstractSecureRandom random;
+	private PaddingKeyStream paddingKeyStream = null;
 	private boolean kernelAddressActivated = false;
 	private long lastAgentsUpdate = -1;
 
@@ -115,6 +117,11 @@ class DistantKernelAgent extends AgentFakeThread {
 	private ArrayList<ObjectMessage<SecretMessage>> differedSecretMessages = null;
 	private boolean lockSocketUntilCGRSynchroIsSent=false;
 	private FilteredObjectResolver filteredObjectResolver=null;
+	private ArrayList<CoalescedMessage> coalescedMessages=new ArrayList<>();
+	private AgentAddress coalescedMessagesReceiver=null;
+	private int coalescedMessagesSize=0;
+	private int coalescedMessagesBatchID=0;
+	private TaskID coalescedMessagesFlushTask=null;
 
 	DistantKernelAgent() {
 		super();
@@ -137,6 +144,12 @@ class DistantKernelAgent extends AgentFakeThread {
 			}
 
 		}
+		for (CoalescedMessage cm : coalescedMessages)
+		{
+			if (cm.messageLocker!=null)
+				cm.messageLocker.cancelLock();
+		}
+		coalescedMessages.clear();
 		if (stats != null && kernelAddressActivated)
 			getMadkitConfig().networkProperties.removeStatsBandwidth(distant_kernel_address);
 
@@ -418,10 +431,14 @@ class DistantKernelAgent extends AgentFakeThread {
 							((KernelAddressValidation) _message).isKernelAddressInterfaceEnabled());
 				} else if (_message instanceof ReceivedBlockData) {
 					receiveData(_message.getSender(), ((ReceivedBlockData) _message).getContent());
+				} else if (_message.getClass() == FlushCoalescedMessages.class) {
+					if (((FlushCoalescedMessages) _message).batchID == coalescedMessagesBatchID)
+						flushCoalescedMessages();
 				} else if (_message.getClass() == KillYou.class) {
 					if (logger != null && logger.isLoggable(Level.FINER))
 						logger.finer("DistantKernelAgent disabled (distantInterfacedKernelAddress="
 								+ distant_kernel_address + ")");
+					flushCoalescedMessages();
 
 					this.killAgent(this, KillingType.WAIT_AGENT_PURGE_ITS_MESSAGES_BOX_BEFORE_KILLING_IT);
 				} else if (_message.getClass() == AbstractAgentSocket.AgentSocketKilled.class) {
@@ -779,7 +796,7 @@ class DistantKernelAgent extends AgentFakeThread {
 			WritePacket packet = new WritePacket(PacketPartHead.TYPE_PACKET, id,
 					getMadkitConfig().networkProperties.maxBufferSize,
 					bgpm.bigDataExcludedFromEncryption()?0:getMadkitConfig().networkProperties.maxRandomPacketValues, random, inputStream,
-					bgpm.getStartStreamPosition(), bgpm.getTransferLength(), true, bgpm.getMessageDigestType());
+					bgpm.getStartStreamPosition(), bgpm.getTransferLength(), true, bgpm.getMessageDigestType(), paddingKeyStream);
 			BigPacketData packetData = new BigPacketData(chosenSocket.getAgentAddress(), packet, bgpm.getReceiver(),
 					bgpm.getSender(), bgpm.getConversationID(), bgpm.getStatistics(), bgpm.bigDataExcludedFromEncryption());
 			packetsDataInQueue.put(id, packetData);
@@ -1287,6 +1304,8 @@ class DistantKernelAgent extends AgentFakeThread {
 		// LocalCommunity.Roles.DISTANT_KERNEL_AGENT_ROLE);
 		try {
 			random = getMadkitConfig().getApprovedSecureRandom();
+			if (getMadkitConfig().networkProperties.bulkRandomPadding)
+				paddingKeyStream = new PaddingKeyStream(random);
 		} catch (Exception e) {
 			if (logger != null)
 				logger.severeLog("Unexpected exception", e);
@@ -1869,30 +1888,148 @@ class DistantKernelAgent extends AgentFakeThread {
 
 	protected void sendData(AgentAddress receiver, SystemMessageWithoutInnerSizeControl _data, boolean isItAPriority,
 							MessageLocker _messageLocker, boolean last_message) throws NIOException {
-		try (RandomByteArrayOutputStream baos = new RandomByteArrayOutputStream()) {
+		RandomByteArrayOutputStream baos = new RandomByteArrayOutputStream();
+		try {
 			baos.setObjectResolver(filteredObjectResolver);
 			baos.writeObject(_data, false);
 			baos.flush();
 
-			WritePacket packet = new WritePacket(PacketPartHead.TYPE_PACKET, getNewPacketID(),
-					getMadkitConfig().networkProperties.maxBufferSize,
-					_data.excludedFromEncryption()?0:getMadkitConfig().networkProperties.maxRandomPacketValues, random,
-					new RandomByteArrayInputStream(baos.getBytes()));
-			if (logger != null && logger.isLoggable(Level.FINEST))
-				logger.finest("Sending data (distantInterfacedKernelAddress=" + distant_kernel_address + ", packetID="
-						+ packet.getID() + ") : " + _data);
-			
-			if (!sendMessage(receiver,
-					new DistKernADataToUpgradeMessage(
-							new PacketData(receiver, _data, packet, _messageLocker, last_message, isItAPriority, _data.excludedFromEncryption())))
-									.equals(ReturnCode.SUCCESS))
-				logger.warning("Fail sending data (distantInterfacedKernelAddress=" + distant_kernel_address
-						+ ", packetID=" + packet.getID() + ") : " + _data);
+			if (isCoalescable(_data, isItAPriority, last_message)) {
+				byte[] bytes = baos.getBytes();
+				if (bytes.length <= getMadkitConfig().networkProperties.maxCoalescedMessagesSize) {
+					baos.close();
+					coalesceMessage(receiver, new CoalescedMessage(_data, bytes, _messageLocker));
+					return;
+				}
+			}
+			// messages must be sent in the same order than they were given
+			flushCoalescedMessages();
+
+			// the packet reads the serialized data from the stream itself, without copying
+			// it into an intermediate array. The stream is not closed since its buffer is shared with the packet.
+			WritePacket packet = getNewWritePacket(baos.getRandomInputStream(), _data.excludedFromEncryption());
+			sendPacketData(receiver, new PacketData(receiver, _data, packet, _messageLocker, last_message, isItAPriority,
+					_data.excludedFromEncryption()), _data);
+		} catch (PacketException | IOException e) {
+			try {
+				baos.close();
+			} catch (IOException ignored) {
+			}
+			throw new NIOException(e);
+		}
+	}
+
+	private WritePacket getNewWritePacket(RandomInputStream serializedData, boolean excludedFromEncryption)
+			throws PacketException, IOException {
+		return new WritePacket(PacketPartHead.TYPE_PACKET, getNewPacketID(),
+				getMadkitConfig().networkProperties.maxBufferSize,
+				excludedFromEncryption?0:getMadkitConfig().networkProperties.maxRandomPacketValues, random,
+				serializedData, paddingKeyStream);
+	}
+
+	private void sendPacketData(AgentAddress receiver, AbstractPacketData packetData, Object data) {
+		if (logger != null && logger.isLoggable(Level.FINEST))
+			logger.finest("Sending data (distantInterfacedKernelAddress=" + distant_kernel_address + ", packetID="
+					+ packetData.getIDPacket() + ") : " + data);
+
+		if (!sendMessage(receiver, new DistKernADataToUpgradeMessage(packetData)).equals(ReturnCode.SUCCESS))
+			logger.warning("Fail sending data (distantInterfacedKernelAddress=" + distant_kernel_address
+					+ ", packetID=" + packetData.getIDPacket() + ") : " + data);
+	}
+
+	private boolean isCoalescable(SystemMessageWithoutInnerSizeControl _data, boolean isItAPriority, boolean last_message) {
+		return getMadkitConfig().networkProperties.maxCoalescedMessagesSize > 0
+				&& !isItAPriority
+				&& !last_message
+				&& _data instanceof LanMessage
+				&& !(((LanMessage) _data).message instanceof BigDataPropositionMessage)
+				&& !((LanMessage) _data).message.excludedFromCompression()
+				&& !_data.excludedFromEncryption();
+	}
+
+	private void coalesceMessage(AgentAddress receiver, CoalescedMessage message) throws NIOException {
+		if (!receiver.equals(coalescedMessagesReceiver) || coalescedMessagesSize
+				+ message.serializedMessage.length > getMadkitConfig().networkProperties.maxCoalescedMessagesSize)
+			flushCoalescedMessages();
+		if (coalescedMessages.isEmpty()) {
+			coalescedMessagesReceiver = receiver;
+			final int batchID = coalescedMessagesBatchID;
+			long delay = (getMadkitConfig().networkProperties.coalescedMessagesFlushDelayInMicroseconds + 999L) / 1000L;
+			coalescedMessagesFlushTask = scheduleTask(new Task<>((Callable<Void>) () -> {
+				receiveMessage(new FlushCoalescedMessages(batchID));
+				return null;
+			}, System.currentTimeMillis() + delay));
+		}
+		coalescedMessages.add(message);
+		coalescedMessagesSize += message.serializedMessage.length;
+	}
+
+	private void flushCoalescedMessages() throws NIOException {
+		if (coalescedMessagesFlushTask != null) {
+			coalescedMessagesFlushTask.cancelTask(false);
+			coalescedMessagesFlushTask = null;
+		}
+		if (coalescedMessages.isEmpty())
+			return;
+		ArrayList<CoalescedMessage> messages = coalescedMessages;
+		AgentAddress receiver = coalescedMessagesReceiver;
+		coalescedMessages = new ArrayList<>();
+		coalescedMessagesReceiver = null;
+		coalescedMessagesSize = 0;
+		++coalescedMessagesBatchID;
+
+		try {
+			if (messages.size() == 1) {
+				CoalescedMessage cm = messages.get(0);
+				WritePacket packet = getNewWritePacket(new RandomByteArrayInputStream(cm.serializedMessage), false);
+				sendPacketData(receiver, new PacketData(receiver, cm.message, packet, cm.messageLocker, false, false, false),
+						cm.message);
+			} else {
+				ArrayList<byte[]> serializedMessages = new ArrayList<>(messages.size());
+				for (CoalescedMessage cm : messages)
+					serializedMessages.add(cm.serializedMessage);
+				CoalescedSystemMessages data = new CoalescedSystemMessages(serializedMessages);
+				RandomByteArrayOutputStream baos = new RandomByteArrayOutputStream();
+				baos.setObjectResolver(filteredObjectResolver);
+				baos.writeObject(data, false);
+				baos.flush();
+				WritePacket packet = getNewWritePacket(baos.getRandomInputStream(), false);
+				sendPacketData(receiver, new CoalescedPacketData(receiver, packet, messages), data);
+			}
 		} catch (PacketException | IOException e) {
+			for (CoalescedMessage cm : messages) {
+				try {
+					if (cm.messageLocker != null)
+						cm.messageLocker.unlock();
+				} catch (MadkitException ignored) {
+
+				}
+			}
 			throw new NIOException(e);
 		}
 	}
 
+	private static final class CoalescedMessage {
+		final SystemMessageWithoutInnerSizeControl message;
+		final byte[] serializedMessage;
+		final MessageLocker messageLocker;
+
+		CoalescedMessage(SystemMessageWithoutInnerSizeControl message, byte[] serializedMessage,
+				MessageLocker messageLocker) {
+			this.message = message;
+			this.serializedMessage = serializedMessage;
+			this.messageLocker = messageLocker;
+		}
+	}
+
+	static class FlushCoalescedMessages extends Message {
+		final int batchID;
+
+		FlushCoalescedMessages(int batchID) {
+			this.batchID = batchID;
+		}
+	}
+
 	public class FilteredObjectResolver extends SerializationTools.ObjectResolver {
 		private final NetworkProperties np;
 		public FilteredObjectResolver(NetworkProperties np) {
@@ -1958,9 +2095,14 @@ class DistantKernelAgent extends AgentFakeThread {
 
 			} else if (obj instanceof ConversationID) {
 				if (obj.getClass() == TaskID.class) {
-					return MadkitKernelAccess.getTaskIDInstance(MadkitKernelAccess
-							.getInterfacedConversationIDFromDistantPeer((ConversationID) obj, DistantKernelAgent.this,
-									getKernelAddress(), DistantKernelAgent.this.distant_kernel_address));
+					ConversationID cid = MadkitKernelAccess.getInterfacedConversationIDFromDistantPeer(
+							(ConversationID) obj, DistantKernelAgent.this, getKernelAddress(),
+							DistantKernelAgent.this.distant_kernel_address);
+					TaskID res = MadkitKernelAccess.getTaskIDInstance(cid);
+					//the task ID has its own references to the interfaced IDs
+					if (cid != obj)
+						MadkitKernelAccess.releaseInterfacedIDs(cid);
+					return res;
 				} else
 					return MadkitKernelAccess.getInterfacedConversationIDFromDistantPeer((ConversationID) obj,
 							DistantKernelAgent.this, getKernelAddress(),
@@ -1994,11 +2136,12 @@ class DistantKernelAgent extends AgentFakeThread {
 
 		private RealTimeTransferStat stat;
 		private IDTransfer idTransfer = null;
-		private final AtomicBoolean unlocked = new AtomicBoolean(false);
+		protected final AtomicBoolean unlocked = new AtomicBoolean(false);
 		protected final AgentAddress firstAgentSocketSender;
 		private final AgentAddress agentReceiver;
 		protected final AtomicBoolean isCanceled = new AtomicBoolean(false);
 		protected final boolean excludedFromEncryption;
+		protected boolean excludedFromCompression = false;
 		//private byte counterID=-1;
 		//private boolean currentCounterIDReleased=true;
 		//private final CounterSelector counterSelector;
@@ -2290,6 +2433,26 @@ class DistantKernelAgent extends AgentFakeThread {
 		}
 	}
 
+	/*
+	 * Releases the packet ID of a packet data, and unlocks its message if it was
+	 * not already unlocked. Does not reference the packet data itself.
+	 */
+	private static Runnable getPacketDataRelease(DistantKernelAgent agent, WritePacket packet,
+			MessageLocker messageLocker, AtomicBoolean unlocked) {
+		return () -> {
+			try {
+				if (messageLocker != null && unlocked.compareAndSet(false, true))
+					messageLocker.unlock(agent.distant_kernel_address, new DataTransferResult(
+							packet.getInputStream().length(), packet.getReadDataLength(),
+							packet.getReadDataLengthIncludingHash()));
+			} catch (Exception ignored) {
+
+			} finally {
+				agent.removePacketID(packet.getID());
+			}
+		};
+	}
+
 	class PacketData extends AbstractPacketData {
 
 		private final boolean last_message;
@@ -2298,6 +2461,8 @@ class DistantKernelAgent extends AgentFakeThread {
 
 		private final MessageLocker messageLocker;
 
+		private final ReferenceCleaner.Cleanable packetDataRelease;
+
 		protected PacketData(AgentAddress first_receiver, SystemMessageWithoutInnerSizeControl lan_message, WritePacket _packet,
 							 MessageLocker _messageLocker, boolean _last_message, boolean isItAPriority, boolean excludedFromEncryption) {
 			super(isItAPriority, first_receiver, _packet,
@@ -2308,6 +2473,7 @@ class DistantKernelAgent extends AgentFakeThread {
 			last_message = _last_message;
 
 			boolean isSystemMessage = !(lan_message instanceof LanMessage);
+			excludedFromCompression = !isSystemMessage && ((LanMessage) lan_message).message.excludedFromCompression();
 
 			this.original_lan_message = isSystemMessage ? null : (LanMessage) lan_message;
 
@@ -2315,6 +2481,8 @@ class DistantKernelAgent extends AgentFakeThread {
 			/*
 			 * if (messageLocker!=null) messageLocker.lock();
 			 */
+			packetDataRelease = ReferenceCleaner.register(this,
+					getPacketDataRelease(DistantKernelAgent.this, _packet, _messageLocker, unlocked));
 		}
 
 		/*@Override
@@ -2344,13 +2512,76 @@ class DistantKernelAgent extends AgentFakeThread {
 				} catch (IOException e) {
 					throw new MadkitException(e);
 				}
+				//the message being unlocked, only the packet ID is released
+				packetDataRelease.clean();
 			}
 		}
 
+	}
+
+	/*
+	 * Releases the packet ID of a coalesced packet data, and unlocks the messages
+	 * that were not already unlocked. Does not reference the packet data itself.
+	 */
+	private static Runnable getCoalescedPacketDataRelease(DistantKernelAgent agent, WritePacket packet,
+			MessageLocker[] messageLockers, int[] messageLengths, AtomicBoolean unlocked) {
+		return () -> {
+			try {
+				if (unlocked.compareAndSet(false, true)) {
+					for (int i = 0; i < messageLockers.length; i++) {
+						if (messageLockers[i] != null)
+							messageLockers[i].unlock(agent.distant_kernel_address,
+									new DataTransferResult(messageLengths[i], messageLengths[i], 0));
+					}
+				}
+			} catch (Exception ignored) {
+
+			} finally {
+				agent.removePacketID(packet.getID());
+			}
+		};
+	}
+
+	class CoalescedPacketData extends AbstractPacketData {
+
+		private final MessageLocker[] messageLockers;
+
+		private final int[] messageLengths;
+
+		private final ReferenceCleaner.Cleanable packetDataRelease;
+
+		protected CoalescedPacketData(AgentAddress first_receiver, WritePacket _packet, List<CoalescedMessage> messages) {
+			super(false, first_receiver, _packet, null, false);
+			if (_packet.concernsBigData())
+				throw new IllegalArgumentException("_packet cannot use big data !");
+			messageLockers = new MessageLocker[messages.size()];
+			messageLengths = new int[messages.size()];
+			for (int i = 0; i < messageLockers.length; i++) {
+				CoalescedMessage cm = messages.get(i);
+				messageLockers[i] = cm.messageLocker;
+				messageLengths[i] = cm.serializedMessage.length;
+			}
+			packetDataRelease = ReferenceCleaner.register(this, getCoalescedPacketDataRelease(DistantKernelAgent.this,
+					_packet, messageLockers, messageLengths, unlocked));
+		}
+
 		@Override
-		public void finalize() {
-			removePacketID(packet.getID());
-			super.finalize();
+		public void unlockMessage() throws MadkitException {
+			synchronized (this) {
+				if (!isUnlocked()) {
+					finishLastStat();
+					// each coalesced message is considered as sent only when the whole packet is sent
+					boolean sent = packet.isFinished() && (currentByteBuffer == null || currentByteBuffer.remaining() == 0);
+					for (int i = 0; i < messageLockers.length; i++) {
+						if (messageLockers[i] != null)
+							messageLockers[i].unlock(distant_kernel_address, new DataTransferResult(messageLengths[i],
+									messageLengths[i], sent ? messageLengths[i] : 0));
+					}
+				}
+				super.unlockMessage();
+				//the messages being unlocked, only the packet ID is released
+				packetDataRelease.clean();
+			}
 		}
 
 	}
@@ -2751,7 +2982,9 @@ class DistantKernelAgent extends AgentFakeThread {
 	}
 
 	public void receiveData(AgentAddress agent_socket_sender, Object obj, long dataSize) {
-		if (obj instanceof SystemMessageWithoutInnerSizeControl) {
+		if (obj instanceof CoalescedSystemMessages) {
+			receiveCoalescedData(agent_socket_sender, (CoalescedSystemMessages) obj, dataSize);
+		} else if (obj instanceof SystemMessageWithoutInnerSizeControl) {
 			SystemMessageWithoutInnerSizeControl sm = ((SystemMessageWithoutInnerSizeControl) obj);
 			if (logger != null && logger.isLoggable(Level.FINEST))
 				logger.finest("Receiving system message from " + agent_socket_sender
@@ -2763,6 +2996,40 @@ class DistantKernelAgent extends AgentFakeThread {
 			processInvalidSerializedObject(agent_socket_sender, null, obj, true);
 	}
 
+	private void receiveCoalescedData(AgentAddress agent_socket_sender, CoalescedSystemMessages coalescedMessages,
+			long dataSize) {
+		if (logger != null && logger.isLoggable(Level.FINEST))
+			logger.finest("Receiving coalesced messages from " + agent_socket_sender
+					+ " (distantInterfacedKernelAddress=" + distant_kernel_address + ") : " + coalescedMessages);
+		// each message is delivered separately and frees its own part of the data queue when it is read
+		long remainingDataSize = dataSize;
+		for (byte[] bytes : coalescedMessages.getSerializedMessages()) {
+			try (RandomByteArrayInputStream bais = new RandomByteArrayInputStream(bytes)) {
+				bais.setObjectResolver(filteredObjectResolver);
+				Object obj = bais.readObject(false);
+				if (obj instanceof LanMessage) {
+					long size = Math.min(remainingDataSize, bytes.length);
+					remainingDataSize -= size;
+					receiveData(agent_socket_sender, obj, size);
+				} else {
+					processInvalidSerializedObject(agent_socket_sender, null, obj, true);
+					break;
+				}
+			}
+			catch(MessageExternalizationException e)
+			{
+				processInvalidSerializedObject(agent_socket_sender, e, bytes, e.getIntegrity().equals(Integrity.FAIL_AND_CANDIDATE_TO_BAN));
+				break;
+			}
+			catch (IOException | ClassNotFoundException e) {
+				processInvalidSerializedObject(agent_socket_sender, e, bytes, true);
+				break;
+			}
+		}
+		if (remainingDataSize > 0)
+			decrementTotalDataQueue(remainingDataSize);
+	}
+
 	class ReceivedSerializableObject extends ObjectMessage<SystemMessageWithoutInnerSizeControl> {
 
 
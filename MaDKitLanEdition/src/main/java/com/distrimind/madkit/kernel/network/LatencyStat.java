@@ -0,0 +1,175 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel.network;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class represents the round trip latencies observed on a connection,
+ * measured between the sending of a ping message and the reception of the
+ * corresponding pong message. Latencies are stored into a log-linear
+ * histogram, so that percentiles can be exported with a relative precision of
+ * 12.5%, without locking and with a constant memory footprint. This class is
+ * thread safe.
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+public class LatencyStat {
+	private static final int LINEAR_BUCKETS = 16;
+	private static final int SUB_BUCKETS_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKETS_BITS;
+	private static final int FIRST_EXPONENT = 4;
+	private static final int BUCKETS = LINEAR_BUCKETS + (63 - FIRST_EXPONENT) * SUB_BUCKETS;
+
+	private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong(0);
+	private final AtomicLong sum = new AtomicLong(0);
+	private final AtomicLong max = new AtomicLong(0);
+	private volatile long last = -1;
+
+	static int getBucketIndex(long value) {
+		if (value < LINEAR_BUCKETS)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) ((value >>> (exponent - SUB_BUCKETS_BITS)) & (SUB_BUCKETS - 1));
+		return LINEAR_BUCKETS + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + sub;
+	}
+
+	static long getBucketUpperBound(int index) {
+		if (index < LINEAR_BUCKETS)
+			return index;
+		int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + FIRST_EXPONENT;
+		long sub = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+		return (1L << exponent) + ((sub + 1) << (exponent - SUB_BUCKETS_BITS)) - 1;
+	}
+
+	/**
+	 * Inform that a new round trip latency has been measured
+	 * 
+	 * @param latencyInMilliseconds
+	 *            the measured latency in milliseconds
+	 */
+	public void newLatencyIdentified(long latencyInMilliseconds) {
+		if (latencyInMilliseconds < 0)
+			latencyInMilliseconds = 0;
+		histogram.incrementAndGet(getBucketIndex(latencyInMilliseconds));
+		count.incrementAndGet();
+		sum.addAndGet(latencyInMilliseconds);
+		long m;
+		while ((m = max.get()) < latencyInMilliseconds && !max.compareAndSet(m, latencyInMilliseconds))
+			;
+		last = latencyInMilliseconds;
+	}
+
+	/**
+	 * 
+	 * @return the number of measured latencies
+	 */
+	public long getNumberOfMeasures() {
+		return count.get();
+	}
+
+	/**
+	 * 
+	 * @return the last measured latency in milliseconds, or -1 if no latency was
+	 *         measured
+	 */
+	public long getLastLatency() {
+		return last;
+	}
+
+	/**
+	 * 
+	 * @return the maximum measured latency in milliseconds
+	 */
+	public long getMaxLatency() {
+		return max.get();
+	}
+
+	/**
+	 * 
+	 * @return the average latency in milliseconds, or 0 if no latency was measured
+	 */
+	public double getAverageLatency() {
+		long c = count.get();
+		if (c == 0)
+			return 0;
+		return ((double) sum.get()) / ((double) c);
+	}
+
+	/**
+	 * Gets the latency percentile. The returned value is the upper bound of the
+	 * histogram bucket containing the percentile.
+	 * 
+	 * @param percentile
+	 *            the percentile, between 0 and 100 (i.e. 99 for the 99th
+	 *            percentile)
+	 * @return the latency percentile in milliseconds, or 0 if no latency was
+	 *         measured
+	 */
+	public long getLatencyPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException();
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = histogram.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+		long cumulated = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			cumulated += snapshot[i];
+			if (cumulated >= rank)
+				return Math.min(getBucketUpperBound(i), max.get());
+		}
+		return max.get();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[measures=" + getNumberOfMeasures() + ", average="
+				+ getAverageLatency() + "ms, p50=" + getLatencyPercentile(50) + "ms, p99="
+				+ getLatencyPercentile(99) + "ms, max=" + getMaxLatency() + "ms]";
+	}
+}
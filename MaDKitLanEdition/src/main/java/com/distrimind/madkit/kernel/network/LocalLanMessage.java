@@ -41,6 +41,7 @@ package com.distrimind.madkit.kernel.network;
 import com.distrimind.madkit.kernel.Message;
 import com.distrimind.madkit.kernel.network.DistantKernelAgent.ReceivedSerializableObject;
 import com.distrimind.madkit.util.NetworkMessage;
+import com.distrimind.madkit.util.ReferenceCleaner;
 
 /**
  * 
@@ -56,6 +57,7 @@ public class LocalLanMessage extends Message {
 	private final MessageLocker locker;
 	protected ReceivedSerializableObject originalMessage;
 	protected boolean readyForInjection = false;
+	private final ReferenceCleaner.Cleanable originalMessageRelease;
 	// int id_packet=-1;
 
 	
@@ -67,6 +69,7 @@ public class LocalLanMessage extends Message {
 		message = _message;
 		locker = new MessageLocker(this);
 		this.originalMessage = originalMessage;
+		this.originalMessageRelease = registerOriginalMessageRelease(originalMessage);
 	}
 
 	protected LocalLanMessage(LocalLanMessage This, Message _message, ReceivedSerializableObject originalMessage,
@@ -78,6 +81,14 @@ public class LocalLanMessage extends Message {
 		message = _message;
 		this.locker = locker;
 		this.originalMessage = originalMessage;
+		this.originalMessageRelease = registerOriginalMessageRelease(originalMessage);
+	}
+
+	private ReferenceCleaner.Cleanable registerOriginalMessageRelease(ReceivedSerializableObject originalMessage) {
+		if (originalMessage == null)
+			return null;
+		//the original message is marked as read if this message is never read
+		return ReferenceCleaner.register(this, originalMessage::markDataAsRead);
 	}
 
 	@Override
@@ -93,7 +104,7 @@ public class LocalLanMessage extends Message {
 			MadkitKernelAccess.setSender(message, getSender());
 
 			if (originalMessage != null) {
-				originalMessage.markDataAsRead();
+				originalMessageRelease.clean();
 				originalMessage = null;
 			}
 			return MadkitKernelAccess.markAsRead(message);
@@ -106,15 +117,6 @@ public class LocalLanMessage extends Message {
 		readyForInjection = true;
 	}
 
-	@SuppressWarnings("deprecation")
-	@Override
-	public void finalize() {
-		if (originalMessage != null) {
-			originalMessage.markDataAsRead();
-			originalMessage = null;
-		}
-	}
-
 	/*
 	 * protected LocalLanMessage(MessageLocker _message_locker, Message _message) {
 	 * message=_message; locker=_message_locker; locker.lock(); }
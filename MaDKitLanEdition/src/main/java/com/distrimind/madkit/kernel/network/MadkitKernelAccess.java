@@ -171,6 +171,16 @@ class MadkitKernelAccess {
 		return null;
 	}
 
+	static void releaseInterfacedIDs(ConversationID conversationID) {
+		try {
+			invoke(m_release_interfaced_ids, conversationID);
+		} catch (InvocationTargetException e) {
+			System.err.println("Unexpected error :");
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+
 	static RandomInputStream getInputStream(BigDataPropositionMessage m) {
 		try {
 			return (RandomInputStream) invoke(m_get_big_data_stream, m);
@@ -317,6 +327,7 @@ class MadkitKernelAccess {
 	private static final Method m_set_message_sender;
 	private static final Method m_get_interfaced_conversation_id_from_distant;
 	private static final Method m_get_interfaced_conversation_id_to_distant;
+	private static final Method m_release_interfaced_ids;
 	private static final Method m_get_big_data_stream;
 	private static final Method m_get_big_data_id_packet;
 	private static final Method m_get_big_data_output_stream;
@@ -346,6 +357,7 @@ class MadkitKernelAccess {
 				"getInterfacedConversationIDToDistantPeer", Map.class, KernelAddress.class, KernelAddress.class);
 		m_get_interfaced_conversation_id_from_distant = getMethod(ConversationID.class,
 				"getInterfacedConversationIDFromDistantPeer", Map.class, KernelAddress.class, KernelAddress.class);
+		m_release_interfaced_ids = getMethod(ConversationID.class, "releaseInterfacedIDs");
 		m_get_big_data_stream = getMethod(BigDataPropositionMessage.class, "getInputStream");
 		m_get_big_data_id_packet = getMethod(BigDataPropositionMessage.class, "getIDPacket");
 		m_get_big_data_output_stream = getMethod(BigDataPropositionMessage.class, "getOutputStream");
@@ -45,6 +45,8 @@ import com.distrimind.madkit.kernel.KernelAddress;
 import com.distrimind.madkit.kernel.Message;
 import com.distrimind.util.concurrent.LockerCondition;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 
  * @author Jason Mahdjoub
@@ -55,6 +57,7 @@ public final class MessageLocker extends LockerCondition {
 	private int lock_number = 0;
 	private final TransfersReturnsCodes returns_code;
 	private boolean firstLockDone = false;
+	private CompletableFuture<ReturnCode> transferFuture = null;
 
 	public MessageLocker(Message localLanMessage) {
 		this();
@@ -92,17 +95,22 @@ public final class MessageLocker extends LockerCondition {
 	}
 
 	public void unlock() throws MadkitException {
+		CompletableFuture<ReturnCode> future = null;
 		synchronized (getLocker()) {
 			--lock_number;
 
 			if (lock_number < 0)
 				throw new MadkitException("unexpected exception !");
-			if (lock_number == 0)
+			if (lock_number == 0) {
 				notifyLocker();
+				future = pollTransferFuture();
+			}
 		}
+		completeTransferFuture(future);
 	}
 
 	void unlock(KernelAddress ka, DataTransferResult report) throws MadkitException {
+		CompletableFuture<ReturnCode> future = null;
 		synchronized (getLocker()) {
 			--lock_number;
 
@@ -115,9 +123,10 @@ public final class MessageLocker extends LockerCondition {
 				throw new MadkitException("unexpected exception !");
 			if (lock_number == 0) {
 				notifyLocker();
+				future = pollTransferFuture();
 			}
 		}
-
+		completeTransferFuture(future);
 	}
 
 	public ReturnCode waitUnlock(AbstractAgent requester, boolean messageSentHasRecipient) throws InterruptedException {
@@ -126,6 +135,57 @@ public final class MessageLocker extends LockerCondition {
 			MadkitKernelAccess.waitMessageSent(requester, this);
 			// requester.wait(this);
 		}
+		return getTransferResult();
+	}
+
+	/**
+	 * Completes the given future when the message has been transferred, or when
+	 * the lock has been canceled, without blocking the current thread. The future
+	 * is completed with the same return code than the one returned by
+	 * {@link #waitUnlock(AbstractAgent, boolean)}.
+	 * 
+	 * @param future
+	 *            the future to complete
+	 */
+	public void completeWhenUnlocked(CompletableFuture<ReturnCode> future) {
+		if (future == null)
+			throw new NullPointerException("future");
+		boolean unlocked;
+		synchronized (getLocker()) {
+			unlocked = isCanceled() || !isLocked();
+			if (!unlocked) {
+				if (transferFuture != null)
+					throw new IllegalStateException("A future is already waiting for this message");
+				transferFuture = future;
+			}
+		}
+		if (unlocked)
+			future.complete(getTransferResult());
+	}
+
+	@Override
+	public void cancelLock() {
+		super.cancelLock();
+		CompletableFuture<ReturnCode> future;
+		synchronized (getLocker()) {
+			future = pollTransferFuture();
+		}
+		completeTransferFuture(future);
+	}
+
+	private CompletableFuture<ReturnCode> pollTransferFuture() {
+		CompletableFuture<ReturnCode> res = transferFuture;
+		transferFuture = null;
+		return res;
+	}
+
+	private void completeTransferFuture(CompletableFuture<ReturnCode> future) {
+		//completed outside the lock since dependent actions are run by the current thread
+		if (future != null)
+			future.complete(getTransferResult());
+	}
+
+	private ReturnCode getTransferResult() {
 		return this.isCanceled() ? ReturnCode.TRANSFER_IN_PROGRESS : returns_code.getReturnCode();
 	}
 
@@ -41,6 +41,7 @@ import java.io.IOException;
 import java.net.*;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
@@ -57,6 +58,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 import com.distrimind.madkit.agr.LocalCommunity;
+import com.distrimind.madkit.database.IPBanStat;
 import com.distrimind.madkit.exceptions.ConnectionException;
 import com.distrimind.madkit.exceptions.MadkitException;
 import com.distrimind.madkit.exceptions.OverflowException;
@@ -76,6 +78,8 @@ import com.distrimind.madkit.kernel.network.TransferAgent.IDTransfer;
 import com.distrimind.madkit.kernel.network.TransferAgent.TryDirectConnection;
 import com.distrimind.madkit.kernel.network.connection.ConnectionProtocol.ConnectionClosedReason;
 import com.distrimind.madkit.message.ObjectMessage;
+import com.distrimind.madkit.util.ReferenceCleaner;
+import com.distrimind.ood.database.exceptions.DatabaseException;
 import com.distrimind.util.Timer;
 import com.distrimind.util.concurrent.LockerCondition;
 
@@ -125,7 +129,13 @@ final class NIOAgent extends Agent {
 	// The selector we'll be monitoring
 	protected final Selector selector;
 
-	// The buffer into which we'll read data when it's available
+	// The buffers into which we'll read data when it's available. They are given
+	// back by agent sockets once the read blocks are parsed
+	private BlockBufferPool readBufferPool;
+
+	// The selector threads among which established connections are shared. When
+	// empty, connections are managed by the selector of this agent
+	private SelectorShard[] selectorShards = new SelectorShard[0];
 	
 
 	protected HashMap<AgentNetworkID, PersonalSocket> personal_sockets = new HashMap<>();
@@ -141,9 +151,10 @@ final class NIOAgent extends Agent {
 	private boolean stopping = false;
 	protected AgentAddress myAgentAddress = null;
 	protected long localOnlineTime = -1;
-	protected long delayToWaitToRespectGlobalBandwidthLimit=0;
-    private RealTimeTransferStat realTimeGlobalDownloadStat =null, realTimeGlobalUploadStat=null;
-    private double realTimeDownloadStatDuration=0.0, realTimeUploadStatDuration=0.0;
+	// global token buckets, shared by the selector threads
+	private TokenBucket globalUploadBucket = null, globalDownloadBucket = null;
+	private final ThrottledSockets throttledSockets = new ThrottledSockets();
+	private IPBanStat ipBanStat = null;
 
 	NIOAgent() throws ConnectionException {
 		/*
@@ -194,13 +205,37 @@ final class NIOAgent extends Agent {
 		if (logger != null && logger.isLoggable(Level.FINE))
 			logger.fine("Launching NIOAgent ...");
 		localOnlineTime = System.currentTimeMillis();
-        this.realTimeGlobalDownloadStat =getMadkitConfig().networkProperties.getGlobalStatsBandwidth().getBytesDownloadedInRealTime(NetworkProperties.DEFAULT_TRANSFER_STAT_IN_REAL_TIME_PER_ONE_SECOND_SEGMENTS);
-        this.realTimeGlobalUploadStat=getMadkitConfig().networkProperties.getGlobalStatsBandwidth().getBytesUploadedInRealTime(NetworkProperties.DEFAULT_TRANSFER_STAT_IN_REAL_TIME_PER_ONE_SECOND_SEGMENTS);
-        this.realTimeDownloadStatDuration=((double)this.realTimeGlobalDownloadStat.getDurationMilli())/1000.0;
-        this.realTimeUploadStatDuration=((double)this.realTimeGlobalUploadStat.getDurationMilli())/1000.0;
+		this.globalDownloadBucket = new TokenBucket(getMadkitConfig().networkProperties.bandwidthBurstDurationInMs);
+		this.globalUploadBucket = new TokenBucket(getMadkitConfig().networkProperties.bandwidthBurstDurationInMs);
+		if (getMadkitConfig().getDatabaseWrapper() != null) {
+			try {
+				NetworkProperties np = getMadkitConfig().networkProperties;
+				ipBanStat = getMadkitConfig().getDatabaseWrapper().getTableInstance(IPBanStat.class);
+				ipBanStat.getCache().setParameters(np.maximumSizeOfIPBanCache,
+						Math.min(np.expulsionDuration, np.banishmentDuration));
+			} catch (DatabaseException e) {
+				if (logger != null)
+					logger.severeLog("Database exception", e);
+			}
+		}
 		this.requestRole(LocalCommunity.Groups.NETWORK, LocalCommunity.Roles.NIO_ROLE);
 		this.requestRole(LocalCommunity.Groups.LOCAL_NETWORKS, LocalCommunity.Roles.NIO_ROLE);
 		myAgentAddress = this.getAgentAddressIn(LocalCommunity.Groups.NETWORK, LocalCommunity.Roles.NIO_ROLE);
+		readBufferPool = new BlockBufferPool(getMadkitConfig().networkProperties.maxSizeOfReadBufferPool,
+				getMadkitConfig().networkProperties.minBlockSizeOfReadBufferPool);
+		int nbShards = Math.max(0, getMadkitConfig().networkProperties.numberOfNIOSelectorThreads);
+		ArrayList<SelectorShard> shards = new ArrayList<>(nbShards);
+		try {
+			for (int i = 0; i < nbShards; i++)
+				shards.add(new SelectorShard(i));
+		} catch (IOException e) {
+			if (logger != null)
+				logger.log(Level.SEVERE, "Impossible to open selector threads. Only " + shards.size()
+						+ " selector threads are used.", e);
+		}
+		selectorShards = shards.toArray(new SelectorShard[0]);
+		for (SelectorShard s : selectorShards)
+			s.start();
 
 		if (logger != null && logger.isLoggable(Level.FINE))
 			logger.fine("NIOAgent LAUNCHED !");
@@ -222,9 +257,14 @@ final class NIOAgent extends Agent {
 
 		pending_connections.clear();
 
+		for (SelectorShard s : selectorShards)
+			s.close();
+
 		for (PersonalSocket ps : ((ArrayList<PersonalSocket>) this.personal_sockets_list.clone()))
 			if (!ps.isClosed())
 				ps.closeConnection(ConnectionClosedReason.CONNECTION_LOST);
+			else if (ps.shard != null)
+				ps.finishCloseConnection();
 
 		this.personal_sockets.clear();
 		this.personal_sockets_list.clear();
@@ -264,60 +304,72 @@ final class NIOAgent extends Agent {
 
 	}
 
-	private long getDownloadToWaitInMsToBecomeUnderBandwidthLimit()
-    {
-        long max=getMaximumGlobalDownloadSpeedInBytesPerSecond();
-
-        if (max!=Integer.MAX_VALUE)
-        {
-			double l= (double)(max*2L);
-
-            if (realTimeGlobalDownloadStat.isOneCycleDone()) {
-                double v = ((double) realTimeGlobalDownloadStat.getNumberOfIdentifiedBytes()) / realTimeDownloadStatDuration ;
-                if (v >= l) {
-                    return (long) ((v - l) / l * 1000.0);
-                }
-            }
-        }
-
-        return 0;
-    }
-
-    private long getUploadToWaitInMsToBecomeUnderBandwidthLimit()
-    {
-        long max=getMaximumGlobalUploadSpeedInBytesPerSecond();
-
-
-        if (max!=Integer.MAX_VALUE)
-        {
-			double l= (double)(max*2L);
-
-            if (realTimeGlobalUploadStat.isOneCycleDone()) {
-
-                double v = ((double) realTimeGlobalUploadStat.getNumberOfIdentifiedBytes()) / realTimeUploadStatDuration ;
-                if (v>=l)
-                {
-                    return (long)((v-l)/l*1000.0);
-                }
-            }
-
-        }
-
+	/**
+	 * Update the global token buckets with the current limits
+	 * 
+	 * @return true if a bandwidth limit must be respected
+	 */
+	private boolean updateBandwidthLimits() {
+		NetworkProperties np = getMadkitConfig().networkProperties;
+		globalDownloadBucket.setRate(getMaximumGlobalDownloadSpeedInBytesPerSecond());
+		globalUploadBucket.setRate(getMaximumGlobalUploadSpeedInBytesPerSecond());
+		return hasNetworkSpeedLimitationDuringDownloadOrDuringUpload() || np.maximumDownloadSpeedPerConnectionInBytesPerSecond != Integer.MAX_VALUE
+				|| np.maximumUploadSpeedPerConnectionInBytesPerSecond != Integer.MAX_VALUE;
+	}
 
-        return 0;
-    }
+	/**
+	 * Sockets whose reads or writes are suspended until tokens are available.
+	 * Each instance is only used by the thread of its selector.
+	 */
+	private final class ThrottledSockets {
+		private final ArrayList<PersonalSocket> sockets = new ArrayList<>();
+		private long nextWakeUpNano = Long.MAX_VALUE;
 
+		void add(PersonalSocket ps, long wakeUpNano) {
+			if (!sockets.contains(ps))
+				sockets.add(ps);
+			if (wakeUpNano < nextWakeUpNano)
+				nextWakeUpNano = wakeUpNano;
+		}
 
+		/**
+		 * 
+		 * @param delay
+		 *            the default selector delay in milliseconds
+		 * @return the delay in milliseconds to give to the selector, or 0 if some
+		 *         sockets must be resumed now
+		 */
+		long getSelectorDelay(long delay) {
+			if (sockets.size() == 0)
+				return delay;
+			long d = nextWakeUpNano - System.nanoTime();
+			if (d <= 0)
+				return 0;
+			return Math.max(1, Math.min(delay, (d + 999999) / 1000000));
+		}
 
-	@SuppressWarnings("deprecation")
-	@Override
-	public void finalize() {
-		closeAllNow();
+		void resumeSockets() {
+			if (sockets.size() == 0)
+				return;
+			long now = System.nanoTime();
+			if (now < nextWakeUpNano)
+				return;
+			nextWakeUpNano = Long.MAX_VALUE;
+			for (Iterator<PersonalSocket> it = sockets.iterator(); it.hasNext();) {
+				PersonalSocket ps = it.next();
+				if (ps.resumeThrottledOperations(now))
+					it.remove();
+				else
+					nextWakeUpNano = Math.min(nextWakeUpNano, ps.getThrottledUntilNano());
+			}
+		}
 	}
 
 	@Override
 	protected void end() {
 		closeAllNow();
+		if (readBufferPool != null && logger != null && logger.isLoggable(Level.FINE))
+			logger.fine("Read buffers : " + readBufferPool);
 
 		if (logger != null && logger.isLoggable(Level.INFO))
 			logger.info("NIOAgent KILLED !");
@@ -338,23 +390,9 @@ final class NIOAgent extends Agent {
 			// Wait for an event one of the registered channels
 			long delay;
 			if (pending_connections.size() > 0)
-				delay = getMadkitConfig().networkProperties.selectorTimeOutWhenWaitingPendingConnections;
+				delay = throttledSockets.getSelectorDelay(getMadkitConfig().networkProperties.selectorTimeOutWhenWaitingPendingConnections);
 			else {
-                delay = getMadkitConfig().networkProperties.selectorTimeOut;
-
-                if (delayToWaitToRespectGlobalBandwidthLimit > 0) {
-
-                    delayToWaitToRespectGlobalBandwidthLimit -= System.currentTimeMillis();
-
-                    if (delayToWaitToRespectGlobalBandwidthLimit > 0) {
-                        this.sleep(delayToWaitToRespectGlobalBandwidthLimit);
-
-                        delay -= delayToWaitToRespectGlobalBandwidthLimit;
-                        if (delay < 0)
-                            delay = 0;
-                        delayToWaitToRespectGlobalBandwidthLimit = 0;
-                    }
-                }
+                delay = throttledSockets.getSelectorDelay(getMadkitConfig().networkProperties.selectorTimeOut);
             }
             if (delay>0) {
 				this.selector.select(delay);
@@ -372,25 +410,19 @@ final class NIOAgent extends Agent {
 						connections_to_close.add(ps);
 					}
 				} else {
-					StatsBandwidth sb = ps.agentSocket.getStatistics();
-					RealTimeTransferStat upload = sb.getBytesUploadedInRealTime(
-							NetworkProperties.DEFAULT_TRANSFER_STAT_IN_REAL_TIME_PER_30_SECONDS_SEGMENTS);
+					RealTimeTransferStat upload = ps.getUploadStatPer30Seconds();
 					boolean ping = false;
 					if (ps.hasDataToSend() && upload.getNumberOfIdentifiedBytes() == 0 && System.currentTimeMillis()
 							- ps.getLastDataWroteUTC() > getMadkitConfig().networkProperties.connectionTimeOut) {
 
 						ping = true;
 					} else {
-						RealTimeTransferStat download = sb.getBytesDownloadedInRealTime(
-								NetworkProperties.DEFAULT_TRANSFER_STAT_IN_REAL_TIME_PER_30_SECONDS_SEGMENTS);
+						RealTimeTransferStat download = ps.getDownloadStatPer30Seconds();
 
 						if (download.getNumberOfIdentifiedBytes() == 0 && upload.getNumberOfIdentifiedBytes() == 0
 								&& download.isOneCycleDone() && upload.isOneCycleDone()) {
 							ping = true;
-						} else if (sb
-								.getBytesDownloadedInRealTime(
-										NetworkProperties.DEFAULT_TRANSFER_STAT_IN_REAL_TIME_PER_5_MINUTES_SEGMENTS)
-								.getNumberOfIdentifiedBytes() == 0
+						} else if (ps.getDownloadStatPer5Minutes().getNumberOfIdentifiedBytes() == 0
 								&& System.currentTimeMillis() - ps
 										.getLastDataWroteUTC() > getMadkitConfig().networkProperties.connectionTimeOut) {
 							ping = true;
@@ -707,90 +739,7 @@ final class NIOAgent extends Agent {
 				m = nextMessage();
 			}
 
-            // Iterate over the set of keys for which events are available
-			Set<SelectionKey> selectedKeys=this.selector.selectedKeys();
-			Iterator<SelectionKey> selectedKeysIterator = selectedKeys.iterator();
-			boolean hasSpeedLimitation=hasNetworkSpeedLimitationDuringDownloadOrDuringUpload();
-            long limitDownload=Long.MIN_VALUE;
-            long limitUpload=Long.MIN_VALUE;
-			while (selectedKeysIterator.hasNext()) {
-				SelectionKey key = selectedKeysIterator.next();
-
-				/*
-				 * if (((Map<?, ?>) key.attachment()).get(channelType).equals( serverChannel)) {
-				 * 
-				 * }
-				 */
-				if (!key.channel().isOpen() || !key.isValid()) {
-					if (hasSpeedLimitation)
-                    	selectedKeysIterator.remove();
-				}
-				else if (key.isAcceptable()) {
-					if (hasSpeedLimitation)
-                    	selectedKeysIterator.remove();
-					this.accept(key);
-				} else {
-					if (key.isReadable()) {
-						if (hasSpeedLimitation) {
-							long ld = getDownloadToWaitInMsToBecomeUnderBandwidthLimit();
-							if (ld > 0) {
-								long curTime = System.currentTimeMillis();
-								limitDownload = ld + curTime;
-								if (limitUpload > curTime) {
-									this.delayToWaitToRespectGlobalBandwidthLimit = Math.min(limitDownload, limitUpload);
-									return;
-								}
-								continue;
-							}
-							selectedKeysIterator.remove();
-						}
-						SelectableChannel sc = key.channel();
-						if (sc instanceof SocketChannel)
-							((PersonalSocket) key.attachment()).read(key);
-						else if (sc instanceof DatagramChannel) {
-							personal_datagram_channels.get(sc).read(key);
-						}
-					} else if (key.isValid() && key.isWritable()) {
-						if (hasSpeedLimitation) {
-							long lu = getUploadToWaitInMsToBecomeUnderBandwidthLimit();
-
-							if (lu > 0) {
-								long curTime = System.currentTimeMillis();
-								limitUpload = lu + curTime;
-								if (limitDownload > curTime) {
-									this.delayToWaitToRespectGlobalBandwidthLimit = Math.min(limitDownload, limitUpload);
-									return;
-								}
-								continue;
-							}
-							selectedKeysIterator.remove();
-						}
-						SelectableChannel sc = key.channel();
-						if (sc instanceof SocketChannel) {
-							PersonalSocket ps = (PersonalSocket) key.attachment();
-							if (ps != null)
-								ps.write(key);
-							else if (logger != null)
-								logger.warning("Personal socket not found " + sc);
-						} else {
-							personal_datagram_channels.get(sc).write(key);
-						}
-
-					}
-					else if (hasSpeedLimitation)
-                        selectedKeysIterator.remove();
-
-				}
-			}
-			if (!hasSpeedLimitation)
-				selectedKeys.clear();
-            long curTime=System.currentTimeMillis();
-			if (limitDownload>curTime)
-			    this.delayToWaitToRespectGlobalBandwidthLimit=limitDownload;
-			else if (limitUpload>curTime)
-                this.delayToWaitToRespectGlobalBandwidthLimit=limitUpload;
-			else
-                this.delayToWaitToRespectGlobalBandwidthLimit=0;
+			processSelectedKeys(this.selector, throttledSockets);
 
 		} catch (SelfKillException e) {
 			throw e;
@@ -802,6 +751,61 @@ final class NIOAgent extends Agent {
 
 	}
 
+	/**
+	 * Process the keys selected by the given selector, while respecting
+	 * bandwidth limits. Sockets that exceed their bandwidth are removed from the
+	 * corresponding interest set until tokens are available again.
+	 * 
+	 * @param _selector
+	 *            the selector
+	 * @param throttledSockets
+	 *            the sockets throttled by this selector
+	 */
+	private void processSelectedKeys(Selector _selector, ThrottledSockets throttledSockets) throws MadkitException, IOException {
+		boolean hasSpeedLimitation=updateBandwidthLimits();
+		throttledSockets.resumeSockets();
+		// Iterate over the set of keys for which events are available
+		Set<SelectionKey> selectedKeys=_selector.selectedKeys();
+		for (SelectionKey key : selectedKeys) {
+			/*
+			 * if (((Map<?, ?>) key.attachment()).get(channelType).equals( serverChannel)) {
+			 * 
+			 * }
+			 */
+			if (!key.channel().isOpen() || !key.isValid())
+				continue;
+			if (key.isAcceptable()) {
+				this.accept(key);
+			} else {
+				SelectableChannel sc = key.channel();
+				if (key.isReadable()) {
+					if (sc instanceof SocketChannel) {
+						PersonalSocket ps = (PersonalSocket) key.attachment();
+						if (!hasSpeedLimitation || ps.acquireDownload(key, throttledSockets))
+							ps.read(key);
+					}
+					else if (sc instanceof DatagramChannel) {
+						personal_datagram_channels.get(sc).read(key);
+					}
+				} else if (key.isValid() && key.isWritable()) {
+					if (sc instanceof SocketChannel) {
+						PersonalSocket ps = (PersonalSocket) key.attachment();
+						if (ps == null) {
+							if (logger != null)
+								logger.warning("Personal socket not found " + sc);
+						}
+						else if (!hasSpeedLimitation || ps.acquireUpload(key, throttledSockets))
+							ps.write(key);
+					} else {
+						personal_datagram_channels.get(sc).write(key);
+					}
+
+				}
+			}
+		}
+		selectedKeys.clear();
+	}
+
 	private void bindDatagramData(InetSocketAddress addr) {
 		try {
 			if (!stopping && getMadkitConfig().networkProperties.autoConnectWithLocalSitePeers
@@ -914,7 +918,7 @@ final class NIOAgent extends Agent {
 			try {
 				sc.finishConnect();
 
-				SelectionKey clientKey = sc.register(this.selector, SelectionKey.OP_READ);
+				SelectionKey clientKey = registerSocketChannel(sc);
 				addSocket(ip, sc, true, clientKey);
 			} catch (IOException e) {
 				if (logger != null)
@@ -929,6 +933,42 @@ final class NIOAgent extends Agent {
 		}
 	}
 
+	private SelectionKey registerSocketChannel(SocketChannel socketChannel) throws ClosedChannelException {
+		if (selectorShards.length == 0)
+			return socketChannel.register(this.selector, SelectionKey.OP_READ);
+		SelectorShard shard = selectorShards[0];
+		for (int i = 1; i < selectorShards.length; i++) {
+			if (selectorShards[i].numberOfSockets < shard.numberOfSockets)
+				shard = selectorShards[i];
+		}
+		return shard.register(socketChannel);
+	}
+
+	private SelectorShard getSelectorShard(Selector selector) {
+		for (SelectorShard s : selectorShards) {
+			if (s.selector == selector)
+				return s;
+		}
+		return null;
+	}
+
+	private boolean isBannedOrExpulsed(InetAddress inetAddress) {
+		if (ipBanStat == null)
+			return false;
+		try {
+			if (ipBanStat.isBannedOrExpulsed(inetAddress,
+					getMadkitConfig().networkProperties.getAllowInetAddressesList())) {
+				if (logger != null && logger.isLoggable(Level.FINER))
+					logger.finer("Connection rejected from banned address : " + inetAddress);
+				return true;
+			}
+		} catch (DatabaseException e) {
+			if (logger != null)
+				logger.severeLog("Database exception", e);
+		}
+		return false;
+	}
+
 	private void addSocket(AbstractIP ip, SocketChannel socketChannel, boolean local_asking, SelectionKey clientKey) {
 		try {
 			InetSocketAddress isaRemote = (InetSocketAddress) socketChannel.getRemoteAddress();
@@ -937,7 +977,8 @@ final class NIOAgent extends Agent {
 				ip = new DoubleIP(isaRemote);
 			try {
 				if (getMadkitConfig().networkProperties.isConnectionPossible(isaRemote, isaLocal, false, !local_asking,
-						false) && addIfPossibleNewConnectedIP(isaRemote.getAddress())) {
+						false) && (local_asking || !isBannedOrExpulsed(isaRemote.getAddress()))
+						&& addIfPossibleNewConnectedIP(isaRemote.getAddress())) {
 					DistantKernelAgent dka = new DistantKernelAgent();
 					this.launchAgent(dka);
 					AgentAddress dkaaa = dka.getAgentAddressIn(LocalCommunity.Groups.NETWORK,
@@ -1026,8 +1067,7 @@ final class NIOAgent extends Agent {
 				// Register the new SocketChannel with our Selector, indicating
 				// we'd like to be notified when there's data waiting to be read
 
-				SelectionKey clientKey = socketChannel.register(this.selector,
-						SelectionKey.OP_READ);
+				SelectionKey clientKey = registerSocketChannel(socketChannel);
 
 				addSocket(null, socketChannel, false, clientKey);
 			} catch (IOException e) {
@@ -1259,6 +1299,96 @@ final class NIOAgent extends Agent {
 		
 	}
 	
+	private static Runnable getSocketChannelRelease(SocketChannel socketChannel) {
+		return () -> {
+			try {
+				if (socketChannel.isConnected())
+					socketChannel.close();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		};
+	}
+
+	/*
+	 * A selector thread reading and writing a part of the established connections.
+	 * The state of its sockets is guarded by the shard itself, so that this agent
+	 * can still add data to send or close connections.
+	 */
+	private class SelectorShard implements Runnable {
+		final Selector selector;
+		private final Thread thread;
+		// taken by threads registering a channel, so that the selector is not
+		// selecting again in the meantime
+		private final Object registrationGuard = new Object();
+		private volatile boolean closed = false;
+		final ThrottledSockets throttledSockets = new ThrottledSockets();
+		// only read and modified by the agent thread
+		int numberOfSockets = 0;
+
+		SelectorShard(int index) throws IOException {
+			selector = SelectorProvider.provider().openSelector();
+			thread = new Thread(this, "NIO selector " + index + " - " + getKernelAddress());
+			thread.setDaemon(true);
+		}
+
+		void start() {
+			thread.start();
+		}
+
+		boolean isCurrentThread() {
+			return Thread.currentThread() == thread;
+		}
+
+		SelectionKey register(SocketChannel socketChannel) throws ClosedChannelException {
+			synchronized (registrationGuard) {
+				selector.wakeup();
+				// the interest set is given by the personal socket once it is attached
+				return socketChannel.register(selector, 0);
+			}
+		}
+
+		@Override
+		public void run() {
+			while (!closed) {
+				try {
+					//noinspection EmptySynchronizedStatement
+					synchronized (registrationGuard) {
+					}
+					long delay = throttledSockets.getSelectorDelay(getMadkitConfig().networkProperties.selectorTimeOut);
+					if (delay > 0)
+						selector.select(delay);
+					else
+						selector.selectNow();
+					if (closed)
+						break;
+					synchronized (this) {
+						processSelectedKeys(selector, throttledSockets);
+					}
+				} catch (ClosedSelectorException e) {
+					break;
+				} catch (Exception e) {
+					if (logger != null)
+						logger.severeLog("Unexpected exception", e);
+				}
+			}
+		}
+
+		void close() {
+			closed = true;
+			selector.wakeup();
+			try {
+				thread.join(getMadkitConfig().networkProperties.connectionTimeOut);
+			} catch (InterruptedException ignored) {
+			}
+			try {
+				selector.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
 	private class PersonalSocket {
 		public final SocketChannel socketChannel;
 		public final AgentAddress agentAddress;
@@ -1271,11 +1401,12 @@ final class NIOAgent extends Agent {
 		// private LinkedList<FileData> bigDataWaiting=new LinkedList<>();
 		private DataTransferType dataTransferType = DataTransferType.SHORT_DATA;
 		protected int bigDataToSendIndex = 0;
-		private boolean waitingForPongMessage = false;
-		private long time_sending_ping_message;
-		private long last_data_wrote_utc;
+		private volatile boolean waitingForPongMessage = false;
+		private volatile long time_sending_ping_message;
+		private volatile long last_data_wrote_utc;
 		// private int read_locked=0;
-		private boolean is_closed = false;
+		private volatile boolean is_closed = false;
+		private boolean close_finished = false;
 		private ConnectionClosedReason cs=null;
 		private DatagramData firstReceivedData = new DatagramData();
 		private boolean firstPacketSent = false;
@@ -1284,6 +1415,20 @@ final class NIOAgent extends Agent {
 		private final int maxBlockSize;
 		private volatile boolean canPrepareNextData=true;
 		private final SelectionKey clientKey;
+		private final ReferenceCleaner.Cleanable socketChannelRelease;
+		// statistics read at each loop iteration, resolved again when the
+		// real time statistics of the socket are put or removed
+		private RealTimeTransferStat uploadStatPer30Seconds = null, downloadStatPer30Seconds = null,
+				downloadStatPer5Minutes = null;
+		private int realTimeStatsVersion = -1;
+		private final TokenBucket uploadBucket, downloadBucket;
+		// operations removed from the interest set until the given time
+		private int throttledOperations = 0;
+		private long throttledUntilNano = 0;
+		// the selector thread which reads and writes this socket, or null if it is this agent
+		final SelectorShard shard;
+		// guards this socket when it is shared between this agent and its selector thread
+		private final Object lock;
 		public boolean isClosed() {
 			return is_closed;
 		}
@@ -1293,13 +1438,19 @@ final class NIOAgent extends Agent {
 			if (clientKey==null)
 				throw new NullPointerException();
 			socketChannel = _socketChannel;
+			socketChannelRelease = ReferenceCleaner.register(this, getSocketChannelRelease(_socketChannel));
 			this.clientKey=clientKey;
+			this.shard=getSelectorShard(clientKey.selector());
+			this.lock=shard==null?this:shard;
 			clientKey.attach(this);
 			agentSocket = _agent;
 			agentAddress = agentSocket.getAgentAddressIn(LocalCommunity.Groups.NETWORK,
 					LocalCommunity.Roles.SOCKET_AGENT_ROLE);
 			last_data_wrote_utc = time_sending_ping_message = System.currentTimeMillis();
 			maxBlockSize=_agent.getMaxBlockSize();
+			NetworkProperties np=getMadkitConfig().networkProperties;
+			uploadBucket=new TokenBucket(np.bandwidthBurstDurationInMs, np.maximumUploadSpeedPerConnectionInBytesPerSecond);
+			downloadBucket=new TokenBucket(np.bandwidthBurstDurationInMs, np.maximumDownloadSpeedPerConnectionInBytesPerSecond);
 			/*socketChannel.setOption(StandardSocketOptions.SO_SNDBUF, maxBlockSize);
 			socketChannel.setOption(StandardSocketOptions.SO_RCVBUF, maxBlockSize);*/
 
@@ -1307,6 +1458,8 @@ final class NIOAgent extends Agent {
 					new DatagramLocalNetworkPresenceMessage(System.currentTimeMillis(),
 							getMadkitConfig().projectVersion, getMadkitConfig().madkitVersion, getMadkitConfig().minimumProjectVersion, getMadkitConfig().minimumMadkitVersion, null,
 							getKernelAddress())));
+			if (shard!=null)
+				++shard.numberOfSockets;
 		}
 		
 		void prepareNextDataToNextIfNecessary() throws TransferException
@@ -1393,16 +1546,6 @@ final class NIOAgent extends Agent {
 			return "Socket[localAddress" + local + ", remoteAddress=" + remote + ", agentSocket=" + agentSocket + "]";
 		}
 
-		@SuppressWarnings("deprecation")
-        @Override
-		public void finalize() {
-			try {
-				if (this.socketChannel.isConnected())
-					this.socketChannel.close();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		}
 
 		/*
 		 * public void lockRead() { ++read_locked; } public void unlockRead() {
@@ -1413,9 +1556,11 @@ final class NIOAgent extends Agent {
 		}
 
 		public void sendPingMessage() {
-			NIOAgent.this.sendMessage(agentAddress, new SendPingMessage());
-			time_sending_ping_message = System.currentTimeMillis();
-			waitingForPongMessage = true;
+			synchronized (lock) {
+				NIOAgent.this.sendMessage(agentAddress, new SendPingMessage());
+				time_sending_ping_message = System.currentTimeMillis();
+				waitingForPongMessage = true;
+			}
 		}
 
 		public boolean isWaitingForPongMessage() {
@@ -1426,18 +1571,136 @@ final class NIOAgent extends Agent {
 			if (logger != null && logger.isLoggable(Level.FINEST))
 				logger.finest("Received pong message : " + this);
 
+			if (waitingForPongMessage)
+				agentSocket.getStatistics().getLatencyStat()
+						.newLatencyIdentified(System.currentTimeMillis() - time_sending_ping_message);
 			waitingForPongMessage = false;
 		}
 
+		private void updateRealTimeStats() {
+			StatsBandwidth sb = agentSocket.getStatistics();
+			int version = sb.getRealTimeStatsVersion();
+			if (version != realTimeStatsVersion) {
+				realTimeStatsVersion = version;
+				uploadStatPer30Seconds = sb.getBytesUploadedInRealTime(
+						NetworkProperties.DEFAULT_TRANSFER_STAT_IN_REAL_TIME_PER_30_SECONDS_SEGMENTS);
+				downloadStatPer30Seconds = sb.getBytesDownloadedInRealTime(
+						NetworkProperties.DEFAULT_TRANSFER_STAT_IN_REAL_TIME_PER_30_SECONDS_SEGMENTS);
+				downloadStatPer5Minutes = sb.getBytesDownloadedInRealTime(
+						NetworkProperties.DEFAULT_TRANSFER_STAT_IN_REAL_TIME_PER_5_MINUTES_SEGMENTS);
+			}
+		}
+
+		RealTimeTransferStat getUploadStatPer30Seconds() {
+			updateRealTimeStats();
+			return uploadStatPer30Seconds;
+		}
+
+		RealTimeTransferStat getDownloadStatPer30Seconds() {
+			updateRealTimeStats();
+			return downloadStatPer30Seconds;
+		}
+
+		RealTimeTransferStat getDownloadStatPer5Minutes() {
+			updateRealTimeStats();
+			return downloadStatPer5Minutes;
+		}
+
 		public long getTimeSendingPingMessage() {
 			return time_sending_ping_message;
 		}
 
+		/**
+		 * Check that bytes can be read according the bandwidth limits. If it is not
+		 * the case, reads are suspended until tokens are available.
+		 * 
+		 * @param key
+		 *            the selection key of this socket
+		 * @param throttledSockets
+		 *            the sockets throttled by the current selector
+		 * @return true if bytes can be read
+		 */
+		boolean acquireDownload(SelectionKey key, ThrottledSockets throttledSockets) {
+			long delay = Math.max(globalDownloadBucket.getDelayInNanos(), downloadBucket.getDelayInNanos());
+			if (delay == 0)
+				return true;
+			throttle(key, SelectionKey.OP_READ, delay, throttledSockets);
+			return false;
+		}
+
+		/**
+		 * Check that bytes can be written according the bandwidth limits. Short
+		 * data and system messages are never throttled, but their bytes are
+		 * counted. If the next data cannot be written, writes are suspended until
+		 * tokens are available.
+		 * 
+		 * @param key
+		 *            the selection key of this socket
+		 * @param throttledSockets
+		 *            the sockets throttled by the current selector
+		 * @return true if bytes can be written
+		 */
+		boolean acquireUpload(SelectionKey key, ThrottledSockets throttledSockets) {
+			if (noBackDataToSend.size() == 0)
+				return true;
+			AbstractData d = noBackDataToSend.getFirst().data;
+			if (d.isPriority() || d.getDataTransferType() == DataTransferType.SHORT_DATA)
+				return true;
+			long delay = Math.max(globalUploadBucket.getDelayInNanos(), uploadBucket.getDelayInNanos());
+			if (delay == 0)
+				return true;
+			throttle(key, SelectionKey.OP_WRITE, delay, throttledSockets);
+			return false;
+		}
+
+		private void throttle(SelectionKey key, int operation, long delayInNanos, ThrottledSockets throttledSockets) {
+			long until = System.nanoTime() + delayInNanos;
+			synchronized (lock) {
+				if (is_closed || !key.isValid())
+					return;
+				key.interestOps(key.interestOps() & ~operation);
+				if (throttledOperations == 0 || until < throttledUntilNano)
+					throttledUntilNano = until;
+				throttledOperations |= operation;
+			}
+			throttledSockets.add(this, throttledUntilNano);
+		}
+
+		long getThrottledUntilNano() {
+			return throttledUntilNano;
+		}
+
+		/**
+		 * Restore the throttled operations if their delay is elapsed
+		 * 
+		 * @param now
+		 *            the current time in nanoseconds
+		 * @return true if the throttled operations were restored
+		 */
+		boolean resumeThrottledOperations(long now) {
+			synchronized (lock) {
+				if (throttledOperations != 0 && now < throttledUntilNano)
+					return false;
+				if (!is_closed && clientKey.isValid())
+					clientKey.interestOps(clientKey.interestOps() | throttledOperations);
+				throttledOperations = 0;
+				return true;
+			}
+		}
+
 		public boolean hasDataToSend() {
-			return shortDataToSend.size()>0 || bigDataToSend.size()>0 || dataToTransfer.size()>0;
+			synchronized (lock) {
+				return shortDataToSend.size() > 0 || bigDataToSend.size() > 0 || dataToTransfer.size() > 0;
+			}
 		}
 
 		public boolean addDataToSend(AbstractData _data) throws TransferException {
+			synchronized (lock) {
+				return addDataToSendImpl(_data);
+			}
+		}
+
+		private boolean addDataToSendImpl(AbstractData _data) throws TransferException {
 			if (shortDataToSend != null && bigDataToSend != null) {
 
 				/*
@@ -1486,8 +1749,12 @@ final class NIOAgent extends Agent {
 				checkValidTransferType();
 				prepareNextDataToNextIfNecessary();
 
-				if (!is_closed && (clientKey.interestOps() & SelectionKey.OP_WRITE) != SelectionKey.OP_WRITE)
-					clientKey.interestOps(SelectionKey.OP_WRITE | SelectionKey.OP_READ);
+				if (!is_closed && (clientKey.interestOps() & SelectionKey.OP_WRITE) != SelectionKey.OP_WRITE) {
+					clientKey.interestOps(SelectionKey.OP_WRITE
+							| ((throttledOperations & SelectionKey.OP_READ) == 0 ? SelectionKey.OP_READ : 0));
+					if (shard != null)
+						shard.selector.wakeup();
+				}
 				
 				return true;
 			} else
@@ -1808,7 +2075,7 @@ final class NIOAgent extends Agent {
 							key.cancel();
 							return;
 						}
-						readBuffer=ByteBuffer.allocate(size);
+						readBuffer=readBufferPool.take(size);
 						readBuffer.put(readSizeBlock.array());
 						readSizeBlock.clear();
 						int s=socketChannel.read(readBuffer);
@@ -1846,6 +2113,8 @@ final class NIOAgent extends Agent {
 				return;
 			}
 			
+			globalDownloadBucket.consume(data_read);
+			downloadBucket.consume(data_read);
 			// boolean hasRemaining=readBuffer.hasRemaining();
 			if (readBuffer!=null && !readBuffer.hasRemaining()) {
 				receivedData(key, readBuffer, data_read);
@@ -1859,6 +2128,7 @@ final class NIOAgent extends Agent {
 			data.clear();
 			if (firstReceivedData != null) {
 				firstReceivedData.put(data.array(), 0, data_read);
+				readBufferPool.release(data);
 				if (!firstReceivedData.isValid()) {
 					if (logger != null && logger.isLoggable(Level.FINER))
 						logger.finer("first received data invalid : " + firstReceivedData);
@@ -1899,7 +2169,7 @@ final class NIOAgent extends Agent {
 					logger.finest("Receiving new initial bytes (" + data_read + " bytes) from "
 							+ this.agentSocket.getDistantInetSocketAddress());
 			} else {
-				NIOAgent.this.sendMessage(agentAddress, new DataReceivedMessage(data.array()));
+				NIOAgent.this.sendMessage(agentAddress, new DataReceivedMessage(data, readBufferPool));
 				if (logger != null && logger.isLoggable(Level.FINEST))
 					logger.finest("Receiving new bytes (" + data.array().length + " bytes) from "
 							+ this.agentSocket.getDistantInetSocketAddress());
@@ -1952,6 +2222,8 @@ final class NIOAgent extends Agent {
 							}
 
 							data_sent = socketChannel.write(buf);
+							globalUploadBucket.consume(data_sent);
+							uploadBucket.consume(data_sent);
 
 							if (firstPacketSent)
 							{
@@ -1980,7 +2252,7 @@ final class NIOAgent extends Agent {
 
 				}
 				if (!is_closed)
-					key.interestOps( SelectionKey.OP_READ);
+					key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
 
 			} catch (IOException e) {
 				if (logger != null && logger.isLoggable(Level.FINER))
@@ -2005,8 +2277,10 @@ final class NIOAgent extends Agent {
 		public void closeConnection(ConnectionClosedReason cs, boolean delaying) {
 			if (logger != null)
 				logger.finer("Closing connection : " + this);
-			this.cs=cs;
-			is_closed = true;
+			synchronized (lock) {
+				this.cs = cs;
+				is_closed = true;
+			}
 			try
 			{
 				if (this.socketChannel.isOpen())
@@ -2025,6 +2299,9 @@ final class NIOAgent extends Agent {
 						finishCloseConnection();
 					return null;
 				}, getMadkitConfig().networkProperties.delayInMsBeforeClosingConnectionNormally + System.currentTimeMillis()));
+			else if (shard != null && shard.isCurrentThread())
+				// the connection lists are only modified by the agent thread
+				receiveMessage(new ObjectMessage<>(PersonalSocket.this));
 			else
 				finishCloseConnection();
 
@@ -2032,7 +2309,18 @@ final class NIOAgent extends Agent {
 
 		public void finishCloseConnection()
 		{
-			
+			synchronized (lock) {
+				if (close_finished)
+					return;
+				close_finished = true;
+				finishCloseConnectionImpl();
+			}
+		}
+
+		private void finishCloseConnectionImpl()
+		{
+			if (shard != null)
+				--shard.numberOfSockets;
 			
 			personal_sockets.remove(this.agentAddress.getAgentNetworkID());
 			personal_sockets_list.remove(this);
@@ -2052,6 +2340,7 @@ final class NIOAgent extends Agent {
                         socketChannel.close();//TODO remove ?
 				} else
 					socketChannel.close();
+				socketChannelRelease.cancel();
 			} catch (Exception e) {
 				if (logger != null)
 					logger.log(Level.FINE, "Unexpected exception", e);
@@ -2106,11 +2395,13 @@ final class NIOAgent extends Agent {
 		public void closeIndirectConnection(ConnectionClosedReason cs, IDTransfer transferID,
 				AgentAddress indirectAgentAddress) {
 
-			this.dataToTransfer.removeIf(ad -> ad.getIDTransfer().equals(transferID));
-			NIOAgent.this.sendMessageWithRole(
-					indirectAgentAddress, new ConnectionClosed(this.agentAddress.getAgentNetworkID(), cs,
-							new ArrayList<>(0), new ArrayList<>(0), dataToTransfer),
-					LocalCommunity.Roles.NIO_ROLE);
+			synchronized (lock) {
+				this.dataToTransfer.removeIf(ad -> ad.getIDTransfer().equals(transferID));
+				NIOAgent.this.sendMessageWithRole(
+						indirectAgentAddress, new ConnectionClosed(this.agentAddress.getAgentNetworkID(), cs,
+								new ArrayList<>(0), new ArrayList<>(0), dataToTransfer),
+						LocalCommunity.Roles.NIO_ROLE);
+			}
 		}
 
 		public boolean isConcernedBy(Server s) throws IOException {
@@ -148,6 +148,19 @@ public class NetworkProperties extends MultiFormatProperties {
 	 * variable. This value cannot be greater than {@link Block#BLOCK_SIZE_LIMIT}.
 	 */
 	public int maxBufferSize = Short.MAX_VALUE*2;
+
+	/**
+	 * The maximum size (in bytes) of the pool of buffers used to read blocks from
+	 * sockets. This pool is shared by all the connections. Set it to 0 to disable
+	 * the pool.
+	 */
+	public long maxSizeOfReadBufferPool = 16777216L;
+
+	/**
+	 * The minimum block size (in bytes) from which buffers used to read blocks from
+	 * sockets are pooled. Smaller blocks are allocated at each read.
+	 */
+	public int minBlockSizeOfReadBufferPool = 8192;
 	
 
 	/**
@@ -157,12 +170,42 @@ public class NetworkProperties extends MultiFormatProperties {
 	 */
 	public short maxRandomPacketValues = 2048;
 
+	/**
+	 * If true, the random values introduced into each packet (see
+	 * {@link #maxRandomPacketValues}) are generated in bulk thanks to a keyed
+	 * stream and appended after the data, instead of being drawn one by one from
+	 * the secure random and interleaved with the data. The size of the padding
+	 * follows the same distribution, but packets are built and parsed with bulk
+	 * array copies. Peers with any value of this option can communicate together.
+	 */
+	public boolean bulkRandomPadding = false;
+
 	/**
 	 * The maximum data size (in bytes) for a message which is not sent with big
 	 * data transfer functionality.
 	 */
 	public int maxShortDataSize = 20971520;
 
+	/**
+	 * The maximum serialized size (in bytes) of lan messages coalesced into one
+	 * packet. Lan messages that are not a priority and whose serialized size is
+	 * lower than this threshold are grouped together before being sent to the
+	 * same distant kernel, in order to share the cost of packet heads, random
+	 * padding, encryption and signature. When set to 0, each message is sent
+	 * into its own packet.
+	 *
+	 * @see #coalescedMessagesFlushDelayInMicroseconds
+	 */
+	public int maxCoalescedMessagesSize = 0;
+
+	/**
+	 * The maximum delay (in microseconds) a lan message can wait for other
+	 * messages to be coalesced with, before being sent.
+	 *
+	 * @see #maxCoalescedMessagesSize
+	 */
+	public long coalescedMessagesFlushDelayInMicroseconds = 500L;
+
 	/**
 	 * The maximum unread data size (in bytes) for messages considered as short data
 	 * (not big data). This threshold concerns only one distant kernel.
@@ -247,6 +290,36 @@ public class NetworkProperties extends MultiFormatProperties {
 	 */
 	public long banishmentStatisticDuration = 1728000000L;
 
+	/**
+	 * Maximum number of addresses whose ban state is kept in memory, in front of
+	 * the ban database. Incoming connections are checked against this cache, so
+	 * that a flood of connections does not produce a flood of database
+	 * transactions.
+	 * 
+	 * @see com.distrimind.madkit.database.IPBanCache
+	 */
+	public int maximumSizeOfIPBanCache = 10000;
+
+	/**
+	 * The maximum serialized size (in bytes) of small database synchronization
+	 * events grouped into one network message, when they are destined to the
+	 * same distant peer. When set to 0, each event is sent into its own message.
+	 * Batches are understood only by peers that also support them, so this
+	 * option is disabled by default.
+	 *
+	 * @see #maxDatabaseSynchronizationTransfersInProgressPerPeer
+	 */
+	public int maxDatabaseSynchronizationEventsBatchSize = 0;
+
+	/**
+	 * The maximum number of big database synchronization events transferred at
+	 * the same time to the same distant peer. Following events destined to this
+	 * peer wait for one of these transfers to end.
+	 *
+	 * @see #maxDatabaseSynchronizationEventsBatchSize
+	 */
+	public int maxDatabaseSynchronizationTransfersInProgressPerPeer = 4;
+
 	/**
 	 * If set to true, this connection can enable to make a gateway between two
 	 * computers. If the two computers are able to connect themselves between them,
@@ -357,6 +430,16 @@ public class NetworkProperties extends MultiFormatProperties {
 	 */
 	public long selectorTimeOutWhenWaitingPendingConnections = 300L;
 
+	/**
+	 * Number of selector threads among which established socket connections are
+	 * shared. When set to 0, all sockets are read and written by the unique NIO
+	 * agent thread. Otherwise, the NIO agent thread only accepts connections and
+	 * dispatches orders, and each connection is read and written by the selector
+	 * thread that has the fewest connections when it is established. Global
+	 * bandwidth limits apply to all selector threads together.
+	 */
+	public int numberOfNIOSelectorThreads = 0;
+
 	/**
 	 * Delay after a connection is considered obsolete if no data was transferred.
 	 */
@@ -1428,6 +1511,26 @@ public class NetworkProperties extends MultiFormatProperties {
 	 */
 	public int maximumGlobalDownloadSpeedInBytesPerSecond=Integer.MAX_VALUE;
 
+	/**
+	 * Maximum upload speed of each connection in bytes per second.
+	 * Short data and system messages are not throttled, but they are counted.
+	 * Set to {@link Integer#MAX_VALUE} if there is no limit
+	 */
+	public int maximumUploadSpeedPerConnectionInBytesPerSecond=Integer.MAX_VALUE;
+
+	/**
+	 * Maximum download speed of each connection in bytes per second.
+	 * Set to {@link Integer#MAX_VALUE} if there is no limit
+	 */
+	public int maximumDownloadSpeedPerConnectionInBytesPerSecond=Integer.MAX_VALUE;
+
+	/**
+	 * Duration in milliseconds of the bursts accepted by the bandwidth shaper,
+	 * i.e. the capacity of its token buckets expressed as a duration of transfer
+	 * at the maximum speed.
+	 */
+	public long bandwidthBurstDurationInMs=200;
+
 
 
 	public static volatile int GLOBAL_MAX_SHORT_DATA_SIZE=20971520;
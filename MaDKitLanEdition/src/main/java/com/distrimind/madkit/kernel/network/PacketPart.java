@@ -63,13 +63,27 @@ public final class PacketPart {
 	}
 
 	PacketPart(SubBlock subBlock, PacketPartHead head) {
+		this(subBlock, head, true);
+	}
+
+	private PacketPart(SubBlock subBlock, PacketPartHead head, boolean isReadyToSend) {
 		//bytes = _part;
 
 		this.subBlock=subBlock;
 		if (head == null)
 			throw new NullPointerException("head");
 		this.head = head;
-		isReadyToSend = true;
+		this.isReadyToSend = isReadyToSend;
+	}
+
+	/*
+	 * Returns the same packet part, whose bytes are copied into their own array,
+	 * so that the array referenced by this packet part can be reused.
+	 */
+	PacketPart withCopiedBytes() {
+		byte[] bytes = new byte[subBlock.getSize()];
+		System.arraycopy(subBlock.getBytes(), subBlock.getOffset(), bytes, 0, bytes.length);
+		return new PacketPart(new SubBlock(bytes), head, isReadyToSend);
 	}
 
 	@Override
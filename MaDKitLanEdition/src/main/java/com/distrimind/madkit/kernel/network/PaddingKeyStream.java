@@ -0,0 +1,115 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel.network;
+
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.distrimind.madkit.exceptions.NIOException;
+import com.distrimind.util.crypto.AbstractSecureRandom;
+
+/**
+ * Keyed stream used to generate the random padding of packets in bulk. The
+ * stream is an AES counter mode key stream, whose key and initialization vector
+ * are drawn once from a secure random. Calling the secure random for each
+ * random value is avoided. This class is thread safe.
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ * @see NetworkProperties#bulkRandomPadding
+ */
+final class PaddingKeyStream {
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Cipher cipher;
+	private final byte[] zeros = new byte[BUFFER_SIZE];
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position = BUFFER_SIZE;
+
+	PaddingKeyStream(AbstractSecureRandom random) throws NIOException {
+		if (random == null)
+			throw new NullPointerException("random");
+		byte[] key = new byte[16];
+		byte[] iv = new byte[16];
+		random.nextBytes(key);
+		random.nextBytes(iv);
+		try {
+			cipher = Cipher.getInstance("AES/CTR/NoPadding");
+			cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"), new IvParameterSpec(iv));
+		} catch (GeneralSecurityException e) {
+			throw new NIOException(e);
+		}
+	}
+
+	synchronized void nextBytes(byte[] tab, int offset, int length) {
+		while (length > 0) {
+			if (position == BUFFER_SIZE)
+				fillBuffer();
+			int l = Math.min(length, BUFFER_SIZE - position);
+			System.arraycopy(buffer, position, tab, offset, l);
+			position += l;
+			offset += l;
+			length -= l;
+		}
+	}
+
+	synchronized int nextInt(int bound) {
+		if (bound <= 0)
+			throw new IllegalArgumentException("bound must be positive");
+		if (BUFFER_SIZE - position < 4)
+			fillBuffer();
+		int v = ((buffer[position] & 0xFF) << 24) | ((buffer[position + 1] & 0xFF) << 16)
+				| ((buffer[position + 2] & 0xFF) << 8) | (buffer[position + 3] & 0xFF);
+		position += 4;
+		return (v & Integer.MAX_VALUE) % bound;
+	}
+
+	private void fillBuffer() {
+		try {
+			cipher.update(zeros, 0, BUFFER_SIZE, buffer, 0);
+		} catch (ShortBufferException e) {
+			throw new IllegalStateException(e);
+		}
+		position = 0;
+	}
+}
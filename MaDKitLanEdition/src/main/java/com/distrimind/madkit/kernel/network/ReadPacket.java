@@ -297,7 +297,9 @@ final class ReadPacket {
 
 	static AbstractByteTabInputStream getByteTabInputStream(SubBlock subBlock) {
 
-		if (subBlock.getBytes()[subBlock.getOffset()]==0) {
+		byte mode=subBlock.getBytes()[subBlock.getOffset()];
+		// with the bulk padding mode (2), the padding follows the data and is ignored
+		if (mode==0 || mode==2) {
 			return new ByteTabInputStream(subBlock);
 		}
 		else
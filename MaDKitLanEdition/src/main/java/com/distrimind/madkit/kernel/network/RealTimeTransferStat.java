@@ -38,6 +38,7 @@
 package com.distrimind.madkit.kernel.network;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 
 /**
@@ -46,20 +47,41 @@ import java.util.Arrays;
  * time. If no transfer has been done during the last elapsed duration, the
  * number of transferred bytes is equal to 0.
  * 
- * This class is thread safe.
+ * This class is thread safe and lock free. Bytes are accumulated into a ring of
+ * segments, each one being stamped with the index of the time segment it
+ * represents, so that stale segments are lazily reset by the next writer
+ * instead of being cleared by a periodic update. To limit contention between
+ * threads, the ring is striped : each thread updates its own stripe, and reads
+ * sum all stripes.
  * 
  * @author Jason Mahdjoub
- * @version 1.0
+ * @version 1.1
  * @since MadkitLanEdition 1.0
  */
 public class RealTimeTransferStat {
-	private final long[] stats;
-	private long totalBytes;
-	private int cursor;
-	private long previousUpdateTime;
+	private static final int COUNT_BITS = 40;
+	private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+	private static final long EPOCH_MASK = (1L << (64 - COUNT_BITS)) - 1;
+	private static final int STRIPES;
+
+	static {
+		int s = 1;
+		int max = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+		while (s < max)
+			s <<= 1;
+		STRIPES = s;
+	}
+
+	// each cell contains the segment index (24 high bits) and the number of bytes
+	// (40 low bits)
+	private final AtomicLongArray cells;
+	private final int segments;
+	private final int stripeStride;
 	private final long segment;
+	private final long segmentNano;
 	private final long duration;
-	private volatile boolean one_cycle_done ;
+	private final long startNano;
+	private volatile boolean one_cycle_done;
 
 	/**
 	 * Construct a metric that computes number of transferred bytes during the last
@@ -80,17 +102,19 @@ public class RealTimeTransferStat {
 			throw new IllegalArgumentException("_duration must be greater than 3 ms");
 
 		_duration = _duration - _duration % _segment;
-		cursor = 0;
 		segment = _segment;
+		segmentNano = _segment * 1000000L;
 		duration = _duration;
-		if (duration / segment > Integer.MAX_VALUE)
-			throw new IllegalArgumentException("The value '_duration/_segment' must be lower than Integer.MAX_VALUE");
+		if (duration / segment > EPOCH_MASK / 2)
+			throw new IllegalArgumentException("The value '_duration/_segment' must be lower than " + (EPOCH_MASK / 2));
 		if (duration / segment < 3)
 			throw new IllegalArgumentException("The value '_duration/_segment' must be greater than 3");
-		stats = new long[(int) (duration / segment)];
-		reset();
+		segments = (int) (duration / segment);
+		// separate stripes by at least one cache line to avoid false sharing
+		stripeStride = ((segments + 7) & ~7) + 8;
+		cells = new AtomicLongArray(stripeStride * STRIPES);
 		one_cycle_done = false;
-		previousUpdateTime=System.currentTimeMillis();
+		startNano = System.nanoTime();
 	}
 
 	/**
@@ -102,32 +126,23 @@ public class RealTimeTransferStat {
 		return duration;
 	}
 
-	private void reset() {
-        Arrays.fill(stats,0);
-		totalBytes = 0;
+	private long currentEpoch() {
+		return (System.nanoTime() - startNano) / segmentNano;
 	}
 
-	private void update() {
-		long time=System.currentTimeMillis();
-		long t = time-previousUpdateTime;
-
-		if (t > duration) {
-			reset();
-			one_cycle_done=true;
-			previousUpdateTime=time;
-		} else {
-            while (t > segment) {
-                if (++cursor == stats.length) {
-                    one_cycle_done=true;
-                    cursor = 0;
-                }
-                totalBytes -= stats[cursor];
-                stats[cursor] = 0;
-                t -= segment;
-                previousUpdateTime+=segment;
-            }
-        }
+	private static long epochOf(long cell) {
+		return cell >>> COUNT_BITS;
+	}
 
+	// a cell of the given epoch's index can only be one cycle ahead, when its
+	// writer was descheduled after reading the clock
+	private boolean isNewer(long cell, long epoch) {
+		long d = (epochOf(cell) - epoch) & EPOCH_MASK;
+		return d != 0 && d <= segments;
+	}
+
+	private boolean isInWindow(long cell, long epoch) {
+		return ((epoch - epochOf(cell)) & EPOCH_MASK) < segments;
 	}
 
 	/**
@@ -137,10 +152,20 @@ public class RealTimeTransferStat {
 	 *            the number of transferred bytes
 	 */
 	public void newBytesIdentified(int number) {
-		synchronized (this) {
-			update();
-			stats[cursor] += number;
-			totalBytes += number;
+		long epoch = currentEpoch();
+		long stampedEpoch = (epoch & EPOCH_MASK) << COUNT_BITS;
+		int index = (int) ((Thread.currentThread().getId() & (STRIPES - 1)) * stripeStride + epoch % segments);
+		for (;;) {
+			long cell = cells.get(index);
+			long n;
+			if ((cell & ~COUNT_MASK) == stampedEpoch || isNewer(cell, epoch))
+				// only older segments are replaced : bytes of a late writer are
+				// accounted into the later segment instead of erasing it
+				n = cell + number;
+			else
+				n = stampedEpoch | number;
+			if (cells.compareAndSet(index, cell, n))
+				return;
 		}
 	}
 
@@ -149,10 +174,66 @@ public class RealTimeTransferStat {
 	 * @return the average of bytes transferred during the given duration
 	 */
 	public long getNumberOfIdentifiedBytes() {
-		synchronized (this) {
-			update();
-			return totalBytes;
+		long epoch = currentEpoch();
+		long total = 0;
+		for (int s = 0; s < STRIPES; s++) {
+			int offset = s * stripeStride;
+			for (int i = 0; i < segments; i++) {
+				long cell = cells.get(offset + i);
+				if (isInWindow(cell, epoch))
+					total += cell & COUNT_MASK;
+			}
 		}
+		return total;
+	}
+
+	/**
+	 * Gets a snapshot of the number of bytes transferred during each segment of
+	 * the last elapsed duration, from the oldest segment to the current segment.
+	 * The current segment is not finished and is then partially filled.
+	 * 
+	 * @return the number of bytes transferred per segment
+	 */
+	public long[] getSegmentsSnapshot() {
+		long epoch = currentEpoch();
+		long[] res = new long[segments];
+		for (int s = 0; s < STRIPES; s++) {
+			int offset = s * stripeStride;
+			for (int i = 0; i < segments; i++) {
+				long cell = cells.get(offset + i);
+				if (isInWindow(cell, epoch)) {
+					long age = (epoch - epochOf(cell)) & EPOCH_MASK;
+					res[segments - 1 - (int) age] += cell & COUNT_MASK;
+				}
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * Gets the throughput percentile, in bytes per second, computed over the
+	 * finished segments of the last elapsed duration. Segments anterior to the
+	 * creation of this statistic are ignored.
+	 * 
+	 * @param percentile
+	 *            the percentile, between 0 and 100 (i.e. 50 for the median)
+	 * @return the throughput percentile in bytes per second, or 0 if no segment
+	 *         was finished
+	 */
+	public double getThroughputPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException();
+		long elapsedSegments = currentEpoch();
+		long[] s = getSegmentsSnapshot();
+		int finished = (int) Math.min(elapsedSegments, s.length - 1);
+		if (finished <= 0)
+			return 0;
+		long[] values = Arrays.copyOfRange(s, s.length - 1 - finished, s.length - 1);
+		Arrays.sort(values);
+		int rank = (int) Math.ceil(percentile / 100.0 * values.length) - 1;
+		if (rank < 0)
+			rank = 0;
+		return ((double) values[rank]) * 1000.0 / ((double) segment);
 	}
 
 	/**
@@ -160,6 +241,8 @@ public class RealTimeTransferStat {
 	 * @return true if sufficient bytes has been observed to give a correct metrics.
 	 */
 	public boolean isOneCycleDone() {
+		if (!one_cycle_done && System.nanoTime() - startNano >= duration * 1000000L)
+			one_cycle_done = true;
 		return one_cycle_done;
 	}
 
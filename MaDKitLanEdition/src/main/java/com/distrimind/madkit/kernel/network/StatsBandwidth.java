@@ -37,8 +37,8 @@
  */
 package com.distrimind.madkit.kernel.network;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.distrimind.madkit.kernel.network.TransferAgent.IDTransfer;
@@ -47,19 +47,34 @@ import com.distrimind.madkit.kernel.network.TransferAgent.IDTransfer;
  * Represents a set of transfer statistics, considering a connection/socket, a
  * kernel address, or a big data transfer.
  * 
+ * Statistics are updated for every read or written block without locking : the
+ * registered statistics are kept into arrays that are replaced each time a
+ * statistic is put or removed, and that are iterated by the writers.
+ * 
  * @author Jason Mahdjoub
- * @version 1.0
+ * @version 1.1
  * @since MadkitLanEdition 1.0
  */
 public class StatsBandwidth {
 
-	private final Map<String, RealTimeTransferStat> bytes_uploaded_in_real_time = new HashMap<>();
-	private final Map<String, RealTimeTransferStat> bytes_downloaded_in_real_time = new HashMap<>();
-	private final Map<String, TransferSpeedStat> bytes_uploaded_in_real_bytes = new HashMap<>();
-	private final Map<String, TransferSpeedStat> bytes_downloaded_in_real_bytes = new HashMap<>();
+	private static final RealTimeTransferStat[] EMPTY_REAL_TIME_STATS = new RealTimeTransferStat[0];
+	private static final TransferSpeedStat[] EMPTY_SPEED_STATS = new TransferSpeedStat[0];
+
+	private final Map<String, RealTimeTransferStat> bytes_uploaded_in_real_time = new ConcurrentHashMap<>();
+	private final Map<String, RealTimeTransferStat> bytes_downloaded_in_real_time = new ConcurrentHashMap<>();
+	private final Map<String, TransferSpeedStat> bytes_uploaded_in_real_bytes = new ConcurrentHashMap<>();
+	private final Map<String, TransferSpeedStat> bytes_downloaded_in_real_bytes = new ConcurrentHashMap<>();
+	private volatile RealTimeTransferStat[] bytes_uploaded_in_real_time_array = EMPTY_REAL_TIME_STATS;
+	private volatile RealTimeTransferStat[] bytes_downloaded_in_real_time_array = EMPTY_REAL_TIME_STATS;
+	private volatile TransferSpeedStat[] bytes_uploaded_in_real_bytes_array = EMPTY_SPEED_STATS;
+	private volatile TransferSpeedStat[] bytes_downloaded_in_real_bytes_array = EMPTY_SPEED_STATS;
+	// incremented each time a real time statistic is put or removed
+	private volatile int realTimeStatsVersion = 0;
 
-	private final HashMap<Integer, StatsBandwidth> transfer_agents_bandwidth = new HashMap<>();
+	private final Map<Integer, StatsBandwidth> transfer_agents_bandwidth = new ConcurrentHashMap<>();
 	private final AtomicReference<StatsBandwidth> statsForDistantKernelAddress = new AtomicReference<>();
+	private final CompressionStat compressionStat = new CompressionStat();
+	private final LatencyStat latencyStat = new LatencyStat();
 
 	StatsBandwidth() {
 
@@ -73,20 +88,13 @@ public class StatsBandwidth {
 			throw new NullPointerException("id");
 		if (id.equals(TransferAgent.NullIDTransfer))
 			throw new IllegalArgumentException();
-		if (transfer_agents_bandwidth.containsKey(id.getID()))
-			return;
-		synchronized (this) {
-			transfer_agents_bandwidth.put(id.getID(), stats);
-		}
+		transfer_agents_bandwidth.putIfAbsent(id.getID(), stats);
 	}
 
 	StatsBandwidth removeTransferAgentStats(IDTransfer id) {
 		if (id == null)
 			throw new NullPointerException("id");
-		synchronized (this) {
-
-			return transfer_agents_bandwidth.remove(id.getID());
-		}
+		return transfer_agents_bandwidth.remove(id.getID());
 	}
 
 	void putStateForDistantKernelAddress(StatsBandwidth statsForDistantKernelAddress) {
@@ -95,6 +103,29 @@ public class StatsBandwidth {
 		this.statsForDistantKernelAddress.set(statsForDistantKernelAddress);
 	}
 
+	/**
+	 * Gets the statistics of the compression stage. They are fed only when a
+	 * {@link com.distrimind.madkit.kernel.network.connection.unsecured.CompressionConnectionProtocol}
+	 * is part of the connection protocol.
+	 * 
+	 * @return the compression statistics
+	 * @see CompressionStat
+	 */
+	public CompressionStat getCompressionStat() {
+		return compressionStat;
+	}
+
+	/**
+	 * Gets the round trip latencies measured with ping messages. They are fed
+	 * only for statistics related to one connection.
+	 * 
+	 * @return the latency statistics
+	 * @see LatencyStat
+	 */
+	public LatencyStat getLatencyStat() {
+		return latencyStat;
+	}
+
 	/**
 	 * Associate with a key, a {@link RealTimeTransferStat} for LAN upload
 	 * statistics
@@ -111,6 +142,8 @@ public class StatsBandwidth {
 	public void putBytesUploadedInRealTime(String key, RealTimeTransferStat stat) {
 		synchronized (this) {
 			bytes_uploaded_in_real_time.put(key, stat);
+			bytes_uploaded_in_real_time_array = bytes_uploaded_in_real_time.values().toArray(EMPTY_REAL_TIME_STATS);
+			++realTimeStatsVersion;
 		}
 	}
 
@@ -128,7 +161,10 @@ public class StatsBandwidth {
 	 */
 	public RealTimeTransferStat removeBytesUploadedInRealTime(String key) {
 		synchronized (this) {
-			return bytes_uploaded_in_real_time.remove(key);
+			RealTimeTransferStat res = bytes_uploaded_in_real_time.remove(key);
+			bytes_uploaded_in_real_time_array = bytes_uploaded_in_real_time.values().toArray(EMPTY_REAL_TIME_STATS);
+			++realTimeStatsVersion;
+			return res;
 		}
 	}
 
@@ -145,9 +181,7 @@ public class StatsBandwidth {
 	 * @return a {@link RealTimeTransferStat} related LAN upload statistics
 	 */
 	public RealTimeTransferStat getBytesUploadedInRealTime(String key) {
-		synchronized (this) {
-			return bytes_uploaded_in_real_time.get(key);
-		}
+		return bytes_uploaded_in_real_time.get(key);
 	}
 
 	/**
@@ -163,6 +197,7 @@ public class StatsBandwidth {
 	public void putBytesUploadedInRealBytes(String key, TransferSpeedStat stat) {
 		synchronized (this) {
 			bytes_uploaded_in_real_bytes.put(key, stat);
+			bytes_uploaded_in_real_bytes_array = bytes_uploaded_in_real_bytes.values().toArray(EMPTY_SPEED_STATS);
 		}
 	}
 
@@ -178,7 +213,9 @@ public class StatsBandwidth {
 	 */
 	public TransferSpeedStat removeBytesUploadedInRealBytes(String key) {
 		synchronized (this) {
-			return bytes_uploaded_in_real_bytes.remove(key);
+			TransferSpeedStat res = bytes_uploaded_in_real_bytes.remove(key);
+			bytes_uploaded_in_real_bytes_array = bytes_uploaded_in_real_bytes.values().toArray(EMPTY_SPEED_STATS);
+			return res;
 		}
 	}
 
@@ -193,9 +230,7 @@ public class StatsBandwidth {
 	 * @return a {@link TransferSpeedStat} related LAN upload statistics
 	 */
 	public TransferSpeedStat getBytesUploadedInRealBytes(String key) {
-		synchronized (this) {
-			return bytes_uploaded_in_real_bytes.get(key);
-		}
+		return bytes_uploaded_in_real_bytes.get(key);
 	}
 
 	/**
@@ -213,6 +248,8 @@ public class StatsBandwidth {
 	public void putBytesDownloadedInRealTime(String key, RealTimeTransferStat stat) {
 		synchronized (this) {
 			bytes_downloaded_in_real_time.put(key, stat);
+			bytes_downloaded_in_real_time_array = bytes_downloaded_in_real_time.values().toArray(EMPTY_REAL_TIME_STATS);
+			++realTimeStatsVersion;
 		}
 	}
 
@@ -230,7 +267,10 @@ public class StatsBandwidth {
 	 */
 	public RealTimeTransferStat removeBytesDownloadedInRealTime(String key) {
 		synchronized (this) {
-			return bytes_downloaded_in_real_time.remove(key);
+			RealTimeTransferStat res = bytes_downloaded_in_real_time.remove(key);
+			bytes_downloaded_in_real_time_array = bytes_downloaded_in_real_time.values().toArray(EMPTY_REAL_TIME_STATS);
+			++realTimeStatsVersion;
+			return res;
 		}
 	}
 
@@ -247,9 +287,7 @@ public class StatsBandwidth {
 	 * @return a {@link RealTimeTransferStat} related LAN upload statistics
 	 */
 	public RealTimeTransferStat getBytesDownloadedInRealTime(String key) {
-		synchronized (this) {
-			return bytes_downloaded_in_real_time.get(key);
-		}
+		return bytes_downloaded_in_real_time.get(key);
 	}
 
 	/**
@@ -265,6 +303,7 @@ public class StatsBandwidth {
 	public void putBytesDownloadedInRealBytes(String key, TransferSpeedStat stat) {
 		synchronized (this) {
 			bytes_downloaded_in_real_bytes.put(key, stat);
+			bytes_downloaded_in_real_bytes_array = bytes_downloaded_in_real_bytes.values().toArray(EMPTY_SPEED_STATS);
 		}
 	}
 
@@ -280,7 +319,9 @@ public class StatsBandwidth {
 	 */
 	public TransferSpeedStat removeBytesDownloadedInRealBytes(String key) {
 		synchronized (this) {
-			return bytes_downloaded_in_real_bytes.remove(key);
+			TransferSpeedStat res = bytes_downloaded_in_real_bytes.remove(key);
+			bytes_downloaded_in_real_bytes_array = bytes_downloaded_in_real_bytes.values().toArray(EMPTY_SPEED_STATS);
+			return res;
 		}
 	}
 
@@ -295,28 +336,35 @@ public class StatsBandwidth {
 	 * @return a {@link TransferSpeedStat} related LAN upload statistics
 	 */
 	public TransferSpeedStat getBytesDownloadedInRealBytes(String key) {
-		synchronized (this) {
-			return bytes_downloaded_in_real_bytes.get(key);
-		}
+		return bytes_downloaded_in_real_bytes.get(key);
+	}
+
+	/*
+	 * Returns a number that changes each time a real time statistic is put or
+	 * removed, so that callers keeping references to these statistics know when
+	 * to resolve them again.
+	 */
+	int getRealTimeStatsVersion() {
+		return realTimeStatsVersion;
+	}
+
+	private StatsBandwidth getTransferAgentStats(Integer id) {
+		StatsBandwidth sb = transfer_agents_bandwidth.get(id);
+		if (sb == null)
+			throw new IllegalArgumentException("Impossible to found stats for IDTransfer " + id);
+		StatsBandwidth sbdka = statsForDistantKernelAddress.get();
+		if (sb.statsForDistantKernelAddress.get() == sbdka)
+			sb.statsForDistantKernelAddress.compareAndSet(sbdka, null);
+		return sb;
 	}
 
 	void newDataSent(IDTransfer id, int size) {
-		StatsBandwidth sb = null;
-		synchronized (this) {
-			for (RealTimeTransferStat s : bytes_uploaded_in_real_time.values())
-				s.newBytesIdentified(size);
-			if (id != null && !id.equals(TransferAgent.NullIDTransfer)) {
-				sb = transfer_agents_bandwidth.get(id.getID());
-				if (sb == null)
-					throw new IllegalArgumentException("Impossible to found stats for IDTransfer " + id);
-				if (sb.statsForDistantKernelAddress.get() == statsForDistantKernelAddress.get())
-					sb.statsForDistantKernelAddress.set(null);
-			}
-		}
-		if (sb != null) {
-			sb.newDataSent(null, size);
+		for (RealTimeTransferStat s : bytes_uploaded_in_real_time_array)
+			s.newBytesIdentified(size);
+		if (id != null && !id.equals(TransferAgent.NullIDTransfer)) {
+			getTransferAgentStats(id.getID()).newDataSent(null, size);
 		}
-		sb = this.statsForDistantKernelAddress.get();
+		StatsBandwidth sb = this.statsForDistantKernelAddress.get();
 		if (sb != null) {
 			sb.newDataSent(null, size);
 		}
@@ -324,44 +372,24 @@ public class StatsBandwidth {
 	}
 
 	void newDataSent(IDTransfer id, int size, long duration) {
-		StatsBandwidth sb = null;
-		synchronized (this) {
-			for (TransferSpeedStat s : bytes_uploaded_in_real_bytes.values())
-				s.newBytesIdentified(size, duration);
-			if (id != null && !id.equals(TransferAgent.NullIDTransfer)) {
-				sb = transfer_agents_bandwidth.get(id.getID());
-				if (sb == null)
-					throw new IllegalArgumentException("Impossible to found stats for IDTransfer " + id);
-				if (sb.statsForDistantKernelAddress.get() == statsForDistantKernelAddress.get())
-					sb.statsForDistantKernelAddress.set(null);
-			}
+		for (TransferSpeedStat s : bytes_uploaded_in_real_bytes_array)
+			s.newBytesIdentified(size, duration);
+		if (id != null && !id.equals(TransferAgent.NullIDTransfer)) {
+			getTransferAgentStats(id.getID()).newDataSent(null, size, duration);
 		}
-		if (sb != null) {
-			sb.newDataSent(null, size, duration);
-		}
-		sb = this.statsForDistantKernelAddress.get();
+		StatsBandwidth sb = this.statsForDistantKernelAddress.get();
 		if (sb != null) {
 			sb.newDataSent(null, size, duration);
 		}
 	}
 
 	void newDataReceived(Integer id, int size) {
-		StatsBandwidth sb = null;
-		synchronized (this) {
-			for (RealTimeTransferStat s : bytes_downloaded_in_real_time.values())
-				s.newBytesIdentified(size);
-			if (id != null && id != TransferAgent.NullIDTransfer.getID()) {
-				sb = transfer_agents_bandwidth.get(id);
-				if (sb == null)
-					throw new IllegalArgumentException("Impossible to found stats for IDTransfer " + id);
-				if (sb.statsForDistantKernelAddress.get() == statsForDistantKernelAddress.get())
-					sb.statsForDistantKernelAddress.set(null);
-			}
+		for (RealTimeTransferStat s : bytes_downloaded_in_real_time_array)
+			s.newBytesIdentified(size);
+		if (id != null && id != TransferAgent.NullIDTransfer.getID()) {
+			getTransferAgentStats(id).newDataReceived(null, size);
 		}
-		if (sb != null) {
-			sb.newDataReceived(null, size);
-		}
-		sb = this.statsForDistantKernelAddress.get();
+		StatsBandwidth sb = this.statsForDistantKernelAddress.get();
 		if (sb != null) {
 			sb.newDataReceived(null, size);
 		}
@@ -369,22 +397,12 @@ public class StatsBandwidth {
 	}
 
 	void newDataReceived(Integer id, int size, long duration) {
-		StatsBandwidth sb = null;
-		synchronized (this) {
-			for (TransferSpeedStat s : bytes_downloaded_in_real_bytes.values())
-				s.newBytesIdentified(size, duration);
-			if (id != null && id != TransferAgent.NullIDTransfer.getID()) {
-				sb = transfer_agents_bandwidth.get(id);
-				if (sb == null)
-					throw new IllegalArgumentException("Impossible to found stats for IDTransfer " + id);
-				if (sb.statsForDistantKernelAddress.get() == statsForDistantKernelAddress.get())
-					sb.statsForDistantKernelAddress.set(null);
-			}
-		}
-		if (sb != null) {
-			sb.newDataReceived(null, size, duration);
+		for (TransferSpeedStat s : bytes_downloaded_in_real_bytes_array)
+			s.newBytesIdentified(size, duration);
+		if (id != null && id != TransferAgent.NullIDTransfer.getID()) {
+			getTransferAgentStats(id).newDataReceived(null, size, duration);
 		}
-		sb = this.statsForDistantKernelAddress.get();
+		StatsBandwidth sb = this.statsForDistantKernelAddress.get();
 		if (sb != null) {
 			sb.newDataReceived(null, size, duration);
 		}
@@ -60,6 +60,24 @@ public abstract class SubBlockParser {
 
 	public abstract SubBlock getParentBlock(SubBlock _block, boolean excludedFromEncryption) throws BlockParserException;
 
+	public SubBlock getParentBlock(SubBlock _block, boolean excludedFromEncryption, boolean excludedFromCompression) throws BlockParserException
+	{
+		return getParentBlock(_block, excludedFromEncryption);
+	}
+
+	/**
+	 * Tells if the parent block produced by this parser can be smaller than the one
+	 * announced by {@link #getBodyOutputSizeForEncryption(int)}, and if the sub
+	 * block produced by {@link #getSubBlock(SubBlock)} can be greater than the one
+	 * announced by {@link #getBodyOutputSizeForDecryption(int)}. Only the last sub
+	 * protocol can have a variable block size.
+	 * @return true if the block size is variable
+	 */
+	public boolean isBlockSizeVariable()
+	{
+		return false;
+	}
+
 	protected final SubBlock getParentBlockWithNoTreatments(SubBlock _block) throws BlockParserException {
 		int outputSize=getBodyOutputSizeForEncryption(_block.getSize());
 		SubBlock res= new SubBlock(_block.getBytes(), _block.getOffset() - getHeadSize(),
@@ -92,6 +110,17 @@ public abstract class SubBlockParser {
 	private final EncryptionSignatureHashEncoder encoderWithEncryption;
 	private final EncryptionSignatureHashEncoder encoderWithoutEncryption;
 	private PacketCounterForEncryptionAndSignature packetCounter;
+	// Reusable arrays into which blocks are encrypted or decrypted before being
+	// copied back into their own array. Encoders and decoders are never used
+	// concurrently, so one array per direction is enough.
+	private byte[] encryptionBuffer = null;
+	private byte[] decryptionBuffer = null;
+
+	private static byte[] getBuffer(byte[] buffer, int length) {
+		if (buffer == null || buffer.length < length)
+			return new byte[length];
+		return buffer;
+	}
 
 	public void setPacketCounter(PacketCounterForEncryptionAndSignature packetCounter) {
 		this.packetCounter = packetCounter;
@@ -126,10 +155,14 @@ public abstract class SubBlockParser {
 			}
 
 			if (enabledEncryption) {
-				byte[] tab = new byte[_block.getBytes().length];
-				int dl = decoder.decodeAndCheckHashAndSignaturesIfNecessary(_block.getBytes(), _block.getOffset(), _block.getSize(),
-						tab, _block.getOffset()+EncryptionSignatureHashEncoder.headSize, _block.getSize()-EncryptionSignatureHashEncoder.headSize);
-				return new SubBlockInfo(new SubBlock(tab, _block.getOffset() + EncryptionSignatureHashEncoder.headSize, dl), true, false);
+				byte[] tab = _block.getBytes();
+				int off = _block.getOffset() + EncryptionSignatureHashEncoder.headSize;
+				int size = _block.getSize() - EncryptionSignatureHashEncoder.headSize;
+				byte[] buffer = decryptionBuffer = getBuffer(decryptionBuffer, size);
+				int dl = decoder.decodeAndCheckHashAndSignaturesIfNecessary(tab, _block.getOffset(), _block.getSize(),
+						buffer, 0, size);
+				System.arraycopy(buffer, 0, tab, off, dl);
+				return new SubBlockInfo(new SubBlock(tab, off, dl), true, false);
 			} else {
 				int dl= decoder.decodeAndCheckHashAndSignaturesIfNecessaryWithSameInputAndOutputStreamSource(_block.getBytes(), _block.getOffset(), _block.getSize());
 				return new SubBlockInfo(new SubBlock(_block.getBytes(), _block.getOffset() + EncryptionSignatureHashEncoder.headSize, dl), true, false);
@@ -195,9 +228,11 @@ public abstract class SubBlockParser {
 				int l=getBodyOutputSizeWithEncryptionImpl(_block.getSize());
 
 				int off=_block.getOffset() - EncryptionSignatureHashEncoder.headSize;
-				byte[] tab=new byte[_block.getBytes().length];
+				byte[] tab=_block.getBytes();
 				SubBlock res = new SubBlock(tab, off, l);
-				l=encoder.encode(_block.getBytes(), _block.getOffset(), _block.getSize(), res.getBytes(), res.getOffset(), res.getSize());
+				byte[] buffer = encryptionBuffer = getBuffer(encryptionBuffer, l);
+				l=encoder.encode(tab, _block.getOffset(), _block.getSize(), buffer, 0, res.getSize());
+				System.arraycopy(buffer, 0, tab, off, l);
 				for (int i=res.getOffset()+l, m=res.getOffset()+res.getSize();i<m;i++)
 					tab[i]=0;
 				return res;
@@ -60,6 +60,7 @@ public class SubBlocksStructure {
 	//boolean need_random = false;
 	int block_content_size;
 	int block_size;
+	private int buffer_size;
 	public SubBlocksStructure(PacketPart _packet, ConnectionProtocol<?> connection_protocol) throws NIOException {
 		this(_packet.getSubBlock().getSize(), connection_protocol);
 	}
@@ -127,13 +128,53 @@ public class SubBlocksStructure {
 			sub_block_offsets[i] = offset;
 		}
 		initial_packet_offset = offset + offsets[offsets.length - 1];
+		buffer_size = block_size = block_content_size + Block.getHeadSize();
+	}
+
+	/**
+	 * Update the structure when a parser whose block size is variable (see
+	 * {@link SubBlockParser#isBlockSizeVariable()}) produced a parent block
+	 * smaller than the expected one. The sizes of the enclosing sub blocks are
+	 * computed again, whereas the underlying buffer is kept.
+	 * 
+	 * @param sub_block_index
+	 *            the index of the produced sub block
+	 * @param size
+	 *            the size of the produced sub block
+	 * @param connection_protocol
+	 *            the connection protocol
+	 * @throws BlockParserException
+	 *             if the given size is invalid
+	 */
+	public void reduceSubBlockSize(int sub_block_index, int size, ConnectionProtocol<?> connection_protocol)
+			throws BlockParserException {
+		if (sub_block_index < 0 || sub_block_index >= sub_block_sizes.length)
+			throw new BlockParserException(new ArrayIndexOutOfBoundsException("sub_block_index is invalid"));
+		if (size == sub_block_sizes[sub_block_index])
+			return;
+		if (size < offsets[sub_block_index] || size > sub_block_sizes[sub_block_index])
+			throw new BlockParserException("Invalid sub block size (found=" + size + ", maximum="
+					+ sub_block_sizes[sub_block_index] + ")");
+		sub_block_sizes[sub_block_index] = size;
+		int i = offsets.length - 1;
+		for (Iterator<ConnectionProtocol<?>> it = connection_protocol.reverseIterator(); it.hasNext(); i--) {
+			ConnectionProtocol<?> cp = it.next();
+			if (i >= sub_block_index)
+				continue;
+			SubBlockParser sbp = cp.getParser();
+			size = sbp.getBodyOutputSizeForEncryption(size) + sbp.getHeadSize();
+			sub_block_sizes[i] = size;
+		}
+		block_content_size = size;
 		block_size = block_content_size + Block.getHeadSize();
+		if (block_size > buffer_size)
+			throw new BlockParserException("Invalid block size");
 	}
 		public SubBlocksStructure(Block _block, ConnectionProtocol<?> connection_protocol) throws NIOException {
 			init(_block, connection_protocol);
 		}
 	public void init(Block _block, ConnectionProtocol<?> connection_protocol) throws NIOException {
-		int size = block_content_size = (block_size = _block.getBlockSize()) - Block.getHeadSize();
+		int size = block_content_size = (buffer_size = block_size = _block.getBlockSize()) - Block.getHeadSize();
 		if (size <= 0)
 			throw new NIOException("Invalid block (too little size)");
 		int offset = Block.getHeadSize();
@@ -199,7 +240,7 @@ public class SubBlocksStructure {
 			throws BlockParserException {
 		if (sub_block_index < 0 || sub_block_index >= sub_block_sizes.length)
 			throw new BlockParserException(new ArrayIndexOutOfBoundsException("sub_block_index is invalid"));
-		if (_block.getBytes().length != block_size)
+		if (_block.getBytes().length != buffer_size)
 			throw new BlockParserException("Invalid block size");
 		if (_block.getOffset() != sub_block_offsets[sub_block_index])
 			throw new BlockParserException("Invalid block offset (found=" + _block.getOffset() + ", expected="
@@ -215,7 +256,7 @@ public class SubBlocksStructure {
 		if (sub_block_index < 0 || sub_block_index >= sub_block_sizes.length)
 			throw new BlockParserException(new ArrayIndexOutOfBoundsException("sub_block_index is invalid"));
 
-		if (_block.getBytes().length != block_size)
+		if (_block.getBytes().length != buffer_size)
 			throw new BlockParserException("Invalid block");
 		if (sub_block_index == sub_block_sizes.length - 1) {
 			if (_block.getOffset() != initial_packet_offset || _block.getSize() > initial_packet_size)
@@ -234,6 +275,30 @@ public class SubBlocksStructure {
 		return _block;
 	}
 
+	/**
+	 * Gets the last sub block, produced by a parser whose block size is variable
+	 * (see {@link SubBlockParser#isBlockSizeVariable()}). Contrary to
+	 * {@link #getSubBlockForChild(SubBlock, int)}, the returned block can be
+	 * stored into a new buffer, and can be greater than the received block.
+	 * 
+	 * @param _block
+	 *            the sub block produced by the parser
+	 * @param sub_block_index
+	 *            the index of the parent sub block
+	 * @return the sub block
+	 * @throws BlockParserException
+	 *             if the sub block is invalid
+	 */
+	public SubBlock getVariableSizeSubBlockForChild(SubBlock _block, int sub_block_index) throws BlockParserException {
+		if (sub_block_index != sub_block_sizes.length - 1)
+			throw new BlockParserException("Only the last sub block can have a variable size");
+		if (_block.getOffset() != initial_packet_offset || _block.getSize() <= 0
+				|| _block.getBytes().length - _block.getOffset() < _block.getSize())
+			throw new BlockParserException("Invalid block : "+_block+" ; "+initial_packet_offset);
+		initial_packet_size = _block.getSize();
+		return _block;
+	}
+
 	public static int getAbsoluteMaximumBufferSize(ConnectionProtocol<?> connection_protocol) throws NIOException {
 		int size = Block.BLOCK_SIZE_LIMIT - Block.getHeadSize() - PacketPartHead.getHeadSize(true);
 		for (ConnectionProtocol<?> cp : connection_protocol) {
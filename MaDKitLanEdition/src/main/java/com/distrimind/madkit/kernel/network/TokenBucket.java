@@ -0,0 +1,142 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel.network;
+
+/**
+ * Token bucket used to shape the bandwidth. Tokens are bytes, refilled at the
+ * given rate until the capacity of the bucket, which corresponds to the
+ * accepted burst. Consuming more tokens than available is possible, and gives
+ * a debt that must be refilled before new transfers are accepted. This class
+ * is thread safe.
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+final class TokenBucket {
+	private long bytesPerSecond = Integer.MAX_VALUE;
+	private long capacity = Long.MAX_VALUE;
+	private long tokens = 0;
+	private long lastRefillNano = System.nanoTime();
+	private final long burstDurationInMs;
+
+	TokenBucket(long burstDurationInMs) {
+		if (burstDurationInMs <= 0)
+			throw new IllegalArgumentException();
+		this.burstDurationInMs = burstDurationInMs;
+	}
+
+	TokenBucket(long burstDurationInMs, int bytesPerSecond) {
+		this(burstDurationInMs);
+		setRate(bytesPerSecond);
+	}
+
+	/**
+	 * Set the rate of the bucket
+	 * 
+	 * @param bytesPerSecond
+	 *            the rate in bytes per second, or {@link Integer#MAX_VALUE} if
+	 *            there is no limit
+	 */
+	synchronized void setRate(int bytesPerSecond) {
+		long r = Math.max(1, bytesPerSecond);
+		if (r == this.bytesPerSecond)
+			return;
+		refill();
+		boolean wasUnlimited = isUnlimited();
+		this.bytesPerSecond = r;
+		if (isUnlimited()) {
+			capacity = Long.MAX_VALUE;
+		} else {
+			capacity = Math.max(1, r * burstDurationInMs / 1000);
+			if (wasUnlimited || tokens > capacity)
+				tokens = capacity;
+		}
+		lastRefillNano = System.nanoTime();
+	}
+
+	boolean isUnlimited() {
+		return bytesPerSecond >= Integer.MAX_VALUE;
+	}
+
+	private void refill() {
+		if (isUnlimited())
+			return;
+		long now = System.nanoTime();
+		long elapsed = now - lastRefillNano;
+		if (elapsed <= 0)
+			return;
+		double added = ((double) elapsed) * ((double) bytesPerSecond) / 1000000000.0;
+		if (added >= (double) (capacity - tokens)) {
+			tokens = capacity;
+			lastRefillNano = now;
+		} else if (added >= 1.0) {
+			long a = (long) added;
+			tokens += a;
+			// keep the fraction of token not yet given
+			lastRefillNano += a * 1000000000L / bytesPerSecond;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the delay in nanoseconds to wait before new bytes can be
+	 *         transferred, or 0 if they can be transferred now
+	 */
+	synchronized long getDelayInNanos() {
+		if (isUnlimited())
+			return 0;
+		refill();
+		if (tokens > 0)
+			return 0;
+		return ((1 - tokens) * 1000000000L + bytesPerSecond - 1) / bytesPerSecond;
+	}
+
+	/**
+	 * Inform that bytes have been transferred
+	 * 
+	 * @param bytes
+	 *            the number of transferred bytes
+	 */
+	synchronized void consume(int bytes) {
+		if (isUnlimited() || bytes <= 0)
+			return;
+		refill();
+		tokens -= bytes;
+	}
+}
@@ -47,6 +47,7 @@ import com.distrimind.madkit.kernel.network.connection.TransferedBlockChecker;
 import com.distrimind.madkit.message.ObjectMessage;
 import com.distrimind.madkit.message.hook.TransferEventMessage;
 import com.distrimind.madkit.message.hook.TransferEventMessage.TransferEventType;
+import com.distrimind.madkit.util.ReferenceCleaner;
 import com.distrimind.util.IDGeneratorInt;
 import com.distrimind.util.io.*;
 
@@ -484,6 +485,14 @@ class TransferAgent extends AgentFakeThread {
 			id = -1;
 		}
 
+		private static Runnable getIDRelease(IDGeneratorInt generator_id_transfer, int id) {
+			return () -> {
+				synchronized (generator_id_transfer) {
+					generator_id_transfer.removeID(id);
+				}
+			};
+		}
+
 		boolean isGenerated() {
 			return generator_id_transfer != null;
 		}
@@ -496,13 +505,7 @@ class TransferAgent extends AgentFakeThread {
 
 			this.generator_id_transfer = generator_id_transfer;
 			this.id = getNewIDTransfer();
-		}
-
-		@SuppressWarnings("deprecation")
-		@Override
-		public void finalize() {
-			if (generator_id_transfer != null)
-				removeIDTransfer(id);
+			ReferenceCleaner.register(this, getIDRelease(generator_id_transfer, this.id));
 		}
 
 		public int getID() {
@@ -549,13 +552,6 @@ class TransferAgent extends AgentFakeThread {
 			}
 		}
 
-		@SuppressWarnings("UnusedReturnValue")
-		private boolean removeIDTransfer(int _id) {
-			synchronized (generator_id_transfer) {
-				return generator_id_transfer.removeID(_id);
-			}
-		}
-
 		@Override
 		public int getInternalSerializedSize() {
 			return 4;
@@ -76,16 +76,28 @@ public final class WritePacket {
 	private final boolean transfer_as_big_data;
 	private final short random_values_size;
 	private final AbstractSecureRandom random;
+	private final PaddingKeyStream paddingKeyStream;
 
 	public WritePacket(int _type, int _id_packet, int _max_buffer_size, short random_values_size, AbstractSecureRandom rand,
 			RandomInputStream _input_stream) throws PacketException, IOException {
 		this(_type, _id_packet, _max_buffer_size, random_values_size, rand, _input_stream, 0, _input_stream.length());
 	}
 
+	WritePacket(int _type, int _id_packet, int _max_buffer_size, short random_values_size, AbstractSecureRandom rand,
+			RandomInputStream _input_stream, PaddingKeyStream paddingKeyStream) throws PacketException, IOException {
+		this(_type, _id_packet, _max_buffer_size, random_values_size, rand, _input_stream, 0, _input_stream.length(),
+				_input_stream instanceof RandomFileInputStream, null, paddingKeyStream);
+	}
+
 	public WritePacket(int _type, int _id_packet, int _max_buffer_size, short random_values_size, AbstractSecureRandom rand,
 			RandomInputStream _input_stream, MessageDigestType messageDigestType) throws PacketException, IOException {
+		this(_type, _id_packet, _max_buffer_size, random_values_size, rand, _input_stream, messageDigestType, null);
+	}
+
+	WritePacket(int _type, int _id_packet, int _max_buffer_size, short random_values_size, AbstractSecureRandom rand,
+			RandomInputStream _input_stream, MessageDigestType messageDigestType, PaddingKeyStream paddingKeyStream) throws PacketException, IOException {
 		this(_type, _id_packet, _max_buffer_size, random_values_size, rand, _input_stream, 0, _input_stream.length(),
-				_input_stream instanceof RandomFileInputStream, messageDigestType);
+				_input_stream instanceof RandomFileInputStream, messageDigestType, paddingKeyStream);
 	}
 
 	public WritePacket(int _type, int _id_packet, int _max_buffer_size, short random_values_size, AbstractSecureRandom rand,
@@ -102,6 +114,19 @@ public final class WritePacket {
 	public WritePacket(int _type, int _id_packet, int _max_buffer_size, short random_values_size, AbstractSecureRandom rand,
 			RandomInputStream _input_stream, long _start_position, long length, boolean _transfer_as_big_data,
 			MessageDigestType messageDigestType) throws PacketException {
+		this(_type, _id_packet, _max_buffer_size, random_values_size, rand, _input_stream, _start_position, length,
+				_transfer_as_big_data, messageDigestType, null);
+	}
+
+	/**
+	 * @param paddingKeyStream
+	 *            if not null, the random padding is generated in bulk with this
+	 *            key stream and appended after the data, instead of being drawn
+	 *            from <code>rand</code> and interleaved with the data
+	 */
+	WritePacket(int _type, int _id_packet, int _max_buffer_size, short random_values_size, AbstractSecureRandom rand,
+			RandomInputStream _input_stream, long _start_position, long length, boolean _transfer_as_big_data,
+			MessageDigestType messageDigestType, PaddingKeyStream paddingKeyStream) throws PacketException {
 		if ((_type & PacketPartHead.TYPE_PACKET) != PacketPartHead.TYPE_PACKET)
 			throw new UnknownPacketTypeException("The given type is not a packet type (" + _type + ")");
 		try {
@@ -125,12 +150,15 @@ public final class WritePacket {
 		max_buffer_size = _max_buffer_size;
 		this.random_values_size =random_values_size;
 
-		if (this.random_values_size == 0)
+		if (this.random_values_size == 0) {
 			random = null;
+			this.paddingKeyStream = null;
+		}
 		else {
-			if (rand == null)
+			if (rand == null && paddingKeyStream == null)
 				throw new NullPointerException("rand");
 			random = rand;
+			this.paddingKeyStream = paddingKeyStream;
 		}
 		try {
 			data_length = length;
@@ -229,7 +257,7 @@ public final class WritePacket {
 			long dataSizeRemaining=data_length - (current_pos.get() - start_position);
 			AbstractByteTabOutputStream res = getByteTabOutputStream(conProto,
 					data_length + start_position <= current_pos.get() ? null : messageDigest, max_buffer_size, headSize,
-					data_length_with_message_digest - (current_pos.get() - start_position), (conProto.isCrypted() && dataSizeRemaining<max_buffer_size)?random_values_size:0, random);
+					data_length_with_message_digest - (current_pos.get() - start_position), (conProto.isCrypted() && dataSizeRemaining<max_buffer_size)?random_values_size:0, random, paddingKeyStream);
 			boolean last_packet = (current_pos.get()
 					+ res.getRealDataSizeWithoutPacketHeadSize()) == (data_length_with_message_digest + start_position);
 			PacketPartHead pph = setHeadPart(last_packet, res);
@@ -345,13 +373,17 @@ public final class WritePacket {
 	}
 
 	protected static AbstractByteTabOutputStream getByteTabOutputStream(ConnectionProtocol<?> conProto, AbstractMessageDigest messageDigest,
-			int max_buffer_size, int packet_head_size, long _data_remaining, short random_values_size, AbstractSecureRandom rand) throws NIOException {
+			int max_buffer_size, int packet_head_size, long _data_remaining, short random_values_size, AbstractSecureRandom rand,
+			PaddingKeyStream paddingKeyStream) throws NIOException {
 		if (random_values_size<0)
 			throw new NullPointerException();
 		if (_data_remaining<=0)
 			throw new IllegalArgumentException();
 		if (random_values_size == 0)
 			return new ByteTabOutputStream(conProto, messageDigest, max_buffer_size, packet_head_size, _data_remaining);
+		else if (paddingKeyStream != null)
+			return new ByteTabOutputStreamWithBulkPadding(conProto, messageDigest, max_buffer_size, packet_head_size,
+					_data_remaining, _data_remaining>max_buffer_size?0:random_values_size, paddingKeyStream);
 		else
 			return new ByteTabOutputStreamWithRandomValues(conProto, messageDigest, max_buffer_size, packet_head_size,
 					_data_remaining, _data_remaining>max_buffer_size?0:random_values_size, rand);
@@ -360,13 +392,18 @@ public final class WritePacket {
 	
 
 	protected static class ByteTabOutputStream extends AbstractByteTabOutputStream {
-		private final byte[] tab;
+		protected final byte[] tab;
 		private final SubBlock subBlock;
-		private int cursor;
+		protected int cursor;
 		private final int realDataSize_WithoutHead;
 
 		ByteTabOutputStream(ConnectionProtocol<?> connectionProtocol, AbstractMessageDigest messageDigest, int max_buffer_size, int packet_head_size,
 				long _data_remaining) throws NIOException {
+			this(connectionProtocol, messageDigest, max_buffer_size, packet_head_size, _data_remaining, 0, (byte)0);
+		}
+
+		ByteTabOutputStream(ConnectionProtocol<?> connectionProtocol, AbstractMessageDigest messageDigest, int max_buffer_size, int packet_head_size,
+				long _data_remaining, int paddingSize, byte mode) throws NIOException {
 			super(messageDigest);
 			/*
 			 * realDataSize_WithoutHead=(short)Math.min(_data_remaining, max_buffer_size);
@@ -374,12 +411,12 @@ public final class WritePacket {
 			 * byte[size];
 			 */
 			realDataSize_WithoutHead = (int)Math.min(_data_remaining, max_buffer_size);
-			int packetSize=packet_head_size + realDataSize_WithoutHead+1;
+			int packetSize=packet_head_size + realDataSize_WithoutHead+paddingSize+1;
 			subBlock=connectionProtocol.initSubBlock(packetSize);
 			//tab = new byte[size];
 			tab=subBlock.getBytes();
 			cursor = subBlock.getOffset();
-			tab[cursor++]=0;
+			tab[cursor++]=mode;
 		}
 		static int getMaxOutputSize(int max_buffer_size, int packet_head_size)
 		{
@@ -430,6 +467,38 @@ public final class WritePacket {
 
 	}
 
+	/**
+	 * Writes the data contiguously, and appends a random padding generated in
+	 * bulk from a {@link PaddingKeyStream}. The padding size follows the same
+	 * distribution as with {@link ByteTabOutputStreamWithRandomValues}, so the
+	 * traffic shape is kept, whereas data can be read without being moved.
+	 */
+	protected static class ByteTabOutputStreamWithBulkPadding extends ByteTabOutputStream {
+		private final PaddingKeyStream paddingKeyStream;
+
+		ByteTabOutputStreamWithBulkPadding(ConnectionProtocol<?> conProto, AbstractMessageDigest messageDigest, int max_buffer_size,
+				int packet_head_size, long _data_remaining, short max_random_values_size, PaddingKeyStream paddingKeyStream) throws NIOException {
+			super(conProto, messageDigest, max_buffer_size, packet_head_size, _data_remaining,
+					getPaddingSize(max_buffer_size, max_random_values_size, paddingKeyStream), (byte)2);
+			this.paddingKeyStream = paddingKeyStream;
+		}
+
+		private static short getPaddingSize(int max_buffer_size, short max_random_values_size, PaddingKeyStream paddingKeyStream) {
+			short min = getMiniRandomValueSize();
+			if (max_random_values_size >= min)
+				return (short)(min + paddingKeyStream.nextInt(
+						Math.min(getMaximumGlobalRandomValues(max_buffer_size), max_random_values_size) - min +1));
+			else
+				return min;
+		}
+
+		@Override
+		void finalizeTab() {
+			SubBlock subBlock = getSubBlock();
+			paddingKeyStream.nextBytes(tab, cursor, subBlock.getOffset() + subBlock.getSize() - cursor);
+		}
+	}
+
 	protected static class ByteTabOutputStreamWithRandomValues extends AbstractByteTabOutputStream {
 		private final SubBlock subBlock;
 		private final AbstractSecureRandom random;
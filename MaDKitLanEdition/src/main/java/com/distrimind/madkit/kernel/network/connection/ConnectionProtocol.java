@@ -378,7 +378,10 @@ public abstract class ConnectionProtocol<CP extends ConnectionProtocol<CP>> impl
 			}
 			if (valid) {
 				try {
-					sbi = new SubBlockInfo(lastSBS.getSubBlockForChild(sbi.getSubBlock(), i), true, false);
+					if (sbp.isBlockSizeVariable())
+						sbi = new SubBlockInfo(lastSBS.getVariableSizeSubBlockForChild(sbi.getSubBlock(), i), true, false);
+					else
+						sbi = new SubBlockInfo(lastSBS.getSubBlockForChild(sbi.getSubBlock(), i), true, false);
 				} catch (BlockParserException e) {
 					valid = false;
 				}
@@ -415,6 +418,11 @@ public abstract class ConnectionProtocol<CP extends ConnectionProtocol<CP>> impl
 	}
 	public final Block getBlock(WritePacket _packet, int _transfert_type, AbstractSecureRandom random, boolean excludedFromEncryption)
 			throws NIOException {
+		return getBlock(_packet, _transfert_type, random, excludedFromEncryption, false);
+	}
+
+	public final Block getBlock(WritePacket _packet, int _transfert_type, AbstractSecureRandom random, boolean excludedFromEncryption, boolean excludedFromCompression)
+			throws NIOException {
 		try {
 			PacketPart packet_part = _packet.getNextPart(this);
 			if (packet_part == null)
@@ -433,7 +441,11 @@ public abstract class ConnectionProtocol<CP extends ConnectionProtocol<CP>> impl
 				if (pc!=null)
 				    pc.incrementOtherCounters();
 
-				subBlock = lastSBS.getSubBlockForParent(cp.getParser().getParentBlock(subBlock, excludedFromEncryption), i, random);
+				SubBlockParser sbp = cp.getParser();
+				subBlock = sbp.getParentBlock(subBlock, excludedFromEncryption, excludedFromCompression);
+				if (sbp.isBlockSizeVariable())
+					lastSBS.reduceSubBlockSize(i, subBlock.getSize(), this);
+				subBlock = lastSBS.getSubBlockForParent(subBlock, i, random);
 			}
 			PointToPointTransferedBlockChecker ptp=pointToPointTransferedBlockChecker;
 			if (ptp!=null)
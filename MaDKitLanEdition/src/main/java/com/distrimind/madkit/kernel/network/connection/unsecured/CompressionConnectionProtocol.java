@@ -0,0 +1,381 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel.network.connection.unsecured;
+
+import com.distrimind.madkit.exceptions.BlockParserException;
+import com.distrimind.madkit.exceptions.ConnectionException;
+import com.distrimind.madkit.kernel.MadkitProperties;
+import com.distrimind.madkit.kernel.network.Block;
+import com.distrimind.madkit.kernel.network.CompressionStat;
+import com.distrimind.madkit.kernel.network.PacketCounter;
+import com.distrimind.madkit.kernel.network.SubBlock;
+import com.distrimind.madkit.kernel.network.SubBlockInfo;
+import com.distrimind.madkit.kernel.network.SubBlockParser;
+import com.distrimind.madkit.kernel.network.connection.*;
+import com.distrimind.ood.database.DatabaseWrapper;
+import com.distrimind.util.Bits;
+import com.distrimind.util.io.SecuredObjectInputStream;
+import com.distrimind.util.io.SecuredObjectOutputStream;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Represents a connection protocol that compress each block with the deflate
+ * algorithm. It must be the last sub protocol, in order to compress data
+ * before it is encrypted by the secured protocols.
+ * 
+ * Blocks that are too small, incompressible, or that come from a message
+ * excluded from compression (see
+ * {@link com.distrimind.madkit.kernel.Message#excludedFromCompression()}) are
+ * sent as they are. When a block is incompressible, the next blocks are sent
+ * without trying to compress them, during a number of blocks that grows while
+ * data stays incompressible.
+ * 
+ * Statistics about the compression ratio and the CPU time are available
+ * through {@link com.distrimind.madkit.kernel.network.StatsBandwidth#getCompressionStat()}.
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ * @see CompressionConnectionProtocolProperties
+ */
+public class CompressionConnectionProtocol extends ConnectionProtocol<CompressionConnectionProtocol> {
+	static final int HEAD_SIZE = 4;
+	private static final byte RAW_BLOCK = 0;
+	private static final byte DEFLATED_BLOCK = 1;
+
+	private final Parser parser;
+	private boolean connected = false;
+	private final NullPacketCounter packetCounter=new NullPacketCounter();
+	private final CompressionConnectionProtocolProperties properties;
+	private volatile CompressionStat compressionStat = null;
+
+	@SuppressWarnings("unused")
+	private CompressionConnectionProtocol(InetSocketAddress _distant_inet_address,
+										  InetSocketAddress _local_interface_address, ConnectionProtocol<?> _subProtocol,
+										  DatabaseWrapper _sql_connection, MadkitProperties mkProperties, ConnectionProtocolProperties<?> cpp, int subProtocolLevel, boolean isServer,
+										  boolean mustSupportBidirectionalConnectionInitiative
+	) throws ConnectionException {
+		super(_distant_inet_address, _local_interface_address, _subProtocol, _sql_connection, mkProperties,cpp,
+				subProtocolLevel, isServer, mustSupportBidirectionalConnectionInitiative);
+		properties = (CompressionConnectionProtocolProperties) super.connection_protocol_properties;
+		properties.checkProperties();
+		if (_subProtocol != null)
+			throw new ConnectionException("The compression protocol must be the last sub protocol");
+		parser = new Parser();
+	}
+
+	/**
+	 * Sets the statistics fed by this protocol
+	 * 
+	 * @param compressionStat
+	 *            the compression statistics
+	 */
+	public void setCompressionStat(CompressionStat compressionStat) {
+		this.compressionStat = compressionStat;
+	}
+
+	@Override
+	protected ConnectionMessage getNextStep(ConnectionMessage _m) {
+		if (!connected) {
+			if (_m instanceof AskConnection) {
+				if (((AskConnection) _m).isYouAreAsking())
+					return new AskConnection(false);
+				else {
+					connected = true;
+					return new ConnectionFinished(getDistantInetSocketAddress(), (byte[])null);
+				}
+			} else if (_m instanceof ConnectionFinished) {
+				ConnectionFinished cf = (ConnectionFinished) _m;
+				if (!cf.getState().equals(ConnectionProtocol.ConnectionState.CONNECTION_ESTABLISHED)) {
+					if (cf.getState().equals(ConnectionProtocol.ConnectionState.CONNECTION_CLOSED)) {
+						return new ConnectionFinished(this.getDistantInetSocketAddress(),
+								ConnectionClosedReason.CONNECTION_PROPERLY_CLOSED);
+					} else {
+						return new ConnectionFinished(this.getDistantInetSocketAddress(),
+								ConnectionClosedReason.CONNECTION_LOST);
+					}
+				} else {
+					connected = true;
+					return new ConnectionFinished(getDistantInetSocketAddress(), (byte[])null);
+				}
+			} else {
+				return new UnexpectedMessage(getDistantInetSocketAddress());
+			}
+
+		} else {
+			if (_m instanceof ConnectionFinished) {
+				ConnectionFinished cf = (ConnectionFinished) _m;
+				if (!cf.getState().equals(ConnectionProtocol.ConnectionState.CONNECTION_ESTABLISHED)) {
+					if (cf.getState().equals(ConnectionProtocol.ConnectionState.CONNECTION_CLOSED)) {
+						return new ConnectionFinished(this.getDistantInetSocketAddress(),
+								ConnectionClosedReason.CONNECTION_PROPERLY_CLOSED);
+					} else {
+						return new ConnectionFinished(this.getDistantInetSocketAddress(),
+								ConnectionClosedReason.CONNECTION_LOST);
+					}
+				}
+				return null;
+			} else {
+				return new UnexpectedMessage(getDistantInetSocketAddress());
+			}
+		}
+	}
+
+	@Override
+	protected void closeConnection(ConnectionClosedReason _reason) {
+		connected = false;
+		parser.end();
+	}
+
+	@Override
+	public SubBlockParser getParser() {
+		return parser;
+	}
+
+	@Override
+	public TransferedBlockChecker getTransferredBlockChecker(TransferedBlockChecker subBlockChecker) {
+		return new BlockChecker(subBlockChecker);
+	}
+
+	class Parser extends SubBlockParser {
+		private final Deflater deflater;
+		private final Inflater inflater = new Inflater();
+		private byte[] compressionBuffer = null;
+		private int numberOfBlocksToBypass = 0;
+		private int bypassedBlocksAfterFailure = 0;
+		private boolean deflaterEnded = false;
+		private boolean inflaterEnded = false;
+
+		Parser() throws ConnectionException {
+			super(null, null, null, null, null);
+			deflater = new Deflater(properties.compressionLevel);
+		}
+
+		/*
+		 * Releases the native zlib memory held by the deflater and the inflater.
+		 * Blocks parsed after this call are rejected.
+		 */
+		void end() {
+			synchronized (deflater) {
+				if (!deflaterEnded) {
+					deflaterEnded = true;
+					deflater.end();
+				}
+			}
+			synchronized (inflater) {
+				if (!inflaterEnded) {
+					inflaterEnded = true;
+					inflater.end();
+				}
+			}
+		}
+
+		@Override
+		public SubBlockInfo getSubBlock(SubBlock _block) throws BlockParserException {
+			byte[] tab = _block.getBytes();
+			int offset = _block.getOffset() + HEAD_SIZE;
+			int size = _block.getSize() - HEAD_SIZE;
+			if (size <= 0)
+				return new SubBlockInfo(_block, false, true);
+			byte type = tab[_block.getOffset()];
+			int originalSize = Bits.getUnsignedInt24Bits(tab, _block.getOffset() + 1);
+			if (type == RAW_BLOCK) {
+				if (originalSize != size)
+					return new SubBlockInfo(_block, false, true);
+				return new SubBlockInfo(new SubBlock(tab, offset, size), true, false);
+			} else if (type == DEFLATED_BLOCK) {
+				if (originalSize <= size || originalSize > Block.BLOCK_SIZE_LIMIT)
+					return new SubBlockInfo(_block, false, true);
+				long start = System.nanoTime();
+				byte[] res = new byte[offset + originalSize];
+				synchronized (inflater) {
+					if (inflaterEnded)
+						throw new BlockParserException("Connection closed");
+					try {
+						inflater.reset();
+						inflater.setInput(tab, offset, size);
+						if (inflater.inflate(res, offset, originalSize) != originalSize || !inflater.finished())
+							return new SubBlockInfo(_block, false, true);
+					} catch (DataFormatException e) {
+						return new SubBlockInfo(_block, false, true);
+					}
+				}
+				CompressionStat stat = compressionStat;
+				if (stat != null)
+					stat.newBlockDecompressed(size, originalSize, System.nanoTime() - start);
+				return new SubBlockInfo(new SubBlock(res, offset, originalSize), true, false);
+			} else
+				return new SubBlockInfo(_block, false, true);
+		}
+
+		@Override
+		public SubBlock getParentBlock(SubBlock _block, boolean excludeFromEncryption) throws BlockParserException {
+			return getParentBlock(_block, excludeFromEncryption, false);
+		}
+
+		@Override
+		public SubBlock getParentBlock(SubBlock _block, boolean excludeFromEncryption, boolean excludeFromCompression) throws BlockParserException {
+			long start = System.nanoTime();
+			byte[] tab = _block.getBytes();
+			int offset = _block.getOffset();
+			int size = _block.getSize();
+			byte type = RAW_BLOCK;
+			int outputSize = size;
+			if (!excludeFromCompression && size >= properties.minimumBlockSizeToCompress) {
+				if (numberOfBlocksToBypass > 0)
+					--numberOfBlocksToBypass;
+				else {
+					int maxOutputSize = (int) (size * properties.maximumCompressionRatio);
+					if (compressionBuffer == null || compressionBuffer.length < maxOutputSize + 1)
+						compressionBuffer = new byte[maxOutputSize + 1];
+					int compressedSize;
+					boolean finished;
+					synchronized (deflater) {
+						if (deflaterEnded)
+							throw new BlockParserException("Connection closed");
+						deflater.reset();
+						deflater.setInput(tab, offset, size);
+						deflater.finish();
+						compressedSize = deflater.deflate(compressionBuffer, 0, maxOutputSize + 1);
+						finished = deflater.finished();
+					}
+					if (finished && compressedSize <= maxOutputSize) {
+						System.arraycopy(compressionBuffer, 0, tab, offset, compressedSize);
+						type = DEFLATED_BLOCK;
+						outputSize = compressedSize;
+						bypassedBlocksAfterFailure = 0;
+					} else {
+						bypassedBlocksAfterFailure = Math.min(properties.maximumNumberOfBypassedBlocks,
+								bypassedBlocksAfterFailure == 0 ? 1 : bypassedBlocksAfterFailure * 2);
+						numberOfBlocksToBypass = bypassedBlocksAfterFailure;
+					}
+				}
+			}
+			int headOffset = offset - HEAD_SIZE;
+			tab[headOffset] = type;
+			Bits.putUnsignedInt24Bits(tab, headOffset + 1, size);
+			CompressionStat stat = compressionStat;
+			if (stat != null)
+				stat.newBlockCompressed(size, outputSize, System.nanoTime() - start);
+			return new SubBlock(tab, headOffset, outputSize + HEAD_SIZE);
+		}
+
+		@Override
+		public boolean isBlockSizeVariable() {
+			return true;
+		}
+
+		@Override
+		public int getHeadSize() {
+			return HEAD_SIZE;
+		}
+
+		@Override
+		public int getBodyOutputSizeForEncryption(int _size) {
+			return _size;
+		}
+
+		@Override
+		public int getBodyOutputSizeForDecryption(int _size) {
+			return _size;
+		}
+
+		@Override
+		public SubBlockInfo checkIncomingPointToPointTransferredBlock(SubBlock _block) throws BlockParserException {
+			return new SubBlockInfo(new SubBlock(_block.getBytes(), _block.getOffset() + HEAD_SIZE,
+					_block.getSize() - HEAD_SIZE), true, false);
+		}
+
+		@Override
+		public SubBlock signIfPossibleOutgoingPointToPointTransferredBlock(SubBlock _block) throws BlockParserException {
+			return new SubBlock(_block.getBytes(), _block.getOffset() - HEAD_SIZE, _block.getSize() + HEAD_SIZE);
+		}
+
+	}
+
+	static class BlockChecker extends TransferedBlockChecker {
+
+		protected BlockChecker(TransferedBlockChecker _subChecker) {
+			super(_subChecker, true);
+		}
+
+		@SuppressWarnings("unused")
+		BlockChecker()
+		{
+
+		}
+
+		@Override
+		public SubBlockInfo checkSubBlock(SubBlock _block) throws BlockParserException {
+			return new SubBlockInfo(new SubBlock(_block.getBytes(), _block.getOffset() + HEAD_SIZE,
+					_block.getSize() - HEAD_SIZE), true, false);
+		}
+
+		@Override
+		public int getInternalSerializedSize() {
+			return 0;
+		}
+
+		@Override
+		public void readExternal(SecuredObjectInputStream in) throws IOException, ClassNotFoundException {
+			super.readExternal(in);
+		}
+
+		@Override
+		public void writeExternal(SecuredObjectOutputStream oos) throws IOException {
+			super.writeExternal(oos);
+		}
+
+	}
+
+	@Override
+	public boolean isTransferBlockCheckerChangedImpl() {
+		return false;
+	}
+
+	@Override
+	public PacketCounter getPacketCounter() {
+		return packetCounter;
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel.network.connection.unsecured;
+
+import com.distrimind.madkit.exceptions.ConnectionException;
+import com.distrimind.madkit.kernel.network.EncryptionRestriction;
+import com.distrimind.madkit.kernel.network.connection.ConnectionProtocolProperties;
+
+import java.util.zip.Deflater;
+
+/**
+ * Represents a connection protocol properties associated to the protocol
+ * {@link CompressionConnectionProtocol}. This protocol must be the last sub
+ * protocol, in order to compress data before it is encrypted by the secured
+ * protocols.
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ * @see CompressionConnectionProtocol
+ */
+public class CompressionConnectionProtocolProperties extends ConnectionProtocolProperties<CompressionConnectionProtocol> {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -4102917237366318290L;
+
+	/**
+	 * Tells if the current peer can receive an ask for connection.
+	 */
+	public boolean isServer = true;
+
+	/**
+	 * The deflate compression level, between {@link Deflater#BEST_SPEED} and
+	 * {@link Deflater#BEST_COMPRESSION}
+	 */
+	public int compressionLevel = Deflater.BEST_SPEED;
+
+	/**
+	 * Blocks whose size is lower than this value are sent without compression
+	 */
+	public int minimumBlockSizeToCompress = 128;
+
+	/**
+	 * A compressed block is sent only if its compressed size divided by its
+	 * original size is lower or equal than this ratio. Otherwise, the block is
+	 * sent without compression.
+	 */
+	public double maximumCompressionRatio = 0.95;
+
+	/**
+	 * When a block is incompressible, the next blocks are sent without trying to
+	 * compress them. The number of bypassed blocks doubles each time a new
+	 * incompressible block is found, until reaching this value, and is reset
+	 * when a block is compressed again. A value of 0 means that each block is
+	 * tested.
+	 */
+	public int maximumNumberOfBypassedBlocks = 32;
+
+	public CompressionConnectionProtocolProperties() {
+		super(CompressionConnectionProtocol.class);
+	}
+
+	@Override
+	public boolean needsServerSocketImpl() {
+		return isServer;
+	}
+
+	@Override
+	public boolean canTakeConnectionInitiativeImpl() {
+		return true;
+	}
+
+	@Override
+	public boolean supportBidirectionalConnectionInitiativeImpl() {
+		return true;
+	}
+
+	@Override
+	public boolean canBeServer() {
+		return true;
+	}
+
+	@Override
+	public void checkProperties() throws ConnectionException {
+		if (subProtocolProperties != null)
+			throw new ConnectionException("The compression protocol must be the last sub protocol");
+		if (compressionLevel < Deflater.BEST_SPEED || compressionLevel > Deflater.BEST_COMPRESSION)
+			throw new ConnectionException("Invalid compression level : " + compressionLevel);
+		if (minimumBlockSizeToCompress < 0)
+			throw new ConnectionException("minimumBlockSizeToCompress cannot be negative");
+		if (maximumCompressionRatio <= 0.0 || maximumCompressionRatio > 1.0)
+			throw new ConnectionException("maximumCompressionRatio must be between 0 (excluded) and 1");
+		if (maximumNumberOfBypassedBlocks < 0)
+			throw new ConnectionException("maximumNumberOfBypassedBlocks cannot be negative");
+	}
+
+	@Override
+	public boolean isConcernedBy(EncryptionRestriction encryptionRestriction) {
+		return encryptionRestriction==EncryptionRestriction.NO_RESTRICTION;
+	}
+
+	@Override
+	public boolean needsMadkitLanEditionDatabase() {
+		return false;
+	}
+
+	@Override
+	public boolean isEncrypted() {
+		return false;
+	}
+
+	@Override
+	public int getMaximumBodyOutputSizeForEncryption(int size) {
+		return size;
+	}
+
+	@Override
+	public int getMaximumHeadSize() {
+		return CompressionConnectionProtocol.HEAD_SIZE;
+	}
+
+}
@@ -43,11 +43,16 @@ import com.distrimind.madkit.kernel.Activator;
 import com.distrimind.madkit.kernel.Scheduler;
 import com.distrimind.madkit.simulation.SimulationException;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.lang.reflect.Modifier;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * An activator that invokes a single method with no parameters on a group of
@@ -64,11 +69,70 @@ import java.util.Map;
  * 
  */
 public class GenericBehaviorActivator<A extends AbstractAgent> extends Activator<A> {
+	private static final MethodType BEHAVIOR_TYPE = MethodType.methodType(void.class, AbstractAgent.class);
+
+	/*
+	 * MethodHandles.privateLookupIn is available since Java 9. The project still
+	 * targets Java 8, so it is loaded through reflection.
+	 */
+	private static final Method PRIVATE_LOOKUP_IN;
+
+	static {
+		Method m;
+		try {
+			m = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+		} catch (NoSuchMethodException e) {
+			m = null;
+		}
+		PRIVATE_LOOKUP_IN = m;
+	}
+
+	/*
+	 * The invoker of the behavior of one agent class. When the JVM gives access
+	 * to the agent class, a class calling the behavior directly is generated
+	 * through LambdaMetafactory. Otherwise, a method handle is used.
+	 */
+	private static final class Behavior {
+		private final Consumer<AbstractAgent> generated;
+		private final MethodHandle handle;
+
+		Behavior(Method m) throws IllegalAccessException {
+			MethodHandle h = MethodHandles.lookup().unreflect(m);
+			if (Modifier.isStatic(m.getModifiers()))
+				h = MethodHandles.dropArguments(h, 0, AbstractAgent.class);
+			handle = h.asType(BEHAVIOR_TYPE);
+			generated = generate(m);
+		}
+
+		@SuppressWarnings("unchecked")
+		private static Consumer<AbstractAgent> generate(Method m) {
+			if (PRIVATE_LOOKUP_IN == null || Modifier.isStatic(m.getModifiers()))
+				return null;
+			try {
+				MethodHandles.Lookup lookup = (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null,
+						m.getDeclaringClass(), MethodHandles.lookup());
+				return (Consumer<AbstractAgent>) LambdaMetafactory.metafactory(lookup, "accept",
+						MethodType.methodType(Consumer.class), MethodType.methodType(void.class, Object.class),
+						lookup.unreflect(m), MethodType.methodType(void.class, m.getDeclaringClass()))
+						.getTarget().invokeExact();
+			} catch (Throwable e) {
+				// the agent class is not accessible: the method handle is used
+				return null;
+			}
+		}
+
+		void activate(AbstractAgent agent) throws Throwable {
+			if (generated != null)
+				generated.accept(agent);
+			else
+				handle.invokeExact(agent);
+		}
+	}
+
 	/**
-	 * methods maps an agent class to its corresponding Method object for runtime
-	 * invocation
+	 * methods maps an agent class to the invoker of its behavior
 	 */
-	private final Map<Class<? extends A>, Method> methods;
+	private final Map<Class<? extends A>, Behavior> methods;
 	private final String methodName;
 	// private Class<? extends A> cachedClass = null;
 
@@ -113,7 +177,7 @@ public class GenericBehaviorActivator<A extends AbstractAgent> extends Activator
 	public GenericBehaviorActivator(AbstractGroup groups, final String role, final String theBehaviorToActivate,
 			final boolean unique) {
 		super(groups, role, unique);
-		methods = new HashMap<>();
+		methods = new ConcurrentHashMap<>();
 		methodName = theBehaviorToActivate;
 	}
 
@@ -130,8 +194,8 @@ public class GenericBehaviorActivator<A extends AbstractAgent> extends Activator
 	 */
 	@Override
 	public void execute(final List<A> agents, Object... args) {
-		// local cache for multicore execute and avoiding adding collision
-		Method cachedM = null;
+		// local cache for multicore and fork/join execute
+		Behavior cachedM = null;
 		Class<? extends A> cachedC = null;
 		for (final A a : agents) {
 			if (a.isAlive()) {
@@ -142,13 +206,11 @@ public class GenericBehaviorActivator<A extends AbstractAgent> extends Activator
 					cachedM = methods.get(agentClass);
 					if (cachedM == null) {
 						try {
-							cachedM = findMethodOn(agentClass, methodName);
-						} catch (NoSuchMethodException e) {
+							cachedM = new Behavior(findMethodOn(agentClass, methodName));
+						} catch (NoSuchMethodException | IllegalAccessException e) {
 							throw new SimulationException(toString(), e);
 						}
-						synchronized (methods) {
-							methods.put(agentClass, cachedM);
-						}
+						methods.put(agentClass, cachedM);
 					}
 				}
 				try {
@@ -156,12 +218,10 @@ public class GenericBehaviorActivator<A extends AbstractAgent> extends Activator
 					if (cachedM==null)
 						throw new NullPointerException();
 
-					cachedM.invoke(a);
-				} catch (IllegalAccessException e) {
-					throw new SimulationException(toString(), e);
-				} catch (InvocationTargetException e) {
-					handleException(e.getCause(),
-							new SimulationException(toString() + " on " + cachedM + " " + a, e.getCause()));
+					cachedM.activate(a);
+				} catch (Throwable e) {
+					handleException(e,
+							new SimulationException(toString() + " on " + methodName + " " + a, e));
 				}
 			}
 		}
@@ -0,0 +1,197 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package com.distrimind.madkit.simulation.probe;
+
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.stream.DoubleStream;
+
+import com.distrimind.madkit.kernel.AbstractAgent;
+import com.distrimind.madkit.kernel.AbstractGroup;
+import com.distrimind.madkit.simulation.SimulationException;
+
+/**
+ * A {@link PropertyProbe} specialized for fields whose values can be read as
+ * <code>double</code>. Values are read and written without boxing, and the
+ * minimum, the maximum and the average over all the agents are computed
+ * without boxing, optionally in parallel.
+ * 
+ * @param <A>
+ *            the most common class type expected in this group (e.g.
+ *            AbstractAgent)
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ * @see #setParallel(boolean)
+ */
+public class DoublePropertyProbe<A extends AbstractAgent> extends PropertyProbe<A, Double> {
+
+	private volatile boolean parallel = false;
+
+	/**
+	 * Builds a new DoublePropertyProbe considering a CGR location and the name of
+	 * the class's field.
+	 * 
+	 * This function has the same effect than <code>#DoublePropertyProbe(groups,
+	 * role, fieldName, true)</code>
+	 * 
+	 * @param groups the groups
+	 * @param role the role
+	 * @param fieldName
+	 *            the name of a field which is encapsulated in the type &lt;A&gt;
+	 */
+	public DoublePropertyProbe(AbstractGroup groups, String role, String fieldName) {
+		this(groups, role, fieldName, true);
+	}
+
+	/**
+	 * Builds a new DoublePropertyProbe considering a CGR location and the name of
+	 * the class's field.
+	 * 
+	 * @param groups the groups
+	 * @param role the role
+	 * @param fieldName
+	 *            the name of a field which is encapsulated in the type &lt;A&gt;
+	 * @param unique
+	 *            Tells if the function {@link #getCurrentAgentsList()}
+	 *            must returns unique references.
+	 */
+	public DoublePropertyProbe(AbstractGroup groups, String role, String fieldName, boolean unique) {
+		super(groups, role, fieldName, unique);
+	}
+
+	/**
+	 * Tells if the minimum, the maximum and the average over all the agents are
+	 * computed in parallel, through the common fork/join pool.
+	 * 
+	 * @param parallel
+	 *            true if the computation is done in parallel. Default is false.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * @return true if the minimum, the maximum and the average over all the agents
+	 *         are computed in parallel
+	 * @see #setParallel(boolean)
+	 */
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Returns the current value of the agent's field, without boxing
+	 * 
+	 * @param agent
+	 *            the agent to probe
+	 * @return the actual value of the agent's field
+	 */
+	public double getPropertyDoubleValue(final A agent) {
+		FieldAccessors a = getAccessors(agent);
+		if (a.doubleGetter == null)
+			throw new SimulationException(toString() + " on " + agent,
+					new ClassCastException(a.field.getType().getName() + " cannot be read as double"));
+		try {
+			return (double) a.doubleGetter.invokeExact((AbstractAgent) agent);
+		} catch (Throwable e) {
+			throw new SimulationException(toString() + " on " + agent, e);
+		}
+	}
+
+	/**
+	 * Sets the value of the agent's field, without boxing
+	 * 
+	 * @param agent the agent
+	 * @param value the new value
+	 */
+	public void setPropertyDoubleValue(final A agent, final double value) {
+		FieldAccessors a = getAccessors(agent);
+		if (a.doubleSetter == null)
+			throw new SimulationException(toString() + " on " + agent,
+					new ClassCastException("double cannot be written into " + a.field.getType().getName()));
+		try {
+			a.doubleSetter.invokeExact((AbstractAgent) agent, value);
+		} catch (Throwable e) {
+			throw new SimulationException(toString() + " on " + agent, e);
+		}
+	}
+
+	private DoubleStream values() {
+		List<A> agents = getCurrentAgentsList();
+		return (parallel ? agents.parallelStream() : agents.stream()).mapToDouble(this::getPropertyDoubleValue);
+	}
+
+	/**
+	 * Returns the maximum for the property over all the agents, without boxing.
+	 * 
+	 * @return the maximum value for this property, or <code>Double.NaN</code>
+	 *         if there is no agent
+	 */
+	public double getMaxDoubleValue() {
+		return values().max().orElse(Double.NaN);
+	}
+
+	/**
+	 * Returns the minimum for the property over all the agents, without boxing.
+	 * 
+	 * @return the minimum value for this property, or <code>Double.NaN</code>
+	 *         if there is no agent
+	 */
+	public double getMinDoubleValue() {
+		return values().min().orElse(Double.NaN);
+	}
+
+	@Override
+	public Double getMaxValue() {
+		OptionalDouble max = values().max();
+		return max.isPresent() ? max.getAsDouble() : null;
+	}
+
+	@Override
+	public Double getMinValue() {
+		OptionalDouble min = values().min();
+		return min.isPresent() ? min.getAsDouble() : null;
+	}
+
+	@Override
+	public double getAverageValue() {
+		return values().average().orElse(Double.NaN);
+	}
+}
@@ -37,9 +37,13 @@
  */
 package com.distrimind.madkit.simulation.probe;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
 import java.lang.reflect.Field;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.distrimind.madkit.kernel.AbstractAgent;
 import com.distrimind.madkit.kernel.AbstractGroup;
@@ -61,17 +65,61 @@ import com.distrimind.madkit.simulation.SimulationException;
  * @version 6.0
  * 
  */
-public class PropertyProbe<A extends AbstractAgent, T> extends Probe<A>// TODO
-																		// make
-																		// a
-																		// thread
-																		// safe
-																		// version
+public class PropertyProbe<A extends AbstractAgent, T> extends Probe<A>
 {
-	final private Map<Class<? extends A>, Field> fields = new HashMap<>();
+	/*
+	 * Method handles accessing the probed field of one agent class. They are
+	 * built once per agent class, and avoid the access checks of Field.get/set
+	 * and, for the primitive variants, the boxing of the value.
+	 */
+	static final class FieldAccessors {
+		private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, AbstractAgent.class);
+		private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, AbstractAgent.class, Object.class);
+
+		final Class<?> agentClass;
+		final Field field;
+		final MethodHandle getter;
+		final MethodHandle setter;
+		final MethodHandle intGetter;
+		final MethodHandle intSetter;
+		final MethodHandle doubleGetter;
+		final MethodHandle doubleSetter;
+
+		FieldAccessors(Class<?> agentClass, Field field) throws IllegalAccessException {
+			this.agentClass = agentClass;
+			this.field = field;
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodHandle g = lookup.unreflectGetter(field);
+			MethodHandle s;
+			try {
+				s = lookup.unreflectSetter(field);
+			} catch (IllegalAccessException e) {
+				// final field
+				s = null;
+			}
+			getter = g.asType(GETTER_TYPE);
+			setter = s == null ? null : s.asType(SETTER_TYPE);
+			intGetter = convert(g, MethodType.methodType(int.class, AbstractAgent.class));
+			doubleGetter = convert(g, MethodType.methodType(double.class, AbstractAgent.class));
+			intSetter = convert(s, MethodType.methodType(void.class, AbstractAgent.class, int.class));
+			doubleSetter = convert(s, MethodType.methodType(void.class, AbstractAgent.class, double.class));
+		}
+
+		private static MethodHandle convert(MethodHandle mh, MethodType type) {
+			if (mh == null)
+				return null;
+			try {
+				return mh.asType(type);
+			} catch (WrongMethodTypeException e) {
+				// the field type cannot be converted to this primitive type
+				return null;
+			}
+		}
+	}
+
+	final private Map<Class<? extends A>, FieldAccessors> fields = new ConcurrentHashMap<>();
 	final private String fieldName;
-	private Field cachedField;
-	private Class<? extends A> cachedClass;
+	private volatile FieldAccessors cachedAccessors;
 
 	/**
 	 * Builds a new PropertyProbe considering a CGR location and the name of the
@@ -107,21 +155,23 @@ public class PropertyProbe<A extends AbstractAgent, T> extends Probe<A>// TODO
 	}
 
 
-	private void updateCache(A agent) {
+	final FieldAccessors getAccessors(A agent) {
 		@SuppressWarnings("unchecked")
 		final Class<? extends A> agentClass = (Class<? extends A>) agent.getClass();
-		if (agentClass != cachedClass) {
-			cachedClass = agentClass;
-			cachedField = fields.get(cachedClass);
-			if (cachedField == null) {
+		FieldAccessors a = cachedAccessors;
+		if (a == null || a.agentClass != agentClass) {
+			a = fields.get(agentClass);
+			if (a == null) {
 				try {
-					cachedField = findFieldOn(cachedClass, fieldName);
-					fields.put(cachedClass, cachedField);
-				} catch (NoSuchFieldException e) {
+					a = new FieldAccessors(agentClass, findFieldOn(agentClass, fieldName));
+				} catch (NoSuchFieldException | IllegalAccessException e) {
 					throw new SimulationException(toString() + " on " + agent, e);
 				}
+				fields.put(agentClass, a);
 			}
+			cachedAccessors = a;
 		}
+		return a;
 	}
 
 	/**
@@ -133,10 +183,10 @@ public class PropertyProbe<A extends AbstractAgent, T> extends Probe<A>// TODO
 	 */
 	@SuppressWarnings("unchecked")
 	public T getPropertyValue(final A agent) {
-		updateCache(agent);
+		FieldAccessors a = getAccessors(agent);
 		try {
-			return (T) cachedField.get(agent);
-		} catch (IllegalAccessException e) {
+			return (T) a.getter.invokeExact((AbstractAgent) agent);
+		} catch (Throwable e) {
 			throw new SimulationException(toString() + " on " + agent, e);
 		}
 	}
@@ -149,10 +199,13 @@ public class PropertyProbe<A extends AbstractAgent, T> extends Probe<A>// TODO
 	 * @param value the new value
 	 */
 	public void setPropertyValue(final A agent, final T value) {
-		updateCache(agent);
+		FieldAccessors a = getAccessors(agent);
 		try {
-			cachedField.set(agent, value);
-		} catch (IllegalArgumentException | IllegalAccessException e) {
+			if (a.setter == null)
+				a.field.set(agent, value);
+			else
+				a.setter.invokeExact((AbstractAgent) agent, (Object) value);
+		} catch (Throwable e) {
 			throw new SimulationException(toString() + " on " + agent, e);
 		}
 	}
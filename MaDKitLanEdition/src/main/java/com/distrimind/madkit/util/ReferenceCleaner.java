@@ -0,0 +1,149 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.util;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs cleaning actions once their associated objects become phantom
+ * reachable. It replaces <code>finalize()</code> overrides, which make every
+ * instance finalizable and delay its reclamation to a further GC cycle.
+ * 
+ * The cleaning action must not reference the registered object, otherwise it
+ * will never become phantom reachable. A cleaning action is run at most once,
+ * either explicitly through {@link Cleanable#clean()}, or by a daemon thread
+ * when the registered object has been collected.
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+public final class ReferenceCleaner {
+
+	/**
+	 * A registration of a cleaning action
+	 */
+	public interface Cleanable {
+		/**
+		 * Run the cleaning action if it has not already been run or canceled, and
+		 * unregister it.
+		 */
+		void clean();
+
+		/**
+		 * Unregister the cleaning action without running it.
+		 */
+		void cancel();
+	}
+
+	private static final ReferenceQueue<Object> referenceQueue = new ReferenceQueue<>();
+	private static final Set<CleanableReference> registeredReferences = ConcurrentHashMap.newKeySet();
+	private static final AtomicBoolean cleanerThreadStarted = new AtomicBoolean(false);
+
+	private ReferenceCleaner() {
+	}
+
+	/**
+	 * Register a cleaning action that will be run once the given object becomes
+	 * phantom reachable.
+	 * 
+	 * @param referent
+	 *            the object to monitor
+	 * @param action
+	 *            the cleaning action, which must not reference the monitored object
+	 * @return the registration, that can be used to run or cancel the cleaning
+	 *         action explicitly
+	 */
+	public static Cleanable register(Object referent, Runnable action) {
+		if (referent == null)
+			throw new NullPointerException("referent");
+		if (action == null)
+			throw new NullPointerException("action");
+		if (!cleanerThreadStarted.get() && cleanerThreadStarted.compareAndSet(false, true))
+			startCleanerThread();
+		CleanableReference res = new CleanableReference(referent, action);
+		registeredReferences.add(res);
+		return res;
+	}
+
+	private static void startCleanerThread() {
+		Thread t = new Thread(() -> {
+			for (;;) {
+				try {
+					((CleanableReference) referenceQueue.remove()).clean();
+				} catch (InterruptedException ignored) {
+
+				}
+			}
+		}, "MK_REFERENCE_CLEANER");
+		t.setDaemon(true);
+		t.setPriority(Thread.MAX_PRIORITY - 2);
+		t.start();
+	}
+
+	private static final class CleanableReference extends PhantomReference<Object> implements Cleanable {
+		private final Runnable action;
+
+		CleanableReference(Object referent, Runnable action) {
+			super(referent, referenceQueue);
+			this.action = action;
+		}
+
+		@Override
+		public void clean() {
+			if (registeredReferences.remove(this)) {
+				clear();
+				try {
+					action.run();
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		@Override
+		public void cancel() {
+			if (registeredReferences.remove(this))
+				clear();
+		}
+	}
+}
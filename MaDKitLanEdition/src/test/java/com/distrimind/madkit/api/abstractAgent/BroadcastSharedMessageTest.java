@@ -0,0 +1,191 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.api.abstractAgent;
+
+import static com.distrimind.madkit.kernel.AbstractAgent.ReturnCode.NOT_COMMUNITY;
+import static com.distrimind.madkit.kernel.AbstractAgent.ReturnCode.NO_RECIPIENT_FOUND;
+import static com.distrimind.madkit.kernel.AbstractAgent.ReturnCode.SUCCESS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.distrimind.madkit.kernel.AbstractAgent;
+import com.distrimind.madkit.kernel.BroadcastEnvelope;
+import com.distrimind.madkit.kernel.JunitMadkit;
+import com.distrimind.madkit.kernel.Message;
+import com.distrimind.madkit.kernel.MultiGroup;
+import com.distrimind.madkit.message.StringMessage;
+
+/**
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+public class BroadcastSharedMessageTest extends JunitMadkit {
+
+	final AbstractAgent target = new AbstractAgent() {
+		@Override
+		protected void activate() {
+			assertEquals(SUCCESS, createGroup(GROUP));
+			assertEquals(SUCCESS, requestRole(GROUP, ROLE));
+		}
+	};
+
+	final AbstractAgent target2 = new AbstractAgent() {
+		@Override
+		protected void activate() {
+			assertEquals(SUCCESS, requestRole(GROUP, ROLE));
+		}
+	};
+
+	final AbstractAgent target3 = new AbstractAgent() {
+		@Override
+		protected void activate() {
+			assertEquals(SUCCESS, createGroup(GROUP2));
+			assertEquals(SUCCESS, requestRole(GROUP2, ROLE));
+		}
+	};
+
+	@Test
+	public void localReceiversShareTheMessage() {
+		launchTest(new AbstractAgent() {
+			@Override
+			protected void activate() {
+				assertEquals(SUCCESS, launchAgent(target));
+				assertEquals(SUCCESS, launchAgent(target2));
+				assertEquals(SUCCESS, requestRole(GROUP, ROLE2));
+
+				StringMessage sent = new StringMessage("shared");
+				assertEquals(SUCCESS, broadcastSharedMessageWithRole(GROUP, ROLE, sent, ROLE2));
+				Message m = target.nextMessage();
+				Message m2 = target2.nextMessage();
+				assertNotNull(m);
+				assertNotNull(m2);
+				assertEquals(BroadcastEnvelope.class, m.getClass());
+				assertEquals(BroadcastEnvelope.class, m2.getClass());
+				assertNotSame(m, m2);
+				assertSame(sent, ((BroadcastEnvelope<?>) m).getSharedMessage());
+				assertSame(sent, ((BroadcastEnvelope<?>) m2).getSharedMessage());
+				assertEquals("shared", ((StringMessage) ((BroadcastEnvelope<?>) m).getSharedMessage()).getContent());
+
+				assertEquals(target.getAgentAddressIn(GROUP, ROLE), m.getReceiver());
+				assertEquals(target2.getAgentAddressIn(GROUP, ROLE), m2.getReceiver());
+				assertEquals(getAgentAddressIn(GROUP, ROLE2), m.getSender());
+				assertEquals(getAgentAddressIn(GROUP, ROLE2), m2.getSender());
+				assertEquals(sent.getConversationID(), m.getConversationID());
+				assertEquals(sent.getConversationID(), m2.getConversationID());
+				assertFalse(m.needReply());
+				assertNull(target.nextMessage());
+				assertNull(target2.nextMessage());
+			}
+		});
+	}
+
+	@Test
+	public void replyToEnvelope() {
+		launchTest(new AbstractAgent() {
+			@Override
+			protected void activate() {
+				assertEquals(SUCCESS, launchAgent(target));
+				assertEquals(SUCCESS, requestRole(GROUP, ROLE2));
+
+				Message sent = new Message();
+				assertEquals(SUCCESS, broadcastSharedMessageWithRole(GROUP, ROLE, sent, ROLE2));
+				Message m = target.nextMessage();
+				assertNotNull(m);
+				assertEquals(SUCCESS, target.sendReply(m, new StringMessage("reply")));
+				Message reply = nextMessage();
+				assertNotNull(reply);
+				assertEquals(sent.getConversationID(), reply.getConversationID());
+				assertEquals(target.getAgentAddressIn(GROUP, ROLE), reply.getSender());
+				assertEquals("reply", ((StringMessage) reply).getContent());
+			}
+		});
+	}
+
+	@Test
+	public void eachGroupKeepsItsSender() {
+		launchTest(new AbstractAgent() {
+			@Override
+			protected void activate() {
+				assertEquals(SUCCESS, launchAgent(target));
+				assertEquals(SUCCESS, launchAgent(target3));
+				assertEquals(SUCCESS, requestRole(GROUP, ROLE2));
+				assertEquals(SUCCESS, requestRole(GROUP2, ROLE2));
+
+				Message sent = new Message();
+				assertEquals(SUCCESS, broadcastSharedMessageWithRole(new MultiGroup(GROUP, GROUP2), ROLE, sent, ROLE2));
+				Message m = target.nextMessage();
+				Message m3 = target3.nextMessage();
+				assertNotNull(m);
+				assertNotNull(m3);
+				assertEquals(m.getReceiver().getGroup(), m.getSender().getGroup());
+				assertEquals(m3.getReceiver().getGroup(), m3.getSender().getGroup());
+				assertEquals(getAgentAddressIn(GROUP, ROLE2), m.getSender());
+				assertEquals(getAgentAddressIn(GROUP2, ROLE2), m3.getSender());
+				assertEquals(sent.getConversationID(), m.getConversationID());
+				assertEquals(sent.getConversationID(), m3.getConversationID());
+				assertTrue(((BroadcastEnvelope<?>) m).getSharedMessage() == sent
+						|| ((BroadcastEnvelope<?>) m3).getSharedMessage() == sent);
+			}
+		});
+	}
+
+	@Test
+	public void returnCodes() {
+		launchTest(new AbstractAgent() {
+			@Override
+			protected void activate() {
+				assertEquals(NOT_COMMUNITY, broadcastSharedMessage(GROUP, ROLE, new Message()));
+				assertEquals(SUCCESS, createGroup(GROUP));
+				assertEquals(SUCCESS, requestRole(GROUP, ROLE));
+				assertEquals(NO_RECIPIENT_FOUND, broadcastSharedMessage(GROUP, ROLE, new Message()));
+				assertEquals(SUCCESS, launchAgent(target2));
+				assertEquals(SUCCESS, broadcastSharedMessage(GROUP, ROLE, new Message()));
+				assertEquals(BroadcastEnvelope.class, target2.nextMessage().getClass());
+			}
+		});
+	}
+}
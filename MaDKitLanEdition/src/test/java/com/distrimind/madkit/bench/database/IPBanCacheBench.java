@@ -0,0 +1,125 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.bench.database;
+
+import com.distrimind.madkit.database.IPBanCache;
+import com.distrimind.madkit.database.IPBanStat;
+import com.distrimind.madkit.database.KeysPairs;
+import com.distrimind.madkit.kernel.network.NetworkProperties;
+import com.distrimind.ood.database.DatabaseConfiguration;
+import com.distrimind.ood.database.DatabaseSchema;
+import com.distrimind.ood.database.DatabaseWrapper;
+import com.distrimind.ood.database.InMemoryEmbeddedH2DatabaseFactory;
+import com.distrimind.ood.database.exceptions.DatabaseException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
+
+/**
+ * Measures the number of incoming connections per second that can be checked
+ * against the ban state, with and without the in-memory cache placed in front
+ * of the ban database.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+public class IPBanCacheBench {
+	private static final int NUMBER_OF_ADDRESSES = 5000;
+	private static final int NUMBER_OF_BANNED_ADDRESSES = 100;
+	private static final int CHECKS = 200000;
+	private static final int WARM_UP_ITERATIONS = 1;
+	private static final int ITERATIONS = 3;
+
+	private long bench(IPBanStat ipBanStat, InetAddress[] addresses, Collection<InetAddress> allowInetAddressesList, int checks) throws DatabaseException {
+		int banned=0;
+		long begin=System.nanoTime();
+		for (int i=0;i<checks;i++) {
+			if (ipBanStat.isBannedOrExpulsed(addresses[i % addresses.length], allowInetAddressesList))
+				++banned;
+		}
+		long duration=System.nanoTime()-begin;
+		Assert.assertEquals(((long)checks)*NUMBER_OF_BANNED_ADDRESSES/addresses.length, banned);
+		return duration;
+	}
+
+	@Test
+	public void connectionsCheckedPerSecond() throws DatabaseException, UnknownHostException {
+		DatabaseWrapper databaseWrapper = new InMemoryEmbeddedH2DatabaseFactory("ipbancachebench.database").getDatabaseWrapperSingleton();
+		try {
+			databaseWrapper.getDatabaseConfigurationsBuilder()
+					.addConfiguration(new DatabaseConfiguration(new DatabaseSchema(KeysPairs.class.getPackage())), false, true)
+					.commit();
+			IPBanStat ipBanStat = databaseWrapper.getTableInstance(IPBanStat.class);
+			NetworkProperties np = new NetworkProperties();
+			Collection<InetAddress> allowInetAddressesList = np.getAllowInetAddressesList();
+			InetAddress[] addresses = new InetAddress[NUMBER_OF_ADDRESSES];
+			for (int i = 0; i < addresses.length; i++)
+				addresses[i] = InetAddress.getByAddress(new byte[]{10, (byte) (i >> 16), (byte) (i >> 8), (byte) i});
+			for (int i = 0; i < NUMBER_OF_BANNED_ADDRESSES; i++)
+				ipBanStat.processExpulsion(addresses[i], true, np.expulsionDuration, (short) 1, (short) 1,
+						np.banishmentDuration, (short) 1, np.nbMaxBans, np.expulsionStatisticDuration,
+						np.banishmentStatisticDuration, allowInetAddressesList);
+
+			IPBanCache cache = ipBanStat.getCache();
+			for (boolean cached : new boolean[]{false, true}) {
+				// without cache, not banned addresses are never kept in memory
+				cache.clear();
+				cache.setParameters(cached ? IPBanCache.DEFAULT_MAXIMUM_SIZE : 1, cached ? IPBanCache.DEFAULT_TIME_TO_LIVE : 0);
+				int checks = cached ? CHECKS : NUMBER_OF_ADDRESSES;
+				for (int i = 0; i < WARM_UP_ITERATIONS; i++)
+					bench(ipBanStat, addresses, allowInetAddressesList, checks);
+				long best = Long.MAX_VALUE;
+				for (int i = 0; i < ITERATIONS; i++)
+					best = Math.min(best, bench(ipBanStat, addresses, allowInetAddressesList, checks));
+				long checksPerSecond = ((long) checks) * 1000000000L / Math.max(1, best);
+				System.out.println((cached ? "With cache" : "Without cache") + " : " + (best / 1000000) + " ms, "
+						+ checksPerSecond + " connections checked/s");
+				if (cached) {
+					System.out.println(cache);
+					Assert.assertTrue(checksPerSecond >= 10000);
+				}
+			}
+		} finally {
+			databaseWrapper.close();
+		}
+	}
+}
@@ -276,6 +276,56 @@ public class MassLaunchBench extends JunitMadkit {
 		});
 	}
 
+	public static class WaitingAgent extends Agent {
+		@Override
+		protected void liveCycle() throws InterruptedException {
+			waitNextMessage();
+			this.killAgent(this);
+		}
+	}
+
+	private void massThreadedAgentLaunch(final int numberOfAgents, final boolean useVirtualThreads) {
+		addMadkitArgs("--agentLogLevel", "OFF");
+		launchTest(new AbstractAgent() {
+			@Override
+			protected void activate() throws InterruptedException {
+				System.out.println("Virtual threads used : "+getMadkitConfig().isVirtualThreadsUsedForThreadedAgents());
+				List<WaitingAgent> agents = new ArrayList<>(numberOfAgents);
+				for (int i = 0; i < numberOfAgents; i++) {
+					agents.add(new WaitingAgent());
+				}
+				System.gc();
+				long memoryBefore=Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+				startTimer();
+				System.err.println("begin");
+				for (WaitingAgent agent : agents) {
+					launchAgent(agent, 0);
+				}
+				stopTimer("launch time of "+numberOfAgents+" threaded agents = ");
+				System.gc();
+				long memoryAfter=Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+				System.out.println("Used memory per agent = "+((memoryAfter-memoryBefore)/numberOfAgents)+" bytes");
+				startTimer();
+				for (WaitingAgent agent : agents) {
+					agent.receiveMessage(new Message());
+				}
+				while (agents.get(agents.size()-1).getState()!=State.TERMINATED)
+					sleep(100);
+				stopTimer("kill time = ");
+			}
+		}, AbstractAgent.ReturnCode.SUCCESS, false, properties -> properties.useVirtualThreadsForThreadedAgents=useVirtualThreads);
+	}
+
+	@Test
+	public void massThreadedAgentLaunchWithVirtualThreads() {
+		massThreadedAgentLaunch(100_000, true);
+	}
+
+	@Test
+	public void massThreadedAgentLaunchWithPlatformThreads() {
+		massThreadedAgentLaunch(5_000, false);
+	}
+
 	@Test
 	public void massNormalLifeLaunch() {// TODO more cases
 		launchTest(new AbstractAgent() {
@@ -0,0 +1,118 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.bench.messaging;
+
+import com.distrimind.madkit.kernel.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Measures the broadcast throughput when many threaded agents broadcast
+ * messages at the same time, in order to observe the contention on the
+ * resolution of represented groups.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+public class ConcurrentBroadcastBench extends JunitMadkit {
+	private static final String SENDER_ROLE = "sender";
+	private static final int NUMBER_OF_RECEIVERS = 8;
+	private static final int NUMBER_OF_BROADCASTS_PER_SENDER = 20000;
+	private static volatile CountDownLatch remainingSenders;
+
+	public static class ReceiverAgent extends AbstractAgent {
+		@Override
+		protected void activate() {
+			setLogLevel(Level.OFF);
+			requestRole(GROUP, ROLE);
+		}
+
+		@Override
+		public Message receiveMessage(Message m) {
+			//messages are dropped in order to measure only the sending side
+			return m;
+		}
+	}
+
+	public static class SenderAgent extends Agent {
+		@Override
+		protected void activate() {
+			setLogLevel(Level.OFF);
+			requestRole(GROUP, SENDER_ROLE);
+		}
+
+		@Override
+		protected void liveCycle() {
+			for (int i = 0; i < NUMBER_OF_BROADCASTS_PER_SENDER; i++)
+				broadcastMessageWithRole(GROUP, ROLE, new Message(), SENDER_ROLE);
+			remainingSenders.countDown();
+			this.killAgent(this);
+		}
+	}
+
+	@Test
+	public void concurrentBroadcastsThroughput() {
+		for (int senders = 1; senders <= Runtime.getRuntime().availableProcessors() * 2; senders *= 2) {
+			final int numberOfSenders = senders;
+			final long[] duration = new long[1];
+			launchTest(new AbstractAgent() {
+				@Override
+				protected void activate() throws InterruptedException {
+					setLogLevel(Level.OFF);
+					createGroup(GROUP);
+					for (int i = 0; i < NUMBER_OF_RECEIVERS; i++)
+						launchAgent(new ReceiverAgent());
+					remainingSenders = new CountDownLatch(numberOfSenders);
+					long start = System.nanoTime();
+					for (int i = 0; i < numberOfSenders; i++)
+						launchAgent(new SenderAgent());
+					Assert.assertTrue(remainingSenders.await(5, TimeUnit.MINUTES));
+					duration[0] = System.nanoTime() - start;
+				}
+			});
+			long broadcasts = ((long) numberOfSenders) * NUMBER_OF_BROADCASTS_PER_SENDER;
+			System.out.println(numberOfSenders + " sender(s) : " + (duration[0] / 1000000) + " ms, "
+					+ (broadcasts * 1000000000L / Math.max(1, duration[0])) + " broadcasts/s");
+		}
+	}
+}
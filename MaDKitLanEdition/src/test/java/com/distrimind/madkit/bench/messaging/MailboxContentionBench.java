@@ -0,0 +1,109 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.bench.messaging;
+
+import com.distrimind.madkit.kernel.ChainedBlockingDeque;
+import com.distrimind.madkit.kernel.Message;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Compares the fan-in throughput of the agent mailbox when producers take the
+ * deque lock and when they push messages without lock.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+public class MailboxContentionBench {
+	private static final int MESSAGES_PER_PRODUCER = 1_000_000;
+	private static final int WARM_UP_ITERATIONS = 2;
+	private static final int ITERATIONS = 5;
+
+	private long bench(final boolean lockFreeProducers, final int numberOfProducers) throws InterruptedException {
+		final ChainedBlockingDeque<Message> mailbox=new ChainedBlockingDeque<>(lockFreeProducers);
+		final CountDownLatch start=new CountDownLatch(1);
+		final Message message=new Message();
+		ArrayList<Thread> producers=new ArrayList<>(numberOfProducers);
+		for (int i=0;i<numberOfProducers;i++) {
+			Thread t=new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int j = 0; j < MESSAGES_PER_PRODUCER; j++)
+					mailbox.offer(message);
+			});
+			t.start();
+			producers.add(t);
+		}
+		long total=((long)numberOfProducers)*MESSAGES_PER_PRODUCER;
+		long begin=System.nanoTime();
+		start.countDown();
+		for (long i=0;i<total;i++)
+			Assert.assertNotNull(mailbox.take());
+		long duration=System.nanoTime()-begin;
+		for (Thread t : producers)
+			t.join();
+		Assert.assertTrue(mailbox.isEmpty());
+		return duration;
+	}
+
+	private void bench(final int numberOfProducers) throws InterruptedException {
+		for (boolean lockFreeProducers : new boolean[]{false, true}) {
+			for (int i=0;i<WARM_UP_ITERATIONS;i++)
+				bench(lockFreeProducers, numberOfProducers);
+			long best=Long.MAX_VALUE;
+			for (int i=0;i<ITERATIONS;i++)
+				best=Math.min(best, bench(lockFreeProducers, numberOfProducers));
+			long total=((long)numberOfProducers)*MESSAGES_PER_PRODUCER;
+			System.out.println((lockFreeProducers?"Lock free producers":"Locked producers")+", "+numberOfProducers+" producer(s) : "
+					+(best/1000000)+" ms, "+(total*1000000000L/Math.max(1, best))+" messages/s");
+		}
+	}
+
+	@Test
+	public void mailboxFanIn() throws InterruptedException {
+		for (int producers=1;producers<=Runtime.getRuntime().availableProcessors()*2;producers*=2)
+			bench(producers);
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.bench.messaging;
+
+import com.distrimind.madkit.kernel.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Measures the message throughput of {@link AgentFakeThread} agents, with the
+ * MaDKit service executor and then with the dedicated work-stealing executor
+ * sized from 1 to the number of available processors.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+public class ReactiveAgentsScalingBench extends JunitMadkit {
+	private static final int NUMBER_OF_AGENTS = 2000;
+	private static final int NUMBER_OF_MESSAGES_PER_AGENT = 200;
+	private static volatile CountDownLatch remainingMessages;
+
+	public static class ReceiverAgent extends AgentFakeThread {
+		@SuppressWarnings("unused")
+		private long sink=0;
+
+		@Override
+		protected void activate() {
+			setLogLevel(Level.OFF);
+			requestRole(GROUP, ROLE);
+		}
+
+		@Override
+		protected void liveByStep(Message _message) {
+			//simulate a small amount of work per message
+			long v=_message.getConversationID().hashCode();
+			for (int i=0;i<2000;i++)
+				v=v*31+i;
+			sink+=v;
+			remainingMessages.countDown();
+		}
+	}
+
+	@Test
+	public void reactiveAgentsThroughputScaling() {
+		ArrayList<Integer> threadsNumbers=new ArrayList<>();
+		threadsNumbers.add(0);
+		for (int i=1;i<Runtime.getRuntime().availableProcessors();i*=2)
+			threadsNumbers.add(i);
+		threadsNumbers.add(Runtime.getRuntime().availableProcessors());
+		for (final int threads : threadsNumbers)
+		{
+			final long[] duration=new long[1];
+			launchTest(new AbstractAgent() {
+				@Override
+				protected void activate() throws InterruptedException {
+					setLogLevel(Level.OFF);
+					createGroup(GROUP);
+					for (int i=0;i<NUMBER_OF_AGENTS;i++)
+						launchAgent(new ReceiverAgent());
+					Set<AgentAddress> receivers=getAgentsWithRole(GROUP, ROLE);
+					Assert.assertNotNull(receivers);
+					Assert.assertEquals(NUMBER_OF_AGENTS, receivers.size());
+					remainingMessages=new CountDownLatch(NUMBER_OF_AGENTS*NUMBER_OF_MESSAGES_PER_AGENT);
+					long start=System.nanoTime();
+					for (int j=0;j<NUMBER_OF_MESSAGES_PER_AGENT;j++)
+					{
+						for (AgentAddress aa : receivers)
+							sendMessage(aa, new Message());
+					}
+					Assert.assertTrue(remainingMessages.await(5, TimeUnit.MINUTES));
+					duration[0]=System.nanoTime()-start;
+				}
+			}, AbstractAgent.ReturnCode.SUCCESS, false, properties -> {
+				properties.numberOfThreadsDedicatedToReactiveAgents=threads;
+				properties.killAllNonThreadedAgentsDuringMaDKitClosing=false;
+			});
+			long messages=((long)NUMBER_OF_AGENTS)*NUMBER_OF_MESSAGES_PER_AGENT;
+			System.out.println((threads<=0?"MaDKit service executor":("Work-stealing executor with "+threads+" thread(s)"))
+					+" : "+(duration[0]/1000000)+" ms, "
+					+(messages*1000000000L/Math.max(1, duration[0]))+" messages/s");
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.bench.networking;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import com.distrimind.madkit.kernel.AbstractAgent;
+import com.distrimind.madkit.kernel.Agent;
+import com.distrimind.madkit.kernel.AgentAddress;
+import com.distrimind.madkit.kernel.JunitMadkit;
+import com.distrimind.madkit.kernel.MadkitEventListener;
+import com.distrimind.madkit.kernel.Message;
+import com.distrimind.madkit.kernel.network.AbstractIP;
+import com.distrimind.madkit.kernel.network.AccessDataMKEventListener;
+import com.distrimind.madkit.kernel.network.AccessProtocolPropertiesMKEventListener;
+import com.distrimind.madkit.kernel.network.ConnectionsProtocolsMKEventListener;
+import com.distrimind.madkit.kernel.network.DoubleIP;
+import com.distrimind.madkit.kernel.network.NetworkEventListener;
+import com.distrimind.madkit.kernel.network.connection.access.AbstractAccessProtocolProperties;
+import com.distrimind.madkit.kernel.network.connection.access.AccessProtocolWithP2PAgreementProperties;
+import com.distrimind.madkit.kernel.network.connection.access.ListGroupsRoles;
+import com.distrimind.madkit.kernel.network.connection.unsecured.UnsecuredConnectionProtocolProperties;
+import com.distrimind.madkit.message.IntegerMessage;
+import com.distrimind.madkit.message.StringMessage;
+import com.distrimind.madkit.testing.util.agent.NormalAgent;
+
+/**
+ * Bursts of small messages sent from one peer to another through the loopback
+ * interface, with and without coalescing them into shared packets.
+ * 
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+
+public class CoalescedMessagesNetworkSpeed extends JunitMadkit {
+	private static final int NUMBER_OF_MESSAGES = 20000;
+
+	private final ListGroupsRoles defaultGroupAccess = new ListGroupsRoles();
+
+	public CoalescedMessagesNetworkSpeed() {
+		defaultGroupAccess.addGroupsRoles(JunitMadkit.GROUP);
+	}
+
+	@Test
+	public void withoutCoalescing() throws UnknownHostException {
+		sendBurst(0);
+	}
+
+	@Test
+	public void withCoalescing() throws UnknownHostException {
+		sendBurst(16384);
+	}
+
+	private MadkitEventListener getSenderEventListener(final int maxCoalescedMessagesSize) {
+		return _properties -> {
+			AbstractAccessProtocolProperties app = new AccessProtocolWithP2PAgreementProperties();
+
+			try {
+				new NetworkEventListener(true, false, false, null,
+						new ConnectionsProtocolsMKEventListener(new UnsecuredConnectionProtocolProperties()),
+						new AccessProtocolPropertiesMKEventListener(app),
+						new AccessDataMKEventListener(AccessDataMKEventListener.getDefaultAccessData(defaultGroupAccess)), 5000,
+						null, InetAddress.getByName("0.0.0.0")).onMaDKitPropertiesLoaded(_properties);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			_properties.networkProperties.networkLogLevel = Level.INFO;
+			_properties.networkProperties.maxCoalescedMessagesSize = maxCoalescedMessagesSize;
+		};
+	}
+
+	private NetworkEventListener getReceiverEventListener() throws UnknownHostException {
+		UnsecuredConnectionProtocolProperties u = new UnsecuredConnectionProtocolProperties();
+		u.isServer = false;
+
+		AbstractAccessProtocolProperties app = new AccessProtocolWithP2PAgreementProperties();
+
+		return new NetworkEventListener(true, false, false, null,
+				new ConnectionsProtocolsMKEventListener(u), new AccessProtocolPropertiesMKEventListener(app),
+				new AccessDataMKEventListener(AccessDataMKEventListener.getDefaultAccessData(defaultGroupAccess)), 5000,
+				Collections.singletonList((AbstractIP) new DoubleIP(5000, (Inet4Address) InetAddress.getByName("127.0.0.1"),
+						(Inet6Address) InetAddress.getByName("::1"))),
+				InetAddress.getByName("0.0.0.0"));
+	}
+
+	private void sendBurst(final int maxCoalescedMessagesSize) throws UnknownHostException {
+		final NetworkEventListener receiverEventListener = getReceiverEventListener();
+		launchTest(new NormalAgent() {
+			@Override
+			protected void activate() throws InterruptedException {
+				setLogLevel(Level.OFF);
+				requestRole(GROUP, ROLE);
+				launchThreadedMKNetworkInstance(Level.INFO, AbstractAgent.class, new BurstReceiverAgent(),
+						receiverEventListener);
+
+				Message hello = waitNextMessage(20000);
+				if (hello == null) {
+					System.out.println("No connection established");
+					return;
+				}
+				AgentAddress aa = hello.getSender();
+				long start = System.nanoTime();
+				for (int i = 0; i < NUMBER_OF_MESSAGES; i++)
+					sendMessage(aa, new IntegerMessage(i));
+				Message m = waitNextMessage(60000);
+				double seconds = (System.nanoTime() - start) / 1000000000.0;
+				System.out.println("maxCoalescedMessagesSize=" + maxCoalescedMessagesSize + " : "
+						+ (m instanceof StringMessage ? ((StringMessage) m).getContent() : "timeout") + " in " + seconds + " s ("
+						+ (long) (NUMBER_OF_MESSAGES / seconds) + " messages/s)");
+			}
+
+			@Override
+			protected void liveCycle() {
+				this.killAgent(this);
+			}
+		}, getSenderEventListener(maxCoalescedMessagesSize));
+		cleanHelperMDKs();
+	}
+
+	static class BurstReceiverAgent extends Agent {
+		@Override
+		protected void activate() throws InterruptedException {
+			requestRole(GROUP, ROLE);
+			sleep(1500);
+			sendMessage(GROUP, ROLE, new StringMessage("hello"));
+		}
+
+		@Override
+		protected void liveCycle() throws InterruptedException {
+			int received = 0;
+			Message m, last = null;
+			while (received < NUMBER_OF_MESSAGES && (m = waitNextMessage(10000)) != null) {
+				last = m;
+				++received;
+			}
+			if (last != null)
+				sendMessage(last.getSender(), new StringMessage(received + " messages received"));
+			this.killAgent(this);
+		}
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package com.distrimind.madkit.bench.networking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.distrimind.madkit.kernel.MadkitProperties;
+import com.distrimind.madkit.kernel.network.Block;
+import com.distrimind.madkit.kernel.network.ConnectionsProtocolsTests;
+import com.distrimind.madkit.kernel.network.NetworkProperties;
+import com.distrimind.madkit.kernel.network.connection.AskConnection;
+import com.distrimind.madkit.kernel.network.connection.ConnectionMessage;
+import com.distrimind.madkit.kernel.network.connection.ConnectionProtocol;
+
+/**
+ * Measures how many megabytes per second one thread encodes and decodes through
+ * the connection protocols tested by {@link ConnectionsProtocolsTests},
+ * including stacked ones.
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+@RunWith(Parameterized.class)
+public class ConnectionProtocolsThroughputBench {
+	private static final int MESSAGE_SIZE = 256 * 1024;
+	private static final int WARM_UP_ITERATIONS = 20;
+	private static final int ITERATIONS = 200;
+
+	@Parameters
+	public static Collection<Object[]> data() throws Exception {
+		return ConnectionsProtocolsTests.data();
+	}
+
+	private final ConnectionProtocol<?> cpasker;
+	private final ConnectionProtocol<?> cpreceiver;
+	private final NetworkProperties npasker;
+	private final NetworkProperties npreceiver;
+
+	public ConnectionProtocolsThroughputBench(ConnectionProtocol<?> cpasker, MadkitProperties mkPropertiesAsker,
+			ConnectionProtocol<?> cpreceiver, MadkitProperties mkPropertiesReceiver) {
+		this.cpasker = cpasker;
+		this.cpreceiver = cpreceiver;
+		this.npasker = mkPropertiesAsker.networkProperties;
+		this.npreceiver = mkPropertiesReceiver.networkProperties;
+	}
+
+	private void connect() throws Exception {
+		Iterator<ConnectionProtocol<?>> itasker = this.cpasker.reverseIterator();
+		Iterator<ConnectionProtocol<?>> itreceiver = this.cpreceiver.reverseIterator();
+		while (itasker.hasNext()) {
+			ConnectionProtocol<?> asker = itasker.next();
+			ConnectionProtocol<?> receiver = itreceiver.next();
+			ConnectionMessage m = asker.setAndGetNextMessage(new AskConnection(true));
+			while (m != null) {
+				m = receiver.setAndGetNextMessage(exchange(m, this.cpasker, npasker, this.cpreceiver, npreceiver));
+				if (m != null)
+					m = asker.setAndGetNextMessage(exchange(m, this.cpreceiver, npreceiver, this.cpasker, npasker));
+			}
+			Assert.assertTrue(asker.isConnectionEstablished());
+			Assert.assertTrue(receiver.isConnectionEstablished());
+		}
+	}
+
+	private static ConnectionMessage exchange(ConnectionMessage m, ConnectionProtocol<?> sender,
+			NetworkProperties senderProperties, ConnectionProtocol<?> receiver, NetworkProperties receiverProperties)
+			throws Exception {
+		byte[] message = ConnectionsProtocolsTests.serialize(m);
+		return (ConnectionMessage) ConnectionsProtocolsTests.unserialize(ConnectionsProtocolsTests.getMessage(message,
+				ConnectionsProtocolsTests.getBytesToSend(ConnectionsProtocolsTests.getBlocks(message,
+						m.excludedFromEncryption(), sender, senderProperties, 2, -1, null)),
+				receiver, receiverProperties, 2, -1, null));
+	}
+
+	private void transfer(byte[] message) throws Exception {
+		ArrayList<Block> blocks = ConnectionsProtocolsTests.getBlocks(message, false, cpasker, npasker, 3, -1, null);
+		byte[] received = ConnectionsProtocolsTests.getMessage(message, ConnectionsProtocolsTests.getBytesToSend(blocks),
+				cpreceiver, npreceiver, 3, -1, null);
+		Assert.assertEquals(message.length, received.length);
+	}
+
+	@Test
+	public void encodeAndDecode() throws Exception {
+		connect();
+		byte[] message = new byte[MESSAGE_SIZE];
+		new Random(System.currentTimeMillis()).nextBytes(message);
+		for (int i = 0; i < WARM_UP_ITERATIONS; i++)
+			transfer(message);
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++)
+			transfer(message);
+		double seconds = (System.nanoTime() - start) / 1000000000.0;
+		String protocols = cpasker.getClass().getSimpleName();
+		if (cpasker.getSubProtocol() != null)
+			protocols += " over " + cpasker.getSubProtocol().getClass().getSimpleName();
+		System.out.println(protocols + " (crypted=" + cpasker.isCrypted() + ") : "
+				+ (long) (((double) MESSAGE_SIZE) * ITERATIONS / 1048576.0 / seconds) + " MB/s");
+	}
+}
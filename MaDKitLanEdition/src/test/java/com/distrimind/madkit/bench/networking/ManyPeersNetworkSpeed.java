@@ -0,0 +1,174 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package com.distrimind.madkit.bench.networking;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import com.distrimind.madkit.kernel.AbstractAgent;
+import com.distrimind.madkit.kernel.AgentAddress;
+import com.distrimind.madkit.kernel.JunitMadkit;
+import com.distrimind.madkit.kernel.MadkitEventListener;
+import com.distrimind.madkit.kernel.Message;
+import com.distrimind.madkit.kernel.network.AbstractIP;
+import com.distrimind.madkit.kernel.network.AccessDataMKEventListener;
+import com.distrimind.madkit.kernel.network.AccessProtocolPropertiesMKEventListener;
+import com.distrimind.madkit.kernel.network.ConnectionsProtocolsMKEventListener;
+import com.distrimind.madkit.kernel.network.DoubleIP;
+import com.distrimind.madkit.kernel.network.NetworkEventListener;
+import com.distrimind.madkit.kernel.network.connection.access.AbstractAccessProtocolProperties;
+import com.distrimind.madkit.kernel.network.connection.access.AccessProtocolWithP2PAgreementProperties;
+import com.distrimind.madkit.kernel.network.connection.access.ListGroupsRoles;
+import com.distrimind.madkit.kernel.network.connection.unsecured.UnsecuredConnectionProtocolProperties;
+import com.distrimind.madkit.message.StringMessage;
+import com.distrimind.madkit.testing.util.agent.ForEverOnTheSameAASenderAgent;
+import com.distrimind.madkit.testing.util.agent.NormalAgent;
+
+/**
+ * Ping pong between one server and many concurrent peers connected on the
+ * loopback interface, with one or several NIO selector threads on the server
+ * side.
+ * 
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+
+public class ManyPeersNetworkSpeed extends JunitMadkit {
+	private static final int NUMBER_OF_PEERS = 16;
+	private static final int NUMBER_OF_EXCHANGES_PER_PEER = 500;
+
+	private final ListGroupsRoles defaultGroupAccess = new ListGroupsRoles();
+
+	public ManyPeersNetworkSpeed() {
+		defaultGroupAccess.addGroupsRoles(JunitMadkit.GROUP);
+	}
+
+	@Test
+	public void oneSelectorThread() throws UnknownHostException {
+		pingPongWithManyPeers(0);
+	}
+
+	@Test
+	public void fourSelectorThreads() throws UnknownHostException {
+		pingPongWithManyPeers(4);
+	}
+
+	private MadkitEventListener getServerEventListener(final int numberOfNIOSelectorThreads) {
+		return _properties -> {
+			AbstractAccessProtocolProperties app = new AccessProtocolWithP2PAgreementProperties();
+
+			try {
+				new NetworkEventListener(true, false, false, null,
+						new ConnectionsProtocolsMKEventListener(new UnsecuredConnectionProtocolProperties()),
+						new AccessProtocolPropertiesMKEventListener(app),
+						new AccessDataMKEventListener(AccessDataMKEventListener.getDefaultAccessData(defaultGroupAccess)), 5000,
+						null, InetAddress.getByName("0.0.0.0")).onMaDKitPropertiesLoaded(_properties);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			_properties.networkProperties.networkLogLevel = Level.INFO;
+			_properties.networkProperties.numberOfNIOSelectorThreads = numberOfNIOSelectorThreads;
+		};
+	}
+
+	private NetworkEventListener getPeerEventListener() throws UnknownHostException {
+		UnsecuredConnectionProtocolProperties u = new UnsecuredConnectionProtocolProperties();
+		u.isServer = false;
+
+		AbstractAccessProtocolProperties app = new AccessProtocolWithP2PAgreementProperties();
+
+		return new NetworkEventListener(true, false, false, null,
+				new ConnectionsProtocolsMKEventListener(u), new AccessProtocolPropertiesMKEventListener(app),
+				new AccessDataMKEventListener(AccessDataMKEventListener.getDefaultAccessData(defaultGroupAccess)), 5000,
+				Collections.singletonList((AbstractIP) new DoubleIP(5000, (Inet4Address) InetAddress.getByName("127.0.0.1"),
+						(Inet6Address) InetAddress.getByName("::1"))),
+				InetAddress.getByName("0.0.0.0"));
+	}
+
+	private void pingPongWithManyPeers(final int numberOfNIOSelectorThreads) throws UnknownHostException {
+		final NetworkEventListener peerEventListener = getPeerEventListener();
+		launchTest(new NormalAgent() {
+			@Override
+			protected void activate() throws InterruptedException {
+				setLogLevel(Level.OFF);
+				requestRole(GROUP, ROLE);
+				for (int i = 0; i < NUMBER_OF_PEERS; i++) {
+					// peers say hello once all connections should be established
+					launchThreadedMKNetworkInstance(Level.INFO, AbstractAgent.class,
+							new ForEverOnTheSameAASenderAgent(NUMBER_OF_EXCHANGES_PER_PEER, 10000), peerEventListener);
+				}
+
+				HashSet<AgentAddress> peers = new HashSet<>();
+				long start = -1, end = -1;
+				int exchanges = 0;
+				Message m;
+				// reply to every peer until they all stop talking
+				while ((m = waitNextMessage(10000)) != null) {
+					long now = System.nanoTime();
+					if (start < 0)
+						start = now;
+					end = now;
+					++exchanges;
+					peers.add(m.getSender());
+					sendMessage(m.getSender(), new StringMessage("test message"));
+				}
+				double seconds = (end - start) / 1000000000.0;
+				System.out.println("numberOfNIOSelectorThreads=" + numberOfNIOSelectorThreads + " : " + exchanges
+						+ " exchanges with " + peers.size() + " peers in " + seconds + " s ("
+						+ (seconds > 0 ? (long) (exchanges / seconds) : 0) + " exchanges/s)");
+			}
+
+			@Override
+			protected void liveCycle() {
+				this.killAgent(this);
+			}
+		}, getServerEventListener(numberOfNIOSelectorThreads));
+		cleanHelperMDKs();
+	}
+
+}
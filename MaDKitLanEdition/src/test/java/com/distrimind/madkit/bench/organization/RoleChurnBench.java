@@ -0,0 +1,98 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.bench.organization;
+
+import static com.distrimind.madkit.kernel.JunitMadkit.GROUP;
+import static com.distrimind.madkit.kernel.JunitMadkit.ROLE;
+import static com.distrimind.madkit.kernel.JunitMadkit.startTimer;
+import static com.distrimind.madkit.kernel.JunitMadkit.stopTimer;
+
+import java.util.List;
+
+import com.distrimind.madkit.kernel.AbstractAgent;
+import com.distrimind.madkit.kernel.Message;
+import com.distrimind.madkit.kernel.Role;
+
+/**
+ * Measures the cost of joining and leaving a role played by a large number of
+ * agents, while messages are sent to this role between each change.
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+public class RoleChurnBench extends AbstractAgent {
+
+	private static final int NUMBER_OF_MEMBERS = 50_000;
+	private static final int NUMBER_OF_CHANGES = 20_000;
+	private List<AbstractAgent> members;
+
+	@Override
+	protected void activate() {
+		createGroup(GROUP);
+		startTimer();
+		members = launchAgentBucket(AbstractAgent.class.getName(), NUMBER_OF_MEMBERS, new Role(GROUP, ROLE));
+		stopTimer(NUMBER_OF_MEMBERS + " members launched in ");
+		for (int i = 0; i < 5; i++) {
+			churn(false);
+			churn(true);
+		}
+	}
+
+	private void churn(boolean sendBetweenChanges) {
+		startTimer();
+		for (int i = 0; i < NUMBER_OF_CHANGES; i++) {
+			AbstractAgent a = members.get(i % members.size());
+			a.leaveRole(GROUP, ROLE);
+			if (sendBetweenChanges)
+				sendMessage(GROUP, ROLE, new Message());
+			a.requestRole(GROUP, ROLE);
+			if (sendBetweenChanges)
+				sendMessage(GROUP, ROLE, new Message());
+		}
+		stopTimer(NUMBER_OF_CHANGES + " leave/request role" + (sendBetweenChanges ? " with messages" : "") + " in ");
+		if (sendBetweenChanges)
+			for (AbstractAgent a : members)
+				a.purgeMailbox();
+	}
+
+	public static void main(String[] args) {
+		executeThisAgent(1, false);
+	}
+
+}
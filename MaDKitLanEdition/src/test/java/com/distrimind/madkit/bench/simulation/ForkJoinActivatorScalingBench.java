@@ -0,0 +1,140 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package com.distrimind.madkit.bench.simulation;
+
+import com.distrimind.madkit.kernel.*;
+import com.distrimind.madkit.simulation.activator.GenericBehaviorActivator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Measures the duration of a simulation step over one million agents whose
+ * behaviors have uneven costs, with a {@link GenericBehaviorActivator}
+ * executed sequentially, in multicore mode, and in fork/join mode with a
+ * parallelism from 1 to 32.
+ * <p>
+ * Speedups only measure scaling up to the number of available processors.
+ * Beyond it, threads share the same cores, and the figures are reported as
+ * oversubscribed. Scaling figures up to 32 cores need a host with at least 32
+ * cores.
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+public class ForkJoinActivatorScalingBench extends JunitMadkit {
+	private static final int NUMBER_OF_AGENTS = 1000000;
+	private static final int WARM_UP_STEPS = 3;
+	private static final int MEASURED_STEPS = 10;
+
+	public static class SimulatedAgent extends AbstractAgent {
+		private static int counter = 0;
+		private final int cost;
+		@SuppressWarnings("unused")
+		private long sink = 0;
+
+		public SimulatedAgent() {
+			//one agent out of 64 is 100 times heavier than the others
+			cost = (counter++ % 64 == 0) ? 20000 : 200;
+		}
+
+		@SuppressWarnings("unused")
+		private void doIt() {// used by reflection
+			long v = sink;
+			for (int i = 0; i < cost; i++)
+				v = v * 31 + i;
+			sink = v;
+		}
+	}
+
+	private static long measureStep(Activator<?> activator) {
+		for (int i = 0; i < WARM_UP_STEPS; i++)
+			activator.execute();
+		long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_STEPS; i++)
+			activator.execute();
+		return (System.nanoTime() - start) / MEASURED_STEPS;
+	}
+
+	@Test
+	public void forkJoinActivatorScaling() {
+		launchTest(new Scheduler() {
+			@Override
+			protected void activate() {
+				setLogLevel(Level.OFF);
+				createGroup(GROUP);
+				List<AbstractAgent> agents = new ArrayList<>(NUMBER_OF_AGENTS);
+				for (int i = 0; i < NUMBER_OF_AGENTS; i++)
+					agents.add(new SimulatedAgent());
+				launchAgentBucket(agents, Runtime.getRuntime().availableProcessors(), new Role(GROUP, ROLE));
+				GenericBehaviorActivator<AbstractAgent> activator = new GenericBehaviorActivator<>(GROUP, ROLE, "doIt");
+				addActivator(activator);
+				Assert.assertEquals(NUMBER_OF_AGENTS, activator.size());
+
+				int availableProcessors = Runtime.getRuntime().availableProcessors();
+				System.out.println("Available processors : " + availableProcessors);
+				long sequential = measureStep(activator);
+				System.out.println("Sequential : " + (sequential / 1000000) + " ms/step");
+
+				activator.useMulticore(availableProcessors);
+				long multicore = measureStep(activator);
+				activator.useMulticore(1);
+				System.out.println("Multicore mode with " + activator.nbOfParallelTasks() + " tasks : "
+						+ (multicore / 1000000) + " ms/step, speedup=" + String.format("%.2f", ((double) sequential) / multicore));
+
+				for (Activator.ForkJoinChunking chunking : Activator.ForkJoinChunking.values()) {
+					for (int parallelism = 1; parallelism <= 32; parallelism *= 2) {
+						activator.useForkJoin(parallelism, chunking);
+						long d = measureStep(activator);
+						System.out.println("Fork/join mode (" + chunking + ") with " + parallelism + " thread(s) : "
+								+ (d / 1000000) + " ms/step, speedup=" + String.format("%.2f", ((double) sequential) / d)
+								+ (parallelism > availableProcessors ? " (oversubscribed)" : ""));
+					}
+				}
+				activator.useForkJoin(1);
+				removeActivator(activator);
+				this.killAgent(this);
+			}
+		}, AbstractAgent.ReturnCode.SUCCESS, false, properties -> properties.killAllNonThreadedAgentsDuringMaDKitClosing=false);
+	}
+}
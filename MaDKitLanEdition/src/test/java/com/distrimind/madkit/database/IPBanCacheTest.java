@@ -0,0 +1,145 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.database;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+public class IPBanCacheTest {
+	private static final byte[] address1 = new byte[] { (byte) 192, (byte) 168, 0, 15 };
+	private static final byte[] address2 = new byte[] { 10, 0, 0, 2 };
+
+	@Test
+	public void testNotCachedAddress() {
+		IPBanCache cache = new IPBanCache(10, 10000);
+		Assert.assertNull(cache.isBannedOrExpulsed(address1));
+		Assert.assertEquals(1, cache.getNumberOfMisses());
+		Assert.assertEquals(0, cache.getNumberOfHits());
+	}
+
+	@Test
+	public void testBanStartReplacesCachedState() {
+		IPBanCache cache = new IPBanCache(10, 10000);
+		cache.put(address1, Long.MIN_VALUE);
+		Assert.assertEquals(Boolean.FALSE, cache.isBannedOrExpulsed(address1));
+		cache.put(address1, System.currentTimeMillis() + 10000);
+		Assert.assertEquals(Boolean.TRUE, cache.isBannedOrExpulsed(address1));
+		Assert.assertNull(cache.isBannedOrExpulsed(address2));
+		cache.put(address1, Long.MAX_VALUE);
+		Assert.assertEquals(Boolean.TRUE, cache.isBannedOrExpulsed(address1));
+		Assert.assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testBanExpiration() throws InterruptedException {
+		IPBanCache cache = new IPBanCache(10, 10000);
+		cache.put(address1, System.currentTimeMillis() + 200);
+		Assert.assertEquals(Boolean.TRUE, cache.isBannedOrExpulsed(address1));
+		Thread.sleep(300);
+		// the state is not cached after the end of the ban, and must be read again
+		Assert.assertNull(cache.isBannedOrExpulsed(address1));
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testEndedBanNotCached() {
+		IPBanCache cache = new IPBanCache(10, 0);
+		cache.put(address1, Long.MIN_VALUE);
+		cache.put(address2, System.currentTimeMillis() - 1);
+		Assert.assertEquals(0, cache.size());
+		Assert.assertNull(cache.isBannedOrExpulsed(address1));
+		Assert.assertNull(cache.isBannedOrExpulsed(address2));
+	}
+
+	@Test
+	public void testNotBannedStateExpiration() throws InterruptedException {
+		IPBanCache cache = new IPBanCache(10, 200);
+		cache.put(address1, Long.MIN_VALUE);
+		Assert.assertEquals(Boolean.FALSE, cache.isBannedOrExpulsed(address1));
+		Thread.sleep(300);
+		Assert.assertNull(cache.isBannedOrExpulsed(address1));
+	}
+
+	@Test
+	public void testInvalidation() {
+		IPBanCache cache = new IPBanCache(10, 10000);
+		cache.put(address1, Long.MAX_VALUE);
+		cache.put(address2, Long.MIN_VALUE);
+		cache.invalidate(address1.clone());
+		Assert.assertNull(cache.isBannedOrExpulsed(address1));
+		Assert.assertEquals(Boolean.FALSE, cache.isBannedOrExpulsed(address2));
+		cache.clear();
+		Assert.assertNull(cache.isBannedOrExpulsed(address2));
+	}
+
+	@Test
+	public void testKeyCopied() {
+		IPBanCache cache = new IPBanCache(10, 10000);
+		byte[] address = address1.clone();
+		cache.put(address, Long.MAX_VALUE);
+		address[3] = 16;
+		Assert.assertEquals(Boolean.TRUE, cache.isBannedOrExpulsed(address1));
+		Assert.assertNull(cache.isBannedOrExpulsed(address));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() {
+		IPBanCache cache = new IPBanCache(2, 10000);
+		byte[] address3 = new byte[] { 10, 0, 0, 3 };
+		cache.put(address1, Long.MAX_VALUE);
+		cache.put(address2, Long.MIN_VALUE);
+		Assert.assertEquals(Boolean.TRUE, cache.isBannedOrExpulsed(address1));
+		cache.put(address3, Long.MIN_VALUE);
+		Assert.assertEquals(2, cache.size());
+		Assert.assertEquals(Boolean.TRUE, cache.isBannedOrExpulsed(address1));
+		Assert.assertNull(cache.isBannedOrExpulsed(address2));
+		Assert.assertEquals(Boolean.FALSE, cache.isBannedOrExpulsed(address3));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMaximumSize() {
+		new IPBanCache(0, 10000);
+	}
+
+}
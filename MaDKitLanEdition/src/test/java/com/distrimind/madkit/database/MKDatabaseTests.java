@@ -257,4 +257,61 @@ public class MKDatabaseTests {
 		Assert.assertEquals(0, ipbanned.getRecords().size());
 
 	}
+
+	private void assertCacheConsistentWithDatabase(InetAddress ia) throws DatabaseException {
+		Boolean cached = ipbanstat.getCache().isBannedOrExpulsed(ia.getAddress());
+		IPBanned.Record r = ipbanned.getRecord("inet_address", ia.getAddress());
+		boolean banned = r != null && r.expiration_time > System.currentTimeMillis();
+		if (cached != null)
+			Assert.assertEquals(banned, cached);
+		Assert.assertEquals(banned, ipbanstat.isBannedOrExpulsed(ia, allowInetAddressesList));
+	}
+
+	@Test
+	public void testIPBanCacheConsistency() throws DatabaseException, UnknownHostException, InterruptedException {
+		InetAddress ia = InetAddress.getByName("192.168.0.30");
+		byte[] key = ia.getAddress();
+		IPBanCache cache = ipbanstat.getCache();
+		try {
+			cache.invalidate(key);
+			Assert.assertFalse(ipbanstat.isBannedOrExpulsed(ia, allowInetAddressesList));
+			Assert.assertEquals(Boolean.FALSE, cache.isBannedOrExpulsed(key));
+
+			// anomaly recorded, without expulsion
+			ipbanstat.processExpulsion(ia, false, 200, (short) 2, (short) 2, 200, (short) 1, (short) 2, 500, 500,
+					allowInetAddressesList);
+			Assert.assertEquals(Boolean.FALSE, cache.isBannedOrExpulsed(key));
+			assertCacheConsistentWithDatabase(ia);
+
+			// the expulsion starts while the address is cached as not banned
+			ipbanstat.processExpulsion(ia, false, 200, (short) 2, (short) 2, 200, (short) 1, (short) 2, 500, 500,
+					allowInetAddressesList);
+			Assert.assertEquals(Boolean.TRUE, cache.isBannedOrExpulsed(key));
+			assertCacheConsistentWithDatabase(ia);
+
+			// the expulsion expires
+			Thread.sleep(250);
+			Assert.assertNull(cache.isBannedOrExpulsed(key));
+			assertCacheConsistentWithDatabase(ia);
+			Assert.assertFalse(ipbanstat.isBannedOrExpulsed(ia, allowInetAddressesList));
+
+			// temporary, and then definitive banishment
+			ipbanstat.processExpulsion(ia, true, 200, (short) 2, (short) 2, 200, (short) 1, (short) 2, 500, 500,
+					allowInetAddressesList);
+			Assert.assertEquals(Boolean.TRUE, cache.isBannedOrExpulsed(key));
+			assertCacheConsistentWithDatabase(ia);
+			ipbanstat.processExpulsion(ia, true, 200, (short) 2, (short) 2, 200, (short) 1, (short) 2, 500, 500,
+					allowInetAddressesList);
+			Assert.assertEquals(Boolean.TRUE, cache.isBannedOrExpulsed(key));
+			assertCacheConsistentWithDatabase(ia);
+
+			// the accepted address is not cached as banned anymore
+			ipbanstat.accept(ia);
+			Assert.assertNull(cache.isBannedOrExpulsed(key));
+			assertCacheConsistentWithDatabase(ia);
+			Assert.assertFalse(ipbanstat.isBannedOrExpulsed(ia, allowInetAddressesList));
+		} finally {
+			ipbanstat.accept(ia);
+		}
+	}
 }
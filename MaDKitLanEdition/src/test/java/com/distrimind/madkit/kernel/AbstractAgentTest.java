@@ -60,6 +60,7 @@ import com.distrimind.madkit.kernel.KernelException;
 import com.distrimind.madkit.kernel.Madkit;
 import com.distrimind.madkit.kernel.Message;
 import com.distrimind.madkit.kernel.AbstractAgent.State;
+import com.distrimind.madkit.message.IntegerMessage;
 import com.distrimind.madkit.message.MessageFilter;
 import com.distrimind.madkit.message.ObjectMessage;
 import com.distrimind.madkit.message.StringMessage;
@@ -115,6 +116,34 @@ public class AbstractAgentTest {
 		assertNull(a.purgeMailbox());
 	}
 
+	@Test
+	public void purgeMailboxAndNextMessagesWithConcurrentSender() throws InterruptedException {
+		final int count = 200000;
+		Thread sender = new Thread(() -> {
+			for (int i = 0; i < count; i++)
+				a.receiveMessage(new IntegerMessage(i));
+		});
+		sender.start();
+		int expected = 0;
+		boolean purge = false;
+		while (sender.isAlive() || !a.isMessageBoxEmpty()) {
+			if (purge) {
+				// the messages received after the purged ones must still be there
+				IntegerMessage m = (IntegerMessage) a.purgeMailbox();
+				if (m != null) {
+					assertTrue(m.getContent() >= expected);
+					expected = m.getContent() + 1;
+				}
+			} else {
+				for (Message m : a.nextMessages(null))
+					assertEquals(expected++, ((IntegerMessage) m).getContent().intValue());
+			}
+			purge = !purge;
+		}
+		sender.join();
+		assertEquals(count, expected);
+	}
+
 	@Test
 	public void getLastReceivedMessage() {
 		assertNull(a.purgeMailbox());
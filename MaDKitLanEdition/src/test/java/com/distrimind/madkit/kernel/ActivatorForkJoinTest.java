@@ -0,0 +1,134 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package com.distrimind.madkit.kernel;
+
+import com.distrimind.madkit.simulation.SimulationException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+public class ActivatorForkJoinTest {
+	static class CountedAgent extends AbstractAgent {
+		final int index;
+		final AtomicInteger activations = new AtomicInteger();
+
+		CountedAgent(int index) {
+			this.index = index;
+		}
+	}
+
+	static class CountingActivator extends Activator<CountedAgent> {
+		final Set<String> chunks = ConcurrentHashMap.newKeySet();
+
+		CountingActivator() {
+			super(JunitMadkit.GROUP, JunitMadkit.ROLE);
+		}
+
+		@Override
+		public void execute(List<CountedAgent> agentsList, Object... args) {
+			chunks.add(agentsList.get(0).index + ":" + agentsList.size());
+			for (CountedAgent a : agentsList) {
+				if (a.index < 0)
+					throw new SimulationException("invalid agent " + a.index, null);
+				a.activations.incrementAndGet();
+			}
+		}
+	}
+
+	private static List<CountedAgent> getAgents(int number) {
+		List<CountedAgent> l = new ArrayList<>(number);
+		for (int i = 0; i < number; i++)
+			l.add(new CountedAgent(i));
+		return l;
+	}
+
+	@Test
+	public void testEachAgentActivatedOnce() {
+		List<CountedAgent> agents = getAgents(10007);
+		CountingActivator activator = new CountingActivator();
+		activator.useForkJoin(4);
+		Assert.assertTrue(activator.isForkJoinModeOn());
+		for (int step = 1; step <= 3; step++) {
+			activator.forkJoinExecute(agents, new Object[0]);
+			for (CountedAgent a : agents)
+				Assert.assertEquals(step, a.activations.get());
+		}
+		Assert.assertTrue(activator.chunks.size() > 1);
+		activator.useForkJoin(1);
+		Assert.assertFalse(activator.isForkJoinModeOn());
+	}
+
+	@Test
+	public void testDeterministicChunks() {
+		List<CountedAgent> agents = getAgents(10007);
+		CountingActivator activator2 = new CountingActivator();
+		activator2.useForkJoin(2, Activator.ForkJoinChunking.DETERMINISTIC);
+		activator2.setForkJoinChunkSize(100);
+		activator2.forkJoinExecute(agents, new Object[0]);
+		CountingActivator activator8 = new CountingActivator();
+		activator8.useForkJoin(8, Activator.ForkJoinChunking.DETERMINISTIC);
+		activator8.setForkJoinChunkSize(100);
+		activator8.forkJoinExecute(agents, new Object[0]);
+		Assert.assertEquals(activator2.chunks, activator8.chunks);
+		for (String c : activator2.chunks)
+			Assert.assertTrue(Integer.parseInt(c.substring(c.indexOf(':') + 1)) <= 100);
+		for (CountedAgent a : agents)
+			Assert.assertEquals(2, a.activations.get());
+	}
+
+	@Test(expected = SimulationException.class)
+	public void testExceptionPropagation() {
+		List<CountedAgent> agents = getAgents(1000);
+		agents.set(500, new CountedAgent(-1));
+		CountingActivator activator = new CountingActivator();
+		activator.useForkJoin(4);
+		activator.forkJoinExecute(agents, new Object[0]);
+	}
+}
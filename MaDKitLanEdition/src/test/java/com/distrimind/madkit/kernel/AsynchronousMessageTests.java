@@ -54,6 +54,18 @@ import java.util.Collections;
  */
 public class AsynchronousMessageTests extends JunitMadkit{
 	private static final File databaseFile=new File("asynchronousDatabaseFile");
+	/*
+	 * Differed messages are delivered in background after the role request of the receiver
+	 */
+	private static Message waitDifferedMessage(AbstractAgent receiver) throws InterruptedException {
+		Message m=receiver.nextMessage();
+		for (int i=0;m==null && i<250;i++)
+		{
+			Thread.sleep(20);
+			m=receiver.nextMessage();
+		}
+		return m;
+	}
 	private static final MadkitEventListener madkitEventListener= properties -> {
 		try {
 			properties.setDatabaseFactory(new InMemoryEmbeddedH2DatabaseFactory(databaseFile.getName()));
@@ -398,7 +410,7 @@ public class AsynchronousMessageTests extends JunitMadkit{
 
 					rc=receiver.requestRole(JunitMadkit.GROUP, JunitMadkit.ROLE2 );
 					Assert.assertEquals(ReturnCode.SUCCESS, rc);
-					m = receiver.nextMessage();
+					m = waitDifferedMessage(receiver);
 					Assert.assertNotNull(m);
 					Assert.assertEquals("ok", ((StringMessage) m).getContent());
 					Assert.assertEquals(0, getDifferedMessagesNumberByGroup(JunitMadkit.GROUP));
@@ -468,7 +480,7 @@ public class AsynchronousMessageTests extends JunitMadkit{
 
 					requestRole(JunitMadkit.GROUP, JunitMadkit.ROLE);
 
-					m = receiver.nextMessage();
+					m = waitDifferedMessage(receiver);
 					Assert.assertNotNull(m);
 					Assert.assertEquals("ok", ((StringMessage) m).getContent());
 					Assert.assertEquals(0, getDifferedMessagesNumberByGroup(JunitMadkit.GROUP));
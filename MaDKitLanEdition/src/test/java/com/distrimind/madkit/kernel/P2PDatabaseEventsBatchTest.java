@@ -0,0 +1,110 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.distrimind.madkit.kernel.network.NetworkProperties;
+import com.distrimind.util.io.MessageExternalizationException;
+import com.distrimind.util.io.RandomByteArrayInputStream;
+import com.distrimind.util.io.RandomByteArrayOutputStream;
+
+/**
+ * Rejection of invalid batches of database synchronization events. The round
+ * trip of valid batches between two peers is covered by
+ * {@link com.distrimind.madkit.kernel.network.database.MKDatabaseSynchronizerTest}.
+ * 
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+public class P2PDatabaseEventsBatchTest {
+
+	private static void readAnnouncedEventsNumber(int number) throws IOException, ClassNotFoundException {
+		byte[] bytes;
+		try (RandomByteArrayOutputStream baos = new RandomByteArrayOutputStream()) {
+			baos.writeInt(number);
+			baos.flush();
+			bytes = baos.getBytes();
+		}
+		try (RandomByteArrayInputStream bais = new RandomByteArrayInputStream(bytes)) {
+			new P2PDatabaseEventsBatch().readExternal(bais);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOneEventIsNotBatched() {
+		new P2PDatabaseEventsBatch(Collections.emptyList());
+	}
+
+	@Test
+	public void testTooFewEventsRejected() throws IOException, ClassNotFoundException {
+		for (int number : new int[] { Integer.MIN_VALUE, -1, 0, 1 }) {
+			try {
+				readAnnouncedEventsNumber(number);
+				Assert.fail("" + number);
+			} catch (MessageExternalizationException ignored) {
+
+			}
+		}
+	}
+
+	/*
+	 * The announced events number multiplied by 4 used to overflow, and to pass
+	 * the size check before allocating the list.
+	 */
+	@Test
+	public void testOversizedBatchRejected() throws IOException, ClassNotFoundException {
+		int globalSize = NetworkProperties.GLOBAL_MAX_SHORT_DATA_SIZE;
+		for (int number : new int[] { 0x40000001, Integer.MAX_VALUE / 2 + 1, Integer.MAX_VALUE,
+				(globalSize - 4) / 4 + 1 }) {
+			try {
+				readAnnouncedEventsNumber(number);
+				Assert.fail("" + number);
+			} catch (MessageExternalizationException ignored) {
+
+			}
+		}
+	}
+
+}
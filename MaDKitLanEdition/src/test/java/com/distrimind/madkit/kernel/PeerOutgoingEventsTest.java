@@ -0,0 +1,163 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks the order in which the database synchronization events destined to
+ * one peer are sent: small events grouped under the batch size, big events
+ * blocking the queue while they are exported, and the limit of big transfers
+ * in progress.
+ * 
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+public class PeerOutgoingEventsTest {
+
+	/*
+	 * Events are named after their kind, and their length gives their serialized
+	 * size.
+	 */
+	private static DatabaseSynchronizerAgent.PeerOutgoingEvents<String> getEvents(String... events) {
+		DatabaseSynchronizerAgent.PeerOutgoingEvents<String> res = new DatabaseSynchronizerAgent.PeerOutgoingEvents<>(
+				e -> e.startsWith("big"), String::length);
+		res.events.addAll(Arrays.asList(events));
+		return res;
+	}
+
+	private static void exportAndStartTransfer(DatabaseSynchronizerAgent.PeerOutgoingEvents<String> p) {
+		p.bigDataEventExported();
+		p.bigDataTransferStarted();
+	}
+
+	@Test
+	public void testSmallEventsBatchedInOrder() {
+		DatabaseSynchronizerAgent.PeerOutgoingEvents<String> p = getEvents("s1", "s2", "s3", "s4", "s5", "s6");
+		assertEquals(Arrays.asList("s1", "s2", "s3", "s4", "s5"), p.pollNextEvents(10, 4));
+		assertEquals(Collections.singletonList("s6"), p.pollNextEvents(10, 4));
+		assertTrue(p.pollNextEvents(10, 4).isEmpty());
+		assertTrue(p.isIdle());
+	}
+
+	@Test
+	public void testBatchingDisabled() {
+		DatabaseSynchronizerAgent.PeerOutgoingEvents<String> p = getEvents("s1", "s2", "s3");
+		assertEquals(Collections.singletonList("s1"), p.pollNextEvents(0, 4));
+		assertEquals(Collections.singletonList("s2"), p.pollNextEvents(0, 4));
+		assertEquals(Collections.singletonList("s3"), p.pollNextEvents(0, 4));
+		assertTrue(p.pollNextEvents(0, 4).isEmpty());
+	}
+
+	@Test
+	public void testEventBiggerThanTheBatchSentAlone() {
+		DatabaseSynchronizerAgent.PeerOutgoingEvents<String> p = getEvents("s1", "s2-larger-than-the-batch", "s3");
+		assertEquals(Collections.singletonList("s1"), p.pollNextEvents(10, 4));
+		assertEquals(Collections.singletonList("s2-larger-than-the-batch"), p.pollNextEvents(10, 4));
+		assertEquals(Collections.singletonList("s3"), p.pollNextEvents(10, 4));
+	}
+
+	@Test
+	public void testSmallEventsWaitBehindBigEventExport() {
+		DatabaseSynchronizerAgent.PeerOutgoingEvents<String> p = getEvents("s1", "s2", "big1", "s3", "s4");
+		assertEquals(Arrays.asList("s1", "s2"), p.pollNextEvents(100, 4));
+		assertEquals(Collections.singletonList("big1"), p.pollNextEvents(100, 4));
+		assertTrue(p.exportInProgress);
+		// the following events must not overtake the big event being exported
+		assertTrue(p.pollNextEvents(100, 4).isEmpty());
+		assertFalse(p.isIdle());
+		exportAndStartTransfer(p);
+		assertEquals(Arrays.asList("s3", "s4"), p.pollNextEvents(100, 4));
+		assertFalse(p.isIdle());
+		p.bigDataTransferEnded(true);
+		assertTrue(p.isIdle());
+	}
+
+	@Test
+	public void testBigDataTransfersWindow() {
+		DatabaseSynchronizerAgent.PeerOutgoingEvents<String> p = getEvents("big1", "big2", "big3", "s1");
+		List<String> next = p.pollNextEvents(100, 2);
+		assertEquals(Collections.singletonList("big1"), next);
+		exportAndStartTransfer(p);
+		assertEquals(Collections.singletonList("big2"), p.pollNextEvents(100, 2));
+		exportAndStartTransfer(p);
+		assertEquals(2, p.bigDataTransfersInProgress);
+		// the window is full
+		assertTrue(p.pollNextEvents(100, 2).isEmpty());
+		p.bigDataTransferEnded(true);
+		assertEquals(Collections.singletonList("big3"), p.pollNextEvents(100, 2));
+		exportAndStartTransfer(p);
+		assertEquals(Collections.singletonList("s1"), p.pollNextEvents(100, 2));
+		p.bigDataTransferEnded(true);
+		p.bigDataTransferEnded(true);
+		assertTrue(p.isIdle());
+	}
+
+	@Test
+	public void testOneBigDataTransferAtLeast() {
+		DatabaseSynchronizerAgent.PeerOutgoingEvents<String> p = getEvents("big1", "big2");
+		assertEquals(Collections.singletonList("big1"), p.pollNextEvents(100, 0));
+		exportAndStartTransfer(p);
+		assertTrue(p.pollNextEvents(100, 0).isEmpty());
+		p.bigDataTransferEnded(true);
+		assertEquals(Collections.singletonList("big2"), p.pollNextEvents(100, 0));
+	}
+
+	@Test
+	public void testFailedBigDataTransferDropsFollowingEvents() {
+		DatabaseSynchronizerAgent.PeerOutgoingEvents<String> p = getEvents("big1", "s1", "s2");
+		assertEquals(Collections.singletonList("big1"), p.pollNextEvents(100, 1));
+		exportAndStartTransfer(p);
+		assertEquals(Arrays.asList("s1", "s2"), p.pollNextEvents(100, 1));
+		p.events.add("s3");
+		p.bigDataTransferEnded(false);
+		assertTrue(p.events.isEmpty());
+		assertTrue(p.isIdle());
+	}
+
+}
@@ -0,0 +1,174 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Represented groups are cached per group tree version. These tests check that
+ * the cached arrays are invalidated when a kernel joins or leaves a group, and
+ * when a distant kernel changes the same group tree.
+ * 
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+public class RepresentedGroupsCacheTest {
+
+	private static void join(Group g, KernelAddress ka) {
+		g.setMadKitCreated(ka, true);
+		g.incrementMadKitReferences(ka);
+	}
+
+	private static void leave(Group g, KernelAddress ka) {
+		g.decrementMadKitReferences(ka);
+		g.setMadKitCreated(ka, false);
+	}
+
+	private static boolean isRepresentedInUniverse(Group g, KernelAddress ka) {
+		return Arrays.asList(Group.universe.getRepresentedGroups(ka)).contains(g);
+	}
+
+	@Test
+	public void testJoinAndLeave() {
+		KernelAddress ka = new KernelAddress(false);
+		Group g = new Group("RepresentedGroupsCacheTest-joinAndLeave", "g");
+		try {
+			Assert.assertEquals(0, g.getRepresentedGroups(ka).length);
+			Assert.assertEquals(0, g.getRepresentedGroups().length);
+			Assert.assertFalse(isRepresentedInUniverse(g, ka));
+
+			join(g, ka);
+			Group[] rg = g.getRepresentedGroups(ka);
+			Assert.assertArrayEquals(new Group[] { g }, rg);
+			// the cached array is kept while the group tree is unchanged
+			Assert.assertSame(rg, g.getRepresentedGroups(ka));
+			Group[] grg = g.getRepresentedGroups();
+			Assert.assertArrayEquals(new Group[] { g }, grg);
+			Assert.assertSame(grg, g.getRepresentedGroups());
+			Assert.assertTrue(isRepresentedInUniverse(g, ka));
+
+			leave(g, ka);
+			Assert.assertEquals(0, g.getRepresentedGroups(ka).length);
+			Assert.assertEquals(0, g.getRepresentedGroups().length);
+			Assert.assertFalse(isRepresentedInUniverse(g, ka));
+
+			join(g, ka);
+			Assert.assertArrayEquals(new Group[] { g }, g.getRepresentedGroups(ka));
+			Assert.assertArrayEquals(new Group[] { g }, g.getRepresentedGroups());
+			leave(g, ka);
+		} finally {
+			Group.madkitKernelKilled(ka);
+		}
+	}
+
+	@Test
+	public void testSubGroupJoinAndLeave() {
+		KernelAddress ka = new KernelAddress(false);
+		String community = "RepresentedGroupsCacheTest-subGroups";
+		Group parent = new Group(true, community, "p");
+		Group child = new Group(community, "p", "c");
+		try {
+			// computed before the subgroup is joined, so that a stale cache would be returned
+			Assert.assertEquals(0, parent.getRepresentedGroups(ka).length);
+
+			join(child, ka);
+			Assert.assertArrayEquals(new Group[] { child }, parent.getRepresentedGroups(ka));
+
+			join(parent, ka);
+			Assert.assertArrayEquals(new Group[] { parent.getThisGroupWithoutItsSubGroups(), child },
+					parent.getRepresentedGroups(ka));
+			Assert.assertArrayEquals(new Group[] { parent.getThisGroupWithoutItsSubGroups(), child },
+					parent.getRepresentedGroups());
+
+			leave(child, ka);
+			Assert.assertArrayEquals(new Group[] { parent.getThisGroupWithoutItsSubGroups() },
+					parent.getRepresentedGroups(ka));
+			Assert.assertArrayEquals(new Group[] { parent.getThisGroupWithoutItsSubGroups() },
+					parent.getRepresentedGroups());
+
+			leave(parent, ka);
+			Assert.assertEquals(0, parent.getRepresentedGroups(ka).length);
+			Assert.assertEquals(0, parent.getRepresentedGroups().length);
+		} finally {
+			Group.madkitKernelKilled(ka);
+		}
+	}
+
+	@Test
+	public void testDistantGroupChanges() {
+		KernelAddress local = new KernelAddress(false);
+		KernelAddress distant = new KernelAddress(false);
+		String community = "RepresentedGroupsCacheTest-distant";
+		Group parent = new Group(true, community, "p");
+		Group child = new Group(community, "p", "c");
+		try {
+			join(parent, local);
+			Group[] localRepresentedGroups = parent.getRepresentedGroups(local);
+			Assert.assertArrayEquals(new Group[] { parent.getThisGroupWithoutItsSubGroups() }, localRepresentedGroups);
+			Assert.assertArrayEquals(new Group[] { parent.getThisGroupWithoutItsSubGroups() },
+					parent.getRepresentedGroups());
+
+			// the subgroup is only joined by the distant kernel
+			join(child, distant);
+			Assert.assertArrayEquals(localRepresentedGroups, parent.getRepresentedGroups(local));
+			Assert.assertArrayEquals(new Group[] { parent.getThisGroupWithoutItsSubGroups(), child },
+					parent.getRepresentedGroups());
+			Assert.assertArrayEquals(new Group[] { child }, parent.getRepresentedGroups(distant));
+			Assert.assertTrue(isRepresentedInUniverse(child, distant));
+			Assert.assertFalse(isRepresentedInUniverse(child, local));
+
+			leave(child, distant);
+			Assert.assertArrayEquals(localRepresentedGroups, parent.getRepresentedGroups(local));
+			Assert.assertArrayEquals(new Group[] { parent.getThisGroupWithoutItsSubGroups() },
+					parent.getRepresentedGroups());
+			Assert.assertEquals(0, parent.getRepresentedGroups(distant).length);
+			Assert.assertFalse(isRepresentedInUniverse(child, distant));
+
+			leave(parent, local);
+			Assert.assertEquals(0, parent.getRepresentedGroups().length);
+		} finally {
+			Group.madkitKernelKilled(local);
+			Group.madkitKernelKilled(distant);
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.distrimind.madkit.kernel.InternalRole.ParametrizedAgent;
+
+/**
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+public class RoleMembersTest {
+
+	RoleMembers members;
+	MadkitKernel mk;
+	Madkit m;
+
+	@Before
+	public void before() throws CGRNotAvailable {
+		String[] args = { "--desktop", "false", "--forceDesktop", "true" };
+		mk = (m = new Madkit(args)).getKernel();
+		AbstractAgent a = new AbstractAgent();
+		a.setKernel(mk);
+		mk.createGroup(a, new Group("c", "g"), null, false);
+		mk.getGroup(new Group("c", "g")).put("r", mk.getGroup(new Group("c", "g")).createRole("r"));
+		members = new RoleMembers(mk.getRole(new Group("c", "g"), "r"));
+	}
+
+	@After
+	public void after() {
+		MadkitTest.closeMadkit(m);
+	}
+
+	private AbstractAgent[] newAgents(int number) {
+		AbstractAgent[] res = new AbstractAgent[number];
+		for (int i = 0; i < number; i++) {
+			res[i] = new AbstractAgent();
+			res[i].setKernel(mk);
+		}
+		return res;
+	}
+
+	private List<AbstractAgent> iterate() {
+		List<AbstractAgent> res = new ArrayList<>();
+		for (ParametrizedAgent pa : members)
+			res.add(pa.agent);
+		return res;
+	}
+
+	@Test
+	public void testJoinKeepsInsertionOrder() {
+		AbstractAgent[] agents = newAgents(10);
+		for (AbstractAgent a : agents)
+			assertTrue(members.add(a, true));
+		assertFalse(members.add(agents[3], true));
+		assertEquals(agents.length, members.size());
+		assertEquals(Arrays.asList(agents), members.getAgents());
+		assertEquals(Arrays.asList(agents), iterate());
+		for (int i = 0; i < agents.length; i++) {
+			assertSame(agents[i], members.getAddresses().get(i).getAgent());
+			assertSame(agents[i], members.get(agents[i]).agent);
+		}
+	}
+
+	@Test
+	public void testLeaveKeepsInsertionOrder() {
+		AbstractAgent[] agents = newAgents(6);
+		for (AbstractAgent a : agents)
+			assertTrue(members.add(a, true));
+		assertNotNull(members.remove(agents[1]));
+		assertNotNull(members.remove(agents[4]));
+		assertNull(members.remove(agents[4]));
+		assertNull(members.get(agents[1]));
+		assertEquals(Arrays.asList(agents[0], agents[2], agents[3], agents[5]), members.getAgents());
+		assertEquals(Arrays.asList(agents[0], agents[2], agents[3], agents[5]), iterate());
+		assertNotNull(members.remove(agents[5]));
+		assertNotNull(members.remove(agents[0]));
+		assertEquals(Arrays.asList(agents[2], agents[3]), members.getAgents());
+		assertEquals(2, members.size());
+	}
+
+	@Test
+	public void testRejoinGoesLast() {
+		AbstractAgent[] agents = newAgents(4);
+		for (AbstractAgent a : agents)
+			assertTrue(members.add(a, true));
+		assertNotNull(members.remove(agents[0]));
+		assertTrue(members.add(agents[0], false));
+		assertEquals(Arrays.asList(agents[1], agents[2], agents[3], agents[0]), members.getAgents());
+		assertFalse(members.get(agents[0]).manually_requested);
+		members.clear();
+		assertEquals(0, members.size());
+		assertEquals(0, members.getAgents().size());
+		assertTrue(members.add(agents[2], true));
+		assertEquals(Arrays.asList(agents[2]), members.getAgents());
+	}
+
+	@Test
+	public void testSnapshotsDoNotChangeDuringMutation() {
+		AbstractAgent[] agents = newAgents(5);
+		for (AbstractAgent a : agents)
+			assertTrue(members.add(a, true));
+		List<AbstractAgent> snapshot = members.getAgents();
+		List<AgentAddress> addresses = members.getAddresses();
+		assertSame(snapshot, members.getAgents());
+
+		assertNotNull(members.remove(agents[2]));
+		assertTrue(members.add(agents[2], true));
+		AbstractAgent[] others = newAgents(10);
+		for (AbstractAgent a : others)
+			assertTrue(members.add(a, true));
+		members.replace(members.get(agents[0]), false);
+
+		assertEquals(Arrays.asList(agents), snapshot);
+		assertEquals(agents.length, addresses.size());
+		for (int i = 0; i < agents.length; i++)
+			assertSame(agents[i], addresses.get(i).getAgent());
+		List<AbstractAgent> expected = new ArrayList<>(Arrays.asList(agents[0], agents[1], agents[3], agents[4],
+				agents[2]));
+		expected.addAll(Arrays.asList(others));
+		assertEquals(expected, members.getAgents());
+	}
+
+	@Test
+	public void testChurnKeepsOrderAndSnapshots() {
+		AbstractAgent[] agents = newAgents(64);
+		List<AbstractAgent> expected = new ArrayList<>();
+		List<List<AbstractAgent>> snapshots = new ArrayList<>();
+		List<List<AbstractAgent>> expectedSnapshots = new ArrayList<>();
+		Random random = new Random(0);
+		for (int i = 0; i < 5000; i++) {
+			AbstractAgent a = agents[random.nextInt(agents.length)];
+			switch (random.nextInt(5)) {
+			case 0:
+			case 1:
+				assertEquals(!expected.contains(a), members.add(a, true));
+				if (!expected.contains(a))
+					expected.add(a);
+				break;
+			case 2:
+			case 3:
+				assertEquals(expected.remove(a), members.remove(a) != null);
+				break;
+			default:
+				snapshots.add(members.getAgents());
+				expectedSnapshots.add(new ArrayList<>(expected));
+			}
+			assertEquals(expected.size(), members.size());
+		}
+		assertEquals(expected, members.getAgents());
+		assertEquals(expected, iterate());
+		assertEquals(expectedSnapshots, snapshots);
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel.network;
+
+import java.io.File;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.logging.Level;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.distrimind.madkit.database.IPBanStat;
+import com.distrimind.madkit.kernel.JunitMadkit;
+import com.distrimind.madkit.kernel.Madkit;
+import com.distrimind.madkit.kernel.MadkitEventListener;
+import com.distrimind.madkit.kernel.network.connection.access.AbstractAccessProtocolProperties;
+import com.distrimind.madkit.kernel.network.connection.access.AccessProtocolWithP2PAgreementProperties;
+import com.distrimind.madkit.kernel.network.connection.access.ListGroupsRoles;
+import com.distrimind.madkit.kernel.network.connection.unsecured.UnsecuredConnectionProtocolProperties;
+import com.distrimind.madkit.testing.util.agent.NormalAgent;
+import com.distrimind.util.FileTools;
+
+/**
+ * Incoming connections checked by the {@link NIOAgent} against the banned
+ * addresses of its database, through the cache of {@link IPBanStat}. A banned
+ * address cannot connect, and can connect again as soon as it is accepted.
+ * 
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+public class BannedAddressConnectionTest extends JunitMadkit {
+	static final long timeOut = 20000;
+	static final File databaseFile = new File("tmpfortestbannedaddress.database");
+
+	private final ListGroupsRoles defaultGroupAccess = new ListGroupsRoles();
+	private final InetAddress loopbackIPv4;
+	private final InetAddress loopbackIPv6;
+
+	public BannedAddressConnectionTest() throws UnknownHostException {
+		defaultGroupAccess.addGroupsRoles(JunitMadkit.GROUP);
+		loopbackIPv4 = InetAddress.getByName("127.0.0.1");
+		loopbackIPv6 = InetAddress.getByName("::1");
+	}
+
+	private MadkitEventListener getServerEventListener() {
+		return _properties -> {
+			AbstractAccessProtocolProperties app = new AccessProtocolWithP2PAgreementProperties();
+
+			try {
+				new NetworkEventListener(true, false, false, databaseFile,
+						new ConnectionsProtocolsMKEventListener(new UnsecuredConnectionProtocolProperties()),
+						new AccessProtocolPropertiesMKEventListener(app),
+						new AccessDataMKEventListener(AccessDataMKEventListener.getDefaultAccessData(defaultGroupAccess)), 5000,
+						null, InetAddress.getByName("0.0.0.0")).onMaDKitPropertiesLoaded(_properties);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			_properties.networkProperties.networkLogLevel = Level.INFO;
+			// loopback addresses cannot be banned by default
+			_properties.networkProperties.removeAllowInetAddress(loopbackIPv4);
+			_properties.networkProperties.removeAllowInetAddress(loopbackIPv6);
+		};
+	}
+
+	private NetworkEventListener getClientEventListener() throws UnknownHostException {
+		UnsecuredConnectionProtocolProperties u = new UnsecuredConnectionProtocolProperties();
+		u.isServer = false;
+
+		AbstractAccessProtocolProperties app = new AccessProtocolWithP2PAgreementProperties();
+
+		return new NetworkEventListener(true, false, false, null,
+				new ConnectionsProtocolsMKEventListener(u), new AccessProtocolPropertiesMKEventListener(app),
+				new AccessDataMKEventListener(AccessDataMKEventListener.getDefaultAccessData(defaultGroupAccess)), 5000,
+				Collections.singletonList((AbstractIP) new DoubleIP(5000, (Inet4Address) loopbackIPv4,
+						(Inet6Address) loopbackIPv6)),
+				InetAddress.getByName("0.0.0.0"));
+	}
+
+	@Test
+	public void testBannedAddressRejected() throws UnknownHostException {
+		final NetworkEventListener clientEventListener = getClientEventListener();
+		if (databaseFile.exists())
+			FileTools.deleteDirectory(databaseFile);
+		try {
+			launchTest(new NormalAgent() {
+				@Override
+				protected void activate() throws InterruptedException {
+					try {
+						IPBanStat ipBanStat = getMadkitConfig().getDatabaseWrapper().getTableInstance(IPBanStat.class);
+						NetworkProperties np = getMadkitConfig().networkProperties;
+						for (InetAddress ia : new InetAddress[] { loopbackIPv4, loopbackIPv6 }) {
+							Assert.assertNotNull(ipBanStat.processExpulsion(ia, true, timeOut * 10, (short) 1,
+									(short) 1, timeOut * 10, (short) 1, (short) 1, timeOut * 10, timeOut * 10,
+									np.getAllowInetAddressesList()));
+							Assert.assertTrue(ipBanStat.isBannedOrExpulsed(ia, np.getAllowInetAddressesList()));
+						}
+
+						launchThreadedMKNetworkInstance(Level.INFO, clientEventListener);
+						Madkit client = getHelperInstances(this, 1).get(0);
+
+						// the connection from the banned address is rejected
+						sleep(5000);
+						checkConnectedKernelsNb(this, client, 0, 0);
+
+						// the accepted address is not cached as banned anymore
+						for (InetAddress ia : new InetAddress[] { loopbackIPv4, loopbackIPv6 }) {
+							ipBanStat.accept(ia);
+							Assert.assertFalse(ipBanStat.isBannedOrExpulsed(ia, np.getAllowInetAddressesList()));
+						}
+						stopNetwork(client);
+						sleep(1000);
+						startNetwork(client);
+						checkConnectedKernelsNb(this, client, 1, timeOut);
+					} catch (InterruptedException e) {
+						throw e;
+					} catch (Exception e) {
+						throw new AssertionError(e);
+					}
+				}
+
+				@Override
+				protected void liveCycle() {
+					this.killAgent(this);
+				}
+			}, getServerEventListener());
+			cleanHelperMDKs();
+		} finally {
+			if (databaseFile.exists())
+				FileTools.deleteDirectory(databaseFile);
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel.network;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 
+ * @author Jason Mahdjoub
+ * @version 1.0
+ * @since MadkitLanEdition 2.2.0
+ */
+public class BlockBufferPoolTest {
+
+	@Test
+	public void testReuseOfReleasedBuffers() {
+		BlockBufferPool pool = new BlockBufferPool(100000, 1000);
+		ByteBuffer b1 = pool.take(20000);
+		Assert.assertEquals(20000, b1.capacity());
+		Assert.assertEquals(0, pool.getHits());
+		Assert.assertEquals(1, pool.getMisses());
+		b1.put(new byte[10]);
+		pool.release(b1);
+		Assert.assertEquals(20000, pool.getPooledBytes());
+
+		ByteBuffer b2 = pool.take(20000);
+		Assert.assertSame(b1, b2);
+		Assert.assertEquals(0, b2.position());
+		Assert.assertEquals(20000, b2.remaining());
+		Assert.assertEquals(1, pool.getHits());
+		Assert.assertEquals(0, pool.getPooledBytes());
+
+		ByteBuffer b3 = pool.take(30000);
+		Assert.assertNotSame(b1, b3);
+		Assert.assertEquals(30000, b3.capacity());
+		Assert.assertEquals(2, pool.getMisses());
+	}
+
+	@Test
+	public void testSmallBuffersAreNotPooled() {
+		BlockBufferPool pool = new BlockBufferPool(100000, 1000);
+		ByteBuffer b = pool.take(500);
+		pool.release(b);
+		Assert.assertEquals(0, pool.getPooledBytes());
+		Assert.assertNotSame(b, pool.take(500));
+		Assert.assertEquals(0, pool.getHits());
+		Assert.assertEquals(0, pool.getMisses());
+	}
+
+	@Test
+	public void testPoolIsBounded() {
+		BlockBufferPool pool = new BlockBufferPool(50000, 1000);
+		ByteBuffer b1 = pool.take(20000);
+		ByteBuffer b2 = pool.take(20000);
+		ByteBuffer b3 = pool.take(20000);
+		pool.release(b1);
+		pool.release(b2);
+		pool.release(b3);
+		Assert.assertEquals(40000, pool.getPooledBytes());
+		Assert.assertEquals(1, pool.getDropped());
+	}
+}
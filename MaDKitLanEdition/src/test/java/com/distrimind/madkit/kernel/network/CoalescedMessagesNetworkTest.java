@@ -0,0 +1,204 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel.network;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.distrimind.madkit.kernel.AbstractAgent;
+import com.distrimind.madkit.kernel.Agent;
+import com.distrimind.madkit.kernel.AgentAddress;
+import com.distrimind.madkit.kernel.JunitMadkit;
+import com.distrimind.madkit.kernel.MadkitEventListener;
+import com.distrimind.madkit.kernel.Message;
+import com.distrimind.madkit.kernel.network.connection.access.AbstractAccessProtocolProperties;
+import com.distrimind.madkit.kernel.network.connection.access.AccessProtocolWithP2PAgreementProperties;
+import com.distrimind.madkit.kernel.network.connection.access.ListGroupsRoles;
+import com.distrimind.madkit.kernel.network.connection.unsecured.UnsecuredConnectionProtocolProperties;
+import com.distrimind.madkit.message.StringMessage;
+import com.distrimind.madkit.testing.util.agent.NormalAgent;
+
+/**
+ * Small messages coalesced into shared packets, between two connected kernels.
+ * A batch is sent when the next message would exceed
+ * {@link NetworkProperties#maxCoalescedMessagesSize}, or when its flush
+ * deadline is reached. The distant kernel must deliver the messages one by one
+ * and in order, and each sent message must be unlocked only when its batch
+ * has been sent.
+ * 
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+public class CoalescedMessagesNetworkTest extends JunitMadkit {
+	static final int MAX_COALESCED_MESSAGES_SIZE = 1024;
+	static final long FLUSH_DELAY_MS = 3000;
+	static final int NUMBER_OF_MESSAGES = 200;
+	static final String DEADLINE_MESSAGE = "deadline";
+	static final long timeOut = 20000;
+
+	private final ListGroupsRoles defaultGroupAccess = new ListGroupsRoles();
+
+	public CoalescedMessagesNetworkTest() {
+		defaultGroupAccess.addGroupsRoles(JunitMadkit.GROUP);
+	}
+
+	static String getContent(int i) {
+		return i + ":coalesced message content";
+	}
+
+	private MadkitEventListener getSenderEventListener() {
+		return _properties -> {
+			AbstractAccessProtocolProperties app = new AccessProtocolWithP2PAgreementProperties();
+
+			try {
+				new NetworkEventListener(true, false, false, null,
+						new ConnectionsProtocolsMKEventListener(new UnsecuredConnectionProtocolProperties()),
+						new AccessProtocolPropertiesMKEventListener(app),
+						new AccessDataMKEventListener(AccessDataMKEventListener.getDefaultAccessData(defaultGroupAccess)), 5000,
+						null, InetAddress.getByName("0.0.0.0")).onMaDKitPropertiesLoaded(_properties);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			_properties.networkProperties.networkLogLevel = Level.INFO;
+			_properties.networkProperties.maxCoalescedMessagesSize = MAX_COALESCED_MESSAGES_SIZE;
+			_properties.networkProperties.coalescedMessagesFlushDelayInMicroseconds = FLUSH_DELAY_MS * 1000L;
+		};
+	}
+
+	private NetworkEventListener getReceiverEventListener() throws UnknownHostException {
+		UnsecuredConnectionProtocolProperties u = new UnsecuredConnectionProtocolProperties();
+		u.isServer = false;
+
+		AbstractAccessProtocolProperties app = new AccessProtocolWithP2PAgreementProperties();
+
+		return new NetworkEventListener(true, false, false, null,
+				new ConnectionsProtocolsMKEventListener(u), new AccessProtocolPropertiesMKEventListener(app),
+				new AccessDataMKEventListener(AccessDataMKEventListener.getDefaultAccessData(defaultGroupAccess)), 5000,
+				Collections.singletonList((AbstractIP) new DoubleIP(5000, (Inet4Address) InetAddress.getByName("127.0.0.1"),
+						(Inet6Address) InetAddress.getByName("::1"))),
+				InetAddress.getByName("0.0.0.0"));
+	}
+
+	@Test
+	public void testCoalescedMessagesRoundTrip() throws UnknownHostException {
+		final NetworkEventListener receiverEventListener = getReceiverEventListener();
+		launchTest(new NormalAgent() {
+			@Override
+			protected void activate() throws InterruptedException {
+				requestRole(GROUP, ROLE);
+				launchThreadedMKNetworkInstance(Level.INFO, AbstractAgent.class, new CoalescedMessagesReceiverAgent(),
+						receiverEventListener);
+
+				Message hello = waitNextMessage(timeOut);
+				Assert.assertNotNull(hello);
+				AgentAddress aa = hello.getSender();
+
+				try {
+					// a lone message waits for the flush deadline, and stays locked until then
+					long start = System.currentTimeMillis();
+					CompletableFuture<ReturnCode> future = sendMessageAsync(aa, new StringMessage(DEADLINE_MESSAGE));
+					sleep(FLUSH_DELAY_MS / 2);
+					Assert.assertFalse(future.isDone());
+					Assert.assertEquals(ReturnCode.SUCCESS, future.get(timeOut, TimeUnit.MILLISECONDS));
+					Assert.assertTrue(System.currentTimeMillis() - start >= FLUSH_DELAY_MS);
+
+					// a burst exceeds the size threshold, and is sent before the flush deadline
+					List<CompletableFuture<ReturnCode>> futures = new ArrayList<>(NUMBER_OF_MESSAGES);
+					for (int i = 0; i < NUMBER_OF_MESSAGES; i++)
+						futures.add(sendMessageAsync(aa, new StringMessage(getContent(i))));
+					Assert.assertEquals(ReturnCode.SUCCESS, futures.get(0).get(FLUSH_DELAY_MS / 2, TimeUnit.MILLISECONDS));
+					for (CompletableFuture<ReturnCode> f : futures)
+						Assert.assertEquals(ReturnCode.SUCCESS, f.get(timeOut, TimeUnit.MILLISECONDS));
+				} catch (Exception e) {
+					throw new AssertionError(e);
+				}
+
+				Message report = waitNextMessage(timeOut);
+				Assert.assertTrue(report instanceof StringMessage);
+				Assert.assertEquals("ok", ((StringMessage) report).getContent());
+			}
+
+			@Override
+			protected void liveCycle() {
+				this.killAgent(this);
+			}
+		}, getSenderEventListener());
+		cleanHelperMDKs();
+	}
+
+	static class CoalescedMessagesReceiverAgent extends Agent {
+		@Override
+		protected void activate() throws InterruptedException {
+			requestRole(GROUP, ROLE);
+			sleep(1500);
+			sendMessage(GROUP, ROLE, new StringMessage("hello"));
+		}
+
+		@Override
+		protected void liveCycle() throws InterruptedException {
+			String report = "ok";
+			Message m = waitNextMessage(timeOut);
+			AgentAddress sender = m == null ? null : m.getSender();
+			if (!(m instanceof StringMessage) || !DEADLINE_MESSAGE.equals(((StringMessage) m).getContent()))
+				report = "unexpected first message : " + m;
+			// each coalesced message must be delivered separately, and in the sending order
+			for (int i = 0; i < NUMBER_OF_MESSAGES && report.equals("ok"); i++) {
+				m = waitNextMessage(timeOut);
+				if (!(m instanceof StringMessage) || !getContent(i).equals(((StringMessage) m).getContent()))
+					report = "unexpected message " + i + " : " + m;
+			}
+			if (sender != null)
+				sendMessage(sender, new StringMessage(report));
+			this.killAgent(this);
+		}
+	}
+
+}
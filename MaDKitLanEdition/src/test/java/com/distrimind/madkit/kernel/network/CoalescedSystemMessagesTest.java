@@ -0,0 +1,143 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel.network;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.distrimind.util.io.MessageExternalizationException;
+import com.distrimind.util.io.RandomByteArrayInputStream;
+import com.distrimind.util.io.RandomByteArrayOutputStream;
+
+/**
+ * Serialization checks of the packets grouping several small lan messages.
+ * 
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+public class CoalescedSystemMessagesTest {
+
+	private static byte[] serialize(CoalescedSystemMessages m) throws IOException {
+		try (RandomByteArrayOutputStream baos = new RandomByteArrayOutputStream()) {
+			m.writeExternal(baos);
+			baos.flush();
+			return baos.getBytes();
+		}
+	}
+
+	private static CoalescedSystemMessages unserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+		CoalescedSystemMessages res = new CoalescedSystemMessages();
+		try (RandomByteArrayInputStream bais = new RandomByteArrayInputStream(bytes)) {
+			res.readExternal(bais);
+		}
+		return res;
+	}
+
+	private static byte[] getAnnouncedMessagesNumber(int number) throws IOException {
+		try (RandomByteArrayOutputStream baos = new RandomByteArrayOutputStream()) {
+			baos.writeInt(number);
+			baos.writeBytesArray(new byte[] { 1, 2, 3 }, false, NetworkProperties.GLOBAL_MAX_SHORT_DATA_SIZE);
+			baos.flush();
+			return baos.getBytes();
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException, ClassNotFoundException {
+		List<byte[]> messages = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			byte[] m = new byte[i * 17];
+			Arrays.fill(m, (byte) i);
+			messages.add(m);
+		}
+		CoalescedSystemMessages read = unserialize(serialize(new CoalescedSystemMessages(messages)));
+		Assert.assertEquals(messages.size(), read.getSerializedMessages().size());
+		for (int i = 0; i < messages.size(); i++)
+			Assert.assertArrayEquals(messages.get(i), read.getSerializedMessages().get(i));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOneMessageIsNotCoalesced() {
+		new CoalescedSystemMessages(Collections.singletonList(new byte[10]));
+	}
+
+	@Test
+	public void testTooFewMessagesRejected() throws IOException, ClassNotFoundException {
+		for (int number : new int[] { -1, 0, 1 }) {
+			try {
+				unserialize(getAnnouncedMessagesNumber(number));
+				Assert.fail("" + number);
+			} catch (MessageExternalizationException ignored) {
+
+			}
+		}
+	}
+
+	/*
+	 * The announced messages number multiplied by 4 used to overflow, and to pass
+	 * the size check before allocating the list.
+	 */
+	@Test
+	public void testOverflowingMessagesNumberRejected() throws IOException, ClassNotFoundException {
+		int globalSize = NetworkProperties.GLOBAL_MAX_SHORT_DATA_SIZE;
+		for (int number : new int[] { 0x40000001, Integer.MAX_VALUE / 2 + 1, Integer.MAX_VALUE,
+				(globalSize - 4) / 4 + 1 }) {
+			try {
+				unserialize(getAnnouncedMessagesNumber(number));
+				Assert.fail("" + number);
+			} catch (MessageExternalizationException ignored) {
+
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testTooBigTotalSizeRejected() throws IOException, ClassNotFoundException {
+		int length = NetworkProperties.GLOBAL_MAX_SHORT_DATA_SIZE / 2 + 1;
+		unserialize(serialize(new CoalescedSystemMessages(Arrays.asList(new byte[length], new byte[length]))));
+	}
+
+}
@@ -48,6 +48,7 @@ import com.distrimind.madkit.kernel.network.connection.*;
 import com.distrimind.madkit.kernel.network.connection.ConnectionProtocol.ConnectionState;
 import com.distrimind.madkit.kernel.network.connection.secured.*;
 import com.distrimind.madkit.kernel.network.connection.unsecured.CheckSumConnectionProtocolProperties;
+import com.distrimind.madkit.kernel.network.connection.unsecured.CompressionConnectionProtocolProperties;
 import com.distrimind.madkit.kernel.network.connection.unsecured.UnsecuredConnectionProtocolProperties;
 import com.distrimind.ood.database.DatabaseConfiguration;
 import com.distrimind.ood.database.DatabaseSchema;
@@ -67,9 +68,11 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 
@@ -162,6 +165,20 @@ public class ConnectionsProtocolsTests extends JunitMadkit {
 		return res;
 	}
 
+	private static ArrayList<ConnectionProtocolProperties<?>[]> dataWithCompression()
+			throws SecurityException, IllegalArgumentException, NoSuchAlgorithmException, NoSuchProviderException, ConnectionException, IOException {
+		ArrayList<ConnectionProtocolProperties<?>[]> res = dataOneLevel();
+		for (ConnectionProtocolProperties<?>[] base : res) {
+			base[0].subProtocolProperties = new CompressionConnectionProtocolProperties();
+			base[1].subProtocolProperties = new CompressionConnectionProtocolProperties();
+		}
+		ConnectionProtocolProperties<?>[] o = new ConnectionProtocolProperties<?>[2];
+		o[0] = new CompressionConnectionProtocolProperties();
+		o[1] = new CompressionConnectionProtocolProperties();
+		res.add(o);
+		return res;
+	}
+
 	private static ArrayList<ConnectionProtocolProperties<?>[]> dataOneLevel()
 			throws SecurityException, IllegalArgumentException, NoSuchAlgorithmException, NoSuchProviderException, ConnectionException, IOException {
 		ArrayList<ConnectionProtocolProperties<?>[]> res = new ArrayList<>();
@@ -444,6 +461,7 @@ public class ConnectionsProtocolsTests extends JunitMadkit {
 			IOException, NoSuchAlgorithmException, NIOException, NoSuchProviderException, ConnectionException {
 		ArrayList<ConnectionProtocolProperties<?>[]> data = dataOneLevel();
 		data.addAll(dataWithSubLevel());
+		data.addAll(dataWithCompression());
 		Collection<Object[]> res = new ArrayList<>();
 
 		for (ConnectionProtocolProperties<?>[] base : data) {
@@ -667,6 +685,8 @@ public class ConnectionsProtocolsTests extends JunitMadkit {
 		testRandomPingPongMessage(tbcasker, tbreceiver);
 		testRandomPingPongMessage(tbcasker, tbreceiver);
 		testRandomPingPongMessage(tbcasker, tbreceiver);
+		testPacketPartsOutlivingReadBuffers(cpasker, npasker, cpreceiver, npreceiver);
+		testPacketPartsOutlivingReadBuffers(cpreceiver, npreceiver, cpasker, npasker);
 
 		testIrregularConnectionWithUnkowMessages(totalCycles, cpasker.getDatabaseWrapper() != null);
 		testIrregularConnectionWithCurruptedMessages(totalCycles, cpasker.getDatabaseWrapper() != null);
@@ -885,6 +905,11 @@ public class ConnectionsProtocolsTests extends JunitMadkit {
 	private byte[] getRandomMessage() {
 		byte[] message = new byte[20000 + rand.nextInt(262144/8-20000)];
 		rand.nextBytes(message);
+		if (rand.nextBoolean()) {
+			// compressible message
+			for (int i = 0; i < message.length; i++)
+				message[i] &= 3;
+		}
 		return message;
 	}
 
@@ -893,7 +918,8 @@ public class ConnectionsProtocolsTests extends JunitMadkit {
 			NIOException, NoSuchAlgorithmException, NoSuchProviderException {
 		ArrayList<Block> res = new ArrayList<>();
 		WritePacket wp = new WritePacket(PacketPartHead.TYPE_PACKET, idPacket, np.maxBufferSize,
-				excludeFromEncryption?0:np.maxRandomPacketValues, rand, new RandomByteArrayInputStream(message), MessageDigestType.BC_FIPS_SHA3_512);
+				excludeFromEncryption?0:np.maxRandomPacketValues, rand, new RandomByteArrayInputStream(message), MessageDigestType.BC_FIPS_SHA3_512,
+				np.bulkRandomPadding?new PaddingKeyStream(rand):null);
 		Assert.assertEquals(idPacket, wp.getID());
 		while (!wp.isFinished()) {
 			if (tbc!=null)
@@ -1024,6 +1050,8 @@ output.flush();
 		int transferType = -1;
 		byte[] message = getRandomMessage();
 		boolean excludeFromEncryption=rand.nextBoolean();
+		npasker.bulkRandomPadding=rand.nextBoolean();
+		npreceiver.bulkRandomPadding=rand.nextBoolean();
 		byte[] receivedMessage = getMessage(message,
 				getBytesToSend(getBlocks(message, excludeFromEncryption, cpasker, npasker, idPacket, transferType, tbcasker)), cpreceiver,
 				npreceiver, idPacket, transferType, tbcasker);
@@ -1034,6 +1062,46 @@ output.flush();
 		Assert.assertArrayEquals(message, receivedMessage);
 	}
 
+	/*
+	 * Blocks are read into buffers of a BlockBufferPool, as NIOAgent does. Each
+	 * buffer goes back to the pool as soon as its packet part is decoded, and is
+	 * overwritten as if it was reused by the next read, whereas the packet parts
+	 * are only read once all of them have been decoded.
+	 */
+	private static void testPacketPartsOutlivingReadBuffers(ConnectionProtocol<?> cpSender, NetworkProperties npSender,
+			ConnectionProtocol<?> cpReceiver, NetworkProperties npReceiver)
+			throws PacketException, NIOException, IOException, NoSuchAlgorithmException, NoSuchProviderException {
+		final int idPacket = rand.nextInt(1000000);
+		final int transferType = -1;
+		byte[] message = new byte[npSender.maxBufferSize * 4 + rand.nextInt(1000)];
+		rand.nextBytes(message);
+		ArrayList<byte[]> receivedBytes = getBytesToSend(
+				getBlocks(message, false, cpSender, npSender, idPacket, transferType, null));
+		Assert.assertTrue(receivedBytes.size() > 1);
+
+		BlockBufferPool pool = new BlockBufferPool(Long.MAX_VALUE, 0);
+		ArrayList<PacketPart> packetParts = new ArrayList<>(receivedBytes.size());
+		for (byte[] bytes : receivedBytes) {
+			ByteBuffer buffer = pool.take(bytes.length);
+			buffer.put(bytes);
+			Block b = new Block(buffer.array());
+			b.setPooledBuffer(buffer, pool);
+			PacketPart pp = b.detachFromPooledBuffer(cpReceiver.getPacketPart(b, npReceiver));
+			Assert.assertFalse(b.hasPooledBuffer());
+			Assert.assertNotSame(buffer.array(), pp.getSubBlock().getBytes());
+			Arrays.fill(buffer.array(), (byte) 0);
+			packetParts.add(pp);
+		}
+		Assert.assertEquals(idPacket, packetParts.get(0).getHead().getID());
+
+		RandomByteArrayOutputStream output = new RandomByteArrayOutputStream();
+		ReadPacket rp = new ReadPacket(packetParts.get(0), output, MessageDigestType.BC_FIPS_SHA3_512);
+		for (int i = 1; i < packetParts.size(); i++)
+			rp.readNewPart(packetParts.get(i));
+		output.flush();
+		Assert.assertArrayEquals(message, output.getBytes());
+	}
+
 	public static byte[] serialize(SecureExternalizableWithoutInnerSizeControl message) throws IOException {
 		
 		try (RandomByteArrayOutputStream baos = new RandomByteArrayOutputStream()) {
@@ -0,0 +1,144 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import com.distrimind.madkit.exceptions.MadkitException;
+import com.distrimind.madkit.kernel.AbstractAgent.ReturnCode;
+import com.distrimind.madkit.kernel.KernelAddress;
+
+/**
+ * Checks that the futures given to
+ * {@link MessageLocker#completeWhenUnlocked(CompletableFuture)} are completed
+ * exactly when the blocking send would have been released.
+ * 
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+public class MessageLockerTest {
+
+	@Test
+	public void futureCompletedWhenLastLockIsReleased() throws MadkitException {
+		MessageLocker ml = new MessageLocker();
+		KernelAddress ka1 = new KernelAddress(false) {
+		};
+		KernelAddress ka2 = new KernelAddress(false) {
+		};
+		ml.lock();
+		ml.lock();
+		CompletableFuture<ReturnCode> future = new CompletableFuture<>();
+		ml.completeWhenUnlocked(future);
+		assertFalse(future.isDone());
+		ml.unlock(ka1, new DataTransferResult(10, 10, 10));
+		assertFalse(future.isDone());
+		ml.unlock(ka2, new DataTransferResult(10, 10, 10));
+		assertTrue(future.isDone());
+		assertEquals(ReturnCode.SUCCESS, future.join());
+	}
+
+	@Test
+	public void futureGetsTheTransferFailure() throws MadkitException {
+		MessageLocker ml = new MessageLocker();
+		ml.lock();
+		CompletableFuture<ReturnCode> future = new CompletableFuture<>();
+		ml.completeWhenUnlocked(future);
+		ml.unlock(new KernelAddress(false) {
+		}, new DataTransferResult(10, 10, 5));
+		assertTrue(future.isDone());
+		assertEquals(ReturnCode.TRANSFER_FAILED, future.join());
+	}
+
+	@Test
+	public void futureCompletedWhenLockIsCanceled() {
+		MessageLocker ml = new MessageLocker();
+		ml.lock();
+		CompletableFuture<ReturnCode> future = new CompletableFuture<>();
+		ml.completeWhenUnlocked(future);
+		assertFalse(future.isDone());
+		ml.cancelLock();
+		assertTrue(future.isDone());
+		assertEquals(ReturnCode.TRANSFER_IN_PROGRESS, future.join());
+	}
+
+	@Test
+	public void futureCompletedOnceWhenCanceledThenUnlocked() throws MadkitException {
+		MessageLocker ml = new MessageLocker();
+		ml.lock();
+		CompletableFuture<ReturnCode> future = new CompletableFuture<>();
+		ml.completeWhenUnlocked(future);
+		ml.cancelLock();
+		ml.unlock();
+		assertEquals(ReturnCode.TRANSFER_IN_PROGRESS, future.join());
+	}
+
+	@Test
+	public void futureCompletedImmediatelyWhenAlreadyUnlocked() throws MadkitException {
+		MessageLocker ml = new MessageLocker();
+		ml.lock();
+		ml.unlock();
+		CompletableFuture<ReturnCode> future = new CompletableFuture<>();
+		ml.completeWhenUnlocked(future);
+		assertTrue(future.isDone());
+
+		ml = new MessageLocker();
+		ml.lock();
+		ml.cancelLock();
+		future = new CompletableFuture<>();
+		ml.completeWhenUnlocked(future);
+		assertTrue(future.isDone());
+		assertEquals(ReturnCode.TRANSFER_IN_PROGRESS, future.join());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void onlyOneFuturePerMessage() {
+		MessageLocker ml = new MessageLocker();
+		ml.lock();
+		ml.completeWhenUnlocked(new CompletableFuture<>());
+		ml.completeWhenUnlocked(new CompletableFuture<>());
+	}
+
+}
@@ -84,6 +84,9 @@ public class MultipleConnectionsTest extends JunitMadkit {
 			res.addAll(Objects.requireNonNull(data(NetworkEventListener.getNetworkEventListenersForLocalClientServerConnection(true, true,
 					false, true, true, false, null,null, HOST_NUMBERS - 1, 1, 2, 3, 4, 5), 100,
 					200)));
+			// connections shared among several selector threads
+			res.addAll(Objects.requireNonNull(data(NetworkEventListener.getNetworkEventListenersForLocalClientServerConnection(true, true,
+					false, true, true, false, null,null, HOST_NUMBERS - 1, 1, 2, 3, 4, 5), null, null, 2)));
 			return res;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -93,13 +96,19 @@ public class MultipleConnectionsTest extends JunitMadkit {
 
 	public static Collection<Object[]> data(Collection<Object[]> c, Integer localDataAmountAcc,
 			Integer globalDataAmountAcc) {
+		return data(c, localDataAmountAcc, globalDataAmountAcc, null);
+	}
+
+	public static Collection<Object[]> data(Collection<Object[]> c, Integer localDataAmountAcc,
+			Integer globalDataAmountAcc, Integer numberOfNIOSelectorThreads) {
 		try {
 			ArrayList<Object[]> res = new ArrayList<>(c.size());
 			for (Object[] o : c) {
-				Object[] o2 = new Object[o.length + 2];
+				Object[] o2 = new Object[o.length + 3];
 				o2[0] = localDataAmountAcc;
 				o2[1] = globalDataAmountAcc;
-				System.arraycopy(o, 0, o2, 2, o.length);
+				o2[2] = numberOfNIOSelectorThreads;
+				System.arraycopy(o, 0, o2, 3, o.length);
 				res.add(o2);
 			}
 			return res;
@@ -116,8 +125,9 @@ public class MultipleConnectionsTest extends JunitMadkit {
 	final NetworkEventListener eventListener5;
 	final Integer localDataAmountAcc;
 	final Integer globalDataAmountAcc;
+	final Integer numberOfNIOSelectorThreads;
 
-	public MultipleConnectionsTest(Integer localDataAmountAcc, Integer globalDataAmountAcc,
+	public MultipleConnectionsTest(Integer localDataAmountAcc, Integer globalDataAmountAcc, Integer numberOfNIOSelectorThreads,
 			final NetworkEventListener eventListener1, final NetworkEventListener eventListener2,
 			final NetworkEventListener eventListener3, final NetworkEventListener eventListener4,
 			final NetworkEventListener eventListener5) {
@@ -128,6 +138,7 @@ public class MultipleConnectionsTest extends JunitMadkit {
 		this.eventListener5 = eventListener5;
 		this.localDataAmountAcc = localDataAmountAcc;
 		this.globalDataAmountAcc = globalDataAmountAcc;
+		this.numberOfNIOSelectorThreads = numberOfNIOSelectorThreads;
 	}
 
 	private static final long timeOut = 60000;
@@ -136,14 +147,19 @@ public class MultipleConnectionsTest extends JunitMadkit {
 	public void multipleAsynchroneConnectionTest() {
 		eventListener1.setLocalDataAmountAcc(localDataAmountAcc);
 		eventListener1.setGlobalDataAmountAcc(globalDataAmountAcc);
+		eventListener1.setNumberOfNIOSelectorThreads(numberOfNIOSelectorThreads);
 		eventListener2.setLocalDataAmountAcc(localDataAmountAcc);
 		eventListener2.setGlobalDataAmountAcc(globalDataAmountAcc);
+		eventListener2.setNumberOfNIOSelectorThreads(numberOfNIOSelectorThreads);
 		eventListener3.setLocalDataAmountAcc(localDataAmountAcc);
 		eventListener3.setGlobalDataAmountAcc(globalDataAmountAcc);
+		eventListener3.setNumberOfNIOSelectorThreads(numberOfNIOSelectorThreads);
 		eventListener4.setLocalDataAmountAcc(localDataAmountAcc);
 		eventListener4.setGlobalDataAmountAcc(globalDataAmountAcc);
+		eventListener4.setNumberOfNIOSelectorThreads(numberOfNIOSelectorThreads);
 		eventListener5.setLocalDataAmountAcc(localDataAmountAcc);
 		eventListener5.setGlobalDataAmountAcc(globalDataAmountAcc);
+		eventListener5.setNumberOfNIOSelectorThreads(numberOfNIOSelectorThreads);
 		for (ConnectionProtocolProperties<?> cpp : eventListener1.madkitEventListenerForConnectionProtocols.getConnectionProtocolProperties()) {
 			System.out.println(cpp);
 			while((cpp=cpp.subProtocolProperties)!=null)
@@ -164,7 +180,8 @@ public class MultipleConnectionsTest extends JunitMadkit {
 					sleep(1000);
 					System.err.println("------------------------ Thread cound at start : " + Thread.activeCount());
 					System.err.println("------------------------ localDataAmountAcc=" + localDataAmountAcc
-							+ " --- globalDataAmountAcc=" + globalDataAmountAcc);
+							+ " --- globalDataAmountAcc=" + globalDataAmountAcc
+							+ " --- numberOfNIOSelectorThreads=" + numberOfNIOSelectorThreads);
 					removeDatabase();
 					AgentsToLaunch agentsToLaunch1 = new AgentsToLaunch(1, 4, true);
 					AgentsToLaunch agentsToLaunch2 = new AgentsToLaunch(2, 1, false);
@@ -80,6 +80,7 @@ public class NetworkEventListener implements MadkitEventListener {
 	List<AbstractIP> connectionsToAttempt;
 	private Integer localDataAmountAcc = null;
 	private Integer globalDataAmountAcc = null;
+	private Integer numberOfNIOSelectorThreads = null;
 	private int gatewayDepth = 1;
 	public long durationBeforeCancelingTransferConnection = 20000L;
 	public int maxBufferSize=Short.MAX_VALUE;
@@ -126,6 +127,14 @@ public class NetworkEventListener implements MadkitEventListener {
 		globalDataAmountAcc = _globalDataAmountAcc;
 	}
 
+	public Integer getNumberOfNIOSelectorThreads() {
+		return numberOfNIOSelectorThreads;
+	}
+
+	public void setNumberOfNIOSelectorThreads(Integer _numberOfNIOSelectorThreads) {
+		numberOfNIOSelectorThreads = _numberOfNIOSelectorThreads;
+	}
+
 	public MadkitEventListener getConnectionProtocolsMKEventListener() {
 		return madkitEventListenerForConnectionProtocols;
 	}
@@ -192,6 +201,8 @@ public class NetworkEventListener implements MadkitEventListener {
 			_properties.networkProperties.maxSizeForUnreadShortDataFromAllConnections = globalDataAmountAcc;
 		if (localDataAmountAcc != null)
 			_properties.networkProperties.maxSizeForUnreadShortDataFromOneDistantKernel = localDataAmountAcc;
+		if (numberOfNIOSelectorThreads != null)
+			_properties.networkProperties.numberOfNIOSelectorThreads = numberOfNIOSelectorThreads;
 		_properties.setUseMadkitSchedulerWithFortunaSecureRandom(false);
 		_properties.networkProperties.durationBeforeCancelingTransferConnection = durationBeforeCancelingTransferConnection;
 		_properties.networkProperties.connectionTimeOut = durationBeforeCancelingTransferConnection;
@@ -0,0 +1,236 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel.network;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.distrimind.madkit.kernel.AbstractAgent;
+import com.distrimind.madkit.kernel.Agent;
+import com.distrimind.madkit.kernel.AgentAddress;
+import com.distrimind.madkit.kernel.JunitMadkit;
+import com.distrimind.madkit.kernel.KernelAddress;
+import com.distrimind.madkit.kernel.Madkit;
+import com.distrimind.madkit.kernel.MadkitEventListener;
+import com.distrimind.madkit.kernel.Message;
+import com.distrimind.madkit.kernel.network.connection.access.AbstractAccessProtocolProperties;
+import com.distrimind.madkit.kernel.network.connection.access.AccessProtocolWithP2PAgreementProperties;
+import com.distrimind.madkit.kernel.network.connection.access.ListGroupsRoles;
+import com.distrimind.madkit.kernel.network.connection.unsecured.UnsecuredConnectionProtocolProperties;
+import com.distrimind.madkit.message.StringMessage;
+import com.distrimind.madkit.testing.util.agent.NormalAgent;
+
+/**
+ * Connections of one server shared among several NIO selector threads (see
+ * {@link NetworkProperties#numberOfNIOSelectorThreads}). Half of the clients
+ * close their connection while the server is sending messages to all of them.
+ * The remaining connections must keep on working, and the closed ones must be
+ * able to connect again.
+ * 
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+public class SelectorShardsConnectionTest extends JunitMadkit {
+	static final int NUMBER_OF_SELECTOR_THREADS = 3;
+	static final int NUMBER_OF_CLIENTS = 2 * NUMBER_OF_SELECTOR_THREADS;
+	static final int NUMBER_OF_MESSAGES_DURING_CLOSE = 100;
+	static final String SERVER_ROLE = "shardsServer";
+	static final long timeOut = 30000;
+
+	private final ListGroupsRoles defaultGroupAccess = new ListGroupsRoles();
+
+	public SelectorShardsConnectionTest() {
+		defaultGroupAccess.addGroupsRoles(JunitMadkit.GROUP);
+	}
+
+	private MadkitEventListener getServerEventListener() {
+		return _properties -> {
+			AbstractAccessProtocolProperties app = new AccessProtocolWithP2PAgreementProperties();
+
+			try {
+				new NetworkEventListener(true, false, false, null,
+						new ConnectionsProtocolsMKEventListener(new UnsecuredConnectionProtocolProperties()),
+						new AccessProtocolPropertiesMKEventListener(app),
+						new AccessDataMKEventListener(AccessDataMKEventListener.getDefaultAccessData(defaultGroupAccess)), 5000,
+						null, InetAddress.getByName("0.0.0.0")).onMaDKitPropertiesLoaded(_properties);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			_properties.networkProperties.networkLogLevel = Level.INFO;
+			_properties.networkProperties.numberOfNIOSelectorThreads = NUMBER_OF_SELECTOR_THREADS;
+		};
+	}
+
+	private NetworkEventListener getClientEventListener(int clientNumber) throws UnknownHostException {
+		UnsecuredConnectionProtocolProperties u = new UnsecuredConnectionProtocolProperties();
+		u.isServer = false;
+
+		AbstractAccessProtocolProperties app = new AccessProtocolWithP2PAgreementProperties();
+
+		return new NetworkEventListener(true, false, false, null,
+				new ConnectionsProtocolsMKEventListener(u), new AccessProtocolPropertiesMKEventListener(app),
+				new AccessDataMKEventListener(AccessDataMKEventListener.getDefaultAccessData(defaultGroupAccess)),
+				5000 + clientNumber,
+				Collections.singletonList((AbstractIP) new DoubleIP(5000, (Inet4Address) InetAddress.getByName("127.0.0.1"),
+						(Inet6Address) InetAddress.getByName("::1"))));
+	}
+
+	static int getNumberOfSelectorThreads(KernelAddress kernelAddress) {
+		int nb = 0;
+		for (Thread t : Thread.getAllStackTraces().keySet()) {
+			if (t.isAlive() && t.getName().startsWith("NIO selector ") && t.getName().endsWith(" - " + kernelAddress))
+				++nb;
+		}
+		return nb;
+	}
+
+	@Test
+	public void testConnectionsClosedWhileSending() {
+		launchTest(new ShardsServerAgent(), getServerEventListener());
+		cleanHelperMDKs();
+	}
+
+	class ShardsServerAgent extends NormalAgent {
+		@Override
+		protected void activate() throws InterruptedException {
+			createGroup(GROUP);
+			requestRole(GROUP, SERVER_ROLE);
+			try {
+				for (int i = 1; i <= NUMBER_OF_CLIENTS; i++)
+					launchThreadedMKNetworkInstance(Level.INFO, AbstractAgent.class, new ShardsEchoAgent(),
+							getClientEventListener(i));
+			} catch (UnknownHostException e) {
+				throw new AssertionError(e);
+			}
+			ArrayList<Madkit> clients = getHelperInstances(this, NUMBER_OF_CLIENTS, timeOut);
+			for (Madkit m : clients)
+				checkConnectedKernelsNb(this, m, 1, timeOut);
+			exchange("first round", checkDistantAgentsNb(NUMBER_OF_CLIENTS));
+			Assert.assertEquals(NUMBER_OF_SELECTOR_THREADS, getNumberOfSelectorThreads(getKernelAddress()));
+
+			// connections are closed by half of the clients, while messages are sent to
+			// all of them through every selector thread
+			Set<AgentAddress> receivers = checkDistantAgentsNb(NUMBER_OF_CLIENTS);
+			for (int i = 0; i < NUMBER_OF_MESSAGES_DURING_CLOSE; i++) {
+				if (i == NUMBER_OF_MESSAGES_DURING_CLOSE / 2) {
+					for (int j = 0; j < NUMBER_OF_CLIENTS / 2; j++)
+						stopNetwork(clients.get(j));
+				}
+				for (AgentAddress aa : receivers)
+					sendMessage(aa, new StringMessage("during close"));
+			}
+			for (int j = 0; j < NUMBER_OF_CLIENTS; j++)
+				checkConnectedKernelsNb(this, clients.get(j), j < NUMBER_OF_CLIENTS / 2 ? 0 : 1, timeOut);
+			exchange("second round", checkDistantAgentsNb(NUMBER_OF_CLIENTS / 2));
+
+			// the closed connections are established again
+			for (int j = 0; j < NUMBER_OF_CLIENTS / 2; j++)
+				startNetwork(clients.get(j));
+			for (Madkit m : clients)
+				checkConnectedKernelsNb(this, m, 1, timeOut);
+			exchange("third round", checkDistantAgentsNb(NUMBER_OF_CLIENTS));
+			Assert.assertEquals(NUMBER_OF_SELECTOR_THREADS, getNumberOfSelectorThreads(getKernelAddress()));
+
+			for (Madkit m : clients)
+				stopNetwork(m);
+			for (Madkit m : clients)
+				checkConnectedKernelsNb(this, m, 0, timeOut);
+			cleanHelperMDKs(this);
+		}
+
+		private Set<AgentAddress> checkDistantAgentsNb(int nb) throws InterruptedException {
+			long end = System.currentTimeMillis() + timeOut;
+			Set<AgentAddress> res = getAgentsWithRole(GROUP, ROLE, false);
+			while ((res == null || res.size() != nb) && System.currentTimeMillis() < end) {
+				sleep(500);
+				res = getAgentsWithRole(GROUP, ROLE, false);
+			}
+			Assert.assertNotNull(res);
+			Assert.assertEquals(nb, res.size());
+			return res;
+		}
+
+		// each receiver must reply to the token, older replies being ignored
+		private void exchange(String token, Collection<AgentAddress> receivers) throws InterruptedException {
+			HashSet<AgentAddress> waited = new HashSet<>(receivers);
+			for (AgentAddress aa : receivers)
+				Assert.assertEquals(ReturnCode.SUCCESS, sendMessage(aa, new StringMessage(token)));
+			long end = System.currentTimeMillis() + timeOut;
+			while (!waited.isEmpty()) {
+				Message m = waitNextMessage(Math.max(1, end - System.currentTimeMillis()));
+				Assert.assertNotNull("Missing replies from " + waited, m);
+				if (m instanceof StringMessage && token.equals(((StringMessage) m).getContent()))
+					waited.remove(m.getSender());
+			}
+		}
+
+		@Override
+		protected void liveCycle() {
+			this.killAgent(this);
+		}
+	}
+
+	static class ShardsEchoAgent extends Agent {
+		@Override
+		protected void activate() {
+			createGroup(GROUP);
+			requestRole(GROUP, ROLE);
+		}
+
+		@Override
+		protected void liveCycle() throws InterruptedException {
+			Message m = waitNextMessage();
+			if (m instanceof StringMessage)
+				sendMessage(m.getSender(), new StringMessage(((StringMessage) m).getContent()));
+		}
+	}
+
+}
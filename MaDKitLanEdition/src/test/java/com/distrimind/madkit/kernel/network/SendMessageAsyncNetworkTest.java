@@ -0,0 +1,270 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.kernel.network;
+
+import com.distrimind.madkit.kernel.*;
+import com.distrimind.madkit.kernel.network.connection.access.AbstractAccessProtocolProperties;
+import com.distrimind.madkit.kernel.network.connection.access.AccessProtocolWithP2PAgreementProperties;
+import com.distrimind.madkit.kernel.network.connection.access.ListGroupsRoles;
+import com.distrimind.madkit.kernel.network.connection.secured.P2PSecuredConnectionProtocolPropertiesWithKeyAgreement;
+import com.distrimind.madkit.message.StringMessage;
+import com.distrimind.madkit.message.hook.HookMessage;
+import com.distrimind.madkit.message.hook.OrganizationEvent;
+import com.distrimind.madkit.testing.util.agent.NormalAgent;
+import com.distrimind.util.crypto.SymmetricAuthenticatedSignatureType;
+import com.distrimind.util.crypto.SymmetricEncryptionType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Checks, between two connected kernels, that the futures returned by
+ * {@link AbstractAgent#sendMessageWithRoleAsync(AgentAddress, Message, String)}
+ * are completed when the distant kernel acknowledges the transfer, and when
+ * the connection is lost while transfers are still pending.
+ * 
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+public class SendMessageAsyncNetworkTest extends JunitMadkit {
+	final NetworkEventListener eventListener1;
+	final NetworkEventListener eventListener2;
+	static final Group asyncGroup = new Group(true, null, false, SendMessageAsyncNetworkTest.class.getSimpleName(), "asyncGroup");
+	static final String senderRole = "AsyncSender";
+	static final String receiverRole = "AsyncReceiver";
+	static final int numberOfPendingMessages = 100;
+	static final int pendingMessageLength = 100000;
+	static final long timeOut = 20000;
+
+	public SendMessageAsyncNetworkTest() throws UnknownHostException {
+		P2PSecuredConnectionProtocolPropertiesWithKeyAgreement p2pprotocol = new P2PSecuredConnectionProtocolPropertiesWithKeyAgreement();
+		p2pprotocol.isServer = true;
+		p2pprotocol.symmetricEncryptionType = SymmetricEncryptionType.AES_CBC_PKCS5Padding;
+		p2pprotocol.symmetricSignatureType = SymmetricAuthenticatedSignatureType.HMAC_SHA2_384;
+		ListGroupsRoles defaultGroupAccess = new ListGroupsRoles();
+		defaultGroupAccess.addGroupsRoles(asyncGroup);
+
+		AbstractAccessProtocolProperties app = new AccessProtocolWithP2PAgreementProperties();
+		this.eventListener1 = new NetworkEventListener(true, false, false, null,
+				new ConnectionsProtocolsMKEventListener(p2pprotocol), new AccessProtocolPropertiesMKEventListener(app),
+				new AccessDataMKEventListener(AccessDataMKEventListener.getDefaultAccessData(defaultGroupAccess)), 5000,
+				Collections.singletonList(new DoubleIP(5000, (Inet4Address) InetAddress.getByName("127.0.0.1"),
+						(Inet6Address) InetAddress.getByName("::1"))),
+				InetAddress.getByName("0.0.0.0")) {
+
+			@Override
+			public void onMaDKitPropertiesLoaded(MadkitProperties _properties) {
+				super.onMaDKitPropertiesLoaded(_properties);
+				_properties.networkProperties.networkLogLevel = Level.INFO;
+				_properties.networkProperties.maxBufferSize = Short.MAX_VALUE * 2;
+			}
+		};
+
+		P2PSecuredConnectionProtocolPropertiesWithKeyAgreement u = new P2PSecuredConnectionProtocolPropertiesWithKeyAgreement();
+		u.isServer = false;
+		u.symmetricEncryptionType = p2pprotocol.symmetricEncryptionType;
+		u.symmetricSignatureType = p2pprotocol.symmetricSignatureType;
+
+		app = new AccessProtocolWithP2PAgreementProperties();
+		defaultGroupAccess = new ListGroupsRoles();
+		defaultGroupAccess.addGroupsRoles(asyncGroup);
+
+		this.eventListener2 = new NetworkEventListener(true, false, false, null,
+				new ConnectionsProtocolsMKEventListener(u), new AccessProtocolPropertiesMKEventListener(app),
+				new AccessDataMKEventListener(AccessDataMKEventListener.getDefaultAccessData(defaultGroupAccess)), 5000,
+				Collections.singletonList(new DoubleIP(5000, (Inet4Address) InetAddress.getByName("127.0.0.1"),
+						(Inet6Address) InetAddress.getByName("::1"))),
+				InetAddress.getByName("0.0.0.0")) {
+
+			@Override
+			public void onMaDKitPropertiesLoaded(MadkitProperties _properties) {
+				super.onMaDKitPropertiesLoaded(_properties);
+				_properties.networkProperties.networkLogLevel = Level.INFO;
+				_properties.networkProperties.maxBufferSize = Short.MAX_VALUE * 2;
+			}
+		};
+	}
+
+	@Test
+	public void testSendMessageAsyncToDistantAgent() {
+		final AsyncSenderAgent sender = new AsyncSenderAgent();
+		final AsyncReceiverAgent receiver = new AsyncReceiverAgent();
+		launchTest(new AbstractAgent() {
+			@Override
+			protected void end() {
+				//noinspection StatementWithEmptyBody
+				while (nextMessage() != null);
+			}
+
+			@Override
+			protected void activate() throws InterruptedException {
+				launchThreadedMKNetworkInstance(Level.INFO, AbstractAgent.class, sender, eventListener1);
+				sleep(400);
+				launchThreadedMKNetworkInstance(Level.INFO, AbstractAgent.class, receiver, eventListener2);
+				final List<Madkit> instances = getHelperInstances(this, 2);
+				//the connection is broken by the sender, just after its last message was sent
+				sender.connectionBreaker = () -> {
+					for (Madkit mk : instances)
+						stopNetwork(mk);
+				};
+				for (long t = 0; t < timeOut * 2 && !sender.pendingMessagesSent; t += 100)
+					sleep(100);
+				Assert.assertTrue(sender.pendingMessagesSent);
+
+				for (Madkit mk : instances) {
+					checkConnectedKernelsNb(this, mk, 0, timeOut);
+					checkConnectedIntancesNb(this, mk, 0, timeOut);
+				}
+				for (long t = 0; t < timeOut && !sender.areAllTransfersCompleted(); t += 100)
+					sleep(100);
+				Assert.assertTrue(sender.areAllTransfersCompleted());
+				sleep(400);
+
+				cleanHelperMDKs(this);
+				Assert.assertEquals(getHelperInstances(this, 0).size(), 0);
+			}
+		});
+		sender.validate();
+		cleanHelperMDKs();
+	}
+
+}
+
+class AsyncSenderAgent extends NormalAgent {
+	volatile Runnable connectionBreaker = null;
+	volatile ReturnCode acknowledgedReturnCode = null;
+	volatile boolean pendingMessagesSent = false;
+	private final List<CompletableFuture<ReturnCode>> pendingTransfers = new ArrayList<>();
+
+	@Override
+	protected void activate() throws InterruptedException {
+		this.requestHookEvents(HookMessage.AgentActionEvent.REQUEST_ROLE);
+		requestRole(SendMessageAsyncNetworkTest.asyncGroup, SendMessageAsyncNetworkTest.senderRole);
+	}
+
+	@Override
+	protected void liveCycle() throws InterruptedException {
+		Message m = waitNextMessage();
+		if (!(m instanceof OrganizationEvent))
+			return;
+		OrganizationEvent hm = (OrganizationEvent) m;
+		AgentAddress distantReceiver = hm.getSourceAgent();
+		if (hm.getContent() != HookMessage.AgentActionEvent.REQUEST_ROLE || distantReceiver.isFrom(getKernelAddress())
+				|| !distantReceiver.getGroup().equals(SendMessageAsyncNetworkTest.asyncGroup)
+				|| !distantReceiver.getRole().equals(SendMessageAsyncNetworkTest.receiverRole))
+			return;
+
+		//completed by MessageLocker.completeWhenUnlocked, once the distant kernel has received the message
+		CompletableFuture<ReturnCode> acknowledged = sendMessageWithRoleAsync(distantReceiver,
+				new StringMessage("acknowledged"), SendMessageAsyncNetworkTest.senderRole);
+		try {
+			acknowledgedReturnCode = acknowledged.get(SendMessageAsyncNetworkTest.timeOut, TimeUnit.MILLISECONDS);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+		while (connectionBreaker == null)
+			sleep(100);
+
+		//completed by MessageLocker.cancelLock, once the connection is lost
+		char[] content = new char[SendMessageAsyncNetworkTest.pendingMessageLength];
+		Arrays.fill(content, 'a');
+		String pendingContent = new String(content);
+		synchronized (pendingTransfers) {
+			for (int i = 0; i < SendMessageAsyncNetworkTest.numberOfPendingMessages; i++)
+				pendingTransfers.add(sendMessageWithRoleAsync(distantReceiver, new StringMessage(pendingContent),
+						SendMessageAsyncNetworkTest.senderRole));
+		}
+		pendingMessagesSent = true;
+		connectionBreaker.run();
+		this.killAgent(this);
+	}
+
+	boolean areAllTransfersCompleted() {
+		synchronized (pendingTransfers) {
+			for (CompletableFuture<ReturnCode> f : pendingTransfers)
+				if (!f.isDone())
+					return false;
+			return pendingTransfers.size() == SendMessageAsyncNetworkTest.numberOfPendingMessages;
+		}
+	}
+
+	void validate() {
+		Assert.assertEquals(ReturnCode.SUCCESS, acknowledgedReturnCode);
+		Assert.assertTrue(pendingMessagesSent);
+		Assert.assertTrue(areAllTransfersCompleted());
+		int canceled = 0;
+		synchronized (pendingTransfers) {
+			for (CompletableFuture<ReturnCode> f : pendingTransfers) {
+				ReturnCode rc = f.join();
+				Assert.assertTrue(rc.toString(), rc == ReturnCode.SUCCESS || rc == ReturnCode.TRANSFER_FAILED
+						|| rc == ReturnCode.TRANSFER_IN_PROGRESS);
+				if (rc == ReturnCode.TRANSFER_IN_PROGRESS)
+					++canceled;
+			}
+		}
+		Assert.assertTrue(canceled > 0);
+	}
+}
+
+class AsyncReceiverAgent extends NormalAgent {
+	@Override
+	protected void activate() throws InterruptedException {
+		requestRole(SendMessageAsyncNetworkTest.asyncGroup, SendMessageAsyncNetworkTest.receiverRole);
+	}
+
+	@Override
+	protected void liveCycle() throws InterruptedException {
+		//noinspection StatementWithEmptyBody
+		while (nextMessage() != null);
+		sleep(100);
+	}
+}
@@ -118,4 +118,88 @@ public class StatTests extends JunitMadkit {
 		}
 
 	}
+
+	@Test
+	public void testRealTimeTransferStatPercentiles() {
+		RealTimeTransferStat rtts = new RealTimeTransferStat(1000, 100);
+		Assert.assertEquals(0, rtts.getThroughputPercentile(50), 0);
+		for (int i = 0; i < 12; i++) {
+			rtts.newBytesIdentified(1000);
+			pause(null, 100);
+		}
+		long[] segments = rtts.getSegmentsSnapshot();
+		Assert.assertEquals(10, segments.length);
+		long total = 0;
+		for (long s : segments)
+			total += s;
+		Assert.assertEquals(rtts.getNumberOfIdentifiedBytes(), total);
+		Assert.assertTrue(rtts.getThroughputPercentile(100) >= 10000);
+		Assert.assertTrue(rtts.getThroughputPercentile(0) <= rtts.getThroughputPercentile(50));
+	}
+
+	@Test
+	public void testRealTimeTransferStatConcurrency() throws InterruptedException {
+		final RealTimeTransferStat rtts = new RealTimeTransferStat(60000, 1000);
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < 100000; j++)
+					rtts.newBytesIdentified(1);
+			});
+			threads[i].start();
+		}
+		for (Thread t : threads)
+			t.join();
+		Assert.assertEquals(threads.length * 100000, rtts.getNumberOfIdentifiedBytes());
+	}
+
+	@Test
+	public void testLatencyStat() {
+		LatencyStat ls = new LatencyStat();
+		Assert.assertEquals(0, ls.getLatencyPercentile(50));
+		Assert.assertEquals(-1, ls.getLastLatency());
+		for (int i = 1; i <= 1000; i++)
+			ls.newLatencyIdentified(i);
+		Assert.assertEquals(1000, ls.getNumberOfMeasures());
+		Assert.assertEquals(1000, ls.getMaxLatency());
+		Assert.assertEquals(1000, ls.getLastLatency());
+		assertEpsilonEquals(500.5, ls.getAverageLatency(), 0.001);
+		assertEpsilonEquals(500, ls.getLatencyPercentile(50), 500 / 8);
+		assertEpsilonEquals(990, ls.getLatencyPercentile(99), 990 / 8);
+		Assert.assertEquals(1000, ls.getLatencyPercentile(100));
+		for (int i = 0; i < 1000; i++)
+			Assert.assertTrue(LatencyStat.getBucketUpperBound(LatencyStat.getBucketIndex(i)) >= i);
+	}
+
+	@Test
+	public void testTokenBucket() {
+		TokenBucket tb = new TokenBucket(100, Integer.MAX_VALUE);
+		Assert.assertTrue(tb.isUnlimited());
+		tb.consume(Integer.MAX_VALUE);
+		Assert.assertEquals(0, tb.getDelayInNanos());
+
+		tb.setRate(100000);
+		Assert.assertFalse(tb.isUnlimited());
+		Assert.assertEquals(0, tb.getDelayInNanos());
+		tb.consume(10000);
+		Assert.assertTrue(tb.getDelayInNanos() > 0);
+		tb.consume(40000);
+		long delay = tb.getDelayInNanos();
+		Assert.assertTrue("" + delay, delay > 300000000L && delay <= 400000000L);
+		pause(null, delay / 1000000L + 10);
+		Assert.assertEquals(0, tb.getDelayInNanos());
+
+		long start = System.nanoTime();
+		long sent = 0;
+		while (sent < 200000) {
+			long d = tb.getDelayInNanos();
+			if (d == 0) {
+				tb.consume(8192);
+				sent += 8192;
+			} else
+				pause(null, Math.max(1, d / 1000000L));
+		}
+		double speed = ((double) sent) / (((double) (System.nanoTime() - start)) / 1000000000.0);
+		Assert.assertTrue("" + speed, speed < 200000 && speed > 50000);
+	}
 }
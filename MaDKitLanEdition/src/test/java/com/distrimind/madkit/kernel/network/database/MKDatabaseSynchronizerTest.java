@@ -387,6 +387,7 @@ public class MKDatabaseSynchronizerTest extends JunitMadkit{
 	final AbstractSecureRandom random;
 	final boolean connectCentralDatabaseBackup;
 	final boolean indirectSynchronizationWithCentralDatabaseBackup;
+	final int databaseSynchronizationEventsBatchSize;
 	final CentralDatabaseBackupReceiverFactory centralDatabaseBackupReceiverFactory;
 	private final CentralDatabaseBackupCertificate centralDatabaseBackupCertificate;
 	DatabaseWrapper centralDatabaseWrapper=null;
@@ -396,14 +397,16 @@ public class MKDatabaseSynchronizerTest extends JunitMadkit{
 	public static Object[][] data() {
 		int cycles=4;
 
-		Object[][] res=new Object[cycles*3][2];
+		Object[][] res=new Object[cycles*3][3];
 		int index=0;
 		for (int i=0;i<cycles;i++) {
 			for (boolean connectCentralDatabaseBackup : new boolean[]{false, true}) {
 				for (boolean indirectSynchronizationWithCentralDatabaseBackup : connectCentralDatabaseBackup?new boolean[]{true, false}:new boolean[]{false})
 				{
 					res[index][0]=connectCentralDatabaseBackup;
-					res[index++][1]=indirectSynchronizationWithCentralDatabaseBackup;
+					res[index][1]=indirectSynchronizationWithCentralDatabaseBackup;
+					//one cycle over two sends the peer to peer events through batches
+					res[index++][2]=i%2==0?0:16384;
 				}
 			}
 		}
@@ -412,8 +415,10 @@ public class MKDatabaseSynchronizerTest extends JunitMadkit{
 	}
 
 	public MKDatabaseSynchronizerTest(boolean connectCentralDatabaseBackup,
-									  boolean indirectSynchronizationWithCentralDatabaseBackup) throws IOException, DatabaseException, NoSuchAlgorithmException, NoSuchProviderException {
-		System.out.println("connectCentralDatabaseBackup="+connectCentralDatabaseBackup+", indirectSynchronizationWithCentralDatabaseBackup="+indirectSynchronizationWithCentralDatabaseBackup);
+									  boolean indirectSynchronizationWithCentralDatabaseBackup,
+									  int databaseSynchronizationEventsBatchSize) throws IOException, DatabaseException, NoSuchAlgorithmException, NoSuchProviderException {
+		System.out.println("connectCentralDatabaseBackup="+connectCentralDatabaseBackup+", indirectSynchronizationWithCentralDatabaseBackup="+indirectSynchronizationWithCentralDatabaseBackup+", databaseSynchronizationEventsBatchSize="+databaseSynchronizationEventsBatchSize);
+		this.databaseSynchronizationEventsBatchSize=databaseSynchronizationEventsBatchSize;
 		if(centralDatabaseFilesDirectory.exists())
 			FileTools.deleteDirectory(centralDatabaseFilesDirectory);
 		this.connectCentralDatabaseBackup=connectCentralDatabaseBackup;
@@ -602,6 +607,7 @@ public class MKDatabaseSynchronizerTest extends JunitMadkit{
 				_properties.networkProperties.networkLogLevel = Level.INFO;
 				_properties.networkProperties.maxBufferSize=Short.MAX_VALUE*4;
 				_properties.networkProperties.upnpIGDEnabled=false;
+				_properties.networkProperties.maxDatabaseSynchronizationEventsBatchSize=MKDatabaseSynchronizerTest.this.databaseSynchronizationEventsBatchSize;
 
 			}
 		};
@@ -652,6 +658,7 @@ public class MKDatabaseSynchronizerTest extends JunitMadkit{
 				_properties.networkProperties.networkLogLevel = Level.INFO;
 				_properties.networkProperties.maxBufferSize=Short.MAX_VALUE*4;
 				_properties.networkProperties.upnpIGDEnabled=false;
+				_properties.networkProperties.maxDatabaseSynchronizationEventsBatchSize=MKDatabaseSynchronizerTest.this.databaseSynchronizationEventsBatchSize;
 
 			}
 		};
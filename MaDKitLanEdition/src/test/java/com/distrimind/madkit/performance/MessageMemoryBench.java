@@ -0,0 +1,95 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.performance;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+import com.distrimind.madkit.kernel.AbstractAgent;
+import com.distrimind.madkit.kernel.Madkit;
+import com.distrimind.madkit.kernel.Message;
+
+/**
+ * Checks that read messages are reclaimed by the first GC cycle following the
+ * loss of their last reference, i.e. that messages and their conversation IDs
+ * are not finalizable.
+ * 
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+public class MessageMemoryBench extends AbstractAgent {
+
+	private static final int NUMBER_OF_MESSAGES = 1000000;
+
+	@Override
+	protected void activate() {
+		ReferenceQueue<Message> queue = new ReferenceQueue<>();
+		ArrayList<WeakReference<Message>> references = new ArrayList<>(NUMBER_OF_MESSAGES);
+		long memory = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+		for (int i = 0; i < NUMBER_OF_MESSAGES; i++) {
+			receiveMessage(new Message());
+			references.add(new WeakReference<>(nextMessage(), queue));
+		}
+		System.err.println("Used memory after reading " + NUMBER_OF_MESSAGES + " messages : "
+				+ (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory() - memory));
+		System.gc();
+		int reclaimed = 0;
+		try {
+			while (queue.remove(1000) != null)
+				++reclaimed;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		System.err.println("Messages reclaimed after one GC cycle : " + reclaimed + "/" + NUMBER_OF_MESSAGES);
+		System.err.println("Used memory after one GC cycle : "
+				+ (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory() - memory));
+		if (reclaimed < NUMBER_OF_MESSAGES)
+			System.err.println("Some messages survived an extra GC cycle !");
+		references.clear();
+	}
+
+	public static void main(String[] args) {
+		String[] argss = { "--agentLogLevel", "OFF", "--" + "--madkitLogLevel", "OFF", "--orgLogLevel", "OFF",
+				"--launchAgents", "{" + MessageMemoryBench.class.getCanonicalName() + "}", ",false" };
+		Madkit.main(argss);
+	}
+
+}
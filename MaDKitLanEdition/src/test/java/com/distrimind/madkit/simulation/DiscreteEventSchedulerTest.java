@@ -0,0 +1,135 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.simulation;
+
+import static com.distrimind.madkit.kernel.AbstractAgent.ReturnCode.SUCCESS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.distrimind.madkit.kernel.AbstractAgent;
+import com.distrimind.madkit.kernel.Activator;
+import com.distrimind.madkit.kernel.JunitMadkit;
+import com.distrimind.madkit.kernel.Scheduler;
+
+/**
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+public class DiscreteEventSchedulerTest extends JunitMadkit {
+
+	@Test
+	public void eventsAreProcessedByTimeAndBatched() {
+		launchTest(new AbstractAgent() {
+			@Override
+			protected void activate() {
+				createDefaultCGR(this);
+				Scheduler s = new Scheduler() {
+					@Override
+					public void liveCycle() throws InterruptedException {
+						pause(15000);
+						this.killAgent(this);
+					}
+				};
+				s.setDiscreteEventMode(true);
+				assertEquals(SUCCESS, launchAgent(s));
+				List<AbstractAgent> agents = new ArrayList<>();
+				for (int i = 0; i < 3; i++) {
+					AbstractAgent a = new AbstractAgent() {
+						@Override
+						protected void activate() {
+							requestRole(GROUP, ROLE);
+						}
+					};
+					assertEquals(SUCCESS, launchAgent(a));
+					agents.add(a);
+				}
+				final List<Integer> batches = new ArrayList<>();
+				final List<String> actions = new ArrayList<>();
+				Activator<AbstractAgent> activator = new Activator<AbstractAgent>(GROUP, ROLE) {
+					@Override
+					public void execute(List<AbstractAgent> agentsList, Object... args) {
+						batches.add(agentsList.size());
+					}
+				};
+				s.addActivator(activator);
+				assertEquals(4, activator.size());
+
+				s.scheduleActivation(10, activator);
+				s.scheduleActivation(5, activator, agents.get(0));
+				s.scheduleAction(2, () -> actions.add("first"));
+				s.scheduleActivation(5, activator, agents.get(1));
+				s.scheduleAction(2, () -> actions.add("second"));
+				assertEquals(2, s.getNextEventTime(), 0);
+
+				s.doSimulationStep();
+				assertEquals(2, s.getGVT(), 0);
+				assertEquals(Arrays.asList("first", "second"), actions);
+				assertTrue(batches.isEmpty());
+
+				s.doSimulationStep();
+				assertEquals(5, s.getGVT(), 0);
+				assertEquals(Arrays.asList(2), batches);
+
+				s.doSimulationStep();
+				assertEquals(10, s.getGVT(), 0);
+				assertEquals(Arrays.asList(2, 4), batches);
+				assertTrue(Double.isNaN(s.getNextEventTime()));
+
+				try {
+					s.scheduleAction(9, () -> actions.add("past"));
+					noExceptionFailure();
+				} catch (IllegalArgumentException ignored) {
+				}
+
+				s.doSimulationStep();
+				assertEquals(10, s.getGVT(), 0);
+				assertEquals(Scheduler.SimulationState.PAUSED, s.getSimulationState());
+				killAgent(s);
+			}
+		});
+	}
+
+}
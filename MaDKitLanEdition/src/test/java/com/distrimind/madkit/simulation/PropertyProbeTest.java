@@ -47,6 +47,8 @@ import com.distrimind.madkit.kernel.JunitMadkit;
 import com.distrimind.madkit.kernel.Watcher;
 import com.distrimind.madkit.kernel.AbstractAgent.ReturnCode;
 import com.distrimind.madkit.simulation.SimulationException;
+import com.distrimind.madkit.simulation.probe.DoublePropertyProbe;
+import com.distrimind.madkit.simulation.probe.IntPropertyProbe;
 import com.distrimind.madkit.simulation.probe.PropertyProbe;
 import com.distrimind.madkit.testing.util.agent.NormalAA;
 import com.distrimind.madkit.testing.util.agent.SimulatedAgent;
@@ -284,4 +286,58 @@ public class PropertyProbeTest extends JunitMadkit {
 		}, ReturnCode.SUCCESS);
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void primitiveSpecializedProbes() {
+		launchTest(new AbstractAgent() {
+
+			protected void activate() {
+				SimulatedAgent last = null;
+				for (int i = 0; i < 12; i++) {
+					assertEquals(SUCCESS, launchAgent(last = new SimulatedAgent()));
+					last.publicPrimitiveField = i;
+					last.setPrivatePrimitiveField(i * 2);
+				}
+				IntPropertyProbe<AbstractAgent> fpInt = new IntPropertyProbe<>(GROUP, ROLE, "privatePrimitiveField");
+				DoublePropertyProbe<AbstractAgent> fpDouble = new DoublePropertyProbe<>(GROUP, ROLE, "publicPrimitiveField");
+				DoublePropertyProbe<AbstractAgent> fpIntAsDouble = new DoublePropertyProbe<>(GROUP, ROLE, "privatePrimitiveField");
+				Watcher s = new Watcher();
+				assertEquals(SUCCESS, launchAgent(s));
+				s.addProbe(fpInt);
+				s.addProbe(fpDouble);
+				s.addProbe(fpIntAsDouble);
+				for (boolean parallel : new boolean[] {false, true}) {
+					fpInt.setParallel(parallel);
+					fpDouble.setParallel(parallel);
+					assertEquals(22, fpInt.getMaxIntValue());
+					assertEquals(0, fpInt.getMinIntValue());
+					assertEquals(Integer.valueOf(22), fpInt.getMaxValue());
+					assertEquals(11d, fpInt.getAverageValue(), 0.0);
+					assertEquals(11d, fpDouble.getMaxDoubleValue(), 0.0);
+					assertEquals(0d, fpDouble.getMinDoubleValue(), 0.0);
+					assertEquals(5.5d, fpDouble.getAverageValue(), 0.0);
+					assertEquals(22d, fpIntAsDouble.getMaxDoubleValue(), 0.0);
+				}
+				fpInt.setPropertyIntValue(last, 100);
+				assertEquals(100, fpInt.getPropertyIntValue(last));
+				fpDouble.setPropertyDoubleValue(last, 0.5);
+				assertEquals(0.5, last.publicPrimitiveField, 0.0);
+			}
+		}, ReturnCode.SUCCESS);
+	}
+
+	@Test
+	public void primitiveSpecializedProbeWrongType() {
+		launchTest(new Watcher() {
+
+			protected void activate() {
+				SimulatedAgent agent;
+				assertEquals(SUCCESS, launchAgent(agent = new SimulatedAgent()));
+				IntPropertyProbe<AbstractAgent> fp = new IntPropertyProbe<>(GROUP, ROLE, "publicPrimitiveField");
+				addProbe(fp);
+				System.err.println(fp.getPropertyIntValue(agent));
+				noExceptionFailure();
+			}
+		}, ReturnCode.AGENT_CRASH);
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * MadKitLanEdition (created by Jason MAHDJOUB (jason.mahdjoub@distri-mind.fr)) Copyright (c)
+ * 2015 is a fork of MadKit and MadKitGroupExtension. 
+ * 
+ * Copyright or © or Copr. Jason Mahdjoub, Fabien Michel, Olivier Gutknecht, Jacques Ferber (1997)
+ * 
+ * jason.mahdjoub@distri-mind.fr
+ * fmichel@lirmm.fr
+ * olg@no-distance.net
+ * ferber@lirmm.fr
+ * 
+ * This software is a computer program whose purpose is to
+ * provide a lightweight Java library for designing and simulating Multi-Agent Systems (MAS).
+ * This software is governed by the CeCILL-C license under French law and
+ * abiding by the rules of distribution of free software.  You can  use,
+ * modify and/ or redistribute the software under the terms of the CeCILL-C
+ * license as circulated by CEA, CNRS and INRIA at the following URL
+ * "http://www.cecill.info".
+ * As a counterpart to the access to the source code and  rights to copy,
+ * modify and redistribute granted by the license, users are provided only
+ * with a limited warranty  and the software's author,  the holder of the
+ * economic rights,  and the successive licensors  have only  limited
+ * liability.
+ * 
+ * In this respect, the user's attention is drawn to the risks associated
+ * with loading,  using,  modifying and/or developing or reproducing the
+ * software by the user in light of its specific status of free software,
+ * that may mean  that it is complicated to manipulate,  and  that  also
+ * therefore means  that it is reserved for developers  and  experienced
+ * professionals having in-depth computer knowledge. Users are therefore
+ * encouraged to load and test the software's suitability as regards their
+ * requirements in conditions enabling the security of their systems and/or
+ * data to be ensured and,  more generally, to use and operate it in the
+ * same conditions as regards security.
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+package com.distrimind.madkit.util;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Jason Mahdjoub
+ * @since MadkitLanEdition 2.2.0
+ * @version 1.0
+ * 
+ */
+public class ReferenceCleanerTest {
+	private static final long TIME_OUT = 10000;
+
+	// the registered object is only referenced inside this method
+	private static ReferenceCleaner.Cleanable registerUnreachableObject(AtomicInteger releases) {
+		return ReferenceCleaner.register(new Object(), releases::incrementAndGet);
+	}
+
+	private static void waitForRelease(AtomicInteger releases, int expected) throws InterruptedException {
+		long end = System.currentTimeMillis() + TIME_OUT;
+		while (releases.get() != expected && System.currentTimeMillis() < end) {
+			System.gc();
+			Thread.sleep(50);
+		}
+	}
+
+	// returns once at least one garbage collection has occurred
+	private static void collectGarbage() throws InterruptedException {
+		WeakReference<Object> sentinel = new WeakReference<>(new Object());
+		long end = System.currentTimeMillis() + TIME_OUT;
+		while (sentinel.get() != null && System.currentTimeMillis() < end) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		Assert.assertNull(sentinel.get());
+		// gives time to the cleaner thread to process the enqueued references
+		Thread.sleep(500);
+	}
+
+	@Test
+	public void testActionRunAfterObjectIsUnreachable() throws InterruptedException {
+		AtomicInteger releases = new AtomicInteger(0);
+		ReferenceCleaner.Cleanable cleanable = registerUnreachableObject(releases);
+		waitForRelease(releases, 1);
+		Assert.assertEquals(1, releases.get());
+
+		cleanable.clean();
+		cleanable.cancel();
+		Assert.assertEquals(1, releases.get());
+	}
+
+	@Test
+	public void testActionNotRunWhileObjectIsReachable() throws InterruptedException {
+		AtomicInteger releases = new AtomicInteger(0);
+		Object referent = new Object();
+		ReferenceCleaner.Cleanable cleanable = ReferenceCleaner.register(referent, releases::incrementAndGet);
+		collectGarbage();
+		Assert.assertEquals(0, releases.get());
+		Assert.assertNotNull(referent);
+		cleanable.cancel();
+	}
+
+	@Test
+	public void testExplicitCleanRunsActionOnce() throws InterruptedException {
+		AtomicInteger releases = new AtomicInteger(0);
+		ReferenceCleaner.Cleanable cleanable = registerUnreachableObject(releases);
+		cleanable.clean();
+		Assert.assertEquals(1, releases.get());
+		cleanable.clean();
+		Assert.assertEquals(1, releases.get());
+		collectGarbage();
+		Assert.assertEquals(1, releases.get());
+	}
+
+	@Test
+	public void testCancelPreventsRelease() throws InterruptedException {
+		AtomicInteger releases = new AtomicInteger(0);
+		ReferenceCleaner.Cleanable cleanable = registerUnreachableObject(releases);
+		cleanable.cancel();
+		collectGarbage();
+		Assert.assertEquals(0, releases.get());
+		cleanable.clean();
+		Assert.assertEquals(0, releases.get());
+	}
+
+	@Test
+	public void testCancelAfterClean() {
+		AtomicInteger releases = new AtomicInteger(0);
+		Object referent = new Object();
+		ReferenceCleaner.Cleanable cleanable = ReferenceCleaner.register(referent, releases::incrementAndGet);
+		cleanable.clean();
+		cleanable.cancel();
+		cleanable.clean();
+		Assert.assertEquals(1, releases.get());
+		Assert.assertNotNull(referent);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullReferent() {
+		ReferenceCleaner.register(null, () -> {
+		});
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullAction() {
+		ReferenceCleaner.register(new Object(), null);
+	}
+}